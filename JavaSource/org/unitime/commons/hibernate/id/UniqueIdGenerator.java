@@ -30,6 +30,8 @@ import org.hibernate.dialect.Dialect;
 import org.hibernate.engine.spi.SessionImplementor;
 import org.hibernate.id.Configurable;
 import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.SequenceGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.hibernate.type.Type;
 
 /**
@@ -40,12 +42,33 @@ public class UniqueIdGenerator implements IdentifierGenerator, Configurable {
     private static String sGenClass = null;
     private static String sDefaultSchema = null;
     private static ObjectNameNormalizer sNormalizer = null;
+    private static Properties sBlockSizes = new Properties();
     
     public static void configure(Configuration config) {
         sGenClass = config.getProperty("tmtbl.uniqueid.generator");
         if (sGenClass==null) sGenClass = "org.hibernate.id.SequenceGenerator";
         sDefaultSchema = config.getProperty("default_schema");
         sNormalizer = config.createMappings().getObjectNameNormalizer();
+        sBlockSizes = new Properties();
+        for (String name: config.getProperties().stringPropertyNames())
+        	if (name.startsWith("tmtbl.hibernate.uniqueid.blockSize."))
+        		sBlockSizes.setProperty(name, config.getProperty(name));
+    }
+    
+    /**
+     * Number of identifiers that are allocated at once from the given sequence (defaults to 1, i.e., one database round trip per identifier).
+     * The block size is only used for sequences that are listed explicitly using tmtbl.hibernate.uniqueid.blockSize.<i>sequence</i>
+     * (e.g., tmtbl.hibernate.uniqueid.blockSize.pref_group_seq), and it must match the increment of the sequence in the database
+     * (e.g., alter sequence pref_group_seq increment by 100). The block size is defined per sequence and not per entity,
+     * since a sequence (like pref_group_seq) is often shared by multiple entities.
+     */
+    public static int getBlockSize(String sequence) {
+    	String blockSize = (sequence == null ? null : sBlockSizes.getProperty("tmtbl.hibernate.uniqueid.blockSize." + sequence));
+    	try {
+    		return (blockSize == null ? 1 : Math.max(1, Integer.parseInt(blockSize.trim())));
+    	} catch (NumberFormatException e) {
+    		throw new HibernateException("Invalid unique id block size " + blockSize + " for sequence " + sequence + ".", e);
+    	}
     }
     
     public IdentifierGenerator getGenerator() throws HibernateException {
@@ -66,6 +89,15 @@ public class UniqueIdGenerator implements IdentifierGenerator, Configurable {
     }
     
     public void configure(Type type, Properties params, Dialect d) throws MappingException {
+        int blockSize = getBlockSize(params.getProperty(SequenceGenerator.SEQUENCE));
+        if (blockSize > 1 && d.supportsSequences() && getGenerator() instanceof SequenceGenerator) {
+        	// pooled allocation: nextval (incremented by blockSize) is the last id of the block, ids nextval - blockSize + 1 .. nextval are used
+        	// this stays consistent with a direct use of the sequence in SQL (e.g., pref_group_seq.nextval in dbupdate.xml)
+        	iGenerator = new SequenceStyleGenerator();
+        	params.setProperty(SequenceStyleGenerator.SEQUENCE_PARAM, params.getProperty(SequenceGenerator.SEQUENCE));
+        	params.setProperty(SequenceStyleGenerator.INCREMENT_PARAM, String.valueOf(blockSize));
+        	params.setProperty(SequenceStyleGenerator.OPT_PARAM, "pooled");
+        }
         if (getGenerator() instanceof Configurable) {
             if (params.getProperty("schema") == null && sDefaultSchema != null)
                 params.setProperty("schema", sDefaultSchema);
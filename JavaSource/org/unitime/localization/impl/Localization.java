@@ -28,13 +28,16 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.apache.commons.logging.Log;
@@ -128,8 +131,12 @@ public class Localization {
 	}
 	
 	public static class Bundle implements InvocationHandler {
+		private static final int MAX_COMPILED_LOCALES = 32;
 		private Map<String, Properties> iProperties = new Hashtable<String, Properties>();
 		private Class<?> iMessages = null;
+		private Map<String, String> iLocales = new ConcurrentHashMap<String, String>();
+		private ConcurrentHashMap<String, String[]> iChains = new ConcurrentHashMap<String, String[]>();
+		private ConcurrentHashMap<String[], Map<Method, CompiledMessage>> iCompiled = new ConcurrentHashMap<String[], Map<Method, CompiledMessage>>();
 
 		public Bundle(Class<?> messages) {
 			iMessages = messages;
@@ -152,18 +159,42 @@ public class Localization {
 			return properties.getProperty(name);
 		}
 		
-		private String getProperty(String name) {
-			for (String locale: getLocale().split(",")) {
-				if (locale.indexOf(';') >= 0) locale = locale.substring(0, locale.indexOf(';'));
-				String value = getProperty(locale.trim(), name);
-				if (value != null) return value;
-				if (locale.indexOf('_') >= 0) {
-					locale = locale.substring(0, locale.indexOf('_'));
-					value = getProperty(locale.trim(), name);
-					if (value != null) return value;
+		/**
+		 * Locales in which a message is looked up (in this order) for the given locale string, ending with the default message bundle
+		 */
+		private String[] getLocales(String locale) {
+			String key = iLocales.get(locale);
+			if (key != null) return iChains.get(key);
+			List<String> list = new ArrayList<String>();
+			for (String loc: locale.split(",")) {
+				if (loc.indexOf(';') >= 0) loc = loc.substring(0, loc.indexOf(';'));
+				if (!list.contains(loc.trim())) list.add(loc.trim());
+				if (loc.indexOf('_') >= 0) {
+					loc = loc.substring(0, loc.indexOf('_'));
+					if (!list.contains(loc.trim())) list.add(loc.trim());
 				}
 			}
-			return getProperty("", name); // try default message bundle
+			if (!list.contains("")) list.add("");
+			String[] locales = list.toArray(new String[list.size()]);
+			key = Arrays.toString(locales);
+			if (iChains.size() < MAX_COMPILED_LOCALES || iChains.containsKey(key)) {
+				String[] previous = iChains.putIfAbsent(key, locales);
+				if (previous != null) locales = previous;
+				if (iLocales.size() < 10 * MAX_COMPILED_LOCALES) iLocales.put(locale, key);
+			}
+			return locales;
+		}
+		
+		private String getProperty(String[] locales, String name) {
+			for (String locale: locales) {
+				String value = getProperty(locale, name);
+				if (value != null) return value;
+			}
+			return null;
+		}
+		
+		private String getProperty(String name) {
+			return getProperty(getLocales(getLocale()), name);
 		}
 		
 		private String fillArgumentsIn(String value, Object[] args, int firstIndex) {
@@ -191,7 +222,7 @@ public class Localization {
 			return map;
 		}
 		
-		private Object type(String value, Class returnType) {
+		private Object type(String[] locales, String value, Class returnType) {
 			if (value == null) return value;
 			if (String.class.equals(returnType))
 				return value;
@@ -211,7 +242,7 @@ public class Localization {
 			if (Map.class.equals(returnType)) {
 				Map<String, String> map = new HashMap<String, String>();
 				for (String key: string2array(value)) {
-					String val = getProperty(key.trim());
+					String val = getProperty(locales, key.trim());
 					if (val != null) map.put(key.trim(), val);
 				}
 				if (map.isEmpty())
@@ -244,53 +275,184 @@ public class Localization {
 			return value;
 		}
 		
-		@Override
-		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-			if ("translateMessage".equals(method.getName()) && method.getParameterTypes().length >= 2) {
-				String value = (args[0] == null ? null : getProperty((String) args[0]));
-				return (value == null ? (String) args[1] : fillArgumentsIn(value, args, 2));
-			}
-			String value = getProperty(method.getName());
+		/**
+		 * Compile the given method for the given locales: look up the localized value, parse its template and (for constants) convert it to the return type.
+		 * When there is no localized value, the default value is read from the method annotations.
+		 */
+		private CompiledMessage compile(String[] locales, Method method) {
+			String value = getProperty(locales, method.getName());
 			if (value != null) {
-				Object ret = type(fillArgumentsIn(value, args, 0), method.getReturnType());
-				if (String[].class.equals(method.getReturnType())) {
-					Constants.DefaultStringArrayValue dsa = method.getAnnotation(Constants.DefaultStringArrayValue.class);
-					if (dsa != null)
-						return fixStringArray((String[])ret, dsa.value());
+				Object constant = null;
+				if (method.getParameterTypes().length == 0) {
+					constant = type(locales, value, method.getReturnType());
+					if (String[].class.equals(method.getReturnType())) {
+						Constants.DefaultStringArrayValue dsa = method.getAnnotation(Constants.DefaultStringArrayValue.class);
+						if (dsa != null)
+							constant = fixStringArray((String[])constant, dsa.value());
+					}
+					if (Map.class.equals(method.getReturnType())) {
+						Constants.DefaultStringMapValue dsm = method.getAnnotation(Constants.DefaultStringMapValue.class);
+						if (dsm != null)
+							constant = fixStringMap((Map<String, String>)constant, array2map(dsm.value()));
+					}
 				}
-				if (Map.class.equals(method.getReturnType())) {
-					Constants.DefaultStringMapValue dsm = method.getAnnotation(Constants.DefaultStringMapValue.class);
-					if (dsm != null)
-						return fixStringMap((Map<String, String>)ret, array2map(dsm.value()));
-				}
-				return ret;
+				return new CompiledMessage(method, locales, new Template(value), constant);
 			}
 			Messages.DefaultMessage dm = method.getAnnotation(Messages.DefaultMessage.class);
 			if (dm != null)
-				return fillArgumentsIn(dm.value(), args, 0);
+				return new CompiledMessage(method, locales, new Template(dm.value()), null);
 			Constants.DefaultBooleanValue db = method.getAnnotation(Constants.DefaultBooleanValue.class);
 			if (db != null)
-				return db.value();
+				return new CompiledMessage(method, locales, null, db.value());
 			Constants.DefaultDoubleValue dd = method.getAnnotation(Constants.DefaultDoubleValue.class);
 			if (dd != null)
-				return dd.value();
+				return new CompiledMessage(method, locales, null, dd.value());
 			Constants.DefaultFloatValue df = method.getAnnotation(Constants.DefaultFloatValue.class);
 			if (df != null)
-				return df.value();
+				return new CompiledMessage(method, locales, null, df.value());
 			Constants.DefaultIntValue di = method.getAnnotation(Constants.DefaultIntValue.class);
 			if (di != null)
-				return di.value();
+				return new CompiledMessage(method, locales, null, di.value());
 			Constants.DefaultStringValue ds = method.getAnnotation(Constants.DefaultStringValue.class);
 			if (ds != null)
-				return ds.value();
+				return new CompiledMessage(method, locales, null, ds.value());
 			Constants.DefaultStringArrayValue dsa = method.getAnnotation(Constants.DefaultStringArrayValue.class);
 			if (dsa != null)
-				return dsa.value();
+				return new CompiledMessage(method, locales, null, dsa.value());
 			Constants.DefaultStringMapValue dsm = method.getAnnotation(Constants.DefaultStringMapValue.class);
 			if (dsm != null)
-				return array2map(dsm.value());
+				return new CompiledMessage(method, locales, null, array2map(dsm.value()));
+			return new CompiledMessage(method, locales, null, method.getName());
+		}
+		
+		/**
+		 * Compiled message for the current locale. Messages are compiled once per locale, message bundles are never reloaded.
+		 */
+		private CompiledMessage getCompiledMessage(Method method) {
+			String[] locales = getLocales(getLocale());
+			// locale chains are shared (see getLocales), an array that is not shared is not cached
+			Map<Method, CompiledMessage> compiled = iCompiled.get(locales);
+			if (compiled == null) {
+				if (!iChains.containsValue(locales))
+					return compile(locales, method);
+				compiled = new ConcurrentHashMap<Method, CompiledMessage>();
+				Map<Method, CompiledMessage> previous = iCompiled.putIfAbsent(locales, compiled);
+				if (previous != null) compiled = previous;
+			}
+			CompiledMessage message = compiled.get(method);
+			if (message == null) {
+				message = compile(locales, method);
+				compiled.put(method, message);
+			}
+			return message;
+		}
+		
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if ("translateMessage".equals(method.getName()) && method.getParameterTypes().length >= 2) {
+				String value = (args[0] == null ? null : getProperty((String) args[0]));
+				return (value == null ? (String) args[1] : fillArgumentsIn(value, args, 2));
+			}
+			return getCompiledMessage(method).evaluate(args);
+		}
+		
+		/**
+		 * Message of a method compiled for a particular locale
+		 */
+		private class CompiledMessage {
+			private Method iMethod;
+			private String[] iLocales;
+			private Template iTemplate;
+			private Object iConstant;
 			
-			return method.getName();
+			CompiledMessage(Method method, String[] locales, Template template, Object constant) {
+				iMethod = method; iLocales = locales; iTemplate = template; iConstant = constant;
+			}
+			
+			Object evaluate(Object[] args) {
+				if (iConstant != null) {
+					// constants are shared, return a copy of mutable values
+					if (iConstant instanceof String[])
+						return ((String[])iConstant).clone();
+					if (iConstant instanceof Map)
+						return new HashMap<String, String>((Map<String, String>)iConstant);
+					return iConstant;
+				}
+				String value = iTemplate.format(args);
+				if (String.class.equals(iMethod.getReturnType())) return value;
+				Object ret = type(iLocales, value, iMethod.getReturnType());
+				if (String[].class.equals(iMethod.getReturnType())) {
+					Constants.DefaultStringArrayValue dsa = iMethod.getAnnotation(Constants.DefaultStringArrayValue.class);
+					if (dsa != null)
+						return fixStringArray((String[])ret, dsa.value());
+				}
+				if (Map.class.equals(iMethod.getReturnType())) {
+					Constants.DefaultStringMapValue dsm = iMethod.getAnnotation(Constants.DefaultStringMapValue.class);
+					if (dsm != null)
+						return fixStringMap((Map<String, String>)ret, array2map(dsm.value()));
+				}
+				return ret;
+			}
+		}
+	}
+	
+	/**
+	 * Pre-parsed message template. Arguments are referenced as {0} or {0,number,pattern}, arguments that are not provided are kept in the message.
+	 */
+	static class Template {
+		private String iValue;
+		private String[] iLiterals;
+		private int[] iArguments;
+		private String[] iPatterns;
+		
+		Template(String value) {
+			iValue = value;
+			List<String> literals = new ArrayList<String>();
+			List<Integer> arguments = new ArrayList<Integer>();
+			List<String> patterns = new ArrayList<String>();
+			StringBuilder literal = new StringBuilder();
+			int idx = 0;
+			while (idx < value.length()) {
+				char ch = value.charAt(idx);
+				int end = (ch == '{' ? value.indexOf('}', idx) : -1);
+				if (end > idx) {
+					String ref = value.substring(idx + 1, end);
+					String index = (ref.indexOf(',') >= 0 ? ref.substring(0, ref.indexOf(',')) : ref);
+					String pattern = (ref.startsWith(index + ",number,") ? ref.substring(index.length() + ",number,".length()) : null);
+					if (!index.isEmpty() && index.matches("[0-9]+") && (pattern != null || index.equals(ref))) {
+						literals.add(literal.toString()); literal.setLength(0);
+						arguments.add(Integer.valueOf(index));
+						patterns.add(pattern);
+						idx = end + 1;
+						continue;
+					}
+				}
+				literal.append(ch);
+				idx ++;
+			}
+			literals.add(literal.toString());
+			iLiterals = literals.toArray(new String[literals.size()]);
+			iArguments = new int[arguments.size()];
+			for (int i = 0; i < iArguments.length; i++) iArguments[i] = arguments.get(i);
+			iPatterns = patterns.toArray(new String[patterns.size()]);
+		}
+		
+		String format(Object[] args) {
+			if (args == null || iArguments.length == 0) return iValue;
+			StringBuilder ret = new StringBuilder(iValue.length() + 16 * iArguments.length);
+			for (int i = 0; i < iArguments.length; i++) {
+				ret.append(iLiterals[i]);
+				int a = iArguments[i];
+				if (a >= args.length) {
+					ret.append('{').append(a);
+					if (iPatterns[i] != null) ret.append(",number,").append(iPatterns[i]);
+					ret.append('}');
+				} else if (args[a] != null) {
+					ret.append(iPatterns[i] == null ? args[a].toString() : Formats.getNumberFormat(iPatterns[i]).format((Number)args[a]));
+				}
+			}
+			ret.append(iLiterals[iArguments.length]);
+			return ret.toString();
 		}
 	}
 }
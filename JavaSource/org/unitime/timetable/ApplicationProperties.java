@@ -34,6 +34,7 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.unitime.commons.Debug;
 import org.unitime.timetable.defaults.ApplicationProperty;
@@ -50,7 +51,8 @@ import org.unitime.timetable.util.Constants;
  */
 public class ApplicationProperties {
 	private static DateFormat sTempFileDateFormat = new SimpleDateFormat("yy-MM-dd_HHmmssSSS", Locale.US);
-	private static Properties props = new Properties();
+	private static final AtomicLong sVersion = new AtomicLong(0);
+	private static Properties props = new VersionedProperties();
     private static long appPropertiesLastModified = -1, custPropertiesLastModified = -1;  
     private static PropertyFileChangeListener pfc=null;
     private static Properties configProps = null;
@@ -63,6 +65,14 @@ public class ApplicationProperties {
 		 }
 	};
 	
+	/**
+	 * Configuration version, it is incremented every time any of the application, configuration, or session properties are changed.
+	 * Used by {@link ApplicationProperty} to keep resolved property values between the changes.
+	 */
+	public static long getVersion() {
+		return sVersion.get();
+	}
+	
 	public static Long getSessionId() {
 		return sAcademicSession.get();
 	}
@@ -94,6 +104,7 @@ public class ApplicationProperties {
 	 * Load properties 
 	 */
 	public static void load() {
+		sVersion.incrementAndGet();
 		try {
             // Load properties set in application.properties
 			URL appPropertiesUrl = ApplicationProperties.class.getClassLoader().getResource("application.properties");
@@ -181,13 +192,16 @@ public class ApplicationProperties {
 	}
 	
 	public static Properties getConfigProperties() {
-	    if (configProps==null && _RootDAO.isConfigured())
-	        configProps = ApplicationConfig.toProperties();
+	    if (configProps==null && _RootDAO.isConfigured()) {
+	        configProps = new VersionedProperties(ApplicationConfig.toProperties());
+	        sVersion.incrementAndGet();
+	    }
 	    return (configProps==null?new Properties():configProps);
 	}
 	
 	public static void clearConfigProperties() {
 	    configProps = null;
+	    sVersion.incrementAndGet();
 	}
 	
 	public static Properties getSessionProperties(Long sessionId) {
@@ -196,8 +210,9 @@ public class ApplicationProperties {
 		
 		Properties properties = sSessionProperties.get(sessionId);
 		if (properties == null) {
-			properties = SessionConfig.toProperties(sessionId);
+			properties = new VersionedProperties(SessionConfig.toProperties(sessionId));
 			sSessionProperties.put(sessionId, properties);
+			sVersion.incrementAndGet();
 		}
 		return properties;
 	}
@@ -207,6 +222,96 @@ public class ApplicationProperties {
 			sSessionProperties.clear();
 		else
 			sSessionProperties.remove(sessionId);
+		sVersion.incrementAndGet();
+	}
+	
+	/**
+	 * Properties that increment the configuration version on every change (the application, configuration, and session
+	 * properties are changed in place, e.g., by a remote solver server).
+	 */
+	private static class VersionedProperties extends Properties {
+		private static final long serialVersionUID = 1L;
+		
+		VersionedProperties() {
+			super();
+		}
+		
+		VersionedProperties(Properties properties) {
+			super();
+			putAll(properties);
+		}
+		
+		@Override
+		public synchronized Object put(Object key, Object value) {
+			try {
+				return super.put(key, value);
+			} finally {
+				sVersion.incrementAndGet();
+			}
+		}
+		
+		@Override
+		public synchronized void putAll(Map<? extends Object, ? extends Object> t) {
+			try {
+				super.putAll(t);
+			} finally {
+				sVersion.incrementAndGet();
+			}
+		}
+		
+		@Override
+		public synchronized Object remove(Object key) {
+			try {
+				return super.remove(key);
+			} finally {
+				sVersion.incrementAndGet();
+			}
+		}
+		
+		@Override
+		public synchronized boolean remove(Object key, Object value) {
+			try {
+				return super.remove(key, value);
+			} finally {
+				sVersion.incrementAndGet();
+			}
+		}
+		
+		@Override
+		public synchronized Object putIfAbsent(Object key, Object value) {
+			try {
+				return super.putIfAbsent(key, value);
+			} finally {
+				sVersion.incrementAndGet();
+			}
+		}
+		
+		@Override
+		public synchronized Object replace(Object key, Object value) {
+			try {
+				return super.replace(key, value);
+			} finally {
+				sVersion.incrementAndGet();
+			}
+		}
+		
+		@Override
+		public synchronized boolean replace(Object key, Object oldValue, Object newValue) {
+			try {
+				return super.replace(key, oldValue, newValue);
+			} finally {
+				sVersion.incrementAndGet();
+			}
+		}
+		
+		@Override
+		public synchronized void clear() {
+			try {
+				super.clear();
+			} finally {
+				sVersion.incrementAndGet();
+			}
+		}
 	}
 	
 	/**
@@ -267,7 +372,8 @@ public class ApplicationProperties {
 	 * @return Properties object
 	 */
 	public static Properties getProperties() {
-        Properties ret = (Properties)props.clone();
+        Properties ret = new Properties();
+        ret.putAll(props);
         ret.putAll(getConfigProperties());
         
 	    Long sessionId = ApplicationProperties.getSessionId();
@@ -24,6 +24,7 @@ import java.io.PrintWriter;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -49,6 +50,7 @@ import org.unitime.timetable.model.Assignment;
 import org.unitime.timetable.model.ClassInstructor;
 import org.unitime.timetable.model.Class_;
 import org.unitime.timetable.model.Department;
+import org.unitime.timetable.model.InstructionalOffering;
 import org.unitime.timetable.model.ItypeDesc;
 import org.unitime.timetable.model.LearningManagementSystemInfo;
 import org.unitime.timetable.model.StudentClassEnrollment;
@@ -401,10 +403,10 @@ public class ClassSearchAction extends UniTimeAction<ClassListForm> {
 		Long filterManager = (doFilterManager?Long.valueOf(form.getFilterManager()):null);
 
         boolean fetchStructure = true;
-        boolean fetchCredits = false;//form.getCredit().booleanValue();
-        boolean fetchInstructors = false;//form.getInstructor().booleanValue();
-        boolean fetchPreferences = false;//form.getPreferences().booleanValue() || form.getTimePattern().booleanValue();
-        boolean fetchAssignments = false;//(form.getTimetable()!=null && form.getTimetable().booleanValue());
+        boolean fetchCredits = Boolean.TRUE.equals(form.getCredit()) || Boolean.TRUE.equals(form.getSubpartCredit());
+        boolean fetchInstructors = Boolean.TRUE.equals(form.getInstructor()) || (form.getFilterInstructor() != null && !form.getFilterInstructor().isEmpty());
+        boolean fetchPreferences = Boolean.TRUE.equals(form.getPreferences()) || Boolean.TRUE.equals(form.getTimePattern());
+        boolean fetchAssignments = Boolean.TRUE.equals(form.getTimetable());
         
 		String[] subjectIds = form.getSubjectAreaIds();
 		if (subjectIds != null && subjectIds.length > 0){
@@ -420,24 +422,7 @@ public class ClassSearchAction extends UniTimeAction<ClassListForm> {
 				query.append("left join fetch io.courseOfferings as cox ");
 			}
 			
-			if (fetchCredits)
-				query.append("left join fetch ss.creditConfigs as ssc ");
-			
-			if (fetchPreferences || fetchInstructors) {
-				query.append("left join fetch c.classInstructors as ci ");
-				query.append("left join fetch ci.instructor as di ");
-			}
-			
-			if (fetchAssignments) {
-				query.append("left join fetch c.assignments as ca ");
-				query.append("left join fetch ca.rooms as car ");
-			}
-
-			if (fetchPreferences) {
-				query.append("left join fetch c.preferences as cp ");
-				query.append("left join fetch ss.preferences as ssp ");
-				query.append("left join fetch di.preferences as dip ");
-			}
+			// credits, instructors, preferences, and assignments are loaded by separate queries, see InstructionalOffering.prefetch(...)
 			
 			query.append("inner join c.schedulingSubpart.instrOfferingConfig.instructionalOffering.courseOfferings as co ");
 			query.append(" where co.subjectArea.uniqueId in ( ");
@@ -517,8 +502,16 @@ public class ClassSearchAction extends UniTimeAction<ClassListForm> {
             // only start time selected -> create time location all days with given start time and 1 slot length
 			// only days selected -> create time location of given days all day long (all location assigned in the given days overlap)
 			
+			List<Object[]> rows = q.list();
+			if (fetchCredits || fetchInstructors || fetchPreferences || fetchAssignments) {
+				Set<Long> offeringIds = new HashSet<Long>();
+				for (Object[] o: rows)
+					offeringIds.add(((Class_)o[0]).getSchedulingSubpart().getInstrOfferingConfig().getInstructionalOffering().getUniqueId());
+				InstructionalOffering.prefetch(hibSession, offeringIds, fetchCredits, fetchInstructors, fetchPreferences, fetchAssignments);
+			}
+			
 			Debug.debug(" --- Filter classes ---");
-			for (Iterator i=q.list().iterator();i.hasNext();) {
+			for (Iterator i=rows.iterator();i.hasNext();) {
 				Object[] o = (Object[])i.next(); Class_ c = (Class_)o[0];
 				if (doFilterInstructor) {
 					boolean filterLine = true;
@@ -461,10 +461,10 @@ public class InstructionalOfferingSearchAction extends UniTimeAction<Instruction
     public static Map<Long, TreeSet<InstructionalOffering>> getInstructionalOfferings(Long sessionId, ClassAssignmentProxy classAssignmentProxy, InstructionalOfferingListForm form) {
         
         boolean fetchStructure = true;
-        boolean fetchCredits = false;//singleCourseSelection || form.getCredit().booleanValue();
-        boolean fetchInstructors = false;//singleCourseSelection || form.getInstructor().booleanValue();
-        boolean fetchPreferences = false;//singleCourseSelection || form.getPreferences().booleanValue() || form.getTimePattern().booleanValue();
-        boolean fetchAssignments = false;//singleCourseSelection || (form.getTimetable()!=null && form.getTimetable().booleanValue());
+        boolean fetchCredits = Boolean.TRUE.equals(form.getCredit()) || Boolean.TRUE.equals(form.getSubpartCredit());
+        boolean fetchInstructors = Boolean.TRUE.equals(form.getInstructor());
+        boolean fetchPreferences = Boolean.TRUE.equals(form.getPreferences()) || Boolean.TRUE.equals(form.getTimePattern());
+        boolean fetchAssignments = Boolean.TRUE.equals(form.getTimetable());
         boolean fetchReservations = false;//singleCourseSelection;
         
         Map<Long, TreeSet<InstructionalOffering>> map = new Hashtable<Long, TreeSet<InstructionalOffering>>();
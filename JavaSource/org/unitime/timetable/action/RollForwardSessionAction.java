@@ -34,6 +34,7 @@ import org.unitime.commons.web.WebTable;
 import org.unitime.commons.web.WebTable.WebTableLine;
 import org.unitime.localization.impl.Localization;
 import org.unitime.localization.messages.CourseMessages;
+import org.unitime.timetable.defaults.ApplicationProperty;
 import org.unitime.timetable.form.RollForwardSessionForm;
 import org.unitime.timetable.gwt.command.server.GwtRpcServlet;
 import org.unitime.timetable.gwt.shared.ReservationInterface;
@@ -46,6 +47,8 @@ import org.unitime.timetable.model.dao.SessionDAO;
 import org.unitime.timetable.security.UserContext;
 import org.unitime.timetable.security.rights.Right;
 import org.unitime.timetable.util.Formats;
+import org.unitime.timetable.util.RollForwardStepExecutor;
+import org.unitime.timetable.util.RollForwardStepExecutor.Step;
 import org.unitime.timetable.util.SessionRollForward;
 import org.unitime.timetable.util.queue.QueueItem;
 
@@ -207,7 +210,7 @@ public class RollForwardSessionAction extends UniTimeAction<RollForwardSessionFo
 	public static class RollForwardErrors extends ArrayList<RollForwardError> {
 		private static final long serialVersionUID = 6152383035137322209L;
 
-		public void addFieldError(String type, String message) {
+		public synchronized void addFieldError(String type, String message) {
 			add(new RollForwardError(type, message));
 		}
 	}
@@ -215,7 +218,8 @@ public class RollForwardSessionAction extends UniTimeAction<RollForwardSessionFo
 	private static class RollForwardQueueItem extends QueueItem {
 		private static final long serialVersionUID = 1L;
 		private RollForwardSessionForm iForm;
-		private int iProgress = 0;
+		private int iProgress = 0, iNrSteps = 1;
+		private transient RollForwardStepExecutor iExecutor = null;
 		private RollForwardErrors iErrors = new RollForwardErrors();
 		
 		public RollForwardQueueItem(Session session, UserContext owner, RollForwardSessionForm form) {
@@ -237,172 +241,247 @@ public class RollForwardSessionAction extends UniTimeAction<RollForwardSessionFo
 			setError(t);
 		}
 		
+		protected Session getToSession() {
+			return Session.getSessionById(iForm.getSessionToRollForwardTo());
+		}
+		
 		@Override
 		protected void execute() throws Exception {
-	        SessionRollForward sessionRollForward = new SessionRollForward(this);
-	        Session toAcadSession = Session.getSessionById(iForm.getSessionToRollForwardTo());
+	        Session toAcadSession = getToSession();
 			if (toAcadSession == null){
 	   			iErrors.addFieldError("mustSelectSession", MSG.errorRollForwardMissingToSession());
 			}
-			if (iErrors.isEmpty()){
-				iForm.validateDepartmentRollForward(toAcadSession, iErrors);
-			}
-        	if (iErrors.isEmpty() && iForm.getRollForwardDepartments()) {
-				setStatus(MSG.rollForwardDepartments() + " ...");
-	        	sessionRollForward.rollDepartmentsForward(iErrors, iForm);	
-	        }
-	        iProgress++;
-        	if (iErrors.isEmpty() && iForm.getRollForwardSessionConfig()) {
-				setStatus(MSG.rollForwardSessionConfiguration() + " ...");
-        	    sessionRollForward.rollSessionConfigurationForward(iErrors, iForm);
-        	}
-	        iProgress++;
-			if (iErrors.isEmpty()){
-				iForm.validateManagerRollForward(toAcadSession, iErrors);
-			}
-        	if (iErrors.isEmpty() && iForm.getRollForwardManagers()) {
-				setStatus(MSG.rollForwardManagers() + " ...");
-        		sessionRollForward.rollManagersForward(iErrors, iForm);
-        	}
-	        iProgress++;
-			if (iErrors.isEmpty()){
-				iForm.validateBuildingAndRoomRollForward(toAcadSession, iErrors);
-			}
-        	if (iErrors.isEmpty() && iForm.getRollForwardRoomData()) {
-				setStatus(MSG.rollForwardRooms() + " ...");
-        		sessionRollForward.rollBuildingAndRoomDataForward(iErrors, iForm);
-        	}
-	        iProgress++;
-			if (iErrors.isEmpty()){
-				iForm.validateDatePatternRollForward(toAcadSession, iErrors);
-			}
-	        if (iErrors.isEmpty() && iForm.getRollForwardDatePatterns()) {
-				setStatus(MSG.rollForwardDatePatterns() + " ...");
-	        	sessionRollForward.rollDatePatternsForward(iErrors, iForm);
-	        }
-	        iProgress++;
-			if (iErrors.isEmpty()){
-				iForm.validateTimePatternRollForward(toAcadSession, iErrors);
-			}
-            if (iErrors.isEmpty() && iForm.getRollForwardTimePatterns()) {
-				setStatus(MSG.rollForwardTimePatterns() + " ...");
-	        	sessionRollForward.rollTimePatternsForward(iErrors, iForm);
-	        }
-	        iProgress++;
-			if (iErrors.isEmpty()){
-				iForm.validateSubjectAreaRollForward(toAcadSession, iErrors);
-			}
-			if (iErrors.isEmpty()){
-				iForm.validateLearningManagementSystemRollForward(toAcadSession, iErrors);
-			}
-	        if (iErrors.isEmpty() && iForm.getRollForwardLearningManagementSystems()) {
-				setStatus(MSG.rollForwardLMSInfo() + " ...");
-	        	sessionRollForward.rollLearningManagementSystemInfoForward(iErrors, iForm);
-	        }
-	        iProgress++;
-	        if (iErrors.isEmpty() && iForm.getRollForwardSubjectAreas()) {
-				setStatus(MSG.rollForwardSubjectAreas() + " ...");
-	    		sessionRollForward.rollSubjectAreasForward(iErrors, iForm);
-	    	}
-	        iProgress++;
-	    	if (iErrors.isEmpty() && iForm.getRollForwardInstructorData()) {
-				setStatus(MSG.rollForwardInstructors() + " ...");
-	    		sessionRollForward.rollInstructorDataForward(iErrors, iForm);
-	    	}
-	        iProgress++;
-			if (iErrors.isEmpty()){
-				iForm.validateCourseOfferingRollForward(toAcadSession, iErrors);
-			}
-			if (iErrors.isEmpty() && iForm.getRollForwardCourseOfferings()) {
-				setStatus(MSG.rollForwardCourseOfferings() + " ...");
-	    		sessionRollForward.rollCourseOfferingsForward(iErrors, iForm);
-	    	}
-	        iProgress++;
-			if (iErrors.isEmpty()){
-				iForm.validateClassInstructorRollForward(toAcadSession, iErrors);
-			}
-	    	if (iErrors.isEmpty() && iForm.getRollForwardClassInstructors()) {
-				setStatus(MSG.rollForwardClassInstructors() + " ...");
-	    		sessionRollForward.rollClassInstructorsForward(iErrors, iForm);
-	    	}
-	        iProgress++;
-	        if (iErrors.isEmpty()){
-				iForm.validateOfferingCoordinatorsRollForward(toAcadSession, iErrors);
-			}
-	    	if (iErrors.isEmpty() && iForm.getRollForwardOfferingCoordinators()) {
-				setStatus(MSG.rollForwardOfferingCoordinators() + " ...");
-	    		sessionRollForward.rollOfferingCoordinatorsForward(iErrors, iForm);
-	    	}
-			iProgress++;
-			if (iErrors.isEmpty()){
-				iForm.validateTeachingRequestsRollForward(toAcadSession, iErrors);
-			}
-	    	if (iErrors.isEmpty() && iForm.getRollForwardTeachingRequests()) {
-				setStatus(MSG.rollForwardTeachingRequests() + " ...");
-	    		sessionRollForward.rollTeachingRequestsForward(iErrors, iForm);
-	    	}
-	        iProgress++;
-	    	if (iErrors.isEmpty() && iForm.getAddNewCourseOfferings()) {
-				setStatus(MSG.rollForwardNewCourses() + " ...");
-	    		sessionRollForward.addNewCourseOfferings(iErrors, iForm);
-	    	}
-	        iProgress++;
-			if (iErrors.isEmpty()){
-				iForm.validateExamConfigurationRollForward(toAcadSession, iErrors);
-			}
-			if (iErrors.isEmpty() && iForm.getRollForwardExamConfiguration()) {
-				setStatus(MSG.rollForwardExamConfiguration() + " ...");
-	    		sessionRollForward.rollExamConfigurationDataForward(iErrors, iForm);
-	    	}
-	        iProgress++;
-			if (iErrors.isEmpty()){
-				iForm.validateMidtermExamRollForward(toAcadSession, iErrors);
-			}
-	    	if (iErrors.isEmpty() && iForm.getRollForwardMidtermExams()) {
-				setStatus(MSG.rollForwardMidtermExams() + " ...");
-	    		sessionRollForward.rollMidtermExamsForward(iErrors, iForm);
-	    	}
-	        iProgress++;
-			if (iErrors.isEmpty()){
-				iForm.validateFinalExamRollForward(toAcadSession, iErrors);
-			}
-	    	if (iErrors.isEmpty() && iForm.getRollForwardFinalExams()) {
-				setStatus(MSG.rollForwardFinalExams() + " ...");
-	    		sessionRollForward.rollFinalExamsForward(iErrors, iForm);
-	    	}
-	        iProgress++;
-			if (iErrors.isEmpty()){
-				iForm.validateLastLikeDemandRollForward(toAcadSession, iErrors);
-			}
-			if (iErrors.isEmpty() && iForm.getRollForwardStudents()) {
-				setStatus(MSG.rollForwardStudents() + " ...");
-	    	    sessionRollForward.rollStudentsForward(iErrors, iForm);
-	    	}
-	        iProgress++;
-			if (iErrors.isEmpty()){
-				iForm.validateCurriculaRollForward(toAcadSession, iErrors);
+			
+			RollForwardStepExecutor executor = new RollForwardStepExecutor(this, ApplicationProperty.RollForwardNrThreads.intValue(), getSessionId(), getLocale()) {
+				@Override
+				protected boolean isStopped() {
+					return !iErrors.isEmpty();
+				}
+			};
+			
+			Step departments = executor.addStep(new RollForwardStep(MSG.rollForwardDepartments(), iForm.getRollForwardDepartments()) {
+				@Override
+				public void validate() {
+					iForm.validateDepartmentRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollDepartmentsForward(iErrors, iForm);
+				}
+			});
+			Step sessionConfig = executor.addStep(new RollForwardStep(MSG.rollForwardSessionConfiguration(), iForm.getRollForwardSessionConfig(), departments) {
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollSessionConfigurationForward(iErrors, iForm);
+				}
+			});
+			Step managers = executor.addStep(new RollForwardStep(MSG.rollForwardManagers(), iForm.getRollForwardManagers(), departments) {
+				@Override
+				public void validate() {
+					iForm.validateManagerRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollManagersForward(iErrors, iForm);
+				}
+			});
+			Step rooms = executor.addStep(new RollForwardStep(MSG.rollForwardRooms(), iForm.getRollForwardRoomData(), departments) {
+				@Override
+				public void validate() {
+					iForm.validateBuildingAndRoomRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollBuildingAndRoomDataForward(iErrors, iForm);
+				}
+			});
+			Step datePatterns = executor.addStep(new RollForwardStep(MSG.rollForwardDatePatterns(), iForm.getRollForwardDatePatterns(), departments) {
+				@Override
+				public void validate() {
+					iForm.validateDatePatternRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollDatePatternsForward(iErrors, iForm);
+				}
+			});
+			Step timePatterns = executor.addStep(new RollForwardStep(MSG.rollForwardTimePatterns(), iForm.getRollForwardTimePatterns(), departments) {
+				@Override
+				public void validate() {
+					iForm.validateTimePatternRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollTimePatternsForward(iErrors, iForm);
+				}
+			});
+			Step lms = executor.addStep(new RollForwardStep(MSG.rollForwardLMSInfo(), iForm.getRollForwardLearningManagementSystems()) {
+				@Override
+				public void validate() {
+					iForm.validateLearningManagementSystemRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollLearningManagementSystemInfoForward(iErrors, iForm);
+				}
+			});
+			Step subjectAreas = executor.addStep(new RollForwardStep(MSG.rollForwardSubjectAreas(), iForm.getRollForwardSubjectAreas(), departments) {
+				@Override
+				public void validate() {
+					iForm.validateSubjectAreaRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollSubjectAreasForward(iErrors, iForm);
+				}
+			});
+			Step instructors = executor.addStep(new RollForwardStep(MSG.rollForwardInstructors(), iForm.getRollForwardInstructorData(), departments, rooms) {
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollInstructorDataForward(iErrors, iForm);
+				}
+			});
+			Step courseOfferings = executor.addStep(new RollForwardStep(MSG.rollForwardCourseOfferings(), iForm.getRollForwardCourseOfferings(), subjectAreas, rooms, datePatterns, timePatterns, lms, instructors) {
+				@Override
+				public void validate() {
+					iForm.validateCourseOfferingRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollCourseOfferingsForward(iErrors, iForm);
+				}
+			});
+			Step classInstructors = executor.addStep(new RollForwardStep(MSG.rollForwardClassInstructors(), iForm.getRollForwardClassInstructors(), courseOfferings, instructors) {
+				@Override
+				public void validate() {
+					iForm.validateClassInstructorRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollClassInstructorsForward(iErrors, iForm);
+				}
+			});
+			Step offeringCoordinators = executor.addStep(new RollForwardStep(MSG.rollForwardOfferingCoordinators(), iForm.getRollForwardOfferingCoordinators(), courseOfferings, instructors) {
+				@Override
+				public void validate() {
+					iForm.validateOfferingCoordinatorsRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollOfferingCoordinatorsForward(iErrors, iForm);
+				}
+			});
+			Step teachingRequests = executor.addStep(new RollForwardStep(MSG.rollForwardTeachingRequests(), iForm.getRollForwardTeachingRequests(), courseOfferings, instructors, classInstructors) {
+				@Override
+				public void validate() {
+					iForm.validateTeachingRequestsRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollTeachingRequestsForward(iErrors, iForm);
+				}
+			});
+			Step newCourses = executor.addStep(new RollForwardStep(MSG.rollForwardNewCourses(), iForm.getAddNewCourseOfferings(), subjectAreas, courseOfferings) {
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).addNewCourseOfferings(iErrors, iForm);
+				}
+			});
+			Step examConfiguration = executor.addStep(new RollForwardStep(MSG.rollForwardExamConfiguration(), iForm.getRollForwardExamConfiguration(), departments, managers, rooms) {
+				@Override
+				public void validate() {
+					iForm.validateExamConfigurationRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollExamConfigurationDataForward(iErrors, iForm);
+				}
+			});
+			Step midtermExams = executor.addStep(new RollForwardStep(MSG.rollForwardMidtermExams(), iForm.getRollForwardMidtermExams(), examConfiguration, courseOfferings, newCourses, instructors) {
+				@Override
+				public void validate() {
+					iForm.validateMidtermExamRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollMidtermExamsForward(iErrors, iForm);
+				}
+			});
+			Step finalExams = executor.addStep(new RollForwardStep(MSG.rollForwardFinalExams(), iForm.getRollForwardFinalExams(), examConfiguration, courseOfferings, newCourses, instructors) {
+				@Override
+				public void validate() {
+					iForm.validateFinalExamRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollFinalExamsForward(iErrors, iForm);
+				}
+			});
+			Step students = executor.addStep(new RollForwardStep(MSG.rollForwardStudents(), iForm.getRollForwardStudents(), subjectAreas, courseOfferings, newCourses) {
+				@Override
+				public void validate() {
+					iForm.validateLastLikeDemandRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollStudentsForward(iErrors, iForm);
+				}
+			});
+			Step curricula = executor.addStep(new RollForwardStep(MSG.rollForwardCurricula(), iForm.getRollForwardCurricula(), courseOfferings, newCourses, students) {
+				@Override
+				public void validate() {
+					iForm.validateCurriculaRollForward(getToSession(), iErrors);
+				}
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollCurriculaForward(iErrors, iForm);
+				}
+			});
+			Step reservations = executor.addStep(new RollForwardStep(MSG.rollForwardReservations(), iForm.getRollForwardReservations(), courseOfferings, newCourses, curricula) {
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollReservationsForward(iErrors, iForm);
+				}
+			});
+			executor.addStep(new RollForwardStep(MSG.rollForwardScheduledTasks(), iForm.getRollForwardPeriodicTasks(),
+					departments, sessionConfig, managers, rooms, datePatterns, timePatterns, lms, subjectAreas, instructors, courseOfferings, classInstructors,
+					offeringCoordinators, teachingRequests, newCourses, examConfiguration, midtermExams, finalExams, students, curricula, reservations) {
+				@Override
+				public void execute() {
+					new SessionRollForward(RollForwardQueueItem.this).rollPeriodicTasksForward(iErrors, iForm);
+				}
+			});
+			
+			iNrSteps = executor.getSteps().size();
+			iExecutor = executor;
+			try {
+				executor.execute();
+			} finally {
+				iProgress = executor.getNrFinished();
+				iExecutor = null;
 			}
-	    	if (iErrors.isEmpty() && iForm.getRollForwardCurricula()) {
-				setStatus(MSG.rollForwardCurricula() + " ...");
-	    	    sessionRollForward.rollCurriculaForward(iErrors, iForm);
-	    	}
-	        iProgress++;
-	    	if (iErrors.isEmpty() && iForm.getRollForwardReservations()) {
-				setStatus(MSG.rollForwardReservations() + " ...");
-	    	    sessionRollForward.rollReservationsForward(iErrors, iForm);
-	    	}
-	        iProgress++;
-	        if (iErrors.isEmpty() && iForm.getRollForwardPeriodicTasks()) {
-				setStatus(MSG.rollForwardScheduledTasks() + " ...");
-	    	    sessionRollForward.rollPeriodicTasksForward(iErrors, iForm);
-	    	}
-	        iProgress++;
+			
 	        if (!iErrors.isEmpty()) {
 	        	setError(new Exception(iErrors.get(0).getMessage()));
 	        } else {
 	        	log(MSG.logAllDone());
 	        }
 		}
+		
+		abstract class RollForwardStep extends Step {
+			private boolean iEnabled;
+			
+			RollForwardStep(String name, Boolean enabled, Step... dependencies) {
+				super(name, dependencies);
+				iEnabled = Boolean.TRUE.equals(enabled);
+			}
+			
+			@Override
+			public boolean isEnabled() {
+				if (iEnabled) setStatus(getName() + " ...");
+				return iEnabled;
+			}
+		}
 
 		@Override
 		public String name() {
@@ -435,7 +514,8 @@ public class RollForwardSessionAction extends UniTimeAction<RollForwardSessionFo
 
 		@Override
 		public double progress() {
-			return 100 * iProgress / 14;
+			RollForwardStepExecutor executor = iExecutor;
+			return 100 * (executor == null ? iProgress : executor.getNrFinished()) / iNrSteps;
 		}
 
 		@Override
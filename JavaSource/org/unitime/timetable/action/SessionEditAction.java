@@ -49,6 +49,8 @@ import org.unitime.timetable.model.dao.SessionDAO;
 import org.unitime.timetable.model.dao.StudentSectioningStatusDAO;
 import org.unitime.timetable.security.rights.Right;
 import org.unitime.timetable.util.Constants;
+import org.unitime.timetable.util.DataChange;
+import org.unitime.timetable.util.DataChangeNotifier;
 import org.unitime.timetable.util.Formats;
 import org.unitime.timetable.util.LookupTables;
 
@@ -306,6 +308,8 @@ public class SessionEditAction extends UniTimeAction<SessionEditForm> {
             	}
             }
             
+            // class and examination events may have been created or deleted
+            DataChangeNotifier.changed(hibSession, new DataChange(sessn.getUniqueId()));
             tx.commit() ;
         } catch (Exception e) {
             if (tx!=null) tx.rollback();
@@ -20,6 +20,7 @@
  
 package org.unitime.timetable.dataexchange;
 
+import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -32,6 +33,8 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.Vector;
 
+import javax.xml.stream.XMLStreamException;
+
 import org.cpsolver.ifs.util.ToolBox;
 import org.dom4j.Element;
 import org.hibernate.FlushMode;
@@ -87,6 +90,8 @@ import org.unitime.timetable.test.MakeAssignmentsForClassEvents;
 import org.unitime.timetable.test.UpdateExamConflicts;
 import org.unitime.timetable.util.CalendarUtils;
 import org.unitime.timetable.util.Constants;
+import org.unitime.timetable.util.DataChange;
+import org.unitime.timetable.util.DataChangeNotifier;
 import org.unitime.timetable.util.InstrOfferingPermIdGenerator;
 import org.unitime.timetable.util.duration.DurationModel;
 
@@ -125,6 +130,34 @@ public abstract class BaseCourseOfferingImport extends EventRelatedImports {
 	}
 
 	public void loadXml(Element rootElement) throws Exception {
+		load(rootElement, null);
+	}
+	
+	/**
+	 * The offerings are pull-parsed from the input stream one at a time, each offering is committed once imported (see {@link #loadOffering(Element)})
+	 */
+	@Override
+	public void loadXml(InputStream inputStream) throws Exception {
+		XmlElementReader reader = null;
+		try {
+			try {
+				reader = new XmlElementReader(inputStream);
+			} catch (XMLStreamException e) {
+				fatal("Unable to parse given XML, reason:" + e.getMessage(), e);
+				throw e;
+			}
+			load(reader.getRootElement(), reader);
+		} finally {
+			if (reader != null) reader.close();
+		}
+	}
+	
+	@Override
+	public boolean isStreaming() {
+		return true;
+	}
+	
+	protected void load(Element rootElement, XmlElementReader reader) throws Exception {
 		initializeTrimLeadingZeros();
 		
 		try {
@@ -147,13 +180,21 @@ public abstract class BaseCourseOfferingImport extends EventRelatedImports {
 
 	        initializeLoad(rootElement, rootElementName);
 			preLoadAction();
-	        loadOfferings(rootElement);
+			if (reader == null) {
+				loadOfferings(rootElement);
+			} else {
+				Element element = null;
+				while ((element = reader.nextElement()) != null)
+					loadOffering(element);
+			}
 	        
 	        if (!incremental) {
 		        deleteUnmatchedInstructionalOfferings();
 		        deleteUnmatchedCourseOfferings();
 	        }
 	        deleteUnmatchedClasses();
+	        // class events may have been changed or deleted
+	        DataChangeNotifier.changed(getHibSession(), new DataChange(session == null ? null : session.getUniqueId()));
 	        commitTransaction();
 	        
 		} catch (Exception e) {
@@ -204,18 +245,22 @@ public abstract class BaseCourseOfferingImport extends EventRelatedImports {
 	protected void loadOfferings(Element rootElement) throws Exception{    
 			for ( Iterator<?> it = rootElement.elementIterator(); it.hasNext(); ) {
 	    		Element element = (Element) it.next();
-	    		try {
-	            elementOffering(element);	             
-	            flush(true);
-	    		} catch (Exception e) {
-	    			addNote("Not Loading 'offering' Error:  " + e.getMessage());
-	    			e.printStackTrace();
-	    			addNote("\t " + element.asXML());
-	    			updateChangeList(true);
-	    		}	
+	    		loadOffering(element);
 	    	}
  	}
 	
+	protected void loadOffering(Element element) throws Exception{
+		try {
+			elementOffering(element);
+			flush(true);
+		} catch (Exception e) {
+			addNote("Not Loading 'offering' Error:  " + e.getMessage());
+			e.printStackTrace();
+			addNote("\t " + element.asXML());
+			updateChangeList(true);
+		}
+	}
+	
 	protected void elementOffering(Element element) throws Exception{
 		String offeringElementName = "offering";
 
@@ -72,6 +72,13 @@ public abstract class BaseImport extends DataExchangeHelper {
     
     public abstract void loadXml(Element rootElement) throws Exception;
     
+    /**
+     * True when {@link #loadXml(InputStream)} processes the input as it is being read, instead of parsing the whole document first
+     */
+    public boolean isStreaming() {
+    	return false;
+    }
+    
     protected String getRequiredStringAttribute(Element element, String attributeName, String elementName) throws Exception{		
 		String attributeValue = element.attributeValue(attributeName);
 		if (attributeValue == null || attributeValue.trim().length() == 0){
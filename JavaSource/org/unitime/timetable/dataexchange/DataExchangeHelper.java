@@ -19,12 +19,20 @@
 */
 package org.unitime.timetable.dataexchange;
 
+import java.io.BufferedInputStream;
+import java.io.InputStream;
 import java.util.Hashtable;
 import java.util.Properties;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.dom4j.Document;
+import org.dom4j.io.SAXReader;
 import org.unitime.timetable.model.Class_;
 import org.unitime.timetable.model.Session;
 import org.unitime.timetable.model.TimetableManager;
@@ -40,6 +48,7 @@ public class DataExchangeHelper {
     protected org.hibernate.Transaction iTx = null;
     protected int iFlushIfNeededCounter = 0;
     protected static int sBatchSize = 100;
+    private static int sRootLookAhead = 1024 * 1024;
     
     public static Hashtable<String,Class> sExportRegister;
     public static Hashtable<String,Class> sImportRegister;
@@ -270,6 +279,40 @@ public class DataExchangeHelper {
         imp.loadXml(document.getRootElement());
     }
     
+    /**
+     * Import the given XML input stream. Imports that support streaming (see {@link BaseImport#isStreaming()}) process the input
+     * as it is being read, other imports get the whole document parsed first (as in {@link #importDocument(Document, String, Log)}).
+     */
+    public static void importInputStream(InputStream inputStream, String userId, Log log) throws Exception {
+    	BufferedInputStream input = new BufferedInputStream(inputStream);
+    	input.mark(sRootLookAhead);
+    	String rootName = getRootElementName(input);
+    	input.reset();
+        BaseImport imp = createImportBase(rootName);
+        imp.setLog(log);
+        if (userId != null)
+        	imp.setManager(TimetableManager.findByExternalId(userId));
+        if (imp.isStreaming())
+        	imp.loadXml(input);
+        else
+        	imp.loadXml((new SAXReader()).read(input).getRootElement());
+    }
+    
+    private static String getRootElementName(InputStream input) throws XMLStreamException {
+    	XMLInputFactory factory = XMLInputFactory.newInstance();
+    	factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    	XMLStreamReader reader = factory.createXMLStreamReader(input);
+    	try {
+    		while (reader.hasNext())
+    			if (reader.next() == XMLStreamConstants.START_ELEMENT)
+    				return reader.getLocalName();
+    		throw new XMLStreamException("No root element found.");
+    	} finally {
+    		reader.close();
+    	}
+    }
+    
     public static Document exportDocument(String rootName, Session session, Properties parameters, Log log) throws Exception {
         BaseExport exp = createExportBase(rootName);
         exp.setLog(log);
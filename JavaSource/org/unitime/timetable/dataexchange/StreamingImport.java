@@ -0,0 +1,181 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.dataexchange;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.dom4j.Element;
+import org.unitime.timetable.defaults.ApplicationProperty;
+
+/**
+ * Base class for imports that process the top-level elements of the imported file one chunk at a time.<br>
+ * When loaded from an input stream, the file is pull-parsed and only the elements of the current chunk are kept in memory.
+ * The Hibernate session is flushed and cleared after each chunk (see unitime.data.import.chunkSize), so any entities loaded
+ * before must be looked up again (e.g., by keeping their ids and re-attaching them using {@link #load(Class, Map)}).
+ * The whole file is imported in one transaction, unless unitime.data.import.commitChunks is enabled.
+ *
+ * @author Tomas Muller
+ */
+public abstract class StreamingImport extends BaseImport {
+	private static final int DEFAULT_CHUNK_SIZE = 1000;
+	private int iChunkSize = DEFAULT_CHUNK_SIZE;
+	private boolean iCommitChunks = false;
+	private List<Element> iChunk = new ArrayList<Element>();
+
+	public StreamingImport() {
+		super();
+		Integer chunkSize = ApplicationProperty.DataExchangeImportChunkSize.intValue();
+		if (chunkSize != null && chunkSize > 0)
+			iChunkSize = chunkSize;
+		iCommitChunks = ApplicationProperty.DataExchangeImportCommitChunks.isTrue();
+	}
+
+	/**
+	 * Called first, within the transaction of the first chunk
+	 * @param rootElement root element with its attributes, but with no content
+	 */
+	protected abstract void beginImport(Element rootElement) throws Exception;
+
+	/**
+	 * Import one chunk of the top-level elements
+	 */
+	protected abstract void importChunk(Element rootElement, List<Element> elements) throws Exception;
+
+	/**
+	 * Called last, within the transaction of the last chunk (e.g., to delete the entities that were not imported)
+	 */
+	protected abstract void endImport(Element rootElement) throws Exception;
+
+	/**
+	 * Called once the import is committed (e.g., to update data that depend on the imported entities)
+	 */
+	protected void afterImport(Element rootElement) throws Exception {}
+
+	/**
+	 * Number of top-level elements in one chunk
+	 */
+	protected int getChunkSize() { return iChunkSize; }
+
+	@Override
+	public boolean isStreaming() { return true; }
+
+	@Override
+	public void loadXml(InputStream inputStream) throws Exception {
+		XmlElementReader reader = null;
+		try {
+			try {
+				reader = new XmlElementReader(inputStream);
+			} catch (XMLStreamException e) {
+				fatal("Unable to parse given XML, reason:" + e.getMessage(), e);
+				throw e;
+			}
+			Element rootElement = reader.getRootElement();
+			begin(rootElement);
+			try {
+				Element element = null;
+				while ((element = reader.nextElement()) != null)
+					add(rootElement, element);
+				end(rootElement);
+			} catch (Exception e) {
+				fatal("Exception: " + e.getMessage(), e);
+				rollbackTransaction();
+				throw e;
+			}
+			afterImport(rootElement);
+		} finally {
+			if (reader != null) reader.close();
+		}
+	}
+
+	@Override
+	public void loadXml(Element rootElement) throws Exception {
+		begin(rootElement);
+		try {
+			for (Iterator<Element> i = rootElement.elementIterator(); i.hasNext(); )
+				add(rootElement, i.next());
+			end(rootElement);
+		} catch (Exception e) {
+			fatal("Exception: " + e.getMessage(), e);
+			rollbackTransaction();
+			throw e;
+		}
+		afterImport(rootElement);
+	}
+
+	private void begin(Element rootElement) throws Exception {
+		iChunk.clear();
+		beginTransaction();
+		try {
+			beginImport(rootElement);
+		} catch (Exception e) {
+			fatal("Exception: " + e.getMessage(), e);
+			rollbackTransaction();
+			throw e;
+		}
+	}
+
+	private void add(Element rootElement, Element element) throws Exception {
+		iChunk.add(element);
+		if (iChunk.size() >= iChunkSize) {
+			importChunk(rootElement, iChunk);
+			iChunk.clear();
+			commitChunk();
+		}
+	}
+
+	private void end(Element rootElement) throws Exception {
+		if (!iChunk.isEmpty()) {
+			importChunk(rootElement, iChunk);
+			iChunk.clear();
+			commitChunk();
+		}
+		endImport(rootElement);
+		commitTransaction();
+	}
+
+	/**
+	 * Flush and clear the Hibernate session, when enabled commit the current transaction and start a new one
+	 */
+	protected void commitChunk() {
+		getHibSession().flush();
+		if (iCommitChunks && iTx != null) {
+			iTx.commit();
+			iTx = getHibSession().beginTransaction();
+		}
+		getHibSession().clear();
+	}
+
+	/**
+	 * Re-attach entities by their ids to the current Hibernate session (no data are loaded until an entity is accessed)
+	 */
+	protected <K, T> Map<K, T> load(Class<T> clazz, Map<K, Long> ids) {
+		Map<K, T> ret = new HashMap<K, T>();
+		for (Map.Entry<K, Long> e: ids.entrySet())
+			ret.put(e.getKey(), (T)getHibSession().load(clazz, e.getValue()));
+		return ret;
+	}
+}
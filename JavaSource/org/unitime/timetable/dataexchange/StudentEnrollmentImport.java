@@ -44,387 +44,189 @@ import org.unitime.timetable.model.Student;
 import org.unitime.timetable.model.StudentClassEnrollment;
 import org.unitime.timetable.model.StudentEnrollmentMessage;
 import org.unitime.timetable.model.StudentSectioningQueue;
+import org.unitime.timetable.model.dao.SessionDAO;
 import org.unitime.timetable.test.UpdateExamConflicts;
 
 /**
  * @author Tomas Muller, Stephanie Schluttenhofer
  */
-public class StudentEnrollmentImport extends BaseImport {
+public class StudentEnrollmentImport extends StreamingImport {
+	private boolean iTrimLeadingZerosFromExternalId;
+	private boolean iIncremental;
+	private Long iSessionId;
+	private Date iTimeStamp;
+	private Set<String> iImportedExternalIds;
+	private int iChangedStudents;
+	private Map<String, Set<Long>> iExtId2class, iExtId2course;
+	private Map<String, Long> iName2class, iName2course, iCExtId2course, iCName2course;
+	private Map<Long, Set<Long>> iClass2courses;
+	private Map<Long, String> iCourseNames;
+	private Set<Long> iControllingCourseIds;
 
 	public StudentEnrollmentImport() {
 		super();
 	}
 
 	@Override
-	public void loadXml(Element rootElement) throws Exception {
-		boolean trimLeadingZerosFromExternalId = ApplicationProperty.DataExchangeTrimLeadingZerosFromExternalIds.isTrue();
+	protected void beginImport(Element rootElement) throws Exception {
+		iTrimLeadingZerosFromExternalId = ApplicationProperty.DataExchangeTrimLeadingZerosFromExternalIds.isTrue();
 
         if (!rootElement.getName().equalsIgnoreCase("studentEnrollments"))
         	throw new Exception("Given XML file is not a Student Enrollments load file.");
         
-        Session session = null;
+        String campus = rootElement.attributeValue("campus");
+        String year   = rootElement.attributeValue("year");
+        String term   = rootElement.attributeValue("term");
+        String created = rootElement.attributeValue("created");
+        iIncremental = "true".equals(rootElement.attributeValue("incremental", "false"));
         
-        Set<Long> updatedStudents = new HashSet<Long>(); 
+        Session session = Session.getSessionUsingInitiativeYearTerm(campus, year, term);
+        if(session == null)
+           	throw new Exception("No session found for the given campus, year, and term.");
+        iSessionId = session.getUniqueId();
         
-		try {
-	        String campus = rootElement.attributeValue("campus");
-	        String year   = rootElement.attributeValue("year");
-	        String term   = rootElement.attributeValue("term");
-	        String created = rootElement.attributeValue("created");
-	        boolean incremental = "true".equals(rootElement.attributeValue("incremental", "false"));
-			
-	        beginTransaction();
-	        
-	        session = Session.getSessionUsingInitiativeYearTerm(campus, year, term);
-	        
-	        if(session == null)
-	           	throw new Exception("No session found for the given campus, year, and term.");
-
-	    	HashMap<String, Set<Class_>> extId2class = new HashMap<String, Set<Class_>>();
-	    	HashMap<String, Class_> name2class = new HashMap<String, Class_>();
-	    	HashMap<Long, Class_> id2class = new HashMap<Long, Class_>();
-	    	HashMap<String, Set<CourseOffering>> extId2course = new HashMap<String, Set<CourseOffering>>();
-	    	HashMap<String, CourseOffering> name2course = new HashMap<String, CourseOffering>();
-	    	HashMap<String, CourseOffering> cextId2course = new HashMap<String, CourseOffering>();
-	    	HashMap<String, CourseOffering> cname2course = new HashMap<String, CourseOffering>();
-	    	HashMap<Long, Set<CourseOffering>> class2courses = new HashMap<Long, Set<CourseOffering>>();
-	    	
-	    	info("Loading classes...");
-	 		for (Object[] o: (List<Object[]>)getHibSession().createQuery(
-	 				"select c, co from Class_ c inner join c.schedulingSubpart.instrOfferingConfig.instructionalOffering.courseOfferings co where " +
-    				"c.schedulingSubpart.instrOfferingConfig.instructionalOffering.session.uniqueId = :sessionId")
-    				.setLong("sessionId", session.getUniqueId()).list()) {
-	 			Class_ clazz = (Class_)o[0];
-	 			CourseOffering course = (CourseOffering)o[1];
-				String extId = clazz.getExternalId(course);
-				if (extId != null && !extId.isEmpty()) {
-					Set<Class_> sameExtIdClasses = extId2class.get(extId);
-					if (sameExtIdClasses == null) {
-						sameExtIdClasses = new HashSet<Class_>();
-						extId2class.put(extId, sameExtIdClasses);
-					}
-					sameExtIdClasses.add(clazz);
+        // classes and courses are only kept by their ids, they are re-attached to each chunk when needed
+        iExtId2class = new HashMap<String, Set<Long>>();
+        iName2class = new HashMap<String, Long>();
+        iExtId2course = new HashMap<String, Set<Long>>();
+        iName2course = new HashMap<String, Long>();
+        iCExtId2course = new HashMap<String, Long>();
+        iCName2course = new HashMap<String, Long>();
+        iClass2courses = new HashMap<Long, Set<Long>>();
+        iCourseNames = new HashMap<Long, String>();
+        iControllingCourseIds = new HashSet<Long>();
+    	
+    	info("Loading classes...");
+ 		for (Object[] o: (List<Object[]>)getHibSession().createQuery(
+ 				"select c, co from Class_ c inner join c.schedulingSubpart.instrOfferingConfig.instructionalOffering.courseOfferings co where " +
+				"c.schedulingSubpart.instrOfferingConfig.instructionalOffering.session.uniqueId = :sessionId")
+				.setLong("sessionId", iSessionId).list()) {
+ 			Class_ clazz = (Class_)o[0];
+ 			CourseOffering course = (CourseOffering)o[1];
+			String extId = clazz.getExternalId(course);
+			if (extId != null && !extId.isEmpty()) {
+				Set<Long> sameExtIdClasses = iExtId2class.get(extId);
+				if (sameExtIdClasses == null) {
+					sameExtIdClasses = new HashSet<Long>();
+					iExtId2class.put(extId, sameExtIdClasses);
 				}
-				String name = course.getCourseName() + " " + clazz.getItypeDesc().trim() + " " + getClassSuffix(clazz);
-				name2class.put(name, clazz);
-				name2course.put(name, course);
-				id2class.put(clazz.getUniqueId(), clazz);
-				if (extId != null && !extId.isEmpty()) {
-					Set<CourseOffering> sameExtIdCourses = extId2course.get(extId);
-					if (sameExtIdCourses == null) {
-						sameExtIdCourses = new HashSet<CourseOffering>();
-						extId2course.put(extId, sameExtIdCourses);
-					}
-					sameExtIdCourses.add(course);
-				}
-				Set<CourseOffering> courses = class2courses.get(clazz.getUniqueId());
-				if (course.getExternalUniqueId() != null && !course.getExternalUniqueId().isEmpty())
-					cextId2course.put(course.getExternalUniqueId(), course);
-				cname2course.put(course.getCourseName(), course);
-				if (courses == null) {
-					courses = new HashSet<CourseOffering>();
-					class2courses.put(clazz.getUniqueId(), courses);
+				sameExtIdClasses.add(clazz.getUniqueId());
+			}
+			String name = course.getCourseName() + " " + clazz.getItypeDesc().trim() + " " + getClassSuffix(clazz);
+			iName2class.put(name, clazz.getUniqueId());
+			iName2course.put(name, course.getUniqueId());
+			if (extId != null && !extId.isEmpty()) {
+				Set<Long> sameExtIdCourses = iExtId2course.get(extId);
+				if (sameExtIdCourses == null) {
+					sameExtIdCourses = new HashSet<Long>();
+					iExtId2course.put(extId, sameExtIdCourses);
 				}
-				courses.add(course);
+				sameExtIdCourses.add(course.getUniqueId());
 			}
-	        
-	        if (created != null)
-				ChangeLog.addChange(getHibSession(), getManager(), session, session, created, ChangeLog.Source.DATA_IMPORT_STUDENT_ENROLLMENTS, ChangeLog.Operation.UPDATE, null, null);
-         
-	        info("Loading students...");
-	        Hashtable<String, Student> students = new Hashtable<String, Student>();
-	        for (Student student: (List<Student>)getHibSession().createQuery(
+			Set<Long> courses = iClass2courses.get(clazz.getUniqueId());
+			if (course.getExternalUniqueId() != null && !course.getExternalUniqueId().isEmpty())
+				iCExtId2course.put(course.getExternalUniqueId(), course.getUniqueId());
+			iCName2course.put(course.getCourseName(), course.getUniqueId());
+			iCourseNames.put(course.getUniqueId(), course.getCourseName());
+			if (course.isIsControl())
+				iControllingCourseIds.add(course.getUniqueId());
+			if (courses == null) {
+				courses = new HashSet<Long>();
+				iClass2courses.put(clazz.getUniqueId(), courses);
+			}
+			courses.add(course.getUniqueId());
+		}
+        
+        if (created != null)
+			ChangeLog.addChange(getHibSession(), getManager(), session, session, created, ChangeLog.Source.DATA_IMPORT_STUDENT_ENROLLMENTS, ChangeLog.Operation.UPDATE, null, null);
+        
+        iImportedExternalIds = new HashSet<String>();
+        iChangedStudents = 0;
+        iTimeStamp = new Date();
+        info("Importing enrollments...");
+	}
+
+	@Override
+	protected void importChunk(Element rootElement, List<Element> elements) throws Exception {
+		Session session = SessionDAO.getInstance().get(iSessionId, getHibSession());
+		
+		List<String> externalIds = new ArrayList<String>();
+        for (Element element: elements) {
+            String externalId = element.attributeValue("externalId");
+            if (externalId == null) continue;
+            while (iTrimLeadingZerosFromExternalId && externalId.startsWith("0")) externalId = externalId.substring(1);
+            iImportedExternalIds.add(externalId);
+            externalIds.add(externalId);
+        }
+        if (externalIds.isEmpty()) return;
+        
+        Hashtable<String, Student> students = new Hashtable<String, Student>();
+        for (int i = 0; i < externalIds.size(); i += 1000) {
+        	for (Student student: (List<Student>)getHibSession().createQuery(
                     "select distinct s from Student s " +
                     "left join fetch s.courseDemands as cd " +
                     "left join fetch cd.courseRequests as cr " +
                     "left join fetch s.classEnrollments as e " +
-                    "where s.session.uniqueId=:sessionId and s.externalUniqueId is not null").
-                    setLong("sessionId",session.getUniqueId()).list()) { 
-	        	students.put(student.getExternalUniqueId(), student);
-	        }
-	        
-	        info("Importing enrollments...");
-	        Date ts = new Date();
-	        for (Iterator i = rootElement.elementIterator("student"); i.hasNext(); ) {
-	            Element studentElement = (Element) i.next();
-	            
-	            String externalId = studentElement.attributeValue("externalId");
-	            if (externalId == null) continue;
-	            while (trimLeadingZerosFromExternalId && externalId.startsWith("0")) externalId = externalId.substring(1);
-	            
-	            boolean fixCourseDemands = false;
-	 	        
-            	Student student = students.remove(externalId);
-            	if (student == null) {
-            		student = new Student();
-	                student.setSession(session);
-		            student.setFirstName(studentElement.attributeValue("firstName", "Name"));
-		            student.setMiddleName(studentElement.attributeValue("middleName"));
-		            student.setLastName(studentElement.attributeValue("lastName", "Unknown"));
-		            student.setEmail(studentElement.attributeValue("email"));
-		            student.setExternalUniqueId(externalId);
-		            student.setFreeTimeCategory(0);
-		            student.setSchedulePreference(0);
-		            student.setClassEnrollments(new HashSet<StudentClassEnrollment>());
-		            student.setCourseDemands(new HashSet<CourseDemand>());
-            	}
-            	
-            	Hashtable<Pair, StudentClassEnrollment> enrollments = new Hashtable<Pair, StudentClassEnrollment>();
-            	for (StudentClassEnrollment enrollment: student.getClassEnrollments()) {
-            		enrollments.put(new Pair(enrollment.getCourseOffering().getUniqueId(), enrollment.getClazz().getUniqueId()), enrollment);
-            	}
-            	int nextPriority = 0;
-            	for (CourseDemand cd: student.getCourseDemands())
-            		if (!cd.isAlternative() && cd.getPriority() >= nextPriority)
-            			nextPriority = cd.getPriority() + 1;
-            	Set<CourseDemand> remaining = new HashSet<CourseDemand>(student.getCourseDemands());
-            	Map<CourseDemand, CourseOffering> courseAssignments = new HashMap<CourseDemand, CourseOffering>();
-            	
-            	List<Enrollment> selected = new ArrayList<Enrollment>();
-            	for (Iterator j = studentElement.elementIterator("class"); j.hasNext(); ) {
-            		Element classElement = (Element) j.next();
-            		
-            		Class_ clazz = null;
-            		CourseOffering course = null;
-            		Set<Class_> classes = null;
-            		Set<CourseOffering> courses = null;
-
-            		if (clazz == null && classElement.attributeValue("id") != null)
-            			clazz = id2class.get(Long.valueOf(classElement.attributeValue("id")));
-            		
-            		String classExternalId  = classElement.attributeValue("externalId");
-            		if (clazz == null && classExternalId != null) {
-            			classes = extId2class.get(classExternalId);
-            			courses = extId2course.get(classExternalId);
-            			if (classes == null) {
-                			clazz = name2class.get(classExternalId);
-                			course = name2course.get(classExternalId);
-            			} else {
-            				if (classes.size() == 1)
-            					clazz = classes.iterator().next();
-            				if (courses.size() == 1)
-            					course = courses.iterator().next();
-            			}
-            		}
-            		
-            		if (clazz == null && classElement.attributeValue("name") != null) {
-            			String className = classElement.attributeValue("name");
-            			clazz = name2class.get(className);
-            			course = name2course.get(className);
-            		}
-            		
-            		if (course == null && classElement.attributeValue("courseId") != null)
-            			course = cextId2course.get(classElement.attributeValue("courseId"));
-            		
-            		if (course == null) {
-                		String courseName = classElement.attributeValue("course");
-            			if (courseName != null) {
-            				course = cname2course.get(courseName);
-            			} else {
-                    		String subject = classElement.attributeValue("subject");
-                    		String courseNbr = classElement.attributeValue("courseNbr");
-                    		if (subject != null && courseNbr != null)
-                    			course = cname2course.get(subject + " " + courseNbr);
-                		}
-            		}
-            		
-            		if (course != null  && clazz == null) {
-                		String type = classElement.attributeValue("type");
-                		String suffix = classElement.attributeValue("suffix");
-                		if (type != null && suffix != null)
-                			clazz = name2class.get(course.getCourseName() + " " + type.trim() + " " + suffix);
-            		}
-            		
-            		if (clazz == null && classes == null) {
-            			warn("Class " + (classExternalId != null ? classExternalId : classElement.attributeValue("name",
-            					classElement.attributeValue("course", classElement.attributeValue("subject") + " " + classElement.attributeValue("courseNbr")) + " " +
-            					classElement.attributeValue("type") + " " + classElement.attributeValue("suffix"))) + " not found.");
-            			continue;
-            		}
-            		
-            		if (clazz != null) {
-            			Set<CourseOffering> coursesThisClass = class2courses.get(clazz.getUniqueId());
-            			if (course == null && courses != null)
-            				for (CourseOffering co: courses)
-                				if (co.isIsControl() && coursesThisClass.contains(co))
-                					{ course = co; break; }
-            			if (course == null && courses != null)
-            				for (CourseOffering co: courses)
-                				if (coursesThisClass.contains(co))
-                					{ course = co; break; }
-            			if (course == null || !coursesThisClass.contains(course)) {
-            				for (CourseOffering co: coursesThisClass)
-                				if (co.isIsControl())
-                					{ course = co; break; }
-            			}
-            			selected.add(new Enrollment(course, clazz));
-            		} else {
-            			classes: for (Class_ c: classes) {
-            				Set<CourseOffering> coursesThisClass = class2courses.get(c.getUniqueId());
-            				if (course != null) {
-            					if (coursesThisClass.contains(course))
-            						selected.add(new Enrollment(course, c));
-            				} else {
-            					for (CourseOffering co: courses) {
-            						if (coursesThisClass.contains(co) && co.isIsControl()) {
-            							selected.add(new Enrollment(co, c));
-            							continue classes;
-            						}
-            					}
-            					for (CourseOffering co: courses) {
-            						if (coursesThisClass.contains(co)) {
-            							selected.add(new Enrollment(co, c));
-            								continue classes;
-            						}
-            					}
-            				}
-            			}
-            		}
-            	}
-            	
-            	Set<Enrollment> imported = new HashSet<Enrollment>();
-            	for (Enrollment e: selected) {
-            		if (!imported.add(e)) continue; // skip duplicates
-            		Class_ clazz = e.getClazz();
-            		CourseOffering course = e.getCourse();
-            		StudentClassEnrollment enrollment = enrollments.remove(new Pair(course.getUniqueId(), clazz.getUniqueId()));
-            		if (enrollment == null) {
-                		enrollment = new StudentClassEnrollment();
-                		enrollment.setStudent(student);
-                		enrollment.setClazz(clazz);
-                		enrollment.setCourseOffering(course);
-                		enrollment.setTimestamp(ts);
-                		enrollment.setChangedBy(StudentClassEnrollment.SystemChange.IMPORT.toString());
-                		student.getClassEnrollments().add(enrollment);
-                		
-                		demands: for (CourseDemand d: student.getCourseDemands()) {
-                			for (CourseRequest r: d.getCourseRequests()) {
-                				if (r.getCourseOffering().equals(course)) {
-                					enrollment.setCourseRequest(r);
-                					break demands;
-                				}
-                			}
-                		}
-                		
-                		if (student.getUniqueId() != null) updatedStudents.add(student.getUniqueId());
-            		}
-            		
-            		if (enrollment.getCourseRequest() != null) {
-            			remaining.remove(enrollment.getCourseRequest().getCourseDemand());
-            			CourseOffering assigned = courseAssignments.get(enrollment.getCourseRequest().getCourseDemand());
-            			if (assigned == null) {
-                			courseAssignments.put(enrollment.getCourseRequest().getCourseDemand(), course);
-            			} else if (!course.equals(assigned)) {
-            				// course demand has been already removed -> need to split the course demand
-            				enrollment.getCourseRequest().getCourseDemand().getCourseRequests().remove(enrollment.getCourseRequest());
-            				CourseDemand cd = new CourseDemand();
-                			cd.setTimestamp(ts);
-                			cd.setCourseRequests(new HashSet<CourseRequest>());
-                			cd.setEnrollmentMessages(new HashSet<StudentEnrollmentMessage>());
-                			cd.setStudent(student);
-                			student.getCourseDemands().add(cd);
-                			cd.setAlternative(false);
-                			cd.setPriority(nextPriority++);
-                			cd.setWaitlist(false);
-                			cd.setNoSub(false);
-                			enrollment.getCourseRequest().setCourseDemand(cd);
-                			cd.getCourseRequests().add(enrollment.getCourseRequest());
-                			fixCourseDemands = true;
-                			if (student.getUniqueId() != null) updatedStudents.add(student.getUniqueId());
-            			}
-            			for (Iterator<StudentEnrollmentMessage> j = enrollment.getCourseRequest().getCourseDemand().getEnrollmentMessages().iterator(); j.hasNext(); ) {
-            				StudentEnrollmentMessage message = j.next();
-            				getHibSession().delete(message);
-            				j.remove();
-            			}
-            		} else {
-            			CourseDemand cd = new CourseDemand();
-    					cd.setTimestamp(ts);
-    					cd.setCourseRequests(new HashSet<CourseRequest>());
-    					cd.setEnrollmentMessages(new HashSet<StudentEnrollmentMessage>());
-    					cd.setStudent(student);
-    					student.getCourseDemands().add(cd);
-    					cd.setAlternative(false);
-    					cd.setPriority(nextPriority++);
-    					cd.setWaitlist(false);
-    					cd.setNoSub(false);
-    					CourseRequest cr = new CourseRequest();
-						cd.getCourseRequests().add(cr);
-						cr.setCourseDemand(cd);
-						cr.setCourseRequestOptions(new HashSet<CourseRequestOption>());
-						cr.setAllowOverlap(false);
-						cr.setCredit(0);
-						cr.setOrder(0);
-						cr.setCourseOffering(enrollment.getCourseOffering());
-						enrollment.setCourseRequest(cr);
-						cr.getClassEnrollments().add(enrollment);
-						fixCourseDemands = true;
-						if (student.getUniqueId() != null) updatedStudents.add(student.getUniqueId());
-            		}
-            	}
-            	
-            	if (!enrollments.isEmpty()) {
-            		for (StudentClassEnrollment enrollment: enrollments.values()) {
-            			student.getClassEnrollments().remove(enrollment);
-            			getHibSession().delete(enrollment);
-                		updatedStudents.add(student.getUniqueId());
-            		}
-            	}
+                    "where s.session.uniqueId=:sessionId and s.externalUniqueId in :externalIds").
+                    setLong("sessionId", iSessionId).setParameterList("externalIds", externalIds.subList(i, Math.min(i + 1000, externalIds.size()))).list()) { 
+        		students.put(student.getExternalUniqueId(), student);
+        	}
+        }
+        
+        Set<Long> updatedStudents = new HashSet<Long>(); 
+        
+        int index = 0;
+        for (Element element: elements) {
+            if (element.attributeValue("externalId") == null) continue;
+            importStudent(element, externalIds.get(index++), students, session, updatedStudents);
+        }
+        
+        iChangedStudents += updatedStudents.size();
+        
+        if (!updatedStudents.isEmpty())
+ 	        StudentSectioningQueue.studentChanged(getHibSession(), null, iSessionId, updatedStudents);
+	}
 
-            	if (student.getUniqueId() == null) {
-            		updatedStudents.add((Long)getHibSession().save(student));
-            	} else {
-            		getHibSession().update(student);
-            	}
-            	
-            	if (fixCourseDemands) {
-            		// removed unused course demands (only when not in the registration mode)
-            		if (student.getSession().getStatusType() == null || !student.getSession().getStatusType().canPreRegisterStudents())
-                		for (CourseDemand cd: remaining) {
-                			if (cd.getFreeTime() != null)
-                				getHibSession().delete(cd.getFreeTime());
-                			for (CourseRequest cr: cd.getCourseRequests())
-                				getHibSession().delete(cr);
-                			student.getCourseDemands().remove(cd);
-                			getHibSession().delete(cd);
+	@Override
+	protected void endImport(Element rootElement) throws Exception {
+        if (!iIncremental) {
+        	List<Long> studentIds = new ArrayList<Long>();
+        	for (Object[] o: (List<Object[]>)getHibSession().createQuery(
+	        		"select distinct e.student.uniqueId, e.student.externalUniqueId from StudentClassEnrollment e where " +
+	        		"e.student.session.uniqueId=:sessionId and e.student.externalUniqueId is not null").
+                    setLong("sessionId", iSessionId).list()) {
+        		if (!iImportedExternalIds.contains((String)o[1]))
+        			studentIds.add((Long)o[0]);
+        	}
+        	for (int i = 0; i < studentIds.size(); i += getChunkSize()) {
+        		List<Long> ids = studentIds.subList(i, Math.min(i + getChunkSize(), studentIds.size()));
+        		for (int j = 0; j < ids.size(); j += 1000) {
+        			for (Student student: (List<Student>)getHibSession().createQuery(
+        					"from Student s where s.uniqueId in :studentIds").setParameterList("studentIds", ids.subList(j, Math.min(j + 1000, ids.size()))).list()) {
+                		for (Iterator<StudentClassEnrollment> k = student.getClassEnrollments().iterator(); k.hasNext(); ) {
+                			StudentClassEnrollment enrollment = k.next();
+                			getHibSession().delete(enrollment);
+                			k.remove();
                 		}
-            		int priority = 0;
-            		for (CourseDemand cd: new TreeSet<CourseDemand>(student.getCourseDemands())) {
-            			cd.setPriority(priority++);
-            			getHibSession().saveOrUpdate(cd);
-            		}
-            	}
-
-	        }
- 	        
-	        if (!incremental)
-	 	        for (Student student: students.values()) {
-	        		for (Iterator<StudentClassEnrollment> i = student.getClassEnrollments().iterator(); i.hasNext(); ) {
-	        			StudentClassEnrollment enrollment = i.next();
-	        			getHibSession().delete(enrollment);
-	        			i.remove();
-	     	        	updatedStudents.add(student.getUniqueId());
-	        		}
-	        		getHibSession().update(student);
-	 	        }
- 	        
-            info(updatedStudents.size() + " students changed");
+                		getHibSession().update(student);
+        			}
+        		}
+        		StudentSectioningQueue.studentChanged(getHibSession(), null, iSessionId, ids);
+        		iChangedStudents += ids.size();
+        		commitChunk();
+        	}
+        }
+        
+        info(iChangedStudents + " students changed");
+	}
 
- 	        if (!updatedStudents.isEmpty())
- 	 	        StudentSectioningQueue.studentChanged(getHibSession(), null, session.getUniqueId(), updatedStudents);
-            
-            commitTransaction();
-		} catch (Exception e) {
-			fatal("Exception: " + e.getMessage(), e);
-			rollbackTransaction();
-			throw e;
-		}
-		
-        if (session!=null && ApplicationProperty.DataExchangeUpdateStudentConflictsFinal.isTrue()) {
+	@Override
+	protected void afterImport(Element rootElement) throws Exception {
+        if (ApplicationProperty.DataExchangeUpdateStudentConflictsFinal.isTrue()) {
             try {
                 beginTransaction();
                 for (ExamType type: ExamType.findAllOfType(ExamType.sExamTypeFinal))
-                	new UpdateExamConflicts(this).update(session.getUniqueId(), type.getUniqueId(), getHibSession());
+                	new UpdateExamConflicts(this).update(iSessionId, type.getUniqueId(), getHibSession());
                 commitTransaction();
             } catch (Exception e) {
                 fatal("Exception: " + e.getMessage(), e);
@@ -432,33 +234,268 @@ public class StudentEnrollmentImport extends BaseImport {
             }
         }
 
-        if (session!=null && ApplicationProperty.DataExchangeUpdateStudentConflictsMidterm.isTrue()) {
+        if (ApplicationProperty.DataExchangeUpdateStudentConflictsMidterm.isTrue()) {
             try {
                 beginTransaction();
                 for (ExamType type: ExamType.findAllOfType(ExamType.sExamTypeMidterm))
-                	new UpdateExamConflicts(this).update(session.getUniqueId(), type.getUniqueId(), getHibSession());
+                	new UpdateExamConflicts(this).update(iSessionId, type.getUniqueId(), getHibSession());
                 commitTransaction();
             } catch (Exception e) {
                 fatal("Exception: " + e.getMessage(), e);
                 rollbackTransaction();
             }
         }
-        
-        /*
-        if (session != null && "true".equals(ApplicationProperties.getProperty("tmtbl.data.import.studentEnrl.class.updateEnrollments","true"))){
-        	org.hibernate.Session hibSession = new _RootDAO().createNewSession();
-            try {
-                info("  Updating class enrollments...");
-                Class_.updateClassEnrollmentForSession(session, hibSession);
-                info("  Updating course offering enrollments...");
-                CourseOffering.updateCourseOfferingEnrollmentForSession(session, hibSession);
-            } catch (Exception e) {
-                fatal("Exception: " + e.getMessage(), e);
-            } finally {
-            	hibSession.close();
-            }
-        }
-        */
+	}
+	
+	protected Enrollment createEnrollment(Long courseId, Long classId) {
+		return new Enrollment((CourseOffering)getHibSession().load(CourseOffering.class, courseId), (Class_)getHibSession().load(Class_.class, classId));
+	}
+	
+	protected void importStudent(Element studentElement, String externalId, Hashtable<String, Student> students, Session session, Set<Long> updatedStudents) {
+		boolean fixCourseDemands = false;
+
+		Student student = students.remove(externalId);
+		if (student == null) {
+			student = new Student();
+			student.setSession(session);
+			student.setFirstName(studentElement.attributeValue("firstName", "Name"));
+			student.setMiddleName(studentElement.attributeValue("middleName"));
+			student.setLastName(studentElement.attributeValue("lastName", "Unknown"));
+			student.setEmail(studentElement.attributeValue("email"));
+			student.setExternalUniqueId(externalId);
+			student.setFreeTimeCategory(0);
+			student.setSchedulePreference(0);
+			student.setClassEnrollments(new HashSet<StudentClassEnrollment>());
+			student.setCourseDemands(new HashSet<CourseDemand>());
+		}
+
+		Hashtable<Pair, StudentClassEnrollment> enrollments = new Hashtable<Pair, StudentClassEnrollment>();
+		for (StudentClassEnrollment enrollment: student.getClassEnrollments()) {
+			enrollments.put(new Pair(enrollment.getCourseOffering().getUniqueId(), enrollment.getClazz().getUniqueId()), enrollment);
+		}
+		int nextPriority = 0;
+		for (CourseDemand cd: student.getCourseDemands())
+			if (!cd.isAlternative() && cd.getPriority() >= nextPriority)
+				nextPriority = cd.getPriority() + 1;
+		Set<CourseDemand> remaining = new HashSet<CourseDemand>(student.getCourseDemands());
+		Map<CourseDemand, CourseOffering> courseAssignments = new HashMap<CourseDemand, CourseOffering>();
+
+		List<Enrollment> selected = new ArrayList<Enrollment>();
+		for (Iterator j = studentElement.elementIterator("class"); j.hasNext(); ) {
+			Element classElement = (Element) j.next();
+
+			Long classId = null;
+			Long courseId = null;
+			Set<Long> classes = null;
+			Set<Long> courses = null;
+
+			if (classId == null && classElement.attributeValue("id") != null) {
+				Long id = Long.valueOf(classElement.attributeValue("id"));
+				if (iClass2courses.containsKey(id)) classId = id;
+			}
+
+			String classExternalId  = classElement.attributeValue("externalId");
+			if (classId == null && classExternalId != null) {
+				classes = iExtId2class.get(classExternalId);
+				courses = iExtId2course.get(classExternalId);
+				if (classes == null) {
+					classId = iName2class.get(classExternalId);
+					courseId = iName2course.get(classExternalId);
+				} else {
+					if (classes.size() == 1)
+						classId = classes.iterator().next();
+					if (courses.size() == 1)
+						courseId = courses.iterator().next();
+				}
+			}
+
+			if (classId == null && classElement.attributeValue("name") != null) {
+				String className = classElement.attributeValue("name");
+				classId = iName2class.get(className);
+				courseId = iName2course.get(className);
+			}
+
+			if (courseId == null && classElement.attributeValue("courseId") != null)
+				courseId = iCExtId2course.get(classElement.attributeValue("courseId"));
+
+			if (courseId == null) {
+				String courseName = classElement.attributeValue("course");
+				if (courseName != null) {
+					courseId = iCName2course.get(courseName);
+				} else {
+					String subject = classElement.attributeValue("subject");
+					String courseNbr = classElement.attributeValue("courseNbr");
+					if (subject != null && courseNbr != null)
+						courseId = iCName2course.get(subject + " " + courseNbr);
+				}
+			}
+
+			if (courseId != null  && classId == null) {
+				String type = classElement.attributeValue("type");
+				String suffix = classElement.attributeValue("suffix");
+				if (type != null && suffix != null)
+					classId = iName2class.get(iCourseNames.get(courseId) + " " + type.trim() + " " + suffix);
+			}
+
+			if (classId == null && classes == null) {
+				warn("Class " + (classExternalId != null ? classExternalId : classElement.attributeValue("name",
+						classElement.attributeValue("course", classElement.attributeValue("subject") + " " + classElement.attributeValue("courseNbr")) + " " +
+						classElement.attributeValue("type") + " " + classElement.attributeValue("suffix"))) + " not found.");
+				continue;
+			}
+
+			if (classId != null) {
+				Set<Long> coursesThisClass = iClass2courses.get(classId);
+				if (courseId == null && courses != null)
+					for (Long co: courses)
+						if (iControllingCourseIds.contains(co) && coursesThisClass.contains(co))
+							{ courseId = co; break; }
+				if (courseId == null && courses != null)
+					for (Long co: courses)
+						if (coursesThisClass.contains(co))
+							{ courseId = co; break; }
+				if (courseId == null || !coursesThisClass.contains(courseId)) {
+					for (Long co: coursesThisClass)
+						if (iControllingCourseIds.contains(co))
+							{ courseId = co; break; }
+				}
+				selected.add(createEnrollment(courseId, classId));
+			} else {
+				classes: for (Long c: classes) {
+					Set<Long> coursesThisClass = iClass2courses.get(c);
+					if (courseId != null) {
+						if (coursesThisClass.contains(courseId))
+							selected.add(createEnrollment(courseId, c));
+					} else {
+						for (Long co: courses) {
+							if (coursesThisClass.contains(co) && iControllingCourseIds.contains(co)) {
+								selected.add(createEnrollment(co, c));
+								continue classes;
+							}
+						}
+						for (Long co: courses) {
+							if (coursesThisClass.contains(co)) {
+								selected.add(createEnrollment(co, c));
+									continue classes;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		Set<Enrollment> imported = new HashSet<Enrollment>();
+		for (Enrollment e: selected) {
+			if (!imported.add(e)) continue; // skip duplicates
+			Class_ clazz = e.getClazz();
+			CourseOffering course = e.getCourse();
+			StudentClassEnrollment enrollment = enrollments.remove(new Pair(course.getUniqueId(), clazz.getUniqueId()));
+			if (enrollment == null) {
+				enrollment = new StudentClassEnrollment();
+				enrollment.setStudent(student);
+				enrollment.setClazz(clazz);
+				enrollment.setCourseOffering(course);
+				enrollment.setTimestamp(iTimeStamp);
+				enrollment.setChangedBy(StudentClassEnrollment.SystemChange.IMPORT.toString());
+				student.getClassEnrollments().add(enrollment);
+
+				demands: for (CourseDemand d: student.getCourseDemands()) {
+					for (CourseRequest r: d.getCourseRequests()) {
+						if (r.getCourseOffering().equals(course)) {
+							enrollment.setCourseRequest(r);
+							break demands;
+						}
+					}
+				}
+
+				if (student.getUniqueId() != null) updatedStudents.add(student.getUniqueId());
+			}
+
+			if (enrollment.getCourseRequest() != null) {
+				remaining.remove(enrollment.getCourseRequest().getCourseDemand());
+				CourseOffering assigned = courseAssignments.get(enrollment.getCourseRequest().getCourseDemand());
+				if (assigned == null) {
+					courseAssignments.put(enrollment.getCourseRequest().getCourseDemand(), course);
+				} else if (!course.equals(assigned)) {
+					// course demand has been already removed -> need to split the course demand
+					enrollment.getCourseRequest().getCourseDemand().getCourseRequests().remove(enrollment.getCourseRequest());
+					CourseDemand cd = new CourseDemand();
+					cd.setTimestamp(iTimeStamp);
+					cd.setCourseRequests(new HashSet<CourseRequest>());
+					cd.setEnrollmentMessages(new HashSet<StudentEnrollmentMessage>());
+					cd.setStudent(student);
+					student.getCourseDemands().add(cd);
+					cd.setAlternative(false);
+					cd.setPriority(nextPriority++);
+					cd.setWaitlist(false);
+					cd.setNoSub(false);
+					enrollment.getCourseRequest().setCourseDemand(cd);
+					cd.getCourseRequests().add(enrollment.getCourseRequest());
+					fixCourseDemands = true;
+					if (student.getUniqueId() != null) updatedStudents.add(student.getUniqueId());
+				}
+				for (Iterator<StudentEnrollmentMessage> j = enrollment.getCourseRequest().getCourseDemand().getEnrollmentMessages().iterator(); j.hasNext(); ) {
+					StudentEnrollmentMessage message = j.next();
+					getHibSession().delete(message);
+					j.remove();
+				}
+			} else {
+				CourseDemand cd = new CourseDemand();
+				cd.setTimestamp(iTimeStamp);
+				cd.setCourseRequests(new HashSet<CourseRequest>());
+				cd.setEnrollmentMessages(new HashSet<StudentEnrollmentMessage>());
+				cd.setStudent(student);
+				student.getCourseDemands().add(cd);
+				cd.setAlternative(false);
+				cd.setPriority(nextPriority++);
+				cd.setWaitlist(false);
+				cd.setNoSub(false);
+				CourseRequest cr = new CourseRequest();
+				cd.getCourseRequests().add(cr);
+				cr.setCourseDemand(cd);
+				cr.setCourseRequestOptions(new HashSet<CourseRequestOption>());
+				cr.setAllowOverlap(false);
+				cr.setCredit(0);
+				cr.setOrder(0);
+				cr.setCourseOffering(enrollment.getCourseOffering());
+				enrollment.setCourseRequest(cr);
+				cr.getClassEnrollments().add(enrollment);
+				fixCourseDemands = true;
+				if (student.getUniqueId() != null) updatedStudents.add(student.getUniqueId());
+			}
+		}
+
+		if (!enrollments.isEmpty()) {
+			for (StudentClassEnrollment enrollment: enrollments.values()) {
+				student.getClassEnrollments().remove(enrollment);
+				getHibSession().delete(enrollment);
+				updatedStudents.add(student.getUniqueId());
+			}
+		}
+
+		if (student.getUniqueId() == null) {
+			updatedStudents.add((Long)getHibSession().save(student));
+		} else {
+			getHibSession().update(student);
+		}
+
+		if (fixCourseDemands) {
+			// removed unused course demands (only when not in the registration mode)
+			if (student.getSession().getStatusType() == null || !student.getSession().getStatusType().canPreRegisterStudents())
+				for (CourseDemand cd: remaining) {
+					if (cd.getFreeTime() != null)
+						getHibSession().delete(cd.getFreeTime());
+					for (CourseRequest cr: cd.getCourseRequests())
+						getHibSession().delete(cr);
+					student.getCourseDemands().remove(cd);
+					getHibSession().delete(cd);
+				}
+			int priority = 0;
+			for (CourseDemand cd: new TreeSet<CourseDemand>(student.getCourseDemands())) {
+				cd.setPriority(priority++);
+				getHibSession().saveOrUpdate(cd);
+			}
+		}
 	}
 	
 	public static class Pair {
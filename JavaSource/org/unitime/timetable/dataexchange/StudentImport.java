@@ -19,6 +19,7 @@
 */
 package org.unitime.timetable.dataexchange;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
@@ -48,138 +49,184 @@ import org.unitime.timetable.model.StudentAreaClassificationMinor;
 import org.unitime.timetable.model.StudentClassEnrollment;
 import org.unitime.timetable.model.StudentGroup;
 import org.unitime.timetable.model.StudentSectioningQueue;
+import org.unitime.timetable.model.dao.SessionDAO;
 
 /**
  * @author Tomas Muller, Timothy Almon
  */
-public class StudentImport extends BaseImport {
+public class StudentImport extends StreamingImport {
+	private boolean iTrimLeadingZerosFromExternalId;
+	private boolean iIncremental;
+	private Long iSessionId;
+	private Set<String> iImportedExternalIds;
+	private int iChangedStudents;
+	private Map<String, Long> iAreas, iClassifications, iMajors, iConcentrations, iDegrees, iPrograms, iCampuses, iMinors, iGroups, iAccomodations;
 
 	public StudentImport() {
 		super();
 	}
 
 	@Override
-	public void loadXml(Element rootElement) throws Exception {
-		try {
-			boolean trimLeadingZerosFromExternalId = ApplicationProperty.DataExchangeTrimLeadingZerosFromExternalIds.isTrue();
-			
-	        String campus = rootElement.attributeValue("campus");
-	        String year   = rootElement.attributeValue("year");
-	        String term   = rootElement.attributeValue("term");
-	        boolean incremental = "true".equals(rootElement.attributeValue("incremental", "false"));
-
-	        Session session = Session.getSessionUsingInitiativeYearTerm(campus, year, term);
-	        if(session == null)
-	           	throw new Exception("No session found for the given campus, year, and term.");
-	        
-	        if (incremental) {
-	        	info("Incremental mode enabled: only included students will be updated.");
-	        } else {
-	        	info("Incremental mode disabled: students not included in this file will be deleted.");
-	        }
-
-			beginTransaction();
-            
-	        Hashtable<String, Student> students = new Hashtable<String, Student>();
-	        for (Student student: (List<Student>)getHibSession().createQuery(
-	        		"from Student s where s.session.uniqueId=:sessionId and s.externalUniqueId is not null").
-                    setLong("sessionId",session.getUniqueId()).list()) { 
-	        	students.put(student.getExternalUniqueId(), student);
-	        }
-	        
-            Map<String, AcademicArea> abbv2area = new Hashtable<String, AcademicArea>();
-            for (AcademicArea area: (List<AcademicArea>)getHibSession().createQuery(
-            		"from AcademicArea where session.uniqueId=:sessionId").setLong("sessionId", session.getUniqueId()).list()) {
-            	abbv2area.put(area.getAcademicAreaAbbreviation(), area);
-            }
-
-            Map<String, AcademicClassification> code2clasf = new Hashtable<String, AcademicClassification>();
-            for (AcademicClassification clasf: (List<AcademicClassification>)getHibSession().createQuery(
-            		"from AcademicClassification where session.uniqueId=:sessionId").setLong("sessionId", session.getUniqueId()).list()) {
-            	code2clasf.put(clasf.getCode(), clasf);
-            }
-            
-            Map<String, PosMajor> code2major = new Hashtable<String, PosMajor>();
-            for (PosMajor major: (List<PosMajor>)getHibSession().createQuery(
-            		"from PosMajor where session.uniqueId=:sessionId").setLong("sessionId", session.getUniqueId()).list()) {
-            	for (AcademicArea area: major.getAcademicAreas())
-            		code2major.put(area.getAcademicAreaAbbreviation() + ":" + major.getCode(), major);
-            }
-            
-            Map<String, PosMajorConcentration> code2concentration = new Hashtable<String, PosMajorConcentration>();
-            for (PosMajorConcentration conc: (List<PosMajorConcentration>)getHibSession().createQuery(
-            		"from PosMajorConcentration where major.session.uniqueId=:sessionId").setLong("sessionId", session.getUniqueId()).list()) {
-            	for (AcademicArea area: conc.getMajor().getAcademicAreas())
-            		code2concentration.put(area.getAcademicAreaAbbreviation() + ":" + conc.getMajor().getCode() + ":" + conc.getCode(), conc);
-            }
-            
-            Map<String, Degree> code2degree = new Hashtable<String, Degree>();
-            for (Degree deg: (List<Degree>)getHibSession().createQuery(
-            		"from Degree where session.uniqueId=:sessionId").setLong("sessionId", session.getUniqueId()).list()) {
-            	code2degree.put(deg.getReference(), deg);
-            }
-            
-            Map<String, Program> code2program = new Hashtable<String, Program>();
-            for (Program prog: (List<Program>)getHibSession().createQuery(
-            		"from Program where session.uniqueId=:sessionId").setLong("sessionId", session.getUniqueId()).list()) {
-            	code2program.put(prog.getReference(), prog);
-            }
-            
-            Map<String, Campus> code2campus = new Hashtable<String, Campus>();
-            for (Campus camp: (List<Campus>)getHibSession().createQuery(
-            		"from Campus where session.uniqueId=:sessionId").setLong("sessionId", session.getUniqueId()).list()) {
-            	code2campus.put(camp.getReference(), camp);
-            }
-            
-            Map<String, PosMinor> code2minor = new Hashtable<String, PosMinor>();
-            for (PosMinor minor: (List<PosMinor>)getHibSession().createQuery(
-            		"from PosMinor where session.uniqueId=:sessionId").setLong("sessionId", session.getUniqueId()).list()) {
-            	for (AcademicArea area: minor.getAcademicAreas())
-            		code2minor.put(area.getAcademicAreaAbbreviation() + ":" + minor.getCode(), minor);
-            }
-
-            Map<String, StudentGroup> code2group = new Hashtable<String, StudentGroup>();
-            for (StudentGroup group: (List<StudentGroup>)getHibSession().createQuery(
-            		"from StudentGroup where session.uniqueId=:sessionId").setLong("sessionId", session.getUniqueId()).list()) {
-            	code2group.put(group.getGroupAbbreviation(), group);
-            }
-            
-            Map<String, StudentAccomodation> code2accomodation = new Hashtable<String, StudentAccomodation>();
-            for (StudentAccomodation accomodation: (List<StudentAccomodation>)getHibSession().createQuery(
-            		"from StudentAccomodation where session.uniqueId=:sessionId").setLong("sessionId", session.getUniqueId()).list()) {
-            	code2accomodation.put(accomodation.getAbbreviation(), accomodation);
-            }
-	        
-	        Set<Long> updatedStudents = new HashSet<Long>(); 
-	        
-	        for (Iterator i1 = rootElement.elementIterator(); i1.hasNext(); ) {
-	            Element element = (Element) i1.next();
+	protected void beginImport(Element rootElement) throws Exception {
+		iTrimLeadingZerosFromExternalId = ApplicationProperty.DataExchangeTrimLeadingZerosFromExternalIds.isTrue();
+		
+        String campus = rootElement.attributeValue("campus");
+        String year   = rootElement.attributeValue("year");
+        String term   = rootElement.attributeValue("term");
+        iIncremental = "true".equals(rootElement.attributeValue("incremental", "false"));
 
-	            String externalId = element.attributeValue("externalId");
-	            if (externalId == null) continue;
-	            while (trimLeadingZerosFromExternalId && externalId.startsWith("0")) externalId = externalId.substring(1);
+        Session session = Session.getSessionUsingInitiativeYearTerm(campus, year, term);
+        if(session == null)
+           	throw new Exception("No session found for the given campus, year, and term.");
+        iSessionId = session.getUniqueId();
+        
+        if (iIncremental) {
+        	info("Incremental mode enabled: only included students will be updated.");
+        } else {
+        	info("Incremental mode disabled: students not included in this file will be deleted.");
+        }
+        
+        iImportedExternalIds = new HashSet<String>();
+        iChangedStudents = 0;
+        
+        // lookup tables are loaded once, their entities are re-attached to each chunk by their ids
+        iAreas = new HashMap<String, Long>();
+        for (AcademicArea area: (List<AcademicArea>)getHibSession().createQuery(
+        		"from AcademicArea where session.uniqueId=:sessionId").setLong("sessionId", iSessionId).list()) {
+        	iAreas.put(area.getAcademicAreaAbbreviation(), area.getUniqueId());
+        }
 
-	            importStudent(element, externalId, students, session, updatedStudents,
-	            		abbv2area, code2clasf, code2major, code2minor, code2group, code2accomodation, code2concentration, code2degree, code2program, code2campus);
-	        }
+        iClassifications = new HashMap<String, Long>();
+        for (AcademicClassification clasf: (List<AcademicClassification>)getHibSession().createQuery(
+        		"from AcademicClassification where session.uniqueId=:sessionId").setLong("sessionId", iSessionId).list()) {
+        	iClassifications.put(clasf.getCode(), clasf.getUniqueId());
+        }
+        
+        iMajors = new HashMap<String, Long>();
+        for (PosMajor major: (List<PosMajor>)getHibSession().createQuery(
+        		"from PosMajor where session.uniqueId=:sessionId").setLong("sessionId", iSessionId).list()) {
+        	for (AcademicArea area: major.getAcademicAreas())
+        		iMajors.put(area.getAcademicAreaAbbreviation() + ":" + major.getCode(), major.getUniqueId());
+        }
+        
+        iConcentrations = new HashMap<String, Long>();
+        for (PosMajorConcentration conc: (List<PosMajorConcentration>)getHibSession().createQuery(
+        		"from PosMajorConcentration where major.session.uniqueId=:sessionId").setLong("sessionId", iSessionId).list()) {
+        	for (AcademicArea area: conc.getMajor().getAcademicAreas())
+        		iConcentrations.put(area.getAcademicAreaAbbreviation() + ":" + conc.getMajor().getCode() + ":" + conc.getCode(), conc.getUniqueId());
+        }
+        
+        iDegrees = new HashMap<String, Long>();
+        for (Degree deg: (List<Degree>)getHibSession().createQuery(
+        		"from Degree where session.uniqueId=:sessionId").setLong("sessionId", iSessionId).list()) {
+        	iDegrees.put(deg.getReference(), deg.getUniqueId());
+        }
+        
+        iPrograms = new HashMap<String, Long>();
+        for (Program prog: (List<Program>)getHibSession().createQuery(
+        		"from Program where session.uniqueId=:sessionId").setLong("sessionId", iSessionId).list()) {
+        	iPrograms.put(prog.getReference(), prog.getUniqueId());
+        }
+        
+        iCampuses = new HashMap<String, Long>();
+        for (Campus camp: (List<Campus>)getHibSession().createQuery(
+        		"from Campus where session.uniqueId=:sessionId").setLong("sessionId", iSessionId).list()) {
+        	iCampuses.put(camp.getReference(), camp.getUniqueId());
+        }
+        
+        iMinors = new HashMap<String, Long>();
+        for (PosMinor minor: (List<PosMinor>)getHibSession().createQuery(
+        		"from PosMinor where session.uniqueId=:sessionId").setLong("sessionId", iSessionId).list()) {
+        	for (AcademicArea area: minor.getAcademicAreas())
+        		iMinors.put(area.getAcademicAreaAbbreviation() + ":" + minor.getCode(), minor.getUniqueId());
+        }
 
-	        if (!incremental)
-	 	        for (Student student: students.values()) {
-	        		updatedStudents.add(student.getUniqueId());
-	        		getHibSession().delete(student);
-	 	        }
-	        
-            info(updatedStudents.size() + " students changed");
+        iGroups = new HashMap<String, Long>();
+        for (StudentGroup group: (List<StudentGroup>)getHibSession().createQuery(
+        		"from StudentGroup where session.uniqueId=:sessionId").setLong("sessionId", iSessionId).list()) {
+        	iGroups.put(group.getGroupAbbreviation(), group.getUniqueId());
+        }
+        
+        iAccomodations = new HashMap<String, Long>();
+        for (StudentAccomodation accomodation: (List<StudentAccomodation>)getHibSession().createQuery(
+        		"from StudentAccomodation where session.uniqueId=:sessionId").setLong("sessionId", iSessionId).list()) {
+        	iAccomodations.put(accomodation.getAbbreviation(), accomodation.getUniqueId());
+        }
+	}
 
- 	        if (!updatedStudents.isEmpty())
- 	 	        StudentSectioningQueue.studentChanged(getHibSession(), null, session.getUniqueId(), updatedStudents);
-            
-            commitTransaction();
-		} catch (Exception e) {
-			fatal("Exception: " + e.getMessage(), e);
-			rollbackTransaction();
-			throw e;
-		}
+	@Override
+	protected void importChunk(Element rootElement, List<Element> elements) throws Exception {
+		Session session = SessionDAO.getInstance().get(iSessionId, getHibSession());
+		
+		List<String> externalIds = new ArrayList<String>();
+        for (Element element: elements) {
+            String externalId = element.attributeValue("externalId");
+            if (externalId == null) continue;
+            while (iTrimLeadingZerosFromExternalId && externalId.startsWith("0")) externalId = externalId.substring(1);
+            iImportedExternalIds.add(externalId);
+            externalIds.add(externalId);
+        }
+        if (externalIds.isEmpty()) return;
+        
+        Hashtable<String, Student> students = new Hashtable<String, Student>();
+        for (int i = 0; i < externalIds.size(); i += 1000) {
+        	for (Student student: (List<Student>)getHibSession().createQuery(
+	        		"from Student s where s.session.uniqueId=:sessionId and s.externalUniqueId in :externalIds").
+	                setLong("sessionId", iSessionId).setParameterList("externalIds", externalIds.subList(i, Math.min(i + 1000, externalIds.size()))).list()) { 
+	        	students.put(student.getExternalUniqueId(), student);
+        	}
+        }
+        
+        Map<String, AcademicArea> abbv2area = load(AcademicArea.class, iAreas);
+        Map<String, AcademicClassification> code2clasf = load(AcademicClassification.class, iClassifications);
+        Map<String, PosMajor> code2major = load(PosMajor.class, iMajors);
+        Map<String, PosMajorConcentration> code2concentration = load(PosMajorConcentration.class, iConcentrations);
+        Map<String, Degree> code2degree = load(Degree.class, iDegrees);
+        Map<String, Program> code2program = load(Program.class, iPrograms);
+        Map<String, Campus> code2campus = load(Campus.class, iCampuses);
+        Map<String, PosMinor> code2minor = load(PosMinor.class, iMinors);
+        Map<String, StudentGroup> code2group = load(StudentGroup.class, iGroups);
+        Map<String, StudentAccomodation> code2accomodation = load(StudentAccomodation.class, iAccomodations);
+        
+        Set<Long> updatedStudents = new HashSet<Long>(); 
+        
+        int index = 0;
+        for (Element element: elements) {
+            if (element.attributeValue("externalId") == null) continue;
+            importStudent(element, externalIds.get(index++), students, session, updatedStudents,
+            		abbv2area, code2clasf, code2major, code2minor, code2group, code2accomodation, code2concentration, code2degree, code2program, code2campus);
+        }
+        
+        iChangedStudents += updatedStudents.size();
+        
+        if (!updatedStudents.isEmpty())
+ 	        StudentSectioningQueue.studentChanged(getHibSession(), null, iSessionId, updatedStudents);
+	}
+	
+	@Override
+	protected void endImport(Element rootElement) throws Exception {
+        if (!iIncremental) {
+        	List<Long> studentIds = new ArrayList<Long>();
+        	for (Object[] o: (List<Object[]>)getHibSession().createQuery(
+	        		"select s.uniqueId, s.externalUniqueId from Student s where s.session.uniqueId=:sessionId and s.externalUniqueId is not null").
+                    setLong("sessionId", iSessionId).list()) {
+        		if (!iImportedExternalIds.contains((String)o[1]))
+        			studentIds.add((Long)o[0]);
+        	}
+        	for (int i = 0; i < studentIds.size(); i += getChunkSize()) {
+        		List<Long> ids = studentIds.subList(i, Math.min(i + getChunkSize(), studentIds.size()));
+        		for (int j = 0; j < ids.size(); j += 1000) {
+        			for (Student student: (List<Student>)getHibSession().createQuery(
+        					"from Student s where s.uniqueId in :studentIds").setParameterList("studentIds", ids.subList(j, Math.min(j + 1000, ids.size()))).list())
+        				getHibSession().delete(student);
+        		}
+        		StudentSectioningQueue.studentChanged(getHibSession(), null, iSessionId, ids);
+        		iChangedStudents += ids.size();
+        		commitChunk();
+        	}
+        }
+        
+        info(iChangedStudents + " students changed");
 	}
 	
 	protected Student importStudent(Element element, String externalId, Hashtable<String, Student> students, Session session, Set<Long> updatedStudents,
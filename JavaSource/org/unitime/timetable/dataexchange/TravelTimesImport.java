@@ -80,6 +80,7 @@ public class TravelTimesImport extends BaseImport {
         	info("All done.");
         	
             commitTransaction();
+            TravelTime.invalidateTravelTimes(session.getUniqueId());
         } catch (Exception e) {
             fatal("Exception: " + e.getMessage(), e);
             rollbackTransaction();
@@ -0,0 +1,103 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.dataexchange;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+
+/**
+ * Pull-parses an XML file one top-level element at a time, only the element being returned is built into a dom4j element.
+ *
+ * @author Tomas Muller
+ */
+public class XmlElementReader {
+	private XMLStreamReader iReader;
+	private Element iRootElement;
+	private boolean iEnd = false;
+
+	public XmlElementReader(InputStream inputStream) throws XMLStreamException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		iReader = factory.createXMLStreamReader(inputStream);
+		while (iReader.hasNext() && iReader.next() != XMLStreamConstants.START_ELEMENT);
+		if (!iReader.isStartElement()) throw new XMLStreamException("No root element found.");
+		iRootElement = createElement(iReader);
+	}
+
+	/**
+	 * Root element with its attributes, but with no content
+	 */
+	public Element getRootElement() { return iRootElement; }
+
+	/**
+	 * Next top-level element with all its content, null when there are no more elements
+	 */
+	public Element nextElement() throws XMLStreamException {
+		while (!iEnd && iReader.hasNext()) {
+			int event = iReader.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				return readElement(iReader);
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				iEnd = true;
+		}
+		return null;
+	}
+
+	public void close() throws XMLStreamException {
+		iReader.close();
+	}
+
+	private static Element createElement(XMLStreamReader reader) {
+		Element element = DocumentHelper.createElement(reader.getLocalName());
+		for (int i = 0; i < reader.getAttributeCount(); i++)
+			element.addAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+		return element;
+	}
+
+	/**
+	 * Read the whole element the reader is positioned at, the reader is left at its end element
+	 */
+	private static Element readElement(XMLStreamReader reader) throws XMLStreamException {
+		Element element = createElement(reader);
+		while (reader.hasNext()) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				element.add(readElement(reader));
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				element.addText(reader.getText());
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				return element;
+			}
+		}
+		return element;
+	}
+}
@@ -25,6 +25,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.sql.Driver;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -126,6 +128,12 @@ public enum ApplicationProperty {
 	@ReadOnly
 	DatabaseUniqueIdGenerator("tmtbl.uniqueid.generator"),
 
+	@Type(Integer.class)
+	@Description("Database: number of unique ids allocated from the given sequence at once (pooled allocation when org.hibernate.id.SequenceGenerator is used, must match the increment of the sequence)")
+	@Parameter("sequence")
+	@ReadOnly
+	DatabaseUniqueIdBlockSizeSequence("tmtbl.hibernate.uniqueid.blockSize.%"),
+
 	@Type(Integer.class)
 	@Description("Database: schema version (DO NOT EDIT!)")
 	@ReadOnly
@@ -559,6 +567,16 @@ public enum ApplicationProperty {
 	@Description("Data Exchange: default import timetabling manager (e.g., if executed from command line)")
 	DataExchangeXmlManager("unitime.xml.manager"),
 
+	@Type(Integer.class)
+	@DefaultValue("1000")
+	@Description("Data Exchange: number of top-level elements imported at once by the streaming imports (e.g., student import), the Hibernate session is flushed and cleared after each chunk")
+	DataExchangeImportChunkSize("unitime.data.import.chunkSize"),
+
+	@Type(Boolean.class)
+	@DefaultValue("false")
+	@Description("Data Exchange: commit each chunk of the streaming imports in its own transaction (see unitime.data.import.chunkSize), a failed import then keeps the chunks that were already committed")
+	DataExchangeImportCommitChunks("unitime.data.import.commitChunks"),
+
 	@Type(Boolean.class)
 	@DefaultValue("false")
 	@Description("Student Enrollment Import: update examination student conflicts for final exams")
@@ -983,6 +1001,16 @@ public enum ApplicationProperty {
 	@DefaultValue("true")
 	@Description("Examination PDF Reports: use class event to compute class meeting time")
 	ExaminationPdfReportsUseEventsForMeetingTimes("tmtbl.exam.report.meeting_time.use_events"),
+
+	@Type(Integer.class)
+	@DefaultValue("1")
+	@Description("Examination PDF Reports: number of threads used to send the individual student / instructor reports by email")
+	ExaminationPdfReportsEmailThreads("tmtbl.exam.pdfReports.emailThreads"),
+
+	@Type(Integer.class)
+	@DefaultValue("4")
+	@Description("Examination PDF Reports: number of threads used to print the individual student / instructor reports (each thread uses its own database connection)")
+	ExaminationPdfReportsThreads("tmtbl.exam.pdfReports.threads"),
 	
 	@DefaultValue("none")
 	@Description("Examination Reports: include different subject sections (set to none if disabled, "
@@ -1374,6 +1402,16 @@ public enum ApplicationProperty {
 	@DefaultValue("true")
 	@Description("Event ICS Calendar: set main contact as organizer")
 	EventCalendarSetOrganizer("unitime.events.ics_set_organizer"),
+
+	@Type(Integer.class)
+	@DefaultValue("900")
+	@Description("Event ICS Calendar: number of seconds for which a generated calendar (and the calendar entries of classes and examinations) is cached (0 to disable caching); the cache is also invalidated once changes recorded in the change log, event changes, or course and examination solution commits are committed (on the node where they were made), and by enrollment changes of the student")
+	EventCalendarCacheTimeToLive("unitime.events.ics_cache_ttl"),
+	
+	@Type(Integer.class)
+	@DefaultValue("300")
+	@Description("Events: number of seconds for which the room occupancy (used by the room availability and conflict checks) is kept in memory (0 to disable); the occupancy is also dropped when a new meeting is created, and after an event is saved or approved, a change recorded in the change log is committed, or a course or examination solution is committed")
+	EventRoomOccupancyTimeToLive("unitime.events.occupancy_ttl"),
 	
 	@Type(Boolean.class)
 	@DefaultValue("false")
@@ -1901,6 +1939,16 @@ public enum ApplicationProperty {
 	@Description("Online Student Scheduling: sectioning queue update interval in seconds")
 	OnlineSchedulingQueueUpdateInterval("unitime.sectioning.queue.updateInterval"),
 
+	@Type(Boolean.class)
+	@DefaultValue("true")
+	@Description("Online Student Scheduling: when a change is added into the sectioning queue, notify the updaters (over the cluster) so that the change is processed right after it is committed, not waiting for the next update interval")
+	OnlineSchedulingQueuePushNotifications("unitime.sectioning.queue.push"),
+
+	@Type(Boolean.class)
+	@DefaultValue("true")
+	@Description("Online Student Scheduling: use a compact binary encoding of the sectioning queue items (instead of XML); disable when the cluster contains servers that are not able to read it")
+	OnlineSchedulingQueueCompactEncoding("unitime.sectioning.queue.compact"),
+
 	@Description("Online Student Scheduling: only academic sessions matching this year (regular expression) are loaded in")
 	OnlineSchedulingAcademicYear("unitime.enrollment.year"),
 
@@ -2090,6 +2138,11 @@ public enum ApplicationProperty {
 			" That is, show all instructors that are assigned to a class (including those that are not checked for conflicts in course timetabling) when set to false.")
 	TimetableGridUseClassInstructorsCheckLead("tmtbl.timeGrid.useClassInstructors.checkConflicts"),
 	
+	@Type(Integer.class)
+	@DefaultValue("300")
+	@Description("Timetable Grid: number of seconds for which the grids computed from the saved solutions are cached (0 to disable caching); the cache is also invalidated once changes recorded in the change log are committed and when a solution is saved, committed, uncommitted, or deleted; grids showing events are not invalidated by event changes")
+	TimetableGridCacheTimeToLive("tmtbl.timeGrid.cache_ttl"),
+	
 	@Type(Boolean.class)
 	@DefaultValue("false")
 	@Description("Timetable Grid: skip holidays in room utilization computations")
@@ -2189,6 +2242,11 @@ public enum ApplicationProperty {
 	@Description("Session Roll Forward: reset class suffixes and external ids")
 	RollForwardResetClassSuffix("unitime.rollforward.resetClassSufix"),
 
+	@Type(Integer.class)
+	@DefaultValue("1")
+	@Description("Session Roll Forward: number of threads (when above 1, roll forward steps that do not depend on each other are executed in parallel)")
+	RollForwardNrThreads("unitime.rollforward.nrThreads"),
+
 	@Type(Boolean.class)
 	@DefaultValue("false")
 	@Description("Main Page: when Internet Explorer is used, show \"the UniTime application may run very slow in Internet Explorer\" warning")
@@ -2596,6 +2654,11 @@ public enum ApplicationProperty {
 	@Since(4.2)
 	SolverShowConfiguratioName("unitime.solver.showConfigurationNames"),
 	
+	@Type(Integer.class)
+	@DefaultValue("5")
+	@Description("Course Timetabling Solver: while the solver is running, read-only pages (assigned and unassigned classes, reports, timetable grid) are computed from a snapshot of the solution that is at most this many seconds old, not blocking the solver (set to zero to disable the snapshots)")
+	SolverSnapshotInterval("unitime.solver.snapshot.interval"),
+	
 	@Type(Boolean.class)
 	@DefaultValue("false")
 	@Description("API: allow API tokens to be used for user authentication")
@@ -3006,6 +3069,11 @@ public enum ApplicationProperty {
 	@Since(4.5)
 	CourseTimetablingCommitSkipChecking("unitime.commit.skipConflictChecking"),
 
+	@Type(Boolean.class)
+	@DefaultValue("true")
+	@Description("Course Timetabling Solution Commit: leave the events of classes whose meetings have not changed untouched and only check the changed classes for room conflicts with other committed problems (instructor conflicts are always checked for all classes).")
+	CourseTimetablingCommitDifferential("unitime.commit.differential"),
+
 	@Type(String.class)
 	@DefaultValue("Disabled")
 	@Description("Instructional Offering: wait-listing default value " +
@@ -3064,6 +3132,11 @@ public enum ApplicationProperty {
 	@Description("Edit Course Offering: external managers can edit course offerings.")
 	PermissionCourseOfferingAllowsExternalEdit("unitime.permissions.courseOfferingAllowExternalEdits"),
 
+	@Type(Integer.class)
+	@DefaultValue("30")
+	@Description("Permissions: number of seconds for which a permission decision is cached between requests (0 to cache permission decisions only within a request)")
+	PermissionCacheTimeToLive("unitime.permissions.cache.ttl"),
+
 	@Type(Boolean.class)
 	@DefaultValue("false")
 	@Description("Enable Funding Department Functionality.")
@@ -3265,21 +3338,36 @@ public enum ApplicationProperty {
 	;
 
 	String iKey;
+	private volatile boolean iAnnotationsLoaded = false;
+	private String iDefaultValue;
+	private String[] iReplaces;
+	private static final Long sNoSession = -1l;
+	private static final Map<Long, Snapshot> sSnapshots = new ConcurrentHashMap<Long, Snapshot>();
 	
 	ApplicationProperty(String key) { iKey = key; }
 	
-	public String key() { return iKey; }
-	public String key(String reference) { return (reference == null ? iKey : iKey.replace("%", reference)); }
-	
-	public String defaultValue() {
+	/**
+	 * Default value and replaced keys are read from the annotations only once (they are needed on every property lookup)
+	 */
+	private void loadAnnotations() {
+		if (iAnnotationsLoaded) return;
 		try {
 			DefaultValue defaultValue = ApplicationProperty.class.getField(name()).getAnnotation(DefaultValue.class);
-			return (defaultValue == null ? null : defaultValue.value());
+			iDefaultValue = (defaultValue == null ? null : defaultValue.value());
+			Replaces replaces = ApplicationProperty.class.getField(name()).getAnnotation(Replaces.class);
+			iReplaces = (replaces == null ? null : replaces.value());
 		} catch (NoSuchFieldException e) {
-			return null;
 		} catch (SecurityException e) {
-			return null;
 		}
+		iAnnotationsLoaded = true;
+	}
+	
+	public String key() { return iKey; }
+	public String key(String reference) { return (reference == null ? iKey : iKey.replace("%", reference)); }
+	
+	public String defaultValue() {
+		loadAnnotations();
+		return iDefaultValue;
 	}
 	public String description() {
 		try {
@@ -3353,6 +3441,8 @@ public enum ApplicationProperty {
 	}
 	
 	public String value(String reference, String defaultValueOverride) {
+		if (reference == null && defaultValueOverride == null)
+			return resolve(ApplicationProperties.getSessionId()).getValue();
 		String value = ApplicationProperties.getProperty(key(reference));
 		if (value != null) return value;
 		
@@ -3375,6 +3465,12 @@ public enum ApplicationProperty {
 	}
 	
 	public String valueOfSession(Long sessionId, String reference, String defaultValueOverride) {
+		if (reference == null && defaultValueOverride == null)
+			return resolve(sessionId).getValue();
+		return lookup(sessionId, reference, defaultValueOverride);
+	}
+	
+	private String lookup(Long sessionId, String reference, String defaultValueOverride) {
 		String value = ApplicationProperties.getProperty(sessionId, key(reference));
 		if (value != null) return value;
 		
@@ -3405,11 +3501,7 @@ public enum ApplicationProperty {
 	}
 	
 	public Integer intValue() {
-		try {
-			return Integer.valueOf(value());
-		} catch (Exception e) {
-			return null;
-		}
+		return resolve(ApplicationProperties.getSessionId()).getInteger();
 	}
 	
 	public Integer intValue(String reference) {
@@ -3421,30 +3513,96 @@ public enum ApplicationProperty {
 	}
 	
 	public Float floatValue() {
-		try {
-			return Float.valueOf(value());
-		} catch (Exception e) {
-			return null;
-		}
+		return resolve(ApplicationProperties.getSessionId()).getFloat();
 	}
 	
 	public Double doubleValue() {
-		try {
-			return Double.valueOf(value());
-		} catch (Exception e) {
-			return null;
+		return resolve(ApplicationProperties.getSessionId()).getDouble();
+	}
+	
+	/**
+	 * Resolved value of the property (no reference, no default value override) for the given academic session.
+	 * Resolved values are kept in a snapshot that is replaced when the configuration version changes (see {@link ApplicationProperties#getVersion()}).
+	 */
+	private Value resolve(Long sessionId) {
+		long version = ApplicationProperties.getVersion();
+		Long key = (sessionId == null ? sNoSession : sessionId);
+		Snapshot snapshot = sSnapshots.get(key);
+		if (snapshot == null || snapshot.getVersion() != version) {
+			snapshot = new Snapshot(version);
+			sSnapshots.put(key, snapshot);
+		}
+		Value value = snapshot.get(this);
+		if (value == null) {
+			value = new Value(lookup(sessionId, null, null));
+			snapshot.set(this, value);
 		}
+		return value;
 	}
 	
-	private String[] replaces() {
-		try {
-			Replaces replaces = ApplicationProperty.class.getField(name()).getAnnotation(Replaces.class);
-			return (replaces == null ? null : replaces.value());
-		} catch (NoSuchFieldException e) {
-			return null;
-		} catch (SecurityException e) {
-			return null;
+	private static class Snapshot {
+		private final long iVersion;
+		private final Value[] iValues;
+		
+		Snapshot(long version) {
+			iVersion = version;
+			iValues = new Value[ApplicationProperty.values().length];
+		}
+		
+		long getVersion() { return iVersion; }
+		Value get(ApplicationProperty property) { return iValues[property.ordinal()]; }
+		void set(ApplicationProperty property, Value value) { iValues[property.ordinal()] = value; }
+	}
+	
+	private static class Value {
+		private final String iValue;
+		private Integer iInteger; private Float iFloat; private Double iDouble;
+		private volatile boolean iIntegerParsed = false, iFloatParsed = false, iDoubleParsed = false;
+		
+		Value(String value) { iValue = value; }
+		
+		String getValue() { return iValue; }
+		
+		Integer getInteger() {
+			if (!iIntegerParsed) {
+				try {
+					iInteger = Integer.valueOf(iValue);
+				} catch (Exception e) {
+					iInteger = null;
+				}
+				iIntegerParsed = true;
+			}
+			return iInteger;
+		}
+		
+		Float getFloat() {
+			if (!iFloatParsed) {
+				try {
+					iFloat = Float.valueOf(iValue);
+				} catch (Exception e) {
+					iFloat = null;
+				}
+				iFloatParsed = true;
+			}
+			return iFloat;
 		}
+		
+		Double getDouble() {
+			if (!iDoubleParsed) {
+				try {
+					iDouble = Double.valueOf(iValue);
+				} catch (Exception e) {
+					iDouble = null;
+				}
+				iDoubleParsed = true;
+			}
+			return iDouble;
+		}
+	}
+	
+	private String[] replaces() {
+		loadAnnotations();
+		return iReplaces;
 	}
 	
 	public boolean matches(String key) {
@@ -44,6 +44,8 @@ import org.unitime.timetable.model.Session;
 import org.unitime.timetable.model.dao.EventDAO;
 import org.unitime.timetable.model.dao.SessionDAO;
 import org.unitime.timetable.security.rights.Right;
+import org.unitime.timetable.util.DataChange;
+import org.unitime.timetable.util.DataChangeNotifier;
 import org.unitime.timetable.util.Formats;
 
 /**
@@ -205,6 +207,7 @@ public class ApproveEventBackend extends EventAction<ApproveEventRpcRequest, Sav
 				response.setEvent(EventDetailBackend.getEventDetail(session, event, context));
 			}
 			
+			DataChangeNotifier.changed(hibSession, new DataChange(DataChange.Type.EVENT, request.getSessionId(), event.getUniqueId()));
 			tx.commit(); tx = null;
 			
 			new EventEmail(request, response).send(context);
@@ -21,7 +21,10 @@ package org.unitime.timetable.events;
 
 import java.io.Serializable;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.unitime.localization.impl.Localization;
 import org.unitime.timetable.defaults.SessionAttribute;
@@ -212,6 +215,14 @@ public abstract class EventAction<T extends EventRpcRequest<R>, R extends GwtRpc
 			return iContext.hasPermissionAnyAuthority(targetId, targetType, right, iFilter);
 		}
 
+		@Override
+		public Map<Serializable, Boolean> hasPermissions(Collection<? extends Serializable> targetIds, String targetType, Right right) {
+			Map<Serializable, Boolean> ret = new HashMap<Serializable, Boolean>();
+			for (Serializable targetId: targetIds)
+				ret.put(targetId, hasPermission(targetId, targetType, right));
+			return ret;
+		}
+
 		@Override
 		public boolean hasPermission(Object targetObject, Right right) {
 			return iContext.hasPermissionAnyAuthority(targetObject, right, iFilter);
@@ -37,6 +37,8 @@ import org.unitime.timetable.model.Event;
 import org.unitime.timetable.model.EventNote;
 import org.unitime.timetable.model.Meeting;
 import org.unitime.timetable.model.dao.EventDAO;
+import org.unitime.timetable.util.DataChange;
+import org.unitime.timetable.util.DataChangeNotifier;
 
 /**
  * @author Tomas Muller
@@ -108,6 +110,7 @@ public class EventExpirationService extends Thread {
 					hibSession.saveOrUpdate(note);
 				
 					hibSession.update(event);
+					DataChangeNotifier.changed(hibSession, new DataChange(DataChange.Type.EVENT, event.getSession() == null ? null : event.getSession().getUniqueId(), event.getUniqueId()));
 					
 					try {
 						EventEmail.eventExpired(event, affectedMeetings);
@@ -19,7 +19,10 @@
 */
 package org.unitime.timetable.events;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -64,6 +67,7 @@ import org.unitime.timetable.model.dao.SessionDAO;
 import org.unitime.timetable.security.rights.Right;
 import org.unitime.timetable.util.CalendarUtils;
 import org.unitime.timetable.util.Constants;
+import org.unitime.timetable.util.RoomOccupancy;
 
 /**
  * @author Tomas Muller
@@ -78,6 +82,8 @@ public class EventRoomAvailabilityBackend extends EventAction<EventRoomAvailabil
 		Session session = SessionDAO.getInstance().get(request.getSessionId());
 		String nameFormat = context.getUser().getProperty(UserProperty.NameFormat);
 		
+		RoomOccupancy occupancy = RoomOccupancy.getInstance(SessionDAO.getInstance().getSession(), session);
+		
 		if (request.hasDates() && request.hasLocations()) {
 			for (int idx = 0; idx < request.getLocations().size(); idx += 1000) {
 			
@@ -89,24 +95,40 @@ public class EventRoomAvailabilityBackend extends EventAction<EventRoomAvailabil
 				for (int i = 0; i + idx < request.getLocations().size() && i < 1000; i++)
 					locations += (locations.isEmpty() ? "" : ",") + ":l" + i;
 				
-				Query query = EventDAO.getInstance().getSession().createQuery(
-						"select m, l.permanentId from Meeting m, Location x, Location l " +
-						"where m.startPeriod<:stopTime and m.stopPeriod>:startTime and m.approvalStatus <= 1 and " +
-						"l.session.uniqueId = :sessionId and l.permanentId in (" + locations + ") and l.ignoreRoomCheck = false and " +
-						"(x.uniqueId = l.uniqueId or x.parentRoom.uniqueId = l.uniqueId or x.uniqueId = l.parentRoom.uniqueId) and " +
-						"m.locationPermanentId = x.permanentId and m.meetingDate in ("+dates+")");
-				
-				query.setInteger("startTime", request.getStartSlot());
-				query.setInteger("stopTime", request.getEndSlot());
-				query.setLong("sessionId", request.getSessionId());
-				for (int i = 0; i < request.getDates().size(); i++) {
-					Date date = CalendarUtils.dateOfYear2date(session.getSessionStartYear(), request.getDates().get(i));
-					query.setDate("d" + i, date);
+				Query query = null;
+				List<Object[]> overlaps = null;
+				if (occupancy != null && occupancy.isCovered(request.getDates())) {
+					// use the room occupancy, only the conflicting meetings are loaded
+					Map<Long, Set<Long>> conflicts = occupancy.getConflictingMeetings(EventDAO.getInstance().getSession(),
+							request.getLocations().subList(idx, Math.min(idx + 1000, request.getLocations().size())), request.getDates(),
+							request.getStartSlot(), request.getEndSlot(), request.hasEventId() ? request.getEventId() : null, null);
+					overlaps = new ArrayList<Object[]>();
+					for (Meeting m: getMeetings(conflicts.keySet()))
+						for (Long permId: conflicts.get(m.getUniqueId()))
+							if (occupancy.isConflicting(EventDAO.getInstance().getSession(), m, permId, request.getDates(), request.getStartSlot(), request.getEndSlot()))
+								overlaps.add(new Object[] {m, permId});
+				} else {
+					query = EventDAO.getInstance().getSession().createQuery(
+							"select m, l.permanentId from Meeting m, Location x, Location l " +
+							"where m.startPeriod<:stopTime and m.stopPeriod>:startTime and m.approvalStatus <= 1 and " +
+							"l.session.uniqueId = :sessionId and l.permanentId in (" + locations + ") and l.ignoreRoomCheck = false and " +
+							"(x.uniqueId = l.uniqueId or x.parentRoom.uniqueId = l.uniqueId or x.uniqueId = l.parentRoom.uniqueId) and " +
+							"m.locationPermanentId = x.permanentId and m.meetingDate in ("+dates+")");
+					
+					query.setInteger("startTime", request.getStartSlot());
+					query.setInteger("stopTime", request.getEndSlot());
+					query.setLong("sessionId", request.getSessionId());
+					for (int i = 0; i < request.getDates().size(); i++) {
+						Date date = CalendarUtils.dateOfYear2date(session.getSessionStartYear(), request.getDates().get(i));
+						query.setDate("d" + i, date);
+					}
+					for (int i = 0; i + idx < request.getLocations().size() && i < 1000; i++)
+						query.setLong("l" + i, request.getLocations().get(idx + i));
+					
+					overlaps = (List<Object[]>)query.list();
 				}
-				for (int i = 0; i + idx < request.getLocations().size() && i < 1000; i++)
-					query.setLong("l" + i, request.getLocations().get(idx + i));
 				
-				for (Object[] o: (List<Object[]>)query.list()) {
+				for (Object[] o: overlaps) {
 					Meeting m = (Meeting)o[0];
 					Long permId = (Long)o[1];
 					MeetingConflictInterface conflict = new MeetingConflictInterface();
@@ -331,8 +353,19 @@ public class EventRoomAvailabilityBackend extends EventAction<EventRoomAvailabil
 					available = false;
 				}
 				
-				if (!location.isIgnoreRoomCheck())
-					for (Meeting m: (List<Meeting>)EventDAO.getInstance().getSession().createQuery(
+				List<Meeting> overlaps = null;
+				if (location.isIgnoreRoomCheck()) {
+					overlaps = new ArrayList<Meeting>();
+				} else if (occupancy != null && occupancy.isCovered(meeting.getDayOfYear())) {
+					// use the room occupancy, only the conflicting meetings are loaded
+					overlaps = new ArrayList<Meeting>();
+					for (Meeting m: getMeetings(occupancy.getConflictingMeetings(EventDAO.getInstance().getSession(),
+							Collections.singleton(location.getPermanentId()), Collections.singleton(meeting.getDayOfYear()),
+							meeting.getStartSlot(), meeting.getEndSlot(), request.hasEventId() ? request.getEventId() : null, meeting.getId()).keySet()))
+						if (occupancy.isConflicting(EventDAO.getInstance().getSession(), m, location.getPermanentId(), Collections.singleton(meeting.getDayOfYear()), meeting.getStartSlot(), meeting.getEndSlot()))
+							overlaps.add(m);
+				} else {
+					overlaps = (List<Meeting>)EventDAO.getInstance().getSession().createQuery(
 							"select m from Meeting m, Location x, Location l "+
 							"where m.startPeriod < :stopTime and m.stopPeriod > :startTime and m.approvalStatus <= 1 and " +
 							"m.locationPermanentId = x.permanentId and l.uniqueId = :locationdId and m.meetingDate = :meetingDate and m.uniqueId != :meetingId and "+
@@ -342,63 +375,66 @@ public class EventRoomAvailabilityBackend extends EventAction<EventRoomAvailabil
 							.setDate("meetingDate", meeting.getMeetingDate())
 							.setLong("locationdId", meeting.getLocation().getId())
 							.setLong("meetingId", meeting.getId() == null ? -1 : meeting.getId())
-							.list()) {
-						
-						MeetingConflictInterface conflict = new MeetingConflictInterface();
-						
-						if (request.hasEventId() && m.getEvent().getUniqueId().equals(request.getEventId())) continue;
+							.list();
+				}
+				
+				for (Meeting m: overlaps) {
+					
+					MeetingConflictInterface conflict = new MeetingConflictInterface();
+					
+					if (request.hasEventId() && m.getEvent().getUniqueId().equals(request.getEventId())) continue;
 
-						conflict.setEventId(m.getEvent().getUniqueId());
-						conflict.setName(m.getEvent().getEventName());
-						conflict.setType(EventInterface.EventType.values()[m.getEvent().getEventType()]);
-						
-						conflict.setId(m.getUniqueId());
-						conflict.setMeetingDate(m.getMeetingDate());
-						conflict.setDayOfYear(meeting.getDayOfYear());
-						conflict.setStartSlot(m.getStartPeriod());
-						conflict.setEndSlot(m.getStopPeriod());
-						conflict.setStartOffset(m.getStartOffset() == null ? 0 : m.getStartOffset());
-						conflict.setEndOffset(m.getStopOffset() == null ? 0 : m.getStopOffset());
-						conflict.setApprovalDate(m.getApprovalDate());
-						conflict.setApprovalStatus(m.getApprovalStatus());
-						
-						if (context.hasPermission(Right.EventCanViewMeetingContacts)) {
-							Map<Long, ContactInterface> contacts = new HashMap<Long, ContactInterface>();
-							for (EventContact c: m.getMeetingContacts()) {
-								ContactInterface contact = contacts.get(c.getUniqueId());
-								if (contact == null) {
-									contact = new ContactInterface();
-									contact.setFirstName(c.getFirstName());
-									contact.setMiddleName(c.getMiddleName());
-									contact.setLastName(c.getLastName());
-									contact.setAcademicTitle(c.getAcademicTitle());
-									contact.setExternalId(c.getExternalUniqueId());
-									contact.setPhone(c.getPhone());
-									contact.setEmail(c.getEmailAddress());
-									contact.setFormattedName(c.getName(nameFormat));
-									contacts.put(c.getUniqueId(), contact);
-								}
-								conflict.addMeetingContact(contact);
+					conflict.setEventId(m.getEvent().getUniqueId());
+					conflict.setName(m.getEvent().getEventName());
+					conflict.setType(EventInterface.EventType.values()[m.getEvent().getEventType()]);
+					
+					conflict.setId(m.getUniqueId());
+					conflict.setMeetingDate(m.getMeetingDate());
+					conflict.setDayOfYear(meeting.getDayOfYear());
+					conflict.setStartSlot(m.getStartPeriod());
+					conflict.setEndSlot(m.getStopPeriod());
+					conflict.setStartOffset(m.getStartOffset() == null ? 0 : m.getStartOffset());
+					conflict.setEndOffset(m.getStopOffset() == null ? 0 : m.getStopOffset());
+					conflict.setApprovalDate(m.getApprovalDate());
+					conflict.setApprovalStatus(m.getApprovalStatus());
+					
+					if (context.hasPermission(Right.EventCanViewMeetingContacts)) {
+						Map<Long, ContactInterface> contacts = new HashMap<Long, ContactInterface>();
+						for (EventContact c: m.getMeetingContacts()) {
+							ContactInterface contact = contacts.get(c.getUniqueId());
+							if (contact == null) {
+								contact = new ContactInterface();
+								contact.setFirstName(c.getFirstName());
+								contact.setMiddleName(c.getMiddleName());
+								contact.setLastName(c.getLastName());
+								contact.setAcademicTitle(c.getAcademicTitle());
+								contact.setExternalId(c.getExternalUniqueId());
+								contact.setPhone(c.getPhone());
+								contact.setEmail(c.getEmailAddress());
+								contact.setFormattedName(c.getName(nameFormat));
+								contacts.put(c.getUniqueId(), contact);
 							}
+							conflict.addMeetingContact(contact);
 						}
-						
-						if (m.getLocation() != null) {
-							ResourceInterface loc = new ResourceInterface();
-							loc.setType(ResourceType.ROOM);
-							loc.setId(m.getLocation().getUniqueId());
-							loc.setName(m.getLocation().getLabel());
-							loc.setSize(m.getLocation().getCapacity());
-							loc.setRoomType(m.getLocation().getRoomTypeLabel());
-							loc.setBreakTime(m.getLocation().getEffectiveBreakTime());
-							loc.setMessage(m.getLocation().getEventMessage());
-							loc.setIgnoreRoomCheck(m.getLocation().isIgnoreRoomCheck());
-							loc.setDisplayName(m.getLocation().getDisplayName());
-							loc.setPartitionParentId(m.getLocation().getPartitionParentId());
-							conflict.setLocation(loc);
-						}
-						
-						meeting.addConflict(conflict);
 					}
+					
+					if (m.getLocation() != null) {
+						ResourceInterface loc = new ResourceInterface();
+						loc.setType(ResourceType.ROOM);
+						loc.setId(m.getLocation().getUniqueId());
+						loc.setName(m.getLocation().getLabel());
+						loc.setSize(m.getLocation().getCapacity());
+						loc.setRoomType(m.getLocation().getRoomTypeLabel());
+						loc.setBreakTime(m.getLocation().getEffectiveBreakTime());
+						loc.setMessage(m.getLocation().getEventMessage());
+						loc.setIgnoreRoomCheck(m.getLocation().isIgnoreRoomCheck());
+						loc.setDisplayName(m.getLocation().getDisplayName());
+						loc.setPartitionParentId(m.getLocation().getPartitionParentId());
+						conflict.setLocation(loc);
+					}
+					
+					meeting.addConflict(conflict);
+				}
 				
 				if (location != null && location.getEventAvailability() != null && location.getEventAvailability().length() == Constants.SLOTS_PER_DAY * Constants.DAY_CODES.length) {
 					check: for (int slot = meeting.getStartSlot(); slot < meeting.getEndSlot(); slot++) {
@@ -458,6 +494,20 @@ public class EventRoomAvailabilityBackend extends EventAction<EventRoomAvailabil
 		return response;
 	}
 	
+	/**
+	 * Load meetings of the given ids (as returned by {@link RoomOccupancy#getConflictingMeetings}), to be checked by {@link RoomOccupancy#isConflicting}
+	 */
+	protected static List<Meeting> getMeetings(Collection<Long> meetingIds) {
+		List<Meeting> meetings = new ArrayList<Meeting>();
+		if (meetingIds.isEmpty()) return meetings;
+		List<Long> ids = new ArrayList<Long>(meetingIds);
+		for (int idx = 0; idx < ids.size(); idx += 1000)
+			meetings.addAll((List<Meeting>)EventDAO.getInstance().getSession().createQuery(
+					"from Meeting m where m.uniqueId in :meetingIds"
+					).setParameterList("meetingIds", ids.subList(idx, Math.min(idx + 1000, ids.size()))).list());
+		return meetings;
+	}
+	
 	public static TreeSet<MeetingConflictInterface> generateUnavailabilityMeetings(Location location, List<Integer> dates, int startSlot, int endSlot) {
 		if (location.getEventAvailability() == null || location.getEventAvailability().length() != Constants.SLOTS_PER_DAY * Constants.DAY_CODES.length) return null;
 
@@ -64,6 +64,7 @@ import org.unitime.timetable.model.dao.RoomFeatureTypeDAO;
 import org.unitime.timetable.model.dao.TimetableManagerDAO;
 import org.unitime.timetable.security.UserAuthority;
 import org.unitime.timetable.security.rights.Right;
+import org.unitime.timetable.util.SpatialIndex;
 
 /**
  * @author Tomas Muller
@@ -284,16 +285,22 @@ public class RoomFilterBackend extends FilterBoxBackend<RoomFilterRpcRequest> {
 			}
 			
 			if (!coord.isEmpty()) {
+				SpatialIndex<Location> index = new SpatialIndex<Location>(getDistanceMetric(sessionId), allowedDistance);
 				for (Location location: locations) {
 					if (building != null && !building.isEmpty() && (location instanceof Room) && building.contains(((Room)location).getBuilding().getAbbreviation())) continue;
 					if (query != null && !query.match(new LocationMatcher(location, featureTypes))) continue;
-					Coordinates c = new Coordinates(location);
-					Double distance = null;
-					for (Coordinates x: coord) {
-						double d = c.distance(x);
-						if (distance == null || distance > d) distance = d;
+					index.add(location.getUniqueId(), location.getCoordinateX(), location.getCoordinateY(), location);
+				}
+				Map<Location, Double> nearest = new HashMap<Location, Double>();
+				for (Coordinates x: coord) {
+					for (Map.Entry<Location, Double> e: index.within(x.id(), x.x(), x.y(), allowedDistance).entrySet()) {
+						Double distance = nearest.get(e.getKey());
+						if (distance == null || distance > e.getValue()) nearest.put(e.getKey(), e.getValue());
 					}
-					if (distance != null && distance <= allowedDistance) {
+				}
+				for (Location location: locations) {
+					Double distance = nearest.get(location);
+					if (distance != null) {
 						ret.add(location);
 						if (distances != null) distances.put(location.getUniqueId(), distance);
 					}
@@ -384,6 +391,18 @@ public class RoomFilterBackend extends FilterBoxBackend<RoomFilterRpcRequest> {
 		return iMetrics;
 	}
 	
+	/**
+	 * Distance metric with the travel times of the given academic session only (travel times are cached, see {@link TravelTime#populateCachedTravelTimes(DistanceMetric, Long)})
+	 */
+	public DistanceMetric getDistanceMetric(Long sessionId) {
+		DataProperties config = new DataProperties();
+		config.setProperty("Distances.Ellipsoid", ApplicationProperty.DistanceEllipsoid.value());
+		config.setProperty("Distances.Speed", ApplicationProperty.EventDistanceSpeed.value());
+		DistanceMetric metric = new DistanceMetric(config);
+		TravelTime.populateCachedTravelTimes(metric, sessionId);
+		return metric;
+	}
+	
 	public class Coordinates {
 		Long iId;
 		Double iX, iY;
@@ -73,6 +73,8 @@ import org.unitime.timetable.model.dao.SponsoringOrganizationDAO;
 import org.unitime.timetable.security.rights.Right;
 import org.unitime.timetable.util.CalendarUtils;
 import org.unitime.timetable.util.Constants;
+import org.unitime.timetable.util.DataChange;
+import org.unitime.timetable.util.DataChangeNotifier;
 import org.unitime.timetable.util.Formats;
 
 /**
@@ -660,6 +662,7 @@ public class SaveEventBackend extends EventAction<SaveEventRpcRequest, SaveOrApp
 				response.setEvent(EventDetailBackend.getEventDetail(SessionDAO.getInstance().get(request.getSessionId(), hibSession), event, context));
 			}
 			
+			DataChangeNotifier.changed(hibSession, new DataChange(DataChange.Type.EVENT, request.getSessionId(), event.getUniqueId()));
 			tx.commit();
 			
 			new EventEmail(request, response).send(context);
@@ -20,6 +20,8 @@
 package org.unitime.timetable.gwt.command.server;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
 
 import org.unitime.timetable.defaults.SessionAttribute;
 import org.unitime.timetable.security.Qualifiable;
@@ -107,6 +109,11 @@ public class GwtRpcHelper implements SessionContext {
 		return iCheck.hasPermission(getUser(), targetId, targetType, right);
 	}
 
+	@Override
+	public Map<Serializable, Boolean> hasPermissions(Collection<? extends Serializable> targetIds, String targetType, Right right) {
+		return iCheck.hasPermissions(getUser(), targetIds, targetType, right);
+	}
+
 	@Override
 	public boolean hasPermission(Object targetObject, Right right) {
 		return iCheck.hasPermission(getUser(), targetObject, right);
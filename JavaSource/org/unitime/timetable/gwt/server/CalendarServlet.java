@@ -20,7 +20,8 @@
 package org.unitime.timetable.gwt.server;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLDecoder;
@@ -28,6 +29,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -84,7 +86,9 @@ import org.unitime.timetable.security.SessionContext;
 import org.unitime.timetable.security.UserContext;
 import org.unitime.timetable.server.CourseDetailsBackend;
 import org.unitime.timetable.solver.service.SolverServerService;
+import org.unitime.timetable.util.CalendarCache;
 import org.unitime.timetable.util.Constants;
+import org.unitime.timetable.util.DataChange;
 import org.unitime.timetable.util.DateUtils;
 
 import biweekly.ICalVersion;
@@ -175,7 +179,71 @@ public class CalendarServlet extends HttpServlet {
 		response.setContentType("text/calendar; charset=UTF-8");
 		response.setCharacterEncoding("UTF-8");
 		response.setHeader( "Content-Disposition", "attachment; filename=\"schedule.ics\"" );
-        
+		
+		String feedKey = getFeedKey(sessionId, q, params);
+		String fingerprint = (userId == null || userId.isEmpty() ? "" : getFingerprint(sessionId, userId));
+		CalendarCache.Feed feed = CalendarCache.getFeed(sessionId, feedKey, fingerprint);
+		if (feed == null) {
+			long version = CalendarCache.getVersion(sessionId);
+			String content = generate(session, classIds, fts, examIds, eventIds, userId, response);
+			if (content == null) return;
+			feed = CalendarCache.putFeed(sessionId, feedKey, fingerprint, content, version);
+		}
+		
+		response.setHeader("ETag", feed.getETag());
+		response.setDateHeader("Last-Modified", feed.getLastModified());
+		response.setHeader("Cache-Control", "private, no-cache");
+		if (feed.isNotModified(request.getHeader("If-None-Match"), request.getDateHeader("If-Modified-Since"))) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+		
+		response.setContentLength(feed.getContent().length);
+		OutputStream out = response.getOutputStream();
+		try {
+			out.write(feed.getContent());
+			out.flush();
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Cache key of a calendar feed: academic session and the (encoded) query
+	 */
+	private String getFeedKey(Long sessionId, String q, Params params) {
+		StringBuffer key = new StringBuffer(sessionId.toString());
+		if (q != null) return key.append("|q=").append(q).toString();
+		for (String name: new TreeSet<String>(Collections.list(params.getParameterNames()))) {
+			String[] values = params.getParameterValues(name);
+			if (values != null)
+				for (String value: values)
+					key.append("|").append(name).append("=").append(value);
+		}
+		return key.toString();
+	}
+	
+	/**
+	 * Enrollments and classes of the given student / instructor, so that a cached feed is regenerated when they change
+	 */
+	private String getFingerprint(Long sessionId, String userId) {
+		org.hibernate.Session hibSession = CurriculumDAO.getInstance().getSession();
+		Object[] enrollments = (Object[])hibSession.createQuery(
+				"select count(e), max(e.timestamp) from StudentClassEnrollment e where " +
+				"e.student.externalUniqueId = :externalId and e.student.session.uniqueId = :sessionId")
+				.setLong("sessionId", sessionId).setString("externalId", userId).uniqueResult();
+		Number classes = (Number)hibSession.createQuery(
+				"select count(ci) from ClassInstructor ci where " +
+				"ci.instructor.externalUniqueId = :externalId and ci.instructor.department.session.uniqueId = :sessionId")
+				.setLong("sessionId", sessionId).setString("externalId", userId).uniqueResult();
+		return (enrollments == null ? "" : enrollments[0] + ":" + (enrollments[1] == null ? "" : ((Date)enrollments[1]).getTime())) + ":" + classes;
+	}
+	
+	/**
+	 * Generate the calendar, returns null when failed (an error has been sent)
+	 */
+	private String generate(Session session, String classIds, String fts, String examIds, String eventIds, String userId, HttpServletResponse response) throws IOException {
+		Long sessionId = session.getUniqueId();
 		ICalendar ical = new ICalendar();
 		ical.setVersion(ICalVersion.V2_0);
 		ical.setCalendarScale(CalendarScale.gregorian());
@@ -192,6 +260,7 @@ public class CalendarServlet extends HttpServlet {
         			if (classId.isEmpty()) continue;
         			String[] courseAndClassId = classId.split("-");
         			if (courseAndClassId.length != 2) continue;
+        			if (printCached(sessionId, DataChange.Type.CLASS, Long.valueOf(courseAndClassId[1]), Long.valueOf(courseAndClassId[0]), ical)) continue;
     				CourseOffering course = CourseOfferingDAO.getInstance().get(Long.valueOf(courseAndClassId[0]), hibSession);
     				Class_ clazz = Class_DAO.getInstance().get(Long.valueOf(courseAndClassId[1]), hibSession);
     				if (course == null || clazz == null) continue;
@@ -212,6 +281,7 @@ public class CalendarServlet extends HttpServlet {
             	for (String examId: examIds.split(",")) {
             		if (examId.isEmpty()) continue;
             		try {
+            			if (printCached(sessionId, DataChange.Type.EXAM, Long.valueOf(examId), null, ical)) continue;
                 		Exam exam = ExamDAO.getInstance().get(Long.valueOf(examId), hibSession);
                 		if (exam != null)
                 			printExam(exam, ical);
@@ -276,9 +346,10 @@ public class CalendarServlet extends HttpServlet {
         } catch (Exception e) {
         	Debug.error(e.getMessage(), e);
         	response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+        	return null;
         }
 		
-		PrintWriter out = response.getWriter();
+		StringWriter out = new StringWriter();
         ICalWriter writer = new ICalWriter(out, ICalVersion.V2_0);
 		try {
 			try {
@@ -288,14 +359,44 @@ public class CalendarServlet extends HttpServlet {
 	        }
         	writer.write(ical);
         	writer.flush();
-        	out.flush();
 		} finally {
-			out.close();
 			writer.close();
 		}
+		return out.toString();
 	}
-
+	
+	/**
+	 * Add cached calendar entries of a class or an exam, returns false when not cached
+	 */
+	private boolean printCached(Long sessionId, DataChange.Type type, Long ownerId, Long courseId, ICalendar ical) {
+		List<VEvent> events = CalendarCache.getEvents(sessionId, type, ownerId, courseId);
+		if (events == null) return false;
+		for (VEvent vevent: events)
+			ical.addEvent(vevent);
+		return true;
+	}
+	
 	private void printExam(Exam exam, ICalendar ical) throws IOException {
+		Long sessionId = exam.getSession().getUniqueId();
+		if (printCached(sessionId, DataChange.Type.EXAM, exam.getUniqueId(), null, ical)) return;
+		long version = CalendarCache.getVersion(sessionId);
+		ICalendar events = new ICalendar();
+		printExamEvents(exam, events);
+		for (VEvent vevent: CalendarCache.putEvents(sessionId, DataChange.Type.EXAM, exam.getUniqueId(), null, events.getEvents(), version))
+			ical.addEvent(vevent);
+	}
+	
+	private void printClass(CourseOffering course, Class_ clazz, ICalendar ical) throws IOException {
+		Long sessionId = clazz.getSession().getUniqueId();
+		if (printCached(sessionId, DataChange.Type.CLASS, clazz.getUniqueId(), course.getUniqueId(), ical)) return;
+		long version = CalendarCache.getVersion(sessionId);
+		ICalendar events = new ICalendar();
+		printClassEvents(course, clazz, events);
+		for (VEvent vevent: CalendarCache.putEvents(sessionId, DataChange.Type.CLASS, clazz.getUniqueId(), course.getUniqueId(), events.getEvents(), version))
+			ical.addEvent(vevent);
+	}
+
+	private void printExamEvents(Exam exam, ICalendar ical) throws IOException {
 		if (exam.getAssignedPeriod() == null) return;
 
         VEvent vevent = new VEvent();
@@ -321,7 +422,7 @@ public class CalendarServlet extends HttpServlet {
         ical.addEvent(vevent);
 	}
 
-	private void printClass(CourseOffering course, Class_ clazz, ICalendar ical) throws IOException {
+	private void printClassEvents(CourseOffering course, Class_ clazz, ICalendar ical) throws IOException {
 		Assignment assignment = clazz.getCommittedAssignment();
 		if (assignment == null) return;
 		TimeLocation time = assignment.getTimeLocation();
@@ -22,7 +22,9 @@ package org.unitime.timetable.gwt.server;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Tomas Muller
@@ -30,10 +32,19 @@ import java.util.List;
 public class Query implements Serializable {
 	private static final long serialVersionUID = 1L;
 	
+	private static final int sCacheSize = 1000;
+	private static final Map<String, Term> sCache = new LinkedHashMap<String, Term>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Term> eldest) {
+			return size() > sCacheSize;
+		}
+	};
+	
 	private Term iQuery = null;
 	
 	public Query(String query) {
-		iQuery = parse(query == null ? "" : query.trim());
+		iQuery = parseCached(query == null ? "" : query.trim());
 	}
 	
 	public Query(Term query) {
@@ -72,6 +83,77 @@ public class Query implements Serializable {
 		return false;
 	}
 	
+	/**
+	 * Compile the query into a predicate. Each attribute term is compiled only once (e.g., a number range or a regular expression
+	 * is parsed when the query is compiled, not for every object that is being matched).
+	 * @param compiler compiles attribute terms, returns null if the term is not supported
+	 * @param fallback provides term matcher for an object, used for terms that the compiler does not support (can be null if all terms are supported)
+	 */
+	public <E> Predicate<E> compile(TermCompiler<E> compiler, TermMatcherProvider<E> fallback) {
+		return compile(iQuery, compiler, fallback);
+	}
+	
+	private static <E> Predicate<E> compile(Term term, TermCompiler<E> compiler, final TermMatcherProvider<E> fallback) {
+		if (term instanceof CompositeTerm) {
+			final List<Predicate<E>> predicates = new ArrayList<Predicate<E>>();
+			for (Term t: ((CompositeTerm)term).terms())
+				predicates.add(compile(t, compiler, fallback));
+			if (term instanceof OrTerm) {
+				return new Predicate<E>() {
+					@Override
+					public boolean match(E object) {
+						if (predicates.isEmpty()) return true;
+						for (Predicate<E> p: predicates)
+							if (p.match(object)) return true;
+						return false;
+					}
+				};
+			} else {
+				return new Predicate<E>() {
+					@Override
+					public boolean match(E object) {
+						for (Predicate<E> p: predicates)
+							if (!p.match(object)) return false;
+						return true;
+					}
+				};
+			}
+		} else if (term instanceof NotTerm) {
+			final Predicate<E> predicate = compile(((NotTerm)term).iTerm, compiler, fallback);
+			return new Predicate<E>() {
+				@Override
+				public boolean match(E object) {
+					return !predicate.match(object);
+				}
+			};
+		} else if (term instanceof AtomTerm) {
+			final AtomTerm atom = (AtomTerm)term;
+			Predicate<E> predicate = compiler.compile(atom.iAttr, atom.iBody);
+			if (predicate != null) return predicate;
+		}
+		if (fallback == null)
+			throw new IllegalArgumentException("Unable to compile " + term + ": term not supported.");
+		final Term t = term;
+		return new Predicate<E>() {
+			@Override
+			public boolean match(E object) {
+				return t.match(fallback.getMatcher(object));
+			}
+		};
+	}
+	
+	private static Term parseCached(String query) {
+		synchronized (sCache) {
+			Term term = sCache.get(query);
+			if (term != null) return term;
+		}
+		Term term = parse(query);
+		synchronized (sCache) {
+			sCache.put(query, term);
+		}
+		return term;
+	}
+	
 	private static List<String> split(String query, String... splits) {
 		List<String> ret = new ArrayList<String>();
 		int bracket = 0;
@@ -345,6 +427,18 @@ public class Query implements Serializable {
 		String format(String attr, String term);
 	}
 	
+	public static interface Predicate<E> {
+		public boolean match(E object);
+	}
+	
+	public static interface TermCompiler<E> {
+		public Predicate<E> compile(String attr, String term);
+	}
+	
+	public static interface TermMatcherProvider<E> {
+		public TermMatcher getMatcher(E object);
+	}
+	
 	public static void main(String[] args) {
 		System.out.println(parse("(dept:1124 or dept:1125) and area:bio"));
 		System.out.println(parse("a \"b c\" or ddd f \"x:x\" x: s !(band or org) (a)or(b)"));
@@ -347,6 +347,53 @@ public class Assignment extends BaseAssignment {
 		}
 	}
 	
+    /**
+     * Check whether the given class event already contains the meetings that {@link #generateCommittedEvent(ClassEvent, boolean)}
+     * would create for this assignment (past meetings are ignored unless they can be changed), so that the event does not need to be updated.
+     */
+    public boolean isCommittedEventUpToDate(ClassEvent event, boolean createNoRoomMeetings) {
+    	if (event == null || event.getMeetings() == null) return false;
+    	Class_ clazz = getClazz();
+    	if (!getClassName().equals(event.getEventName())) return false;
+    	int limit = clazz.getClassLimit(this);
+    	if (event.getMinCapacity() == null || event.getMinCapacity() != limit || event.getMaxCapacity() == null || event.getMaxCapacity() != limit) return false;
+    	
+        boolean changePast = ApplicationProperty.ClassAssignmentChangePastMeetings.isTrue();
+		Calendar cal = Calendar.getInstance(Locale.US);
+		cal.set(Calendar.HOUR_OF_DAY, 0);
+		cal.set(Calendar.MINUTE, 0);
+		cal.set(Calendar.SECOND, 0);
+		cal.set(Calendar.MILLISECOND, 0);
+		Date today = cal.getTime();
+		
+		DurationModel dm = clazz.getSchedulingSubpart().getInstrOfferingConfig().getDurationModel();
+		TimeLocation time = getTimeLocation();
+		Set<String> meetings = new HashSet<String>();
+		for (Date meetingDate: dm.getDates(clazz.getSchedulingSubpart().getMinutesPerWk(), getDatePattern(), time.getDayCode(), getMinutesPerMeeting())) {
+			if (changePast || !meetingDate.before(today)) {
+				boolean created = false;
+				for (Iterator i=getRooms().iterator();i.hasNext();) {
+					Location location = (Location)i.next();
+					if (location.getPermanentId()!=null) {
+						meetings.add(meetingDate.getTime() + ":" + time.getStartSlot() + ":" + (time.getStartSlot()+time.getLength()) + ":" + (-time.getBreakTime()) + ":" + location.getPermanentId());
+						created = true;
+					}
+				}
+				if (!created && createNoRoomMeetings)
+					meetings.add(meetingDate.getTime() + ":" + time.getStartSlot() + ":" + (time.getStartSlot()+time.getLength()) + ":" + (-time.getBreakTime()) + ":null");
+			}
+		}
+		
+		int count = 0;
+		for (Meeting m: event.getMeetings()) {
+			if (!changePast && m.getMeetingDate().before(today)) continue;
+			if (!m.isApproved() || (m.getStartOffset() != null && m.getStartOffset() != 0)) return false;
+			if (!meetings.contains(m.getMeetingDate().getTime() + ":" + m.getStartPeriod() + ":" + m.getStopPeriod() + ":" + m.getStopOffset() + ":" + m.getLocationPermanentId())) return false;
+			count ++;
+		}
+		return count == meetings.size();
+    }
+    
     public ClassEvent generateCommittedEvent(ClassEvent event, boolean createNoRoomMeetings) {
     	Class_ clazz = getClazz();
         if (event==null) {
@@ -33,6 +33,8 @@ import org.unitime.timetable.model.base.BaseChangeLog;
 import org.unitime.timetable.model.dao.ChangeLogDAO;
 import org.unitime.timetable.model.dao.SessionDAO;
 import org.unitime.timetable.security.SessionContext;
+import org.unitime.timetable.util.DataChange;
+import org.unitime.timetable.util.DataChangeNotifier;
 import org.unitime.timetable.util.Formats;
 
 
@@ -169,13 +171,14 @@ public class ChangeLog extends BaseChangeLog implements Comparable<ChangeLog> {
             Operation operation,
             SubjectArea subjArea,
             Department dept) {
+    	Session session = null;
         try {
         	if (!context.isAuthenticated()) {
         		Debug.warning("Unable to add change log -- no user.");
+        		changed(hibSession, session, object);
                 return;
         	}
             String userId = context.getUser().getTrueExternalUserId();
-        	Session session = null;
         	if (dept != null) {
         		session = dept.getSession();
         	} else if (subjArea != null) {
@@ -185,16 +188,19 @@ public class ChangeLog extends BaseChangeLog implements Comparable<ChangeLog> {
         	}
             if (session == null) {
                 Debug.warning("Unable to add change log -- no academic session.");
+                changed(hibSession, session, object);
                 return;
             }
             TimetableManager manager = TimetableManager.findByExternalId(userId);
             if (manager == null) {
                 Debug.warning("Unable to add change log -- no timetabling manager.");
+                changed(hibSession, session, object);
                 return;
             }
             addChange(hibSession, manager, session, object, objectTitle, source, operation, subjArea, dept);
         } catch (Exception e) {
             Debug.error(e);
+            changed(hibSession, session, object);
         }
     }
         
@@ -277,8 +283,34 @@ public class ChangeLog extends BaseChangeLog implements Comparable<ChangeLog> {
             
         } catch (Exception e) {
             Debug.error(e);
+        } finally {
+        	// changes may affect cached data (e.g., permissions, calendar feeds, room occupancy, timetable grids)
+        	changed(hibSession, session, object);
         }
     }
+    
+    /**
+     * Publish the change of the given object to the listeners of the {@link DataChangeNotifier}, once the transaction is committed.
+     * Changes of classes, examinations, and events are limited to the changed object, other changes to the academic session
+     * (or to all academic sessions when the session is not known).
+     */
+    protected static void changed(org.hibernate.Session hibSession, Session session, Object object) {
+    	try {
+    		Long sessionId = (session == null ? null : session.getUniqueId());
+    		DataChange change = null;
+    		if (object instanceof Class_)
+    			change = new DataChange(DataChange.Type.CLASS, sessionId, ((Class_)object).getUniqueId());
+    		else if (object instanceof Exam)
+    			change = new DataChange(DataChange.Type.EXAM, sessionId, ((Exam)object).getUniqueId());
+    		else if (object instanceof Event)
+    			change = new DataChange(DataChange.Type.EVENT, sessionId, ((Event)object).getUniqueId());
+    		else
+    			change = new DataChange(sessionId);
+    		DataChangeNotifier.changed(hibSession != null ? hibSession : new ChangeLogDAO().getSession(), change);
+    	} catch (Exception e) {
+    		Debug.error(e);
+    	}
+    }
 
     /*
     public static String getMessage(ServletRequest request, String message) {
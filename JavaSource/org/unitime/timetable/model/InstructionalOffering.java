@@ -20,6 +20,7 @@
 package org.unitime.timetable.model;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -31,6 +32,7 @@ import org.hibernate.ObjectNotFoundException;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.type.LongType;
 import org.unitime.commons.Debug;
 import org.unitime.timetable.defaults.ApplicationProperty;
 import org.unitime.timetable.model.base.BaseInstructionalOffering;
@@ -236,24 +238,7 @@ public class InstructionalOffering extends BaseInstructionalOffering {
 			query.append("left join fetch c.childClasses as cc ");
 		}
 
-		if (fetchCredits)
-			query.append("left join fetch ss.creditConfigs as ssc ");
-
-		if (fetchPreferences || fetchInstructors) {
-			query.append("left join fetch c.classInstructors as ci ");
-			query.append("left join fetch ci.instructor as di ");
-		}
-
-		if (fetchAssignments) {
-			query.append("left join fetch c.assignments as ca ");
-			query.append("left join fetch ca.rooms as car ");
-		}
-
-		if (fetchPreferences) {
-			query.append("left join fetch c.preferences as cp ");
-			query.append("left join fetch ss.preferences as ssp ");
-			query.append("left join fetch di.preferences as dip ");
-		}
+		// credits, instructors, preferences, and assignments are loaded by separate queries, see prefetch(...)
 
 		if (fetchReservations) {
 			query.append("left join fetch ioc.individualReservations as ir ");
@@ -325,9 +310,56 @@ public class InstructionalOffering extends BaseInstructionalOffering {
 		ts.addAll(q.list());
 		long eTime = new java.util.Date().getTime();
         Debug.debug("fetch time = " + (eTime - sTime));
+        
+        if (fetchCredits || fetchInstructors || fetchPreferences || fetchAssignments) {
+        	List<Long> offeringIds = new ArrayList<Long>(ts.size());
+        	for (InstructionalOffering io: ts)
+        		offeringIds.add(io.getUniqueId());
+        	prefetch(hibSession, offeringIds, fetchCredits, fetchInstructors, fetchPreferences, fetchAssignments);
+        }
 
         return ts;
 	}
+	
+	/**
+	 * Initialize the lazy collections of the given instructional offerings that are needed by the offering and class list pages
+	 * (subpart credits, class instructors, class / subpart / instructor preferences, committed assignments) using a few set-based queries
+	 * instead of fetching them one by one while the table is being rendered. Each collection is loaded by a separate query,
+	 * so that the result set does not grow with the product of the collection sizes (as it would with join fetches on the search query).
+	 * @param hibSession hibernate session in which the offerings are loaded
+	 * @param offeringIds instructional offering unique ids
+	 */
+	public static void prefetch(org.hibernate.Session hibSession, Collection<Long> offeringIds,
+			boolean fetchCredits, boolean fetchInstructors, boolean fetchPreferences, boolean fetchAssignments) {
+		if (offeringIds == null || offeringIds.isEmpty()) return;
+		long sTime = new java.util.Date().getTime();
+		List<String> queries = new ArrayList<String>();
+		if (fetchCredits)
+			queries.add("select distinct ss from SchedulingSubpart ss left join fetch ss.creditConfigs " +
+					"where ss.instrOfferingConfig.instructionalOffering.uniqueId in :offeringIds");
+		if (fetchInstructors || fetchPreferences)
+			queries.add("select distinct c from Class_ c left join fetch c.classInstructors ci left join fetch ci.instructor " +
+					"where c.schedulingSubpart.instrOfferingConfig.instructionalOffering.uniqueId in :offeringIds");
+		if (fetchPreferences) {
+			queries.add("select distinct c from Class_ c left join fetch c.preferences " +
+					"where c.schedulingSubpart.instrOfferingConfig.instructionalOffering.uniqueId in :offeringIds");
+			queries.add("select distinct ss from SchedulingSubpart ss left join fetch ss.preferences " +
+					"where ss.instrOfferingConfig.instructionalOffering.uniqueId in :offeringIds");
+			queries.add("select distinct di from ClassInstructor ci inner join ci.instructor di left join fetch di.preferences " +
+					"where ci.classInstructing.schedulingSubpart.instrOfferingConfig.instructionalOffering.uniqueId in :offeringIds");
+		}
+		if (fetchAssignments)
+			queries.add("select distinct c from Class_ c left join fetch c.committedAssignment a left join fetch a.rooms " +
+					"where c.schedulingSubpart.instrOfferingConfig.instructionalOffering.uniqueId in :offeringIds");
+		List<Long> ids = new ArrayList<Long>(offeringIds);
+		for (int i = 0; i < ids.size(); i += 1000) {
+			List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + 1000));
+			for (String query: queries)
+				hibSession.createQuery(query).setParameterList("offeringIds", chunk, LongType.INSTANCE).setFetchSize(1000).list();
+		}
+		long eTime = new java.util.Date().getTime();
+		Debug.debug("prefetch time = " + (eTime - sTime) + " (" + ids.size() + " offerings, " + queries.size() + " queries)");
+	}
 
     /**
      * Deletes all classes for this offering
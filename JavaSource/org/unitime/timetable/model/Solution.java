@@ -20,6 +20,7 @@
 package org.unitime.timetable.model;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -70,6 +71,8 @@ import org.unitime.timetable.solver.ui.PropertiesInfo;
 import org.unitime.timetable.solver.ui.TimetableInfo;
 import org.unitime.timetable.solver.ui.TimetableInfoFileProxy;
 import org.unitime.timetable.util.Constants;
+import org.unitime.timetable.util.DataChange;
+import org.unitime.timetable.util.DataChangeNotifier;
 import org.unitime.timetable.util.Formats;
 
 
@@ -129,6 +132,14 @@ public class Solution extends BaseSolution implements ClassAssignmentProxy {
 	}
 	
 	public void uncommitSolution(org.hibernate.Session hibSession, String sendNotificationPuid) {
+		uncommitSolution(hibSession, sendNotificationPuid, null);
+	}
+	
+	/**
+	 * Uncommit the solution
+	 * @param keepEventClassIds classes whose events are to be left untouched (e.g., classes that did not change in the solution that is to be committed next, see {@link #getClassIdsWithUpToDateEvents(org.hibernate.Session)})
+	 */
+	public void uncommitSolution(org.hibernate.Session hibSession, String sendNotificationPuid, Set<Long> keepEventClassIds) {
 		if (DEBUG) sLog.debug("uncommit["+getUniqueId()+","+getOwner().getName()+"] -------------------------------------------------------");
 		setCommitDate(null);
 		setCommited(Boolean.FALSE);
@@ -136,9 +147,18 @@ public class Solution extends BaseSolution implements ClassAssignmentProxy {
 		hibSession.update(this);
 		
 	    if (ApplicationProperty.ClassAssignmentChangePastMeetings.isTrue()) {
-			deleteObjects(hibSession,
-		              "ClassEvent",
-		              "select e.uniqueId from Solution s inner join s.assignments a, ClassEvent e where e.clazz=a.clazz and s.uniqueId=:solutionId");
+	    	if (keepEventClassIds == null || keepEventClassIds.isEmpty()) {
+	    		deleteObjects(hibSession,
+	    				"ClassEvent",
+	    				"select e.uniqueId from Solution s inner join s.assignments a, ClassEvent e where e.clazz=a.clazz and s.uniqueId=:solutionId");
+	    	} else {
+	    		for (ClassEvent event: (List<ClassEvent>)hibSession.createQuery(
+						"select e from Solution s inner join s.assignments a, ClassEvent e where e.clazz=a.clazz and s.uniqueId=:solutionId")
+						.setLong("solutionId", getUniqueId()).list()) {
+	    			if (!keepEventClassIds.contains(event.getClazz().getUniqueId()))
+	    				hibSession.delete(event);
+	    		}
+	    	}
 	    } else {
 			EventContact contact = (sendNotificationPuid == null ? null : EventContact.findByExternalUniqueId(sendNotificationPuid));
 		    if (contact == null && sendNotificationPuid != null) {
@@ -165,6 +185,7 @@ public class Solution extends BaseSolution implements ClassAssignmentProxy {
 					"select e from Solution s inner join s.assignments a, ClassEvent e where e.clazz=a.clazz and s.uniqueId=:solutionId")
 					.setLong("solutionId", getUniqueId()).list();
 			for (ClassEvent event: events) {
+				if (keepEventClassIds != null && keepEventClassIds.contains(event.getClazz().getUniqueId())) continue;
 	        	for (Iterator<Meeting> i = event.getMeetings().iterator(); i.hasNext(); )
 	        		if (!i.next().getMeetingDate().before(today)) i.remove();
 	        	if (event.getMeetings().isEmpty()) {
@@ -193,6 +214,19 @@ public class Solution extends BaseSolution implements ClassAssignmentProxy {
 		// Manually fix the Clazz_.committedAssignment cache.
 		for (Assignment a: getAssignments())
 			a.getClazz().setCommittedAssignment(null);
+		
+		committedAssignmentsChanged(hibSession);
+	}
+	
+	/**
+	 * Publish the change of the committed assignments of the classes of this solution, once the transaction is committed
+	 * (see {@link DataChangeNotifier})
+	 */
+	protected void committedAssignmentsChanged(org.hibernate.Session hibSession) {
+		List<Long> classIds = new ArrayList<Long>();
+		for (Assignment a: getAssignments())
+			classIds.add(a.getClassId());
+		DataChangeNotifier.changed(hibSession, new DataChange(DataChange.Type.CLASS, getSession().getUniqueId(), classIds));
 	}
 	
 	public boolean commitSolution(Vector messages, org.hibernate.Session hibSession) {
@@ -248,7 +282,34 @@ public class Solution extends BaseSolution implements ClassAssignmentProxy {
     	return commitSolution(messages, hibSession, sendNotificationPuid, null);
     }
 
+	/**
+	 * Classes of this solution whose events already match their assignments (see {@link Assignment#isCommittedEventUpToDate(ClassEvent, boolean)}),
+	 * typically the classes that have not changed since the last commit. Empty when the differential commit is disabled.
+	 */
+	public Set<Long> getClassIdsWithUpToDateEvents(org.hibernate.Session hibSession) {
+		Set<Long> classIds = new HashSet<Long>();
+		if (ApplicationProperty.CourseTimetablingCommitDifferential.isFalse()) return classIds;
+        Hashtable<Long,ClassEvent> classEvents = new Hashtable<Long,ClassEvent>();
+        for (ClassEvent e: (List<ClassEvent>)hibSession.createQuery(
+                "select e from Solution s inner join s.assignments a, ClassEvent e where e.clazz=a.clazz and s.uniqueId=:solutionId")
+                .setLong("solutionId",getUniqueId()).list()) {
+            classEvents.put(e.getClazz().getUniqueId(),e);
+        }
+        for (Assignment a: getAssignments()) {
+        	if (a.isCommittedEventUpToDate(classEvents.get(a.getClassId()), true))
+        		classIds.add(a.getClassId());
+        }
+		return classIds;
+	}
+	
+	private static Query setChangedClassIds(Query query, Collection<Long> changedClassIds) {
+		if (changedClassIds != null)
+			query.setParameterList("changedClassIds", changedClassIds, LongType.INSTANCE);
+		return query;
+	}
+
 	public boolean commitSolution(List<String> messages, org.hibernate.Session hibSession, String sendNotificationPuid, Long[] ownerIds) {
+		Set<Long> unchangedClassIds = getClassIdsWithUpToDateEvents(hibSession);
 		List solutions = hibSession.createCriteria(Solution.class).add(Restrictions.eq("owner",getOwner())).list();
 		Solution uncommittedSolution = null;
 		for (Iterator i=solutions.iterator();i.hasNext();) {
@@ -256,64 +317,83 @@ public class Solution extends BaseSolution implements ClassAssignmentProxy {
 			if (s.equals(this)) continue;
 			if (s.isCommited().booleanValue()) {
 				uncommittedSolution = s;
-				s.uncommitSolution(hibSession, null);
+				s.uncommitSolution(hibSession, null, unchangedClassIds);
 			}
 		}
 		if (DEBUG) sLog.debug("commit["+getUniqueId()+","+getOwner().getName()+"] -------------------------------------------------------");
+		
+		// only check the classes that have changed for room conflicts (unchanged classes have been checked when committed, or when the conflicting problem was committed),
+		// instructor conflicts are always checked for all classes as the class instructors may have changed without the class assignment changing
+		List<Long> changedClassIds = null;
+		String changedClassFilter = "";
+		if (!unchangedClassIds.isEmpty()) {
+			changedClassIds = new ArrayList<Long>();
+			for (Assignment a: getAssignments())
+				if (!unchangedClassIds.contains(a.getClassId())) changedClassIds.add(a.getClassId());
+			if (changedClassIds.size() <= 1000) {
+				changedClassFilter = " and a1.clazz.uniqueId in :changedClassIds";
+			} else {
+				changedClassIds = null;
+			}
+		}
+		if (DEBUG) sLog.debug("commit: " + unchangedClassIds.size() + " classes have not changed");
+		boolean checkRooms = (changedClassIds == null || !changedClassIds.isEmpty());
 			
 		boolean isOK = true;
 		if (ApplicationProperty.CourseTimetablingCommitSkipChecking.isTrue()) {
 			// skip conflict checking
 		} else if (ownerIds != null && ownerIds.length > 1 && ownerIds.length <= 1000) {
-			for (Object[] o: (List<Object[]>)hibSession.createQuery(
-					"select r, a1, a2 from Location r inner join r.assignments a1 inner join r.assignments a2 "+
-					"where a1.solution.uniqueId = :solutionId and a2.solution.commited = true and a2.solution.owner.uniqueId not in :ownerIds and " +
-					"bit_and(a1.days, a2.days) > 0 and (a1.timePattern.type = :exactType or a2.timePattern.type = :exactType or " +
-					"(a1.startSlot < a2.startSlot + a2.timePattern.slotsPerMtg and a2.startSlot < a1.startSlot + a1.timePattern.slotsPerMtg))")
-					.setParameterList("ownerIds", ownerIds, LongType.INSTANCE)
-					.setLong("solutionId",getUniqueId())
-					.setInteger("exactType", TimePattern.TimePatternType.ExactTime.ordinal())
-					.list()) {
-				Location room = (Location)o[0];
-				Assignment a = (Assignment)o[1];
-				Assignment b = (Assignment)o[2];
-				if (!room.isIgnoreRoomCheck() && a.getTimeLocation().hasIntersection(b.getTimeLocation()) && !shareRooms(a, b)) {
-					messages.add(MESSAGES.failedCommitRoomConflict(a.getClassName(), a.getTimeLocation().getName(CONSTANTS.useAmPm()), b.getClassName(), b.getTimeLocation().getName(CONSTANTS.useAmPm()), room.getLabel()));
-					isOK=false;
+			if (checkRooms) {
+				for (Object[] o: (List<Object[]>)setChangedClassIds(hibSession.createQuery(
+						"select r, a1, a2 from Location r inner join r.assignments a1 inner join r.assignments a2 "+
+						"where a1.solution.uniqueId = :solutionId" + changedClassFilter + " and a2.solution.commited = true and a2.solution.owner.uniqueId not in :ownerIds and " +
+						"bit_and(a1.days, a2.days) > 0 and (a1.timePattern.type = :exactType or a2.timePattern.type = :exactType or " +
+						"(a1.startSlot < a2.startSlot + a2.timePattern.slotsPerMtg and a2.startSlot < a1.startSlot + a1.timePattern.slotsPerMtg))")
+						.setParameterList("ownerIds", ownerIds, LongType.INSTANCE)
+						.setLong("solutionId",getUniqueId())
+						.setInteger("exactType", TimePattern.TimePatternType.ExactTime.ordinal()), changedClassIds)
+						.list()) {
+					Location room = (Location)o[0];
+					Assignment a = (Assignment)o[1];
+					Assignment b = (Assignment)o[2];
+					if (!room.isIgnoreRoomCheck() && a.getTimeLocation().hasIntersection(b.getTimeLocation()) && !shareRooms(a, b)) {
+						messages.add(MESSAGES.failedCommitRoomConflict(a.getClassName(), a.getTimeLocation().getName(CONSTANTS.useAmPm()), b.getClassName(), b.getTimeLocation().getName(CONSTANTS.useAmPm()), room.getLabel()));
+						isOK=false;
+					}
 				}
-			}
-			for (Object[] o: (List<Object[]>)hibSession.createQuery(
-					"select r, a1, a2 from Room r inner join r.assignments a1 inner join r.parentRoom.assignments a2 "+
-					"where a1.solution.uniqueId = :solutionId and a2.solution.commited = true and a2.solution.owner.uniqueId not in :ownerIds and " +
-					"bit_and(a1.days, a2.days) > 0 and (a1.timePattern.type = :exactType or a2.timePattern.type = :exactType or " +
-					"(a1.startSlot < a2.startSlot + a2.timePattern.slotsPerMtg and a2.startSlot < a1.startSlot + a1.timePattern.slotsPerMtg))")
-					.setParameterList("ownerIds", ownerIds, LongType.INSTANCE)
-					.setLong("solutionId",getUniqueId())
-					.setInteger("exactType", TimePattern.TimePatternType.ExactTime.ordinal())
-					.list()) {
-				Location room = (Location)o[0];
-				Assignment a = (Assignment)o[1];
-				Assignment b = (Assignment)o[2];
-				if (!room.isIgnoreRoomCheck() && a.getTimeLocation().hasIntersection(b.getTimeLocation()) && !shareRooms(a, b)) {
-					messages.add(MESSAGES.failedCommitRoomConflict(a.getClassName(), a.getTimeLocation().getName(CONSTANTS.useAmPm()), b.getClassName(), b.getTimeLocation().getName(CONSTANTS.useAmPm()), room.getLabel()));
-					isOK=false;
+				for (Object[] o: (List<Object[]>)setChangedClassIds(hibSession.createQuery(
+						"select r, a1, a2 from Room r inner join r.assignments a1 inner join r.parentRoom.assignments a2 "+
+						"where a1.solution.uniqueId = :solutionId" + changedClassFilter + " and a2.solution.commited = true and a2.solution.owner.uniqueId not in :ownerIds and " +
+						"bit_and(a1.days, a2.days) > 0 and (a1.timePattern.type = :exactType or a2.timePattern.type = :exactType or " +
+						"(a1.startSlot < a2.startSlot + a2.timePattern.slotsPerMtg and a2.startSlot < a1.startSlot + a1.timePattern.slotsPerMtg))")
+						.setParameterList("ownerIds", ownerIds, LongType.INSTANCE)
+						.setLong("solutionId",getUniqueId())
+						.setInteger("exactType", TimePattern.TimePatternType.ExactTime.ordinal()), changedClassIds)
+						.list()) {
+					Location room = (Location)o[0];
+					Assignment a = (Assignment)o[1];
+					Assignment b = (Assignment)o[2];
+					if (!room.isIgnoreRoomCheck() && a.getTimeLocation().hasIntersection(b.getTimeLocation()) && !shareRooms(a, b)) {
+						messages.add(MESSAGES.failedCommitRoomConflict(a.getClassName(), a.getTimeLocation().getName(CONSTANTS.useAmPm()), b.getClassName(), b.getTimeLocation().getName(CONSTANTS.useAmPm()), room.getLabel()));
+						isOK=false;
+					}
 				}
-			}
-			for (Object[] o: (List<Object[]>)hibSession.createQuery(
-					"select r, a1, a2 from Room r inner join r.parentRoom.assignments a1 inner join r.assignments a2 "+
-					"where a1.solution.uniqueId = :solutionId and a2.solution.commited = true and a2.solution.owner.uniqueId not in :ownerIds and " +
-					"bit_and(a1.days, a2.days) > 0 and (a1.timePattern.type = :exactType or a2.timePattern.type = :exactType or " +
-					"(a1.startSlot < a2.startSlot + a2.timePattern.slotsPerMtg and a2.startSlot < a1.startSlot + a1.timePattern.slotsPerMtg))")
-					.setParameterList("ownerIds", ownerIds, LongType.INSTANCE)
-					.setLong("solutionId",getUniqueId())
-					.setInteger("exactType", TimePattern.TimePatternType.ExactTime.ordinal())
-					.list()) {
-				Location room = (Location)o[0];
-				Assignment a = (Assignment)o[1];
-				Assignment b = (Assignment)o[2];
-				if (!room.isIgnoreRoomCheck() && a.getTimeLocation().hasIntersection(b.getTimeLocation()) && !shareRooms(a, b)) {
-					messages.add(MESSAGES.failedCommitRoomConflict(a.getClassName(), a.getTimeLocation().getName(CONSTANTS.useAmPm()), b.getClassName(), b.getTimeLocation().getName(CONSTANTS.useAmPm()), room.getLabel()));
-					isOK=false;
+				for (Object[] o: (List<Object[]>)setChangedClassIds(hibSession.createQuery(
+						"select r, a1, a2 from Room r inner join r.parentRoom.assignments a1 inner join r.assignments a2 "+
+						"where a1.solution.uniqueId = :solutionId" + changedClassFilter + " and a2.solution.commited = true and a2.solution.owner.uniqueId not in :ownerIds and " +
+						"bit_and(a1.days, a2.days) > 0 and (a1.timePattern.type = :exactType or a2.timePattern.type = :exactType or " +
+						"(a1.startSlot < a2.startSlot + a2.timePattern.slotsPerMtg and a2.startSlot < a1.startSlot + a1.timePattern.slotsPerMtg))")
+						.setParameterList("ownerIds", ownerIds, LongType.INSTANCE)
+						.setLong("solutionId",getUniqueId())
+						.setInteger("exactType", TimePattern.TimePatternType.ExactTime.ordinal()), changedClassIds)
+						.list()) {
+					Location room = (Location)o[0];
+					Assignment a = (Assignment)o[1];
+					Assignment b = (Assignment)o[2];
+					if (!room.isIgnoreRoomCheck() && a.getTimeLocation().hasIntersection(b.getTimeLocation()) && !shareRooms(a, b)) {
+						messages.add(MESSAGES.failedCommitRoomConflict(a.getClassName(), a.getTimeLocation().getName(CONSTANTS.useAmPm()), b.getClassName(), b.getTimeLocation().getName(CONSTANTS.useAmPm()), room.getLabel()));
+						isOK=false;
+					}
 				}
 			}
 			
@@ -339,55 +419,57 @@ public class Solution extends BaseSolution implements ClassAssignmentProxy {
 				}
 			}
 		} else {
-			for (Object[] o: (List<Object[]>)hibSession.createQuery(
-					"select r, a1, a2 from Location r inner join r.assignments a1 inner join r.assignments a2 "+
-					"where a1.solution.uniqueId = :solutionId and a2.solution.commited = true and a2.solution.owner.uniqueId != :ownerId and " +
-					"bit_and(a1.days, a2.days) > 0 and (a1.timePattern.type = :exactType or a2.timePattern.type = :exactType or " +
-					"(a1.startSlot < a2.startSlot + a2.timePattern.slotsPerMtg and a2.startSlot < a1.startSlot + a1.timePattern.slotsPerMtg))")
-					.setLong("ownerId",getOwner().getUniqueId())
-					.setLong("solutionId",getUniqueId())
-					.setInteger("exactType", TimePattern.TimePatternType.ExactTime.ordinal())
-					.list()) {
-				Location room = (Location)o[0];
-				Assignment a = (Assignment)o[1];
-				Assignment b = (Assignment)o[2];
-				if (!room.isIgnoreRoomCheck() && a.getTimeLocation().hasIntersection(b.getTimeLocation()) && !shareRooms(a, b)) {
-					messages.add(MESSAGES.failedCommitRoomConflict(a.getClassName(), a.getTimeLocation().getName(CONSTANTS.useAmPm()), b.getClassName(), b.getTimeLocation().getName(CONSTANTS.useAmPm()), room.getLabel()));
-					isOK=false;
+			if (checkRooms) {
+				for (Object[] o: (List<Object[]>)setChangedClassIds(hibSession.createQuery(
+						"select r, a1, a2 from Location r inner join r.assignments a1 inner join r.assignments a2 "+
+						"where a1.solution.uniqueId = :solutionId" + changedClassFilter + " and a2.solution.commited = true and a2.solution.owner.uniqueId != :ownerId and " +
+						"bit_and(a1.days, a2.days) > 0 and (a1.timePattern.type = :exactType or a2.timePattern.type = :exactType or " +
+						"(a1.startSlot < a2.startSlot + a2.timePattern.slotsPerMtg and a2.startSlot < a1.startSlot + a1.timePattern.slotsPerMtg))")
+						.setLong("ownerId",getOwner().getUniqueId())
+						.setLong("solutionId",getUniqueId())
+						.setInteger("exactType", TimePattern.TimePatternType.ExactTime.ordinal()), changedClassIds)
+						.list()) {
+					Location room = (Location)o[0];
+					Assignment a = (Assignment)o[1];
+					Assignment b = (Assignment)o[2];
+					if (!room.isIgnoreRoomCheck() && a.getTimeLocation().hasIntersection(b.getTimeLocation()) && !shareRooms(a, b)) {
+						messages.add(MESSAGES.failedCommitRoomConflict(a.getClassName(), a.getTimeLocation().getName(CONSTANTS.useAmPm()), b.getClassName(), b.getTimeLocation().getName(CONSTANTS.useAmPm()), room.getLabel()));
+						isOK=false;
+					}
 				}
-			}
-			for (Object[] o: (List<Object[]>)hibSession.createQuery(
-					"select r, a1, a2 from Room r inner join r.assignments a1 inner join r.parentRoom.assignments a2 "+
-					"where a1.solution.uniqueId = :solutionId and a2.solution.commited = true and a2.solution.owner.uniqueId != :ownerId and " +
-					"bit_and(a1.days, a2.days) > 0 and (a1.timePattern.type = :exactType or a2.timePattern.type = :exactType or " +
-					"(a1.startSlot < a2.startSlot + a2.timePattern.slotsPerMtg and a2.startSlot < a1.startSlot + a1.timePattern.slotsPerMtg))")
-					.setLong("ownerId",getOwner().getUniqueId())
-					.setLong("solutionId",getUniqueId())
-					.setInteger("exactType", TimePattern.TimePatternType.ExactTime.ordinal())
-					.list()) {
-				Location room = (Location)o[0];
-				Assignment a = (Assignment)o[1];
-				Assignment b = (Assignment)o[2];
-				if (!room.isIgnoreRoomCheck() && a.getTimeLocation().hasIntersection(b.getTimeLocation()) && !shareRooms(a, b)) {
-					messages.add(MESSAGES.failedCommitRoomConflict(a.getClassName(), a.getTimeLocation().getName(CONSTANTS.useAmPm()), b.getClassName(), b.getTimeLocation().getName(CONSTANTS.useAmPm()), room.getLabel()));
-					isOK=false;
+				for (Object[] o: (List<Object[]>)setChangedClassIds(hibSession.createQuery(
+						"select r, a1, a2 from Room r inner join r.assignments a1 inner join r.parentRoom.assignments a2 "+
+						"where a1.solution.uniqueId = :solutionId" + changedClassFilter + " and a2.solution.commited = true and a2.solution.owner.uniqueId != :ownerId and " +
+						"bit_and(a1.days, a2.days) > 0 and (a1.timePattern.type = :exactType or a2.timePattern.type = :exactType or " +
+						"(a1.startSlot < a2.startSlot + a2.timePattern.slotsPerMtg and a2.startSlot < a1.startSlot + a1.timePattern.slotsPerMtg))")
+						.setLong("ownerId",getOwner().getUniqueId())
+						.setLong("solutionId",getUniqueId())
+						.setInteger("exactType", TimePattern.TimePatternType.ExactTime.ordinal()), changedClassIds)
+						.list()) {
+					Location room = (Location)o[0];
+					Assignment a = (Assignment)o[1];
+					Assignment b = (Assignment)o[2];
+					if (!room.isIgnoreRoomCheck() && a.getTimeLocation().hasIntersection(b.getTimeLocation()) && !shareRooms(a, b)) {
+						messages.add(MESSAGES.failedCommitRoomConflict(a.getClassName(), a.getTimeLocation().getName(CONSTANTS.useAmPm()), b.getClassName(), b.getTimeLocation().getName(CONSTANTS.useAmPm()), room.getLabel()));
+						isOK=false;
+					}
 				}
-			}
-			for (Object[] o: (List<Object[]>)hibSession.createQuery(
-					"select r, a1, a2 from Room r inner join r.parentRoom.assignments a1 inner join r.assignments a2 "+
-					"where a1.solution.uniqueId = :solutionId and a2.solution.commited = true and a2.solution.owner.uniqueId != :ownerId and " +
-					"bit_and(a1.days, a2.days) > 0 and (a1.timePattern.type = :exactType or a2.timePattern.type = :exactType or " +
-					"(a1.startSlot < a2.startSlot + a2.timePattern.slotsPerMtg and a2.startSlot < a1.startSlot + a1.timePattern.slotsPerMtg))")
-					.setLong("ownerId",getOwner().getUniqueId())
-					.setLong("solutionId",getUniqueId())
-					.setInteger("exactType", TimePattern.TimePatternType.ExactTime.ordinal())
-					.list()) {
-				Location room = (Location)o[0];
-				Assignment a = (Assignment)o[1];
-				Assignment b = (Assignment)o[2];
-				if (!room.isIgnoreRoomCheck() && a.getTimeLocation().hasIntersection(b.getTimeLocation()) && !shareRooms(a, b)) {
-					messages.add(MESSAGES.failedCommitRoomConflict(a.getClassName(), a.getTimeLocation().getName(CONSTANTS.useAmPm()), b.getClassName(), b.getTimeLocation().getName(CONSTANTS.useAmPm()), room.getLabel()));
-					isOK=false;
+				for (Object[] o: (List<Object[]>)setChangedClassIds(hibSession.createQuery(
+						"select r, a1, a2 from Room r inner join r.parentRoom.assignments a1 inner join r.assignments a2 "+
+						"where a1.solution.uniqueId = :solutionId" + changedClassFilter + " and a2.solution.commited = true and a2.solution.owner.uniqueId != :ownerId and " +
+						"bit_and(a1.days, a2.days) > 0 and (a1.timePattern.type = :exactType or a2.timePattern.type = :exactType or " +
+						"(a1.startSlot < a2.startSlot + a2.timePattern.slotsPerMtg and a2.startSlot < a1.startSlot + a1.timePattern.slotsPerMtg))")
+						.setLong("ownerId",getOwner().getUniqueId())
+						.setLong("solutionId",getUniqueId())
+						.setInteger("exactType", TimePattern.TimePatternType.ExactTime.ordinal()), changedClassIds)
+						.list()) {
+					Location room = (Location)o[0];
+					Assignment a = (Assignment)o[1];
+					Assignment b = (Assignment)o[2];
+					if (!room.isIgnoreRoomCheck() && a.getTimeLocation().hasIntersection(b.getTimeLocation()) && !shareRooms(a, b)) {
+						messages.add(MESSAGES.failedCommitRoomConflict(a.getClassName(), a.getTimeLocation().getName(CONSTANTS.useAmPm()), b.getClassName(), b.getTimeLocation().getName(CONSTANTS.useAmPm()), room.getLabel()));
+						isOK=false;
+					}
 				}
 			}
 			
@@ -483,6 +565,7 @@ public class Solution extends BaseSolution implements ClassAssignmentProxy {
         }
 		for (Iterator i=getAssignments().iterator();i.hasNext();) {
 		    Assignment a = (Assignment)i.next();
+		    if (unchangedClassIds.contains(a.getClassId()) && classEvents.remove(a.getClassId()) != null) continue;
 		    ClassEvent event = a.generateCommittedEvent(classEvents.get(a.getClassId()),true);
 		    classEvents.remove(a.getClassId());
 		    if (event != null && !event.getMeetings().isEmpty()) {
@@ -545,6 +628,8 @@ public class Solution extends BaseSolution implements ClassAssignmentProxy {
 		// Manually fix the Clazz_.committedAssignment cache.
 		for (Assignment a: getAssignments())
 			a.getClazz().setCommittedAssignment(a);
+		
+		committedAssignmentsChanged(hibSession);
 
 		return true;
 	}
@@ -19,16 +19,31 @@
 */
 package org.unitime.timetable.model;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TreeSet;
+import java.util.WeakHashMap;
 
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
 import org.dom4j.DocumentHelper;
@@ -37,15 +52,32 @@ import org.dom4j.io.OutputFormat;
 import org.dom4j.io.SAXReader;
 import org.dom4j.io.XMLWriter;
 import org.hibernate.HibernateException;
+import org.hibernate.Transaction;
+import org.unitime.timetable.defaults.ApplicationProperty;
 import org.unitime.timetable.model.base.BaseStudentSectioningQueue;
 import org.unitime.timetable.onlinesectioning.OnlineSectioningLog;
 import org.unitime.timetable.security.UserContext;
+import org.unitime.timetable.solver.jgroups.SolverServer;
+import org.unitime.timetable.solver.jgroups.SolverServerImplementation;
 
 /**
+ * Queue of changes that are to be picked up by the online student scheduling servers.<br>
+ * The message of an item is either a generic XML document or, when unitime.sectioning.queue.compact is enabled,
+ * a compact binary encoding (see {@link #setMessage(OnlineSectioningLog.Entity, Collection)}).
+ * When a new item is committed, the updaters are notified so that they do not need to wait for the next update interval.
+ *
  * @author Tomas Muller
  */
 public class StudentSectioningQueue extends BaseStudentSectioningQueue implements Comparable<StudentSectioningQueue> {
 	private static final long serialVersionUID = 8492171207847794888L;
+	private static Log sLog = LogFactory.getLog(StudentSectioningQueue.class);
+	private static final String BINARY_PREFIX = "B64:";
+	private static final byte BINARY_VERSION = 1;
+	private static final Map<Transaction, Set<Long>> sPendingNotifications = new WeakHashMap<Transaction, Set<Long>>();
+	
+	private transient boolean iDecoded = false;
+	private transient OnlineSectioningLog.Entity iUser = null;
+	private transient List<Long> iIds = null;
 
 	public StudentSectioningQueue() {
 		super();
@@ -92,7 +124,23 @@ public class StudentSectioningQueue extends BaseStudentSectioningQueue implement
 			
 	}
 	
+	@Override
+	public void setData(String data) {
+		super.setData(data);
+		iDecoded = false; iUser = null; iIds = null;
+	}
+	
 	public Document getMessage() {
+		if (isBinary()) {
+			decode();
+			Document d = DocumentHelper.createDocument();
+			Element root = d.addElement("generic");
+			if (iUser != null && iUser.getType() == OnlineSectioningLog.Entity.EntityType.MANAGER)
+				root.addElement("user").addAttribute("id", iUser.getExternalId()).setText(iUser.getName());
+			for (Long id: iIds)
+				root.addElement("id").setText(id.toString());
+			return d;
+		}
 		try {
 			return new SAXReader().read(new StringReader(getData()));
 		} catch (DocumentException e) {
@@ -115,6 +163,95 @@ public class StudentSectioningQueue extends BaseStudentSectioningQueue implement
 			throw new HibernateException(e.getMessage(),e);
 		}
 	}
+	
+	protected boolean isBinary() {
+		return getData() != null && getData().startsWith(BINARY_PREFIX);
+	}
+	
+	/**
+	 * Compact binary encoding of the message: version, optional user (external id and name), the number of ids,
+	 * the first id and the differences between the consecutive (sorted) ids as variable length integers; encoded in Base64.
+	 */
+	public void setMessage(OnlineSectioningLog.Entity user, Collection<Long> ids) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(BINARY_VERSION);
+			out.writeBoolean(user != null);
+			if (user != null) {
+				out.writeUTF(user.hasExternalId() ? user.getExternalId() : "");
+				out.writeUTF(user.hasName() ? user.getName() : "");
+			}
+			TreeSet<Long> sorted = (ids == null ? new TreeSet<Long>() : new TreeSet<Long>(ids));
+			writeVarLong(out, sorted.size());
+			long last = 0;
+			boolean first = true;
+			for (Long id: sorted) {
+				if (first) {
+					out.writeLong(id); first = false;
+				} else {
+					writeVarLong(out, id - last);
+				}
+				last = id;
+			}
+			out.flush(); out.close();
+			setData(BINARY_PREFIX + Base64.getEncoder().encodeToString(bytes.toByteArray()));
+		} catch (IOException e) {
+			throw new HibernateException(e.getMessage(),e);
+		}
+	}
+	
+	private void decode() {
+		if (iDecoded) return;
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(getData().substring(BINARY_PREFIX.length()))));
+			byte version = in.readByte();
+			if (version != BINARY_VERSION)
+				throw new HibernateException("Unsupported sectioning queue message version " + version + ".");
+			if (in.readBoolean()) {
+				String externalId = in.readUTF();
+				String name = in.readUTF();
+				iUser = OnlineSectioningLog.Entity.newBuilder()
+						.setExternalId(externalId)
+						.setName(name)
+						.setType(OnlineSectioningLog.Entity.EntityType.MANAGER).build();
+			} else {
+				iUser = OnlineSectioningLog.Entity.newBuilder()
+						.setExternalId(StudentClassEnrollment.SystemChange.SYSTEM.name())
+						.setName(StudentClassEnrollment.SystemChange.SYSTEM.getName())
+						.setType(OnlineSectioningLog.Entity.EntityType.OTHER).build();
+			}
+			int size = (int)readVarLong(in);
+			iIds = new ArrayList<Long>(size);
+			long last = 0;
+			for (int i = 0; i < size; i++) {
+				last = (i == 0 ? in.readLong() : last + readVarLong(in));
+				iIds.add(last);
+			}
+			in.close();
+			iDecoded = true;
+		} catch (IOException e) {
+			throw new HibernateException(e.getMessage(),e);
+		}
+	}
+	
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7fl) != 0) {
+			out.writeByte((int)((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int)value);
+	}
+	
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = in.readByte();
+			value |= (long)(b & 0x7f) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw new IOException("Malformed variable length integer.");
+	}
 
 	@Override
 	public int compareTo(StudentSectioningQueue q) {
@@ -128,40 +265,79 @@ public class StudentSectioningQueue extends BaseStudentSectioningQueue implement
 		q.setTimeStamp(new Date());
 		q.setType(type.ordinal());
 		q.setSessionId(sessionId);
-		Document d = DocumentHelper.createDocument();
-		Element root = d.addElement("generic");
-		if (user != null) {
-			Element e = root.addElement("user");
-			e.addAttribute("id", user.getExternalUserId()).setText(user.getName());
-		}
-		if (ids != null && !ids.isEmpty()) {
-			for (Long id: ids)
-				root.addElement("id").setText(id.toString());
+		if (ApplicationProperty.OnlineSchedulingQueueCompactEncoding.isTrue()) {
+			q.setMessage(user == null ? null : OnlineSectioningLog.Entity.newBuilder()
+					.setExternalId(user.getExternalUserId() == null ? "" : user.getExternalUserId())
+					.setName(user.getName() == null ? "" : user.getName())
+					.setType(OnlineSectioningLog.Entity.EntityType.MANAGER).build(), ids);
+		} else {
+			Document d = DocumentHelper.createDocument();
+			Element root = d.addElement("generic");
+			if (user != null) {
+				Element e = root.addElement("user");
+				e.addAttribute("id", user.getExternalUserId()).setText(user.getName());
+			}
+			if (ids != null && !ids.isEmpty()) {
+				for (Long id: ids)
+					root.addElement("id").setText(id.toString());
+			}
+			q.setMessage(d);
 		}
-		q.setMessage(d);
 		hibSession.save(q);
+		notifyUpdaters(hibSession, sessionId);
 	}
 	
 	protected static void addItem(org.hibernate.Session hibSession, UserContext user, Long sessionId, Type type, Long... ids) {
-		StudentSectioningQueue q = new StudentSectioningQueue();
-		q.setTimeStamp(new Date());
-		q.setType(type.ordinal());
-		q.setSessionId(sessionId);
-		Document d = DocumentHelper.createDocument();
-		Element root = d.addElement("generic");
-		if (user != null) {
-			Element e = root.addElement("user");
-			e.addAttribute("id", user.getExternalUserId()).setText(user.getName());
-		}
-		if (ids != null && ids.length > 0) {
-			for (Long id: ids)
-				root.addElement("id").setText(id.toString());
+		addItem(hibSession, user, sessionId, type, ids == null ? null : Arrays.asList(ids));
+	}
+	
+	/**
+	 * Wake up the updaters of the given academic session once the current transaction is committed.
+	 * When there is no transaction, the change is picked up at the next update interval.
+	 * Only one synchronization is registered for a transaction, the updaters of each academic session are woken up once.
+	 */
+	protected static void notifyUpdaters(org.hibernate.Session hibSession, final Long sessionId) {
+		if (!ApplicationProperty.OnlineSchedulingQueuePushNotifications.isTrue()) return;
+		final Transaction tx = hibSession.getTransaction();
+		if (tx == null || !tx.isActive()) return;
+		synchronized (sPendingNotifications) {
+			Set<Long> sessionIds = sPendingNotifications.get(tx);
+			if (sessionIds != null) {
+				sessionIds.add(sessionId);
+				return;
+			}
+			sessionIds = new HashSet<Long>();
+			sessionIds.add(sessionId);
+			sPendingNotifications.put(tx, sessionIds);
 		}
-		q.setMessage(d);
-		hibSession.save(q);
+		tx.registerSynchronization(new Synchronization() {
+			@Override
+			public void beforeCompletion() {}
+			
+			@Override
+			public void afterCompletion(int status) {
+				Set<Long> sessionIds = null;
+				synchronized (sPendingNotifications) {
+					sessionIds = sPendingNotifications.remove(tx);
+				}
+				if (status != Status.STATUS_COMMITTED || sessionIds == null) return;
+				try {
+					SolverServer server = SolverServerImplementation.getInstance();
+					if (server != null)
+						for (Long id: sessionIds)
+							server.studentSectioningQueueChanged(id);
+				} catch (Exception e) {
+					sLog.warn("Failed to notify student sectioning queue updaters: " + e.getMessage(), e);
+				}
+			}
+		});
 	}
 	
 	public List<Long> getIds() {
+		if (isBinary()) {
+			decode();
+			return new ArrayList<Long>(iIds);
+		}
 		if (getMessage() == null) return null;
 		Element root = getMessage().getRootElement();
 		if (!"generic".equals(root.getName())) return null;
@@ -172,6 +348,10 @@ public class StudentSectioningQueue extends BaseStudentSectioningQueue implement
 	}
 	
 	public OnlineSectioningLog.Entity getUser() {
+		if (isBinary()) {
+			decode();
+			return iUser;
+		}
 		if (getMessage() == null) return null;
 		Element root = getMessage().getRootElement();
 		if (!"generic".equals(root.getName())) return null;
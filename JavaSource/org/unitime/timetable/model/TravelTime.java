@@ -20,7 +20,8 @@
 package org.unitime.timetable.model;
 
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.cpsolver.ifs.util.DistanceMetric;
 import org.unitime.timetable.model.base.BaseTravelTime;
@@ -31,6 +32,8 @@ import org.unitime.timetable.model.dao.TravelTimeDAO;
  */
 public class TravelTime extends BaseTravelTime {
 	private static final long serialVersionUID = -5810111960278939304L;
+	private static final long sCacheTimeToLive = 600000l;
+	private static Map<Long, CachedTravelTimes> sCache = new ConcurrentHashMap<Long, CachedTravelTimes>();
 
 	public TravelTime() {
 		super();
@@ -59,5 +62,61 @@ public class TravelTime extends BaseTravelTime {
 		populateTravelTimes(metric, hibSession);
 		hibSession.close();
 	}
+	
+	/**
+	 * Populate travel times of the given academic session from a cache (the travel matrix is only loaded from the database
+	 * when it is not cached yet, it has been invalidated using {@link TravelTime#invalidateTravelTimes(Long)}, or it is older than 10 minutes).
+	 */
+	public static void populateCachedTravelTimes(DistanceMetric metric, Long sessionId) {
+		CachedTravelTimes cached = sCache.get(sessionId);
+		if (cached == null || cached.isExpired()) {
+			org.hibernate.Session hibSession = TravelTimeDAO.getInstance().createNewSession();
+			try {
+				cached = new CachedTravelTimes((List<Object[]>)hibSession.createQuery(
+						"select t.location1Id, t.location2Id, t.distance from TravelTime t where t.session.uniqueId = :sessionId")
+						.setLong("sessionId", sessionId).list());
+			} finally {
+				hibSession.close();
+			}
+			sCache.put(sessionId, cached);
+		}
+		cached.populate(metric);
+	}
+	
+	/**
+	 * Drop cached travel times of the given academic session (all sessions when null)
+	 */
+	public static void invalidateTravelTimes(Long sessionId) {
+		if (sessionId == null)
+			sCache.clear();
+		else
+			sCache.remove(sessionId);
+	}
+	
+	private static class CachedTravelTimes {
+		private long iCreated = System.currentTimeMillis();
+		private long[] iLocation1Id, iLocation2Id;
+		private int[] iDistance;
+		
+		CachedTravelTimes(List<Object[]> times) {
+			iLocation1Id = new long[times.size()]; iLocation2Id = new long[times.size()]; iDistance = new int[times.size()];
+			int idx = 0;
+			for (Object[] time: times) {
+				iLocation1Id[idx] = (Long)time[0];
+				iLocation2Id[idx] = (Long)time[1];
+				iDistance[idx] = (Integer)time[2];
+				idx++;
+			}
+		}
+		
+		boolean isExpired() {
+			return System.currentTimeMillis() - iCreated > sCacheTimeToLive;
+		}
+		
+		void populate(DistanceMetric metric) {
+			for (int i = 0; i < iDistance.length; i++)
+				metric.addTravelTime(iLocation1Id[i], iLocation2Id[i], iDistance[i]);
+		}
+	}
 
 }
@@ -44,6 +44,7 @@ import org.unitime.timetable.onlinesectioning.model.XStudent;
 import org.unitime.timetable.onlinesectioning.model.XStudentId;
 import org.unitime.timetable.onlinesectioning.model.XTime;
 import org.unitime.timetable.onlinesectioning.server.CheckMaster;
+import org.unitime.timetable.onlinesectioning.solver.OfferingTemplate;
 import org.unitime.timetable.onlinesectioning.server.CheckMaster.Master;
 
 /**
@@ -79,6 +80,19 @@ public interface OnlineSectioningServer {
 	public Collection<Long> getInstructedOfferings(String instructorExternalId);
 	public Set<Long> getRequestedCourseIds(Long studentId);
 	
+	/**
+	 * Modification counter of an offering. It changes every time the offering, or any of its course requests and enrollments
+	 * (including other requests of the students requesting the offering) is changed.
+	 * @return null if the server does not keep track of the offering changes
+	 */
+	public Long getOfferingVersion(Long offeringId);
+	
+	/**
+	 * Parts of the offering that do not depend on enrollments, kept by the server as long as the offering version does not change
+	 * (a new template is created every time when the server does not track the offering versions)
+	 */
+	public OfferingTemplate getOfferingTemplate(XOffering offering);
+	
 	@CheckMaster(Master.REQUIRED)
 	public void update(XExpectations expectations);
 	
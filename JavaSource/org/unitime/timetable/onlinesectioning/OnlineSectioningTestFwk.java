@@ -23,12 +23,20 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -68,6 +76,7 @@ public abstract class OnlineSectioningTestFwk {
 	protected Long iSessionId = null;
 	private Map<String, Counter> iCounters = new Hashtable<String, Counter>();
 	private Map<String, Map<String, Map<String, Counter>>> iReports = new Hashtable<String, Map<String,Map<String,Counter>>>();
+	private Map<String, LatencyHistogram> iLatencies = new Hashtable<String, LatencyHistogram>();
     
 	public <X extends OnlineSectioningAction> X createAction(Class<X> clazz) {
 		return getServer().createAction(clazz);
@@ -160,7 +169,14 @@ public abstract class OnlineSectioningTestFwk {
 	
 	public interface Operation {
 		public double execute(OnlineSectioningServer s);
-	}	
+	}
+	
+	/**
+	 * Operation with a time of arrival (e.g., the time stamp of the replayed log), used by the open-loop mode
+	 */
+	public interface TimedOperation extends Operation {
+		public long getArrivalTime();
+	}
 	
 	public class Runner implements Runnable {
 		public void run() {
@@ -225,6 +241,65 @@ public abstract class OnlineSectioningTestFwk {
 		}
 	}
 	
+	/**
+	 * Latencies of an operation in milliseconds, kept as a sorted list of samples so that exact percentiles can be reported
+	 */
+	public static class LatencyHistogram {
+		private long[] iSamples = new long[1024];
+		private int iCount = 0, iErrors = 0;
+		private long iTotal = 0;
+		private boolean iSorted = true;
+		
+		public synchronized void add(long latency, boolean error) {
+			if (iCount == iSamples.length)
+				iSamples = Arrays.copyOf(iSamples, 2 * iSamples.length);
+			iSamples[iCount++] = latency;
+			iTotal += latency;
+			if (error) iErrors ++;
+			iSorted = false;
+		}
+		
+		public synchronized int count() { return iCount; }
+		public synchronized int errors() { return iErrors; }
+		public synchronized double mean() { return iCount == 0 ? 0.0 : ((double)iTotal) / iCount; }
+		
+		/**
+		 * Latency percentile, e.g., percentile(0.95) for p95
+		 */
+		public synchronized long percentile(double p) {
+			if (iCount == 0) return 0;
+			if (!iSorted) { Arrays.sort(iSamples, 0, iCount); iSorted = true; }
+			int idx = (int)Math.ceil(p * iCount) - 1;
+			return iSamples[Math.max(0, Math.min(iCount - 1, idx))];
+		}
+		
+		public long max() { return percentile(1.0); }
+		
+		public synchronized void clear() {
+			iCount = 0; iErrors = 0; iTotal = 0; iSorted = true;
+		}
+		
+		public String toString() {
+			return count() + " calls, " + errors() + " errors, mean " + sDF.format(mean()) + " ms, p50 " + percentile(0.5) + " ms, p95 " + percentile(0.95) +
+					" ms, p99 " + percentile(0.99) + " ms, max " + max() + " ms";
+		}
+	}
+	
+	/**
+	 * Record latency of an operation (or of an action within an operation)
+	 */
+	public void latency(String operation, long latencyInMillis, boolean error) {
+		LatencyHistogram histogram = null;
+		synchronized (iLatencies) {
+			histogram = iLatencies.get(operation);
+			if (histogram == null) {
+				histogram = new LatencyHistogram();
+				iLatencies.put(operation, histogram);
+			}
+		}
+		histogram.add(latencyInMillis, error);
+	}
+	
 	public int nrFinished() {
 		return iFinished.count();
 	}
@@ -279,6 +354,110 @@ public abstract class OnlineSectioningTestFwk {
 		sLog.info("All " + toString());
 	}
 	
+	/**
+	 * Open-loop run: operations are started at their arrival times regardless of how many are still running, so that the measured latency
+	 * (from the arrival to the end of the operation) includes the time an operation had to wait.
+	 * When arrivalRate is positive, arrival times are generated with exponentially distributed gaps (Poisson arrivals, arrivalRate operations per second).
+	 * Otherwise, the arrival times of the {@link TimedOperation}s are used, divided by timeCompression (operations with no arrival time are started first).
+	 * At most maxConcurrent operations are executed at a time, the others wait (their waiting time is included in the latency).
+	 */
+	public synchronized void runOpenLoop(List<Operation> operations, double arrivalRate, double timeCompression, int maxConcurrent) {
+		sLog.info("Running " + operations.size() + " tasks in open-loop mode (" + (arrivalRate > 0.0 ? arrivalRate + " tasks / s" : "time compression " + timeCompression) + ")...");
+		iCounters.clear();
+		synchronized (iLatencies) { iLatencies.clear(); }
+		iFinished.clear(); iExec.clear(); iQuality.clear();
+		iRunners = new ArrayList<Runner>();
+		
+		final long[] arrivals = new long[operations.size()];
+		if (arrivalRate > 0.0) {
+			Random random = new Random(0);
+			double t = 0.0;
+			for (int i = 0; i < arrivals.length; i++) {
+				arrivals[i] = Math.round(t);
+				t -= 1000.0 * Math.log(1.0 - random.nextDouble()) / arrivalRate;
+			}
+		} else {
+			operations = new ArrayList<Operation>(operations);
+			Collections.sort(operations, new Comparator<Operation>() {
+				@Override
+				public int compare(Operation o1, Operation o2) {
+					long t1 = (o1 instanceof TimedOperation ? ((TimedOperation)o1).getArrivalTime() : 0);
+					long t2 = (o2 instanceof TimedOperation ? ((TimedOperation)o2).getArrivalTime() : 0);
+					return (t1 < t2 ? -1 : t1 == t2 ? 0 : 1);
+				}
+			});
+			// operations with an unknown (zero) arrival time are started right away, they do not define the origin
+			long first = -1;
+			for (Operation op: operations) {
+				long time = (op instanceof TimedOperation ? ((TimedOperation)op).getArrivalTime() : 0);
+				if (time > 0 && (first < 0 || time < first)) first = time;
+			}
+			for (int i = 0; i < arrivals.length; i++) {
+				Operation op = operations.get(i);
+				long time = (op instanceof TimedOperation ? ((TimedOperation)op).getArrivalTime() : 0);
+				arrivals[i] = (time <= 0 ? 0 : Math.round((time - first) / (timeCompression > 0.0 ? timeCompression : 1.0)));
+			}
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(maxConcurrent, new ThreadFactory() {
+			AtomicInteger iIndex = new AtomicInteger(0);
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Runner #" + iIndex.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		final AtomicInteger running = new AtomicInteger(0);
+		iT0 = System.currentTimeMillis();
+		final long start = System.currentTimeMillis();
+		long lastLog = start;
+		try {
+			for (int i = 0; i < operations.size(); i++) {
+				final Operation op = operations.get(i);
+				final long arrival = start + arrivals[i];
+				long wait = arrival - System.currentTimeMillis();
+				if (wait > 0) Thread.sleep(wait);
+				running.incrementAndGet();
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						long t0 = System.currentTimeMillis();
+						boolean error = false;
+						try {
+							double val = op.execute(getServer());
+							iQuality.inc(val);
+						} catch (Throwable t) {
+							error = true;
+							sLog.warn("Task failed: " + t.getMessage(), t);
+						} finally {
+							iFinished.inc(1);
+							running.decrementAndGet();
+						}
+						long t1 = System.currentTimeMillis();
+						iRunTime = (t1 - iT0) / 1000.0;
+						iExec.inc(t1 - t0);
+						latency("operation", t1 - arrival, error);
+						latency("operation (wait)", t0 - arrival, false);
+					}
+				});
+				if (System.currentTimeMillis() - lastLog > 10000) {
+					lastLog = System.currentTimeMillis();
+					sLog.info(toString() + " (" + running.get() + " in progress)");
+				}
+			}
+			executor.shutdown();
+			while (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+				sLog.info(toString() + " (" + running.get() + " in progress)");
+				logCounters();
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+		}
+		sLog.info("All " + nrFinished() + " tasks finished in " + sDF.format(testRunTimeInSeconds()) + " s, throughput " + sDF.format(nrFinished() / testRunTimeInSeconds()) + " tasks / s");
+		logLatencies();
+	}
+	
 	public abstract List<Operation> operations();
 	
 	public OnlineSectioningLog.Entity user() {
@@ -288,6 +467,45 @@ public abstract class OnlineSectioningTestFwk {
 			.setType(OnlineSectioningLog.Entity.EntityType.OTHER).build();
 	}
 	
+	/**
+	 * Open-loop test, see {@link #runOpenLoop(List, double, double, int)}.
+	 * Latencies are written into latency.csv.
+	 */
+	public void testOpenLoop(int nrTasks, double arrivalRate, double timeCompression, int maxConcurrent) {
+		try {
+	        HibernateUtil.configureHibernate(ApplicationProperties.getProperties());
+	        
+			startServer();
+			
+			while (!getServer().isReady()) {
+				sLog.info("Waiting for the server to load...");
+				try {
+					Thread.sleep(10000);
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+			
+			List<Operation> operations = operations();
+			if (arrivalRate > 0.0)
+				Collections.shuffle(operations);
+			
+			runOpenLoop(nrTasks <= 0 || operations.size() <= nrTasks ? operations : operations.subList(0, nrTasks), arrivalRate, timeCompression, maxConcurrent);
+			
+			logCounters();
+			
+			writeReports();
+			
+			writeLatencies(new File("latency.csv"));
+			
+			stopServer();
+		} catch (Exception e) {
+			sLog.fatal("Test failed: " + e.getMessage(), e);
+		} finally {
+			close();
+		}
+	}
+	
 	public void test(int nrTasks, int... nrConcurrent) {
 		try {
 	        HibernateUtil.configureHibernate(ApplicationProperties.getProperties());
@@ -364,6 +582,39 @@ public abstract class OnlineSectioningTestFwk {
 		}
 	}
 		
+	protected void logLatencies() {
+		synchronized (iLatencies) {
+			for (String name: new TreeSet<String>(iLatencies.keySet()))
+				sLog.info("  " + name + ": " + iLatencies.get(name));
+		}
+	}
+	
+	protected void writeLatencies(File output) {
+		CSVFile csv = new CSVFile();
+		csv.setHeader(new CSVField[] {
+				new CSVField("Operation"), new CSVField("Count"), new CSVField("Errors"), new CSVField("Error Rate"), new CSVField("Throughput [1/s]"),
+				new CSVField("Mean [ms]"), new CSVField("P50 [ms]"), new CSVField("P95 [ms]"), new CSVField("P99 [ms]"), new CSVField("Max [ms]")
+		});
+		synchronized (iLatencies) {
+			for (String name: new TreeSet<String>(iLatencies.keySet())) {
+				LatencyHistogram h = iLatencies.get(name);
+				csv.addLine(new CSVField[] {
+						new CSVField(name), new CSVField(h.count()), new CSVField(h.errors()),
+						new CSVField(sDF.format(h.count() == 0 ? 0.0 : ((double)h.errors()) / h.count())),
+						new CSVField(sDF.format(testRunTimeInSeconds() <= 0.0 ? 0.0 : h.count() / testRunTimeInSeconds())),
+						new CSVField(sDF.format(h.mean())), new CSVField(h.percentile(0.5)), new CSVField(h.percentile(0.95)),
+						new CSVField(h.percentile(0.99)), new CSVField(h.max())
+				});
+			}
+		}
+		try {
+			sLog.info("Writing " + output + " ...");
+			csv.save(output);
+		} catch (IOException e) {
+			sLog.error("Unable to write latencies: " + e.getMessage(), e);
+		}
+	}
+	
 	protected void writeReports() {
 		synchronized (iReports) {
 			for (Map.Entry<String, Map<String, Map<String, Counter>>> report: iReports.entrySet()) {
@@ -64,6 +64,30 @@ public class XEnrollments implements Serializable, Externalizable {
 		init();
 	}
 	
+	/**
+	 * Enrollments of an offering with requests that are already indexed by configuration, course, section, and reservation
+	 * (e.g., as kept by the in-memory server), the given collections are copied
+	 */
+	public XEnrollments(Long offeringId, Collection<XCourseRequest> requests, Collection<XEnrollment> enrollments,
+			Map<Long, ? extends Collection<XEnrollment>> config2enrl, Map<Long, ? extends Collection<XEnrollment>> course2enrl,
+			Map<Long, ? extends Collection<XEnrollment>> section2enrl, Map<Long, ? extends Collection<XEnrollment>> reservation2enrl) {
+		iOfferingId = offeringId;
+		iRequests.addAll(requests);
+		iEnrollments = new ArrayList<XEnrollment>(enrollments);
+		iConfig2Enrl = copy(config2enrl);
+		iCourse2Enrl = copy(course2enrl);
+		iSection2Enrl = copy(section2enrl);
+		iReservation2Enrl = copy(reservation2enrl);
+	}
+
+	private static Map<Long, List<XEnrollment>> copy(Map<Long, ? extends Collection<XEnrollment>> index) {
+		Map<Long, List<XEnrollment>> ret = new HashMap<Long, List<XEnrollment>>();
+		for (Map.Entry<Long, ? extends Collection<XEnrollment>> e: index.entrySet())
+			if (!e.getValue().isEmpty())
+				ret.put(e.getKey(), new ArrayList<XEnrollment>(e.getValue()));
+		return ret;
+	}
+
 	private void init() {
 		iEnrollments = new ArrayList<XEnrollment>();
 		iConfig2Enrl = new HashMap<Long, List<XEnrollment>>();
@@ -33,6 +33,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.logging.Log;
@@ -78,7 +79,9 @@ import org.unitime.timetable.onlinesectioning.custom.CourseDetailsProvider;
 import org.unitime.timetable.onlinesectioning.model.XCourse;
 import org.unitime.timetable.onlinesectioning.model.XCourseId;
 import org.unitime.timetable.onlinesectioning.model.XEnrollments;
+import org.unitime.timetable.onlinesectioning.model.XOffering;
 import org.unitime.timetable.onlinesectioning.model.XTime;
+import org.unitime.timetable.onlinesectioning.solver.OfferingTemplate;
 import org.unitime.timetable.onlinesectioning.updates.CheckAllOfferingsAction;
 import org.unitime.timetable.onlinesectioning.updates.PersistExpectedSpacesAction;
 import org.unitime.timetable.onlinesectioning.updates.ReloadAllData;
@@ -100,6 +103,7 @@ public abstract class AbstractServer implements OnlineSectioningServer {
 	protected List<AsyncExecutor> iExecutors = new ArrayList<AsyncExecutor>();
 	private Queue<Runnable> iExecutorQueue = new LinkedList<Runnable>();
 	private HashSet<CacheElement<Long>> iOfferingsToPersistExpectedSpaces = new HashSet<CacheElement<Long>>();
+	private Map<Long, OfferingTemplate> iOfferingTemplates = new ConcurrentHashMap<Long, OfferingTemplate>();
 	private static ThreadLocal<LinkedList<OnlineSectioningHelper>> sHelper = new ThreadLocal<LinkedList<OnlineSectioningHelper>>();
 	protected Map<String, Object> iProperties = new HashMap<String, Object>();
 	
@@ -538,6 +542,7 @@ public abstract class AbstractServer implements OnlineSectioningServer {
 		}
 		if (iMasterThread != null)
 			iMasterThread.dispose();
+		iOfferingTemplates.clear();
 	}
 
 	@Override
@@ -734,6 +739,33 @@ public abstract class AbstractServer implements OnlineSectioningServer {
 		return new XEnrollments(offeringId, getRequests(offeringId));
 	}
 	
+	@Override
+	public Long getOfferingVersion(Long offeringId) {
+		return null;
+	}
+	
+	@Override
+	public OfferingTemplate getOfferingTemplate(XOffering offering) {
+		Long version = getOfferingVersion(offering.getOfferingId());
+		if (version == null) return new OfferingTemplate(offering, null);
+		OfferingTemplate template = iOfferingTemplates.get(offering.getOfferingId());
+		if (template == null || !version.equals(template.getVersion())) {
+			template = new OfferingTemplate(offering, version);
+			iOfferingTemplates.put(offering.getOfferingId(), template);
+		}
+		return template;
+	}
+	
+	/**
+	 * Drop the template of a removed offering, all templates when the offering id is null
+	 */
+	protected void removeOfferingTemplate(Long offeringId) {
+		if (offeringId == null)
+			iOfferingTemplates.clear();
+		else
+			iOfferingTemplates.remove(offeringId);
+	}
+	
 	private class MasterAcquiringThread extends Thread {
 		private java.util.concurrent.locks.Lock iLock;
 		private AtomicBoolean iMaster = new AtomicBoolean(false);
@@ -21,10 +21,15 @@ package org.unitime.timetable.onlinesectioning.server;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -36,6 +41,7 @@ import org.unitime.timetable.onlinesectioning.model.XCourse;
 import org.unitime.timetable.onlinesectioning.model.XCourseId;
 import org.unitime.timetable.onlinesectioning.model.XCourseRequest;
 import org.unitime.timetable.onlinesectioning.model.XEnrollment;
+import org.unitime.timetable.onlinesectioning.model.XEnrollments;
 import org.unitime.timetable.onlinesectioning.model.XExpectations;
 import org.unitime.timetable.onlinesectioning.model.XOffering;
 import org.unitime.timetable.onlinesectioning.model.XRequest;
@@ -50,9 +56,11 @@ public class InMemoryServer extends AbstractLockingServer {
 	
 	private Hashtable<Long, XStudent> iStudentTable = new Hashtable<Long, XStudent>();
 	private Hashtable<Long, XOffering> iOfferingTable = new Hashtable<Long, XOffering>();
-	private Hashtable<Long, List<XCourseRequest>> iOfferingRequests = new Hashtable<Long, List<XCourseRequest>>();
+	private Hashtable<Long, OfferingIndex> iOfferingRequests = new Hashtable<Long, OfferingIndex>();
 	private Hashtable<Long, XExpectations> iExpectations = new Hashtable<Long, XExpectations>();
 	private Hashtable<String, Set<Long>> iInstructedOfferings = new Hashtable<String, Set<Long>>();
+	private Hashtable<Long, Long> iOfferingVersions = new Hashtable<Long, Long>();
+	private long iVersion = 0, iVersionBase = 0;
 	
 	public InMemoryServer(OnlineSectioningServerContext context) throws SectioningException {
 		super(context);
@@ -175,12 +183,48 @@ public class InMemoryServer extends AbstractLockingServer {
 	public Collection<XCourseRequest> getRequests(Long offeringId) {
 		Lock lock = readLock();
 		try {
-			Collection<XCourseRequest> requests = iOfferingRequests.get(offeringId);
-			return requests == null ? null : new ArrayList<XCourseRequest>(requests);
+			OfferingIndex index = iOfferingRequests.get(offeringId);
+			return index == null ? null : index.getRequests();
 		} finally {
 			lock.release();
 		}		
 	}
+	
+	@Override
+	public XEnrollments getEnrollments(Long offeringId) {
+		Lock lock = readLock();
+		try {
+			OfferingIndex index = iOfferingRequests.get(offeringId);
+			return index == null ? new XEnrollments(offeringId, null) : index.getEnrollments();
+		} finally {
+			lock.release();
+		}
+	}
+	
+	/**
+	 * Add course request to the indexes of the requested offerings, to be called within a write lock
+	 */
+	protected void addRequest(XCourseRequest request) {
+		for (XCourseId course: request.getCourseIds()) {
+			if (request.isDuplicateOffering(course)) continue;
+			OfferingIndex index = iOfferingRequests.get(course.getOfferingId());
+			if (index == null) {
+				index = new OfferingIndex(course.getOfferingId());
+				iOfferingRequests.put(course.getOfferingId(), index);
+			}
+			index.add(request);
+		}
+	}
+	
+	/**
+	 * Remove course request from the indexes of the requested offerings, to be called within a write lock
+	 */
+	protected void removeRequest(XCourseRequest request) {
+		for (XCourseId course: request.getCourseIds()) {
+			OfferingIndex index = iOfferingRequests.get(course.getOfferingId());
+			if (index != null) index.remove(request);
+		}
+	}
 
 	@Override
 	public XExpectations getExpectations(Long offeringId) {
@@ -208,13 +252,11 @@ public class InMemoryServer extends AbstractLockingServer {
 		Lock lock = writeLock();
 		try {
 			XStudent oldStudent = iStudentTable.remove(student.getStudentId());
+			changed(oldStudent);
 			if (oldStudent != null) {
 				for (XRequest request: oldStudent.getRequests())
 					if (request instanceof XCourseRequest)
-						for (XCourseId course: ((XCourseRequest)request).getCourseIds()) {
-							List<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-							if (requests != null) requests.remove(request);
-						}
+						removeRequest((XCourseRequest)request);
 			}
 		} finally {
 			lock.release();
@@ -226,28 +268,16 @@ public class InMemoryServer extends AbstractLockingServer {
 		Lock lock = writeLock();
 		try {
 			XStudent oldStudent = iStudentTable.put(student.getStudentId(), student);
+			changed(oldStudent); changed(student);
 			if (updateRequests) {
 				if (oldStudent != null) {
 					for (XRequest request: oldStudent.getRequests())
 						if (request instanceof XCourseRequest)
-							for (XCourseId course: ((XCourseRequest)request).getCourseIds()) {
-								List<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-								if (requests != null) requests.remove(request);
-							}
+							removeRequest((XCourseRequest)request);
 				}
 				for (XRequest request: student.getRequests())
-					if (request instanceof XCourseRequest) {
-						XCourseRequest cr = (XCourseRequest)request;
-						for (XCourseId course: cr.getCourseIds()) {
-							if (cr.isDuplicateOffering(course)) continue;
-							List<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-							if (requests == null) {
-								requests = new ArrayList<XCourseRequest>();
-								iOfferingRequests.put(course.getOfferingId(), requests);
-							}
-							requests.add((XCourseRequest)request);
-						}
-					}
+					if (request instanceof XCourseRequest)
+						addRequest((XCourseRequest)request);
 			}
 		} finally {
 			lock.release();
@@ -274,6 +304,8 @@ public class InMemoryServer extends AbstractLockingServer {
 				}
 			}
 			iOfferingTable.remove(offering.getOfferingId());
+			removeOfferingTemplate(offering.getOfferingId());
+			changed(offering.getOfferingId());
 			if (removeExpectations)
 				iExpectations.remove(offering.getOfferingId());
 			for (String externalId: offering.getInstructorExternalIds()) {
@@ -294,6 +326,7 @@ public class InMemoryServer extends AbstractLockingServer {
 				remove(oldOffering, false);
 			
 			iOfferingTable.put(offering.getOfferingId(), offering);
+			changed(offering.getOfferingId());
 			for (XCourse course: offering.getCourses()) {
 				iCourseForId.put(course.getCourseId(), course);
 				TreeSet<XCourseId> courses = iCourseForName.get(course.getCourseNameInLowerCase());
@@ -333,7 +366,7 @@ public class InMemoryServer extends AbstractLockingServer {
 			else
 				iOfferingTable.clear();
 			if (iOfferingRequests == null)
-				iOfferingRequests = new Hashtable<Long, List<XCourseRequest>>();
+				iOfferingRequests = new Hashtable<Long, OfferingIndex>();
 			else
 				iOfferingRequests.clear();
 			if (iExpectations == null)
@@ -352,6 +385,12 @@ public class InMemoryServer extends AbstractLockingServer {
 				iInstructedOfferings = new Hashtable<String, Set<Long>>();
 			else
 				iInstructedOfferings.clear();
+			if (iOfferingVersions == null)
+				iOfferingVersions = new Hashtable<Long, Long>();
+			else
+				iOfferingVersions.clear();
+			iVersionBase = ++iVersion;
+			removeOfferingTemplate(null);
 		} finally {
 			lock.release();
 		}
@@ -363,6 +402,8 @@ public class InMemoryServer extends AbstractLockingServer {
 		try {
 			iStudentTable.clear();
 			iOfferingRequests.clear();
+			iOfferingVersions.clear();
+			iVersionBase = ++iVersion;
 		} finally {
 			lock.release();
 		}
@@ -373,29 +414,19 @@ public class InMemoryServer extends AbstractLockingServer {
 		Lock lock = writeLock();
 		try {
 			XStudent student = iStudentTable.get(request.getStudentId());
+			changed(student);
 			for (XRequest r: student.getRequests()) {
 				if (r.equals(request)) {
 					XCourseRequest cr = (XCourseRequest)r;
 
 					// remove old requests
-					for (XCourseId course: cr.getCourseIds()) {
-						List<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-						if (requests != null) requests.remove(cr);
-					}
+					removeRequest(cr);
 
 					// assign
 					cr.setEnrollment(enrollment);
 					
 					// put new requests
-					for (XCourseId course: cr.getCourseIds()) {
-						if (cr.isDuplicateOffering(course)) continue;
-						List<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-						if (requests == null) {
-							requests = new ArrayList<XCourseRequest>();
-							iOfferingRequests.put(course.getOfferingId(), requests);
-						}
-						requests.add(cr);
-					}
+					addRequest(cr);
 					
 					return cr;
 				}
@@ -411,15 +442,13 @@ public class InMemoryServer extends AbstractLockingServer {
 		Lock lock = writeLock();
 		try {
 			XStudent student = iStudentTable.get(request.getStudentId());
+			changed(student);
 			for (XRequest r: student.getRequests()) {
 				if (r.equals(request)) {
 					XCourseRequest cr = (XCourseRequest)r;
 
 					// remove old requests
-					for (XCourseId course: cr.getCourseIds()) {
-						List<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-						if (requests != null) requests.remove(cr);
-					}
+					removeRequest(cr);
 
 					// assign
 					cr.setWaitlist(waitlist);
@@ -427,15 +456,7 @@ public class InMemoryServer extends AbstractLockingServer {
 					cr.setWaitListSwapWithCourseOffering(request.getWaitListSwapWithCourseOffering());
 					
 					// put new requests
-					for (XCourseId course: cr.getCourseIds()) {
-						if (cr.isDuplicateOffering(course)) continue;
-						List<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-						if (requests == null) {
-							requests = new ArrayList<XCourseRequest>();
-							iOfferingRequests.put(course.getOfferingId(), requests);
-						}
-						requests.add(cr);
-					}
+					addRequest(cr);
 					
 					return cr;
 				}
@@ -446,6 +467,35 @@ public class InMemoryServer extends AbstractLockingServer {
 		}
 	}
 
+	@Override
+	public Long getOfferingVersion(Long offeringId) {
+		Lock lock = readLock();
+		try {
+			Long version = iOfferingVersions.get(offeringId);
+			return (version == null ? iVersionBase : version);
+		} finally {
+			lock.release();
+		}
+	}
+	
+	/**
+	 * Offering has changed, to be called within a write lock
+	 */
+	protected void changed(Long offeringId) {
+		iOfferingVersions.put(offeringId, ++iVersion);
+	}
+	
+	/**
+	 * All offerings requested by the student have changed (e.g., wait-list mode or assignability of the requests may have changed), to be called within a write lock
+	 */
+	protected void changed(XStudent student) {
+		if (student == null) return;
+		for (XRequest request: student.getRequests())
+			if (request instanceof XCourseRequest)
+				for (XCourseId course: ((XCourseRequest)request).getCourseIds())
+					changed(course.getOfferingId());
+	}
+
 	@Override
 	public Collection<Long> getInstructedOfferings(String instructorExternalId) {
 		Lock lock = readLock();
@@ -456,6 +506,130 @@ public class InMemoryServer extends AbstractLockingServer {
 		}
 	}
 	
+	/**
+	 * Requests of an offering, updated in place as the requests change (to be updated within a write lock).
+	 * Enrolled requests are kept in hash-set buckets by configuration, course, section, and reservation,
+	 * so that a change of one request does not require the whole offering to be indexed again.
+	 * Readers get an immutable snapshot that is shared until the next change of the index.
+	 */
+	protected static class OfferingIndex {
+		private Long iOfferingId;
+		private long iVersion = 0;
+		private Set<XCourseRequest> iRequests = new LinkedHashSet<XCourseRequest>();
+		private Map<XCourseRequest, XEnrollment> iEnrollments = new LinkedHashMap<XCourseRequest, XEnrollment>();
+		private Map<Long, Map<XCourseRequest, XEnrollment>> iConfig2Enrl = new HashMap<Long, Map<XCourseRequest, XEnrollment>>();
+		private Map<Long, Map<XCourseRequest, XEnrollment>> iCourse2Enrl = new HashMap<Long, Map<XCourseRequest, XEnrollment>>();
+		private Map<Long, Map<XCourseRequest, XEnrollment>> iSection2Enrl = new HashMap<Long, Map<XCourseRequest, XEnrollment>>();
+		private Map<Long, Map<XCourseRequest, XEnrollment>> iReservation2Enrl = new HashMap<Long, Map<XCourseRequest, XEnrollment>>();
+		private volatile OfferingSnapshot iSnapshot = null;
+		
+		public OfferingIndex(Long offeringId) {
+			iOfferingId = offeringId;
+		}
+		
+		public void add(XCourseRequest request) {
+			if (iRequests.contains(request)) remove(request);
+			iRequests.add(request);
+			iVersion++;
+			XEnrollment enrollment = request.getEnrollment();
+			if (enrollment == null || !iOfferingId.equals(enrollment.getOfferingId())) return;
+			iEnrollments.put(request, enrollment);
+			add(iConfig2Enrl, enrollment.getConfigId(), request, enrollment);
+			add(iCourse2Enrl, enrollment.getCourseId(), request, enrollment);
+			if (enrollment.getReservation() != null)
+				add(iReservation2Enrl, enrollment.getReservation().getReservationId(), request, enrollment);
+			for (Long sectionId: enrollment.getSectionIds())
+				add(iSection2Enrl, sectionId, request, enrollment);
+		}
+		
+		public void remove(XCourseRequest request) {
+			if (!iRequests.remove(request)) return;
+			iVersion++;
+			// use the enrollment that was indexed, the request may have been changed since
+			XEnrollment enrollment = iEnrollments.remove(request);
+			if (enrollment == null) return;
+			remove(iConfig2Enrl, enrollment.getConfigId(), request);
+			remove(iCourse2Enrl, enrollment.getCourseId(), request);
+			if (enrollment.getReservation() != null)
+				remove(iReservation2Enrl, enrollment.getReservation().getReservationId(), request);
+			for (Long sectionId: enrollment.getSectionIds())
+				remove(iSection2Enrl, sectionId, request);
+		}
+		
+		private static void add(Map<Long, Map<XCourseRequest, XEnrollment>> index, Long id, XCourseRequest request, XEnrollment enrollment) {
+			Map<XCourseRequest, XEnrollment> enrollments = index.get(id);
+			if (enrollments == null) {
+				enrollments = new LinkedHashMap<XCourseRequest, XEnrollment>();
+				index.put(id, enrollments);
+			}
+			enrollments.put(request, enrollment);
+		}
+		
+		private static void remove(Map<Long, Map<XCourseRequest, XEnrollment>> index, Long id, XCourseRequest request) {
+			Map<XCourseRequest, XEnrollment> enrollments = index.get(id);
+			if (enrollments != null) {
+				enrollments.remove(request);
+				if (enrollments.isEmpty()) index.remove(id);
+			}
+		}
+		
+		private static Map<Long, Collection<XEnrollment>> values(Map<Long, Map<XCourseRequest, XEnrollment>> index) {
+			Map<Long, Collection<XEnrollment>> ret = new HashMap<Long, Collection<XEnrollment>>();
+			for (Map.Entry<Long, Map<XCourseRequest, XEnrollment>> e: index.entrySet())
+				ret.put(e.getKey(), e.getValue().values());
+			return ret;
+		}
+		
+		/**
+		 * Snapshot of the current version of the index, to be called within a read lock
+		 */
+		protected OfferingSnapshot getSnapshot() {
+			OfferingSnapshot snapshot = iSnapshot;
+			if (snapshot == null || snapshot.getVersion() != iVersion) {
+				snapshot = new OfferingSnapshot(iVersion, iRequests);
+				iSnapshot = snapshot;
+			}
+			return snapshot;
+		}
+		
+		public List<XCourseRequest> getRequests() {
+			return getSnapshot().getRequests();
+		}
+		
+		public XEnrollments getEnrollments() {
+			OfferingSnapshot snapshot = getSnapshot();
+			XEnrollments enrollments = snapshot.getEnrollments();
+			if (enrollments == null) {
+				enrollments = new XEnrollments(iOfferingId, snapshot.getRequests(), iEnrollments.values(),
+						values(iConfig2Enrl), values(iCourse2Enrl), values(iSection2Enrl), values(iReservation2Enrl));
+				snapshot.setEnrollments(enrollments);
+			}
+			return enrollments;
+		}
+	}
+	
+	/**
+	 * Immutable requests of an offering of the given index version, the enrollments are copied from the index when first needed
+	 */
+	protected static class OfferingSnapshot {
+		private long iVersion;
+		private List<XCourseRequest> iRequests;
+		private volatile XEnrollments iEnrollments = null;
+		
+		public OfferingSnapshot(long version, Collection<XCourseRequest> requests) {
+			iVersion = version;
+			iRequests = Collections.unmodifiableList(new ArrayList<XCourseRequest>(requests));
+		}
+		
+		public long getVersion() { return iVersion; }
+		
+		public List<XCourseRequest> getRequests() { return iRequests; }
+		
+		public XEnrollments getEnrollments() { return iEnrollments; }
+		
+		protected void setEnrollments(XEnrollments enrollments) { iEnrollments = enrollments; }
+	}
+	
 	@Override
 	public Set<Long> getRequestedCourseIds(Long studentId) {
 		Lock lock = readLock();
@@ -29,10 +29,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import javax.transaction.Status;
+import javax.transaction.Synchronization;
 import javax.transaction.SystemException;
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
@@ -45,6 +47,13 @@ import org.infinispan.distexec.DistributedCallable;
 import org.infinispan.distexec.DistributedExecutorService;
 import org.infinispan.jmx.CacheJmxRegistration;
 import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryModifiedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
 import org.infinispan.transaction.LockingMode;
 import org.unitime.timetable.gwt.shared.CourseRequestInterface;
 import org.unitime.timetable.gwt.shared.SectioningException;
@@ -74,9 +83,12 @@ public class ReplicatedServer extends AbstractServer {
 	private Cache<String, TreeSet<XCourseId>> iCourseForName;
 	private Cache<Long, XStudent> iStudentTable;
 	private Cache<Long, XOffering> iOfferingTable;
-	private Cache<Long, Set<XCourseRequest>> iOfferingRequests;
+	private Map<Long, Set<XCourseRequest>> iOfferingRequests;
+	private Map<Long, Map<Long, List<XCourseRequest>>> iIndexedRequests;
+	private Map<Transaction, Map<Long, XStudent>> iPendingStudents;
 	private Cache<Long, XExpectations> iExpectations;
 	private Cache<Long, Boolean> iOfferingLocks;
+	private ReplicatedServerLocks iLocks = null;
 	private Cache<String, Set<Long>> iInstructedOfferings; 
 
 	public ReplicatedServer(OnlineSectioningServerContext context) throws SectioningException {
@@ -103,9 +115,13 @@ public class ReplicatedServer extends AbstractServer {
 		iCourseForName = getCache("CourseForName");
 		iStudentTable = getCache("StudentTable");
 		iOfferingTable = getCache("OfferingTable");
-		iOfferingRequests = getCache("OfferingRequests");
+		iOfferingRequests = new ConcurrentHashMap<Long, Set<XCourseRequest>>();
+		iIndexedRequests = new HashMap<Long, Map<Long, List<XCourseRequest>>>();
+		iPendingStudents = new ConcurrentHashMap<Transaction, Map<Long, XStudent>>();
 		iExpectations = getCache("Expectations");
 		iOfferingLocks = getCache("OfferingLocks");
+		if (context.getLockService() != null)
+			iLocks = new ReplicatedServerLocks(context.getLockService(), cacheName("Locks"), getConfig().getPropertyLong("LockSlowWait", 1000l), iLog);
 		iInstructedOfferings = getCache("InstructedOfferings");
 
 		Map<String, Object> original = new HashMap<String, Object>(iProperties);
@@ -114,6 +130,9 @@ public class ReplicatedServer extends AbstractServer {
 
 		if (isOptimisticLocking())
 			iLog.info("Using optimistic locking.");
+		iStudentTable.addListener(new StudentTableListener());
+		for (XStudent student: iStudentTable.values())
+			index(student.getStudentId(), student);
 		super.load(context);
 	}
 	
@@ -131,12 +150,15 @@ public class ReplicatedServer extends AbstractServer {
 	
 	@Override
 	public void unload() {
+		if (iLocks != null) {
+			String stats = iLocks.getStatistics(20);
+			if (!stats.isEmpty()) iLog.info("Lock contention:" + stats);
+		}
 		super.unload();
 		removeCache(iCourseForId);
 		removeCache(iCourseForName);
 		removeCache(iStudentTable);
 		removeCache(iOfferingTable);
-		removeCache(iOfferingRequests);
 		removeCache(iExpectations);
 		removeCache(iOfferingLocks);
 		removeCache(iInstructedOfferings);
@@ -301,8 +323,33 @@ public class ReplicatedServer extends AbstractServer {
 	public Collection<XCourseRequest> getRequests(Long offeringId) {
 		Lock lock = readLock();
 		try {
-			Collection<XCourseRequest> requests = iOfferingRequests.get(offeringId);
-			return requests == null ? null : new ArrayList<XCourseRequest>(requests);
+			Set<XCourseRequest> requests = iOfferingRequests.get(offeringId);
+			Map<Long, XStudent> pending = getPendingStudents();
+			if (pending == null || pending.isEmpty()) {
+				if (requests == null) return null;
+				synchronized (requests) {
+					return new ArrayList<XCourseRequest>(requests);
+				}
+			}
+			// overlay the students changed by the current transaction over the committed state
+			List<XCourseRequest> ret = new ArrayList<XCourseRequest>();
+			if (requests != null)
+				synchronized (requests) {
+					for (XCourseRequest request: requests)
+						if (!pending.containsKey(request.getStudentId())) ret.add(request);
+				}
+			for (XStudent student: pending.values()) {
+				if (student == null) continue;
+				for (XRequest request: student.getRequests()) {
+					if (request instanceof XCourseRequest) {
+						for (XCourseId course: ((XCourseRequest)request).getCourseIds())
+							if (offeringId.equals(course.getOfferingId())) {
+								ret.add((XCourseRequest)request); break;
+							}
+					}
+				}
+			}
+			return ret;
 		} finally {
 			lock.release();
 		}		
@@ -333,21 +380,8 @@ public class ReplicatedServer extends AbstractServer {
 	public void remove(XStudent student) {
 		Lock lock = writeLock();
 		try {
-			XStudent oldStudent = iStudentTable.remove(student.getStudentId());
-			if (oldStudent != null) {
-				for (XRequest request: oldStudent.getRequests())
-					if (request instanceof XCourseRequest)
-						for (XCourseId course: ((XCourseRequest)request).getCourseIds()) {
-							Set<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-							if (requests != null) {
-								if (!requests.remove(request))
-									iLog.warn("REMOVE[1]: Request " + student + " " + request + " was not present in the offering requests table for " + course);
-								iOfferingRequests.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(course.getOfferingId(), requests);
-							} else {
-								iLog.warn("REMOVE[2]: Request " + student + " " + request + " was not present in the offering requests table for " + course);
-							}
-						}
-			}
+			iStudentTable.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).remove(student.getStudentId());
+			indexLocal(student.getStudentId(), null);
 		} finally {
 			lock.release();
 		}
@@ -357,35 +391,8 @@ public class ReplicatedServer extends AbstractServer {
 	public void update(XStudent student, boolean updateRequests) {
 		Lock lock = writeLock();
 		try {
-			if (updateRequests) {
-				XStudent oldStudent = iStudentTable.get(student.getStudentId());
-				iStudentTable.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(student.getStudentId(), student);
-				if (oldStudent != null) {
-					for (XRequest request: oldStudent.getRequests())
-						if (request instanceof XCourseRequest)
-							for (XCourseId course: ((XCourseRequest)request).getCourseIds()) {
-								Set<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-								if (requests != null) {
-									if (!requests.remove(request))
-										iLog.warn("UPDATE[1]: Request " + student + " " + request + " was not present in the offering requests table for " + course);
-									iOfferingRequests.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(course.getOfferingId(), requests);
-								} else {
-									iLog.warn("UPDATE[2]: Request " + student + " " + request + " was not present in the offering requests table for " + course);
-								}
-							}
-				}
-				for (XRequest request: student.getRequests())
-					if (request instanceof XCourseRequest)
-						for (XCourseId course: ((XCourseRequest)request).getCourseIds()) {
-							Set<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-							if (requests == null)
-								requests = new HashSet<XCourseRequest>();
-							requests.add((XCourseRequest)request);
-							iOfferingRequests.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(course.getOfferingId(), requests);
-						}
-			} else {
-				iStudentTable.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(student.getStudentId(), student);
-			}
+			iStudentTable.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(student.getStudentId(), student);
+			indexLocal(student.getStudentId(), student);
 		} finally {
 			lock.release();
 		}
@@ -472,8 +479,8 @@ public class ReplicatedServer extends AbstractServer {
 			iOfferingTable.clear();
 			iCourseForId.clear();
 			iCourseForName.clear();
-			iOfferingRequests.clear();
 			iInstructedOfferings.clear();
+			clearOfferingRequests();
 		} finally {
 			lock.release();
 		}
@@ -484,7 +491,7 @@ public class ReplicatedServer extends AbstractServer {
 		Lock lock = writeLock();
 		try {
 			iStudentTable.clear();
-			iOfferingRequests.clear();
+			clearOfferingRequests();
 		} finally {
 			lock.release();
 		}
@@ -499,42 +506,15 @@ public class ReplicatedServer extends AbstractServer {
 				if (r.equals(request)) {
 					XCourseRequest cr = (XCourseRequest)r;
 
-					// remove old requests
-					for (XCourseId course: cr.getCourseIds()) {
-						Set<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-						if (requests != null) {
-							if (!requests.remove(cr))
-								iLog.warn("ASSIGN[1]: Request " + student + " " + request + " was not present in the offering requests table for " + course);
-							iOfferingRequests.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(course.getOfferingId(), requests);
-						} else {
-							iLog.warn("ASSIGN[2]: Request " + student + " " + request + " was not present in the offering requests table for " + course);
-						}
-					}
-
 					// assign
 					cr.setEnrollment(enrollment);
 					
-					// put new requests
-					for (XCourseId course: cr.getCourseIds()) {
-						Set<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-						if (requests == null)
-							requests = new HashSet<XCourseRequest>();
-						requests.add(cr);
-						iOfferingRequests.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(course.getOfferingId(), requests);
-					}
-					
 					iStudentTable.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(student.getStudentId(), student);
+					indexLocal(student.getStudentId(), student);
 					return cr;
 				}
 			}
 			iLog.warn("ASSIGN[3]: Request " + student + " " + request + " was not found among student requests");
-			for (XCourseId course: request.getCourseIds()) {
-				Set<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-				if (requests != null) {
-					requests.remove(request);
-					iOfferingRequests.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(course.getOfferingId(), requests);
-				}
-			}
 			return null;
 		} finally {
 			lock.release();
@@ -550,49 +530,137 @@ public class ReplicatedServer extends AbstractServer {
 				if (r.equals(request)) {
 					XCourseRequest cr = (XCourseRequest)r;
 
-					// remove old requests
-					for (XCourseId course: cr.getCourseIds()) {
-						Set<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-						if (requests != null) {
-							if (!requests.remove(cr))
-								iLog.warn("WAITLIST[1]: Request " + student + " " + request + " was not present in the offering requests table for " + course);
-							iOfferingRequests.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(course.getOfferingId(), requests);
-						} else {
-							iLog.warn("WAITLIST[2]: Request " + student + " " + request + " was not present in the offering requests table for " + course);
-						}
-					}
-
 					// assign
 					cr.setWaitlist(waitlist);
 					cr.setWaitListedTimeStamp(request.getWaitListedTimeStamp());
 					cr.setWaitListSwapWithCourseOffering(request.getWaitListSwapWithCourseOffering());
 					
-					// put new requests
-					for (XCourseId course: cr.getCourseIds()) {
-						Set<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-						if (requests == null)
-							requests = new HashSet<XCourseRequest>();
-						iOfferingRequests.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(course.getOfferingId(), requests);
-					}
-					
 					iStudentTable.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(student.getStudentId(), student);
+					indexLocal(student.getStudentId(), student);
 					return cr;
 				}
 			}
 			iLog.warn("WAITLIST[3]: Request " + student + " " + request + " was not found among student requests");
-			for (XCourseId course: request.getCourseIds()) {
-				Set<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
-				if (requests != null) {
-					requests.remove(request);
-					iOfferingRequests.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(course.getOfferingId(), requests);
-				}
-			}
 			return null;
 		} finally {
 			lock.release();
 		}
 	}
 
+	/**
+	 * Update the local offering requests index with the given student (null when the student was removed).
+	 * When called within a transaction, the index is only updated once the transaction is committed, so that other transactions
+	 * do not see uncommitted changes (the current transaction sees its own changes, see {@link #getRequests(Long)}).
+	 */
+	private void indexLocal(Long studentId, XStudent student) {
+		if (inTransaction()) {
+			try {
+				final Transaction tx = getTransactionManager().getTransaction();
+				Map<Long, XStudent> pending = iPendingStudents.get(tx);
+				if (pending == null) {
+					final Map<Long, XStudent> students = new HashMap<Long, XStudent>();
+					tx.registerSynchronization(new Synchronization() {
+						@Override
+						public void beforeCompletion() {}
+						
+						@Override
+						public void afterCompletion(int status) {
+							iPendingStudents.remove(tx);
+							if (status == Status.STATUS_COMMITTED)
+								for (Map.Entry<Long, XStudent> e: students.entrySet())
+									index(e.getKey(), e.getValue());
+						}
+					});
+					iPendingStudents.put(tx, students);
+					pending = students;
+				}
+				pending.put(studentId, student);
+				return;
+			} catch (Exception e) {
+				iLog.warn("Failed to register transaction synchronization: " + e.getMessage(), e);
+			}
+		}
+		index(studentId, student);
+	}
+	
+	/**
+	 * Students changed by the current transaction that are not yet in the local offering requests index, null when not in a transaction
+	 */
+	private Map<Long, XStudent> getPendingStudents() {
+		if (iPendingStudents.isEmpty() || !inTransaction()) return null;
+		try {
+			return iPendingStudents.get(getTransactionManager().getTransaction());
+		} catch (SystemException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Replace the course requests of the given student in the local offering requests index.
+	 * Only the student table is replicated, the per-offering request sets are materialized locally on each node.
+	 */
+	protected void index(Long studentId, XStudent student) {
+		synchronized (iIndexedRequests) {
+			Map<Long, List<XCourseRequest>> old = iIndexedRequests.remove(studentId);
+			if (old != null)
+				for (Map.Entry<Long, List<XCourseRequest>> e: old.entrySet()) {
+					Set<XCourseRequest> requests = iOfferingRequests.get(e.getKey());
+					if (requests != null)
+						synchronized (requests) {
+							requests.removeAll(e.getValue());
+						}
+				}
+			if (student == null) return;
+			Map<Long, List<XCourseRequest>> indexed = new HashMap<Long, List<XCourseRequest>>();
+			for (XRequest request: student.getRequests()) {
+				if (request instanceof XCourseRequest) {
+					XCourseRequest cr = (XCourseRequest)request;
+					for (XCourseId course: cr.getCourseIds()) {
+						List<XCourseRequest> list = indexed.get(course.getOfferingId());
+						if (list == null) {
+							list = new ArrayList<XCourseRequest>();
+							indexed.put(course.getOfferingId(), list);
+						}
+						list.add(cr);
+						Set<XCourseRequest> requests = iOfferingRequests.get(course.getOfferingId());
+						if (requests == null) {
+							requests = new HashSet<XCourseRequest>();
+							iOfferingRequests.put(course.getOfferingId(), requests);
+						}
+						synchronized (requests) {
+							requests.add(cr);
+						}
+					}
+				}
+			}
+			iIndexedRequests.put(studentId, indexed);
+		}
+	}
+	
+	/**
+	 * Clear the offering requests index on all the nodes (clearing the student table does not fire any entry events)
+	 */
+	private void clearOfferingRequests() {
+		clearLocalOfferingRequests();
+		try {
+			DistributedExecutorService ex = new DefaultExecutorService(iStudentTable);
+			List<Future<Boolean>> futures = ex.submitEverywhere(new ClearOfferingRequestsCallable(getAcademicSession().getUniqueId()));
+			for (Future<Boolean> future: futures)
+				future.get();
+		} catch (InterruptedException e) {
+			throw new SectioningException(e.getMessage(), e);
+		} catch (ExecutionException e) {
+			throw new SectioningException(e.getCause().getMessage(), e.getCause());
+		}
+	}
+	
+	protected void clearLocalOfferingRequests() {
+		synchronized (iIndexedRequests) {
+			iIndexedRequests.clear();
+			iOfferingRequests.clear();
+		}
+	}
+	
 	private static OnlineSectioningServer getLocalServer(Long sessionId) {
 		SolverServer server = SolverServerImplementation.getInstance();
 		return server == null ? null : server.getOnlineStudentSchedulingContainer().getSolver(sessionId.toString());
@@ -683,6 +751,55 @@ public class ReplicatedServer extends AbstractServer {
 			return ret;
 		}
 	}
+	
+	public static class ClearOfferingRequestsCallable implements DistributedCallable<Long, XStudent, Boolean>, Serializable {
+		private static final long serialVersionUID = 1L;
+		private Long iSessionId;
+		
+		public ClearOfferingRequestsCallable(Long sessionId) {
+			iSessionId = sessionId;
+		}
+		
+		@Override
+		public void setEnvironment(Cache<Long, XStudent> cache, Set<Long> inputKeys) {
+		}
+
+		@Override
+		public Boolean call() throws Exception {
+			OnlineSectioningServer server = getLocalServer(iSessionId);
+			if (server != null && server instanceof ReplicatedServer) {
+				((ReplicatedServer)server).clearLocalOfferingRequests();
+				return true;
+			}
+			return false;
+		}
+	}
+	
+	/**
+	 * Keeps the local offering requests index up to date with the student changes made on the other nodes
+	 * (local changes are indexed directly).
+	 */
+	@Listener(sync = true)
+	public class StudentTableListener {
+		
+		@CacheEntryCreated
+		public void created(CacheEntryCreatedEvent<Long, XStudent> event) {
+			if (!event.isPre() && !event.isOriginLocal())
+				index(event.getKey(), event.getValue());
+		}
+		
+		@CacheEntryModified
+		public void modified(CacheEntryModifiedEvent<Long, XStudent> event) {
+			if (!event.isPre() && !event.isOriginLocal())
+				index(event.getKey(), event.getValue());
+		}
+		
+		@CacheEntryRemoved
+		public void removed(CacheEntryRemovedEvent<Long, XStudent> event) {
+			if (!event.isPre() && !event.isOriginLocal())
+				index(event.getKey(), null);
+		}
+	}
 
 	@Override
 	public Lock readLock() {
@@ -729,6 +846,52 @@ public class ReplicatedServer extends AbstractServer {
 		return readLock();
 	}
 
+	/**
+	 * Lock the given ids (offering ids and negative student ids). When the cluster lock service is available, the locks are taken from it (see {@link ReplicatedServerLocks}).
+	 * Otherwise, the ids are eagerly locked in the current transaction, retrying with an exponential backoff.
+	 * @param lock transaction lock (see {@link #writeLock()}), to be released together with the returned lock
+	 * @throws SectioningException when the locks cannot be acquired within the lock timeout
+	 */
+	private Lock lock(final Lock lock, Set<Long> ids, String actionName, String name) throws Exception {
+		if (ids.isEmpty()) return lock;
+		long timeout = getConfig().getPropertyLong(actionName + ".LockTimeout", getConfig().getPropertyLong("LockTimeout", 60000l));
+		
+		if (iLocks != null && getConfig().getPropertyBoolean("ClusterLocks", true)) {
+			final Lock clusterLock = iLocks.lock(ids, timeout, name);
+			return new Lock() {
+				public void release() {
+					try {
+						lock.release();
+					} finally {
+						clusterLock.release();
+					}
+				}
+			};
+		}
+		
+		if (!inTransaction()) {
+			iLog.warn("Failed to lock " + name + ": No transaction has been started.");
+			return lock;
+		}
+		if (isOptimisticLocking()) {
+			iLog.warn("Failed to lock " + name + ": No eager locks in optimistic locking.");
+			return lock;
+		}
+		
+		long deadline = System.currentTimeMillis() + timeout;
+		long delay = 10;
+		while (!iOfferingLocks.getAdvancedCache().withFlags(Flag.FAIL_SILENTLY).lock(ids)) {
+			if (System.currentTimeMillis() + delay > deadline) {
+				iLog.warn("Failed to lock " + name + ": Timeout after " + timeout + " ms.");
+				throw new SectioningException("The course or the student is being updated by someone else, please try again later.");
+			}
+			iLog.info("Failed to lock " + name + ", retrying in " + delay + " ms...");
+			Thread.sleep(delay + (long)(Math.random() * delay));
+			delay = Math.min(2 * delay, 1000);
+		}
+		return lock;
+	}
+
 	@Override
 	public Lock lockStudent(Long studentId, Collection<Long> offeringIds, String actionName) {
 		boolean lockStudents = getConfig().getPropertyBoolean(actionName + ".LockStudents", true);
@@ -736,15 +899,6 @@ public class ReplicatedServer extends AbstractServer {
 		boolean excludeLockedOfferings = lockOfferings && getConfig().getPropertyBoolean(actionName + ".ExcludeLockedOfferings", true);
 		Lock lock = writeLock();
 		try {
-			if (!inTransaction()) {
-				iLog.warn("Failed to lock a student " + studentId + ": No transaction has been started.");
-				return lock;
-			}
-			if (isOptimisticLocking()) {
-				iLog.warn("Failed to lock a student " + studentId + ": No eager locks in optimistic locking.");
-				return lock;
-			}
-
 			Set<Long> ids = new HashSet<Long>();
 
 			if (lockStudents) {
@@ -768,11 +922,10 @@ public class ReplicatedServer extends AbstractServer {
 					}
 			}
 			
-			while (!iOfferingLocks.getAdvancedCache().withFlags(Flag.FAIL_SILENTLY).lock(ids)) {
-				iLog.info("Failed to lock a student " + studentId + ", retrying...");
-			}
-			
-			return lock;
+			return lock(lock, ids, actionName, "a student " + studentId);
+		} catch (SectioningException e) {
+			lock.release();
+			throw e;
 		} catch (Exception e) {
 			lock.release();
 			throw new SectioningException("Failed to lock a student: " + e.getMessage(), e);
@@ -786,14 +939,6 @@ public class ReplicatedServer extends AbstractServer {
 		boolean excludeLockedOffering = lockOfferings && getConfig().getPropertyBoolean(actionName + ".ExcludeLockedOfferings", true);
 		Lock lock = writeLock();
 		try {
-			if (!inTransaction()) {
-				iLog.warn("Failed to lock an offering " + offeringId + ": No transaction has been started.");
-				return lock;
-			}
-			if (isOptimisticLocking()) {
-				iLog.warn("Failed to lock an offering " + offeringId + ": No eager locks in optimistic locking.");
-				return lock;
-			}
 			Set<Long> ids = new HashSet<Long>();
 			
 			if (lockOfferings) {
@@ -813,11 +958,10 @@ public class ReplicatedServer extends AbstractServer {
 				}
 			}
 			
-			while (!iOfferingLocks.getAdvancedCache().withFlags(Flag.FAIL_SILENTLY).lock(ids)) {
-				iLog.info("Failed to lock an offering " + offeringId + ", retrying...");
-			}
-			
-			return lock;
+			return lock(lock, ids, actionName, "an offering " + offeringId);
+		} catch (SectioningException e) {
+			lock.release();
+			throw e;
 		} catch (Exception e) {
 			lock.release();
 			throw new SectioningException("Failed to lock an offering: " + e.getMessage(), e);
@@ -837,14 +981,6 @@ public class ReplicatedServer extends AbstractServer {
 		boolean excludeLockedOffering = lockOfferings && getConfig().getPropertyBoolean(actionName + ".ExcludeLockedOfferings", true);
 		Lock lock = writeLock();
 		try {
-			if (!inTransaction()) {
-				iLog.warn("Failed to lock a request for student " + request.getStudentId() + ": No transaction has been started.");
-				return lock;
-			}
-			if (isOptimisticLocking()) {
-				iLog.warn("Failed to lock a request for student " + request.getStudentId() + ": No eager locks in optimistic locking.");
-				return lock;
-			}
 			Set<Long> ids = new HashSet<Long>();
 			
 			if (lockStudents) {
@@ -882,11 +1018,10 @@ public class ReplicatedServer extends AbstractServer {
 				}				
 			}
 			
-			while (!iOfferingLocks.getAdvancedCache().withFlags(Flag.FAIL_SILENTLY).lock(ids)) {
-				iLog.info("Failed to lock a request for student " + request.getStudentId() + ", retrying...");
-			}
-
-			return lock;
+			return lock(lock, ids, actionName, "a request for student " + request.getStudentId());
+		} catch (SectioningException e) {
+			lock.release();
+			throw e;
 		} catch (Exception e) {
 			lock.release();
 			throw new SectioningException("Failed to lock a request: " + e.getMessage(), e);
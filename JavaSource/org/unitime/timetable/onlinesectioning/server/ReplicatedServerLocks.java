@@ -0,0 +1,209 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.onlinesectioning.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+import org.apache.commons.logging.Log;
+import org.jgroups.blocks.locking.LockService;
+import org.unitime.timetable.gwt.shared.SectioningException;
+import org.unitime.timetable.onlinesectioning.OnlineSectioningServer;
+
+/**
+ * Cluster-wide student and offering locks of the {@link ReplicatedServer}, built on the JGroups lock service.<br>
+ * The locks of a request are acquired in the order of their ids, so that two requests with overlapping locks cannot deadlock, and
+ * a waiting request is queued by the lock service instead of retrying. A request that does not get all its locks within the given
+ * timeout gets none of them. The locks are re-entrant within a thread and must be released by the thread that acquired them.
+ * Contention and wait times are tracked for each lock (see {@link #getStatistics(int)}).
+ *
+ * @author Tomas Muller
+ */
+public class ReplicatedServerLocks {
+	private Log iLog;
+	private LockService iLockService;
+	private String iPrefix;
+	private long iSlowWait;
+	private ConcurrentHashMap<Long, LockStatistics> iStatistics = new ConcurrentHashMap<Long, LockStatistics>();
+	private ThreadLocal<Map<Long, HeldLock>> iHeldLocks = new ThreadLocal<Map<Long, HeldLock>>() {
+		@Override
+		protected Map<Long, HeldLock> initialValue() {
+			return new HashMap<Long, HeldLock>();
+		}
+	};
+
+	/**
+	 * @param prefix lock name prefix (e.g., academic session)
+	 * @param slowWait waits longer than the given number of milliseconds are logged
+	 */
+	public ReplicatedServerLocks(LockService lockService, String prefix, long slowWait, Log log) {
+		iLockService = lockService;
+		iPrefix = prefix;
+		iSlowWait = slowWait;
+		iLog = log;
+	}
+
+	/**
+	 * Lock the given ids (offering ids, negative student ids)
+	 * @param timeout maximal time to wait for all the locks in milliseconds
+	 * @param name what is being locked (for logging)
+	 * @throws SectioningException when the locks cannot be acquired in time
+	 */
+	public OnlineSectioningServer.Lock lock(Collection<Long> ids, long timeout, String name) throws SectioningException {
+		final List<Long> acquired = new ArrayList<Long>();
+		Map<Long, HeldLock> held = iHeldLocks.get();
+		long deadline = System.currentTimeMillis() + timeout;
+		try {
+			for (Long id: new TreeSet<Long>(ids)) {
+				HeldLock h = held.get(id);
+				if (h != null) {
+					h.iCount ++;
+					acquired.add(id);
+					continue;
+				}
+				Lock lock = iLockService.getLock(iPrefix + ":" + id);
+				long t0 = System.currentTimeMillis();
+				boolean contended = false;
+				if (!lock.tryLock()) {
+					contended = true;
+					long remaining = deadline - t0;
+					if (remaining <= 0 || !lock.tryLock(remaining, TimeUnit.MILLISECONDS)) {
+						getStatistics(id).timeout(System.currentTimeMillis() - t0);
+						iLog.warn("Failed to lock " + name + ": " + label(id) + " is still locked after " + timeout + " ms.");
+						throw new SectioningException("The " + (id < 0 ? "student" : "course") + " is being updated by someone else, please try again later.");
+					}
+				}
+				long wait = System.currentTimeMillis() - t0;
+				getStatistics(id).acquired(contended, wait);
+				if (wait >= iSlowWait)
+					iLog.info("Locking " + name + " waited " + wait + " ms for " + label(id) + ".");
+				held.put(id, new HeldLock(lock));
+				acquired.add(id);
+			}
+		} catch (InterruptedException e) {
+			release(acquired);
+			throw new SectioningException("Failed to lock " + name + ": " + e.getMessage(), e);
+		} catch (RuntimeException e) {
+			release(acquired);
+			throw e;
+		}
+		return new OnlineSectioningServer.Lock() {
+			@Override
+			public void release() {
+				ReplicatedServerLocks.this.release(acquired);
+			}
+		};
+	}
+
+	private void release(List<Long> ids) {
+		Map<Long, HeldLock> held = iHeldLocks.get();
+		for (int i = ids.size() - 1; i >= 0; i--) {
+			Long id = ids.get(i);
+			HeldLock h = held.get(id);
+			if (h == null) continue;
+			if (--h.iCount == 0) {
+				held.remove(id);
+				h.iLock.unlock();
+			}
+		}
+	}
+
+	private static String label(Long id) {
+		return (id < 0 ? "student " + (-id) : "offering " + id);
+	}
+
+	private LockStatistics getStatistics(Long id) {
+		LockStatistics stats = iStatistics.get(id);
+		if (stats == null) {
+			stats = new LockStatistics();
+			LockStatistics old = iStatistics.putIfAbsent(id, stats);
+			if (old != null) stats = old;
+		}
+		return stats;
+	}
+
+	/**
+	 * Lock contention report: the given number of contended locks with the longest total wait time
+	 */
+	public String getStatistics(int limit) {
+		List<Map.Entry<Long, LockStatistics>> entries = new ArrayList<Map.Entry<Long, LockStatistics>>(iStatistics.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<Long, LockStatistics>>() {
+			@Override
+			public int compare(Map.Entry<Long, LockStatistics> e1, Map.Entry<Long, LockStatistics> e2) {
+				int cmp = Long.compare(e2.getValue().iTotalWait.get(), e1.getValue().iTotalWait.get());
+				if (cmp != 0) return cmp;
+				return Long.compare(e2.getValue().iContended.get(), e1.getValue().iContended.get());
+			}
+		});
+		StringBuffer ret = new StringBuffer();
+		for (Map.Entry<Long, LockStatistics> e: entries) {
+			if (e.getValue().iContended.get() == 0 && e.getValue().iTimeouts.get() == 0) continue;
+			if (limit-- <= 0) break;
+			ret.append("\n  " + label(e.getKey()) + ": " + e.getValue());
+		}
+		return ret.toString();
+	}
+
+	private static class HeldLock {
+		private Lock iLock;
+		private int iCount = 1;
+
+		private HeldLock(Lock lock) { iLock = lock; }
+	}
+
+	private static class LockStatistics {
+		private AtomicLong iAcquired = new AtomicLong(0), iContended = new AtomicLong(0), iTimeouts = new AtomicLong(0);
+		private AtomicLong iTotalWait = new AtomicLong(0), iMaxWait = new AtomicLong(0);
+
+		private void acquired(boolean contended, long wait) {
+			iAcquired.incrementAndGet();
+			if (contended) iContended.incrementAndGet();
+			waited(wait);
+		}
+
+		private void timeout(long wait) {
+			iTimeouts.incrementAndGet();
+			waited(wait);
+		}
+
+		private void waited(long wait) {
+			iTotalWait.addAndGet(wait);
+			long max = iMaxWait.get();
+			while (wait > max && !iMaxWait.compareAndSet(max, wait))
+				max = iMaxWait.get();
+		}
+
+		@Override
+		public String toString() {
+			return iAcquired.get() + " acquired, " + iContended.get() + " contended, " + iTimeouts.get() + " timeouts, " +
+					"wait " + iTotalWait.get() + " ms total, " + iMaxWait.get() + " ms max";
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.onlinesectioning.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.cpsolver.coursett.model.Lecture;
+import org.cpsolver.coursett.model.Placement;
+import org.cpsolver.coursett.model.RoomLocation;
+import org.cpsolver.coursett.model.TimeLocation;
+import org.unitime.timetable.onlinesectioning.OnlineSectioningServer;
+import org.unitime.timetable.onlinesectioning.model.XConfig;
+import org.unitime.timetable.onlinesectioning.model.XDistribution;
+import org.unitime.timetable.onlinesectioning.model.XDistributionType;
+import org.unitime.timetable.onlinesectioning.model.XOffering;
+import org.unitime.timetable.onlinesectioning.model.XRoom;
+import org.unitime.timetable.onlinesectioning.model.XSection;
+import org.unitime.timetable.onlinesectioning.model.XSubpart;
+
+/**
+ * Parts of an offering that do not depend on the enrollments or on the student, computed once and shared by all the
+ * sectioning models that are created from the offering (see {@link FindAssignmentAction#clone}).
+ * These are the class placements (time and rooms) and the classes with which a conflict is to be ignored.<br>
+ * Templates are kept by the server (see {@link OnlineSectioningServer#getOfferingTemplate(XOffering)}), keyed by the offering id
+ * and the offering version, so that a template is replaced as soon as the offering changes.
+ *
+ * @author Tomas Muller
+ */
+public class OfferingTemplate {
+	private Long iOfferingId;
+	private Long iVersion;
+	private Map<Long, Placement> iPlacements = new HashMap<Long, Placement>();
+	private Map<Long, Set<Long>> iIgnoreConflicts = new HashMap<Long, Set<Long>>();
+
+	public OfferingTemplate(XOffering offering, Long version) {
+		iOfferingId = offering.getOfferingId();
+		iVersion = version;
+		for (XConfig config: offering.getConfigs())
+			for (XSubpart subpart: config.getSubparts())
+				for (XSection section: subpart.getSections()) {
+					if (section.getTime() != null) {
+	                    List<RoomLocation> rooms = new ArrayList<RoomLocation>();
+	                    for (XRoom r: section.getRooms())
+	                    	rooms.add(new RoomLocation(r.getUniqueId(), r.getName(), null, 0, 0, r.getX(), r.getY(), r.getIgnoreTooFar(), null));
+	                    TimeLocation time = new TimeLocation(section.getTime().getDays(), section.getTime().getSlot(), section.getTime().getLength(), 0, 0.0,
+                				section.getTime().getDatePatternId(), section.getTime().getDatePatternName(), section.getTime().getWeeks(),
+                				section.getTime().getBreakTime());
+	                    // initialize lazily computed values before the placement is shared between threads
+	                    time.getDaysArray();
+	                    Placement placement = new Placement(
+	                    		new Lecture(section.getSectionId(), null, section.getSubpartId(), section.getName(), new ArrayList<TimeLocation>(), new ArrayList<RoomLocation>(), section.getNrRooms(), null, section.getLimit(), section.getLimit(), 1.0),
+	                    		time, rooms);
+	                    iPlacements.put(section.getSectionId(), placement);
+					}
+					Set<Long> ignore = null;
+					for (XDistribution distribution: offering.getDistributions())
+						if (distribution.getDistributionType() == XDistributionType.IngoreConflicts && distribution.hasSection(section.getSectionId()))
+							for (Long id: distribution.getSectionIds())
+								if (!id.equals(section.getSectionId())) {
+									if (ignore == null) ignore = new TreeSet<Long>();
+									ignore.add(id);
+								}
+					if (ignore != null)
+						iIgnoreConflicts.put(section.getSectionId(), Collections.unmodifiableSet(ignore));
+				}
+	}
+
+	public Long getOfferingId() { return iOfferingId; }
+
+	/**
+	 * Offering version the template was created for (see {@link OnlineSectioningServer#getOfferingVersion(Long)})
+	 */
+	public Long getVersion() { return iVersion; }
+
+	/**
+	 * Placement of a class, null if the class has no time
+	 */
+	public Placement getPlacement(Long sectionId) { return iPlacements.get(sectionId); }
+
+	/**
+	 * Classes with which a conflict is to be ignored
+	 */
+	public Set<Long> getIgnoreConflictWith(Long sectionId) {
+		Set<Long> ignore = iIgnoreConflicts.get(sectionId);
+		return (ignore == null ? Collections.<Long>emptySet() : ignore);
+	}
+}
@@ -28,6 +28,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -92,6 +94,7 @@ public class FindEnrollmentInfoAction implements OnlineSectioningAction<List<Enr
 	protected Set<String> iSubjectAreas;
 	protected boolean iShowUnmatchedClasses = true;
 	protected boolean iShowUnmatchedCourses = true;
+	protected boolean iUnfilteredQuery = false;
 	
 	public FindEnrollmentInfoAction withParams(String query, Long courseId, Set<Long> coursesIcoordinage, Set<Long> coursesIcanApprove, Set<Long> myStudents, Set<String> subjects) {
 		iQuery = new Query(query);
@@ -104,6 +107,7 @@ public class FindEnrollmentInfoAction implements OnlineSectioningAction<List<Enr
 		if (m.find()) {
 			iLimit = Integer.parseInt(m.group(1));
 		}
+		iUnfilteredQuery = query.replaceAll("(?i)limit:[ ]?[0-9]*", "").trim().isEmpty();
 		return this;
 	}
 	
@@ -145,6 +149,20 @@ public class FindEnrollmentInfoAction implements OnlineSectioningAction<List<Enr
 		return iSubjectAreas == null || iSubjectAreas.contains(subject);
 	}
 	
+	/**
+	 * True if there is no query or student filter (besides of the limit), so that all the course requests of a course are counted.
+	 * The course counts can be cached between the calls in this case.
+	 */
+	public boolean isUnfiltered() {
+		if (!iUnfilteredQuery) return false;
+		if (iFilter == null) return true;
+		if (iFilter.hasText()) return false;
+		if (iFilter.getOptions() != null)
+			for (String option: iFilter.getOptions().keySet())
+				if (!"online".equals(option) && !"user".equals(option) && !"role".equals(option)) return false;
+		return true;
+	}
+	
 	Map<Long, Integer> getClassSnapshots(Long courseId, OnlineSectioningHelper helper) {
 		Map<Long, Integer> ret = new HashMap<Long, Integer>();
 		for (Object[] o: (List<Object[]>)helper.getHibSession().createQuery(
@@ -220,6 +238,9 @@ public class FindEnrollmentInfoAction implements OnlineSectioningAction<List<Enr
 			int gtEnrl = 0, gtWait = 0, gtRes = 0, gtUnasg = 0, gtUnasgPrim = 0, gtNoSub = 0, gtSwap = 0;
 			int gConNeed = 0, gtConNeed = 0, gOvrNeed = 0, gtOvrNeed = 0;
 			
+			EnrollmentAggregates aggregates = (!solver && isUnfiltered() ? EnrollmentAggregates.getInstance(server) : null);
+			String aggregatesKey = (aggregates == null ? null : EnrollmentAggregates.getKey(session.getDefaultSectioningStatus(), wlStates, noSubStates));
+			
 			Collection<? extends XCourseId> courses = server.findCourses(new FindEnrollmentInfoCourseMatcher(iCoursesIcoordinate, iCoursesIcanApprove, iSubjectAreas, iQuery, lookup, server));
 			Map<Long, Integer> snapshots = getOfferingSnapshots(courses, helper);
 			for (XCourseId info: courses) {
@@ -227,7 +248,9 @@ public class FindEnrollmentInfoAction implements OnlineSectioningAction<List<Enr
 				if (offering == null) continue;
 				XCourse course = offering.getCourse(info.getCourseId());
 				if (course == null) continue;
-				XEnrollments enrollments = server.getEnrollments(info.getOfferingId());
+				Long version = (aggregates == null ? null : server.getOfferingVersion(info.getOfferingId()));
+				CourseAggregate cached = (version == null ? null : aggregates.get(info.getCourseId(), version, aggregatesKey));
+				XEnrollments enrollments = (cached == null ? server.getEnrollments(info.getOfferingId()) : null);
 				boolean isConsentToDoCourse = isConsentToDoCourse(course);
 				EnrollmentInfo e = new EnrollmentInfo();
 				e.setCourseId(info.getCourseId());
@@ -244,107 +267,167 @@ public class FindEnrollmentInfoAction implements OnlineSectioningAction<List<Enr
 				int conNeed = 0, tConNeed = 0, ovrNeed = 0, tOvrNeed = 0;
 				
 				Set<Long> addedStudents = new HashSet<Long>();
-				boolean checkOverrides = !query().hasAttribute("override");
-				for (XCourseRequest request: enrollments.getRequests()) {
-					if (!request.hasCourse(info.getCourseId())) continue;
-					if (students.add(request.getStudentId()))
-						addedStudents.add(request.getStudentId());
-					if (request.getEnrollment() != null && !request.getEnrollment().getCourseId().equals(info.getCourseId())) continue;
-					if (checkOverrides && request.getEnrollment() == null) {
-						XOverride override = request.getOverride(info);
-						if (override != null && !override.isApproved() && !override.isNotNeeded()) continue;
+				Set<Long> courseStudents = null, courseMatchingStudents = null;
+				if (cached != null) {
+					int[] c = cached.getCounts();
+					enrl = c[0]; wait = c[1]; res = c[2]; unasg = c[3]; unasgPrim = c[4]; noSub = c[5]; swap = c[6];
+					tEnrl = c[7]; tWait = c[8]; tRes = c[9]; tUnasg = c[10]; tUnasgPrim = c[11]; tNoSub = c[12]; tSwap = c[13];
+					conNeed = c[14]; tConNeed = c[15]; ovrNeed = c[16]; tOvrNeed = c[17]; match = c[18];
+					for (Long studentId: cached.getStudents())
+						if (students.add(studentId))
+							addedStudents.add(studentId);
+					matchingStudents.addAll(cached.getMatchingStudents());
+				} else {
+					if (version != null) {
+						courseStudents = new HashSet<Long>();
+						courseMatchingStudents = new HashSet<Long>();
 					}
+					boolean checkOverrides = !query().hasAttribute("override");
+					for (XCourseRequest request: enrollments.getRequests()) {
+						if (!request.hasCourse(info.getCourseId())) continue;
+						if (students.add(request.getStudentId()))
+							addedStudents.add(request.getStudentId());
+						if (courseStudents != null) courseStudents.add(request.getStudentId());
+						if (request.getEnrollment() != null && !request.getEnrollment().getCourseId().equals(info.getCourseId())) continue;
+						if (checkOverrides && request.getEnrollment() == null) {
+							XOverride override = request.getOverride(info);
+							if (override != null && !override.isApproved() && !override.isNotNeeded()) continue;
+						}
 					
-					XStudent student = server.getStudent(request.getStudentId());
-					if (student == null) continue;
+						XStudent student = server.getStudent(request.getStudentId());
+						if (student == null) continue;
 
-					String status = (student.getStatus() == null ? session.getDefaultSectioningStatus() : student.getStatus());
-					WaitListMode wl = WaitListMode.None;
-					if (defaultWL != null)
-						wl = defaultWL;
-					else if (status == null || wlStates.contains(status))
-						wl = WaitListMode.WaitList;
-					else if (noSubStates.contains(status))
-						wl = WaitListMode.NoSubs;
+						String status = (student.getStatus() == null ? session.getDefaultSectioningStatus() : student.getStatus());
+						WaitListMode wl = WaitListMode.None;
+						if (defaultWL != null)
+							wl = defaultWL;
+						else if (status == null || wlStates.contains(status))
+							wl = WaitListMode.WaitList;
+						else if (noSubStates.contains(status))
+							wl = WaitListMode.NoSubs;
 					
-					if (studentIds != null && !studentIds.contains(request.getStudentId())) {
-						if (request.getEnrollment() != null) {
-							tEnrl ++;
-							if (request.getEnrollment().getReservation() != null) tRes ++;
-							if (course.getConsentLabel() != null && request.getEnrollment().getApproval() == null) tConNeed ++;
-							if (request.isWaitlist(wl) && request.getEnrollment().equals(request.getWaitListSwapWithCourseOffering())) tSwap ++;
-						} else {
-							if (student != null && student.canAssign(request, wl)) {
-								tUnasg ++;
-								if (!request.isAlternative() && request.isPrimary(info)) {
-									tUnasgPrim ++;
-									if (request.isWaitlist(wl))
-										tWait ++;
-									if (request.isNoSub(wl))
-										tNoSub ++;
+						if (studentIds != null && !studentIds.contains(request.getStudentId())) {
+							if (request.getEnrollment() != null) {
+								tEnrl ++;
+								if (request.getEnrollment().getReservation() != null) tRes ++;
+								if (course.getConsentLabel() != null && request.getEnrollment().getApproval() == null) tConNeed ++;
+								if (request.isWaitlist(wl) && request.getEnrollment().equals(request.getWaitListSwapWithCourseOffering())) tSwap ++;
+							} else {
+								if (student != null && student.canAssign(request, wl)) {
+									tUnasg ++;
+									if (!request.isAlternative() && request.isPrimary(info)) {
+										tUnasgPrim ++;
+										if (request.isWaitlist(wl))
+											tWait ++;
+										if (request.isNoSub(wl))
+											tNoSub ++;
+									}
 								}
 							}
+							continue;
+						}
+					
+						CourseRequestMatcher m = new CourseRequestMatcher(session, course, student, offering, request, isConsentToDoCourse, isMyStudent(student), lookup, server, wl);
+						if (query().match(m)) {
+							matchingStudents.add(request.getStudentId());
+							if (courseMatchingStudents != null) courseMatchingStudents.add(request.getStudentId());
+							match++;
+							if (m.enrollment() != null) {
+								enrl ++;
+								if (m.enrollment().getReservation() != null) res ++;
+								if (course.getConsentLabel() != null && m.enrollment().getApproval() == null) conNeed ++;
+								if (m.request().isWaitlist(wl) && m.request().getEnrollment().equals(m.request().getWaitListSwapWithCourseOffering())) swap ++;
+							} else if (m.student().canAssign(m.request(), wl)) {
+								unasg ++;
+								if (!m.request().isAlternative() && m.request().isPrimary(info)) {
+									unasgPrim ++;
+									if (m.request().isWaitlist(wl))
+										wait ++;
+									if (m.request().isNoSub(wl))
+										noSub ++;
+								}
+							}
+							if (m.request().isOverridePending(course)) ovrNeed ++;
+						} else if (solver) {
+							if (request.getEnrollment() != null) {
+								tEnrl ++;
+								if (request.getEnrollment().getReservation() != null) tRes ++;
+								if (course.getConsentLabel() != null && request.getEnrollment().getApproval() == null) tConNeed ++;
+								if (request.isWaitlist(wl) && request.getEnrollment().equals(request.getWaitListSwapWithCourseOffering())) tSwap ++;
+							} else {
+								if (student != null && student.canAssign(request, wl)) {
+									tUnasg ++;
+									if (!request.isAlternative() && request.isPrimary(info)) {
+										tUnasgPrim ++;
+										if (request.isWaitlist(wl))
+											tWait ++;
+										if (request.isNoSub(wl))
+											tNoSub ++;
+									}
+								}
+							}
+							continue;
 						}
-						continue;
-					}
 					
-					CourseRequestMatcher m = new CourseRequestMatcher(session, course, student, offering, request, isConsentToDoCourse, isMyStudent(student), lookup, server, wl);
-					if (query().match(m)) {
-						matchingStudents.add(request.getStudentId());
-						match++;
 						if (m.enrollment() != null) {
-							enrl ++;
-							if (m.enrollment().getReservation() != null) res ++;
-							if (course.getConsentLabel() != null && m.enrollment().getApproval() == null) conNeed ++;
-							if (m.request().isWaitlist(wl) && m.request().getEnrollment().equals(m.request().getWaitListSwapWithCourseOffering())) swap ++;
+							tEnrl ++;
+							if (m.enrollment().getReservation() != null) tRes ++;
+							if (course.getConsentLabel() != null && m.enrollment().getApproval() == null) tConNeed ++;
+							if (m.request().isWaitlist(wl) && m.request().getEnrollment().equals(m.request().getWaitListSwapWithCourseOffering())) tSwap ++;
 						} else if (m.student().canAssign(m.request(), wl)) {
-							unasg ++;
+							tUnasg ++;
 							if (!m.request().isAlternative() && m.request().isPrimary(info)) {
-								unasgPrim ++;
+								tUnasgPrim ++;
 								if (m.request().isWaitlist(wl))
-									wait ++;
+									tWait ++;
 								if (m.request().isNoSub(wl))
-									noSub ++;
+									tNoSub ++;
 							}
 						}
-						if (m.request().isOverridePending(course)) ovrNeed ++;
-					} else if (solver) {
-						if (request.getEnrollment() != null) {
-							tEnrl ++;
-							if (request.getEnrollment().getReservation() != null) tRes ++;
-							if (course.getConsentLabel() != null && request.getEnrollment().getApproval() == null) tConNeed ++;
-							if (request.isWaitlist(wl) && request.getEnrollment().equals(request.getWaitListSwapWithCourseOffering())) tSwap ++;
+						if (m.request().isOverridePending(course)) tOvrNeed ++;
+					}
+				}
+				
+				int av = 0;
+				Integer other = null;
+				if (cached != null) {
+					av = cached.getAvailable();
+					other = cached.getOther();
+				} else {
+					int limit = 0;
+					for (XConfig config: offering.getConfigs()) {
+						if (config.getLimit() < 0) {
+							limit = -1; break;
 						} else {
-							if (student != null && student.canAssign(request, wl)) {
-								tUnasg ++;
-								if (!request.isAlternative() && request.isPrimary(info)) {
-									tUnasgPrim ++;
-									if (request.isWaitlist(wl))
-										tWait ++;
-									if (request.isNoSub(wl))
-										tNoSub ++;
-								}
-							}
+							limit += config.getLimit();
 						}
-						continue;
 					}
-					
-					if (m.enrollment() != null) {
-						tEnrl ++;
-						if (m.enrollment().getReservation() != null) tRes ++;
-						if (course.getConsentLabel() != null && m.enrollment().getApproval() == null) tConNeed ++;
-						if (m.request().isWaitlist(wl) && m.request().getEnrollment().equals(m.request().getWaitListSwapWithCourseOffering())) tSwap ++;
-					} else if (m.student().canAssign(m.request(), wl)) {
-						tUnasg ++;
-						if (!m.request().isAlternative() && m.request().isPrimary(info)) {
-							tUnasgPrim ++;
-							if (m.request().isWaitlist(wl))
-								tWait ++;
-							if (m.request().isNoSub(wl))
-								tNoSub ++;
+					av = (int)Math.max(0, offering.getUnreservedSpace(enrollments));
+					if (course.getLimit() >= 0 && av > course.getLimit() - enrollments.countEnrollmentsForCourse(info.getCourseId()))
+						av = course.getLimit() - enrollments.countEnrollmentsForCourse(info.getCourseId());
+					if (av == Integer.MAX_VALUE) av = -1;
+					if (av >= 0) {
+						int otherEnrl = 0;
+						for (XCourse c: offering.getCourses())
+							if (!c.equals(course))
+								otherEnrl += enrollments.countEnrollmentsForCourse(c.getCourseId());
+						other = Math.min(course.getLimit() - enrollments.countEnrollmentsForCourse(info.getCourseId()) - av, otherEnrl);
+						int lim = 0;
+						for (XConfig f: offering.getConfigs()) {
+							if (lim < 0 || f.getLimit() < 0)
+								lim = -1;
+							else
+								lim += f.getLimit();
 						}
+						if (lim >= 0 && lim < course.getLimit())
+							other += course.getLimit() - limit;
 					}
-					if (m.request().isOverridePending(course)) tOvrNeed ++;
+					if (version != null)
+						aggregates.put(info.getCourseId(), new CourseAggregate(version, aggregatesKey, new int[] {
+								enrl, wait, res, unasg, unasgPrim, noSub, swap,
+								tEnrl, tWait, tRes, tUnasg, tUnasgPrim, tNoSub, tSwap,
+								conNeed, tConNeed, ovrNeed, tOvrNeed, match},
+								courseStudents, courseMatchingStudents, av, other));
 				}
 				
 				if (match == 0 && !iShowUnmatchedCourses) {
@@ -373,39 +456,11 @@ public class FindEnrollmentInfoAction implements OnlineSectioningAction<List<Enr
 				gtConNeed += tConNeed;
 				gtOvrNeed += tOvrNeed;
 				
-				int limit = 0;
-				for (XConfig config: offering.getConfigs()) {
-					if (config.getLimit() < 0) {
-						limit = -1; break;
-					} else {
-						limit += config.getLimit();
-					}
-				}
-									
 				e.setLimit(course.getLimit());
 				e.setProjection(course.getProjected());
 				e.setSnapshot(snapshots.get(course.getOfferingId()));
-				int av = (int)Math.max(0, offering.getUnreservedSpace(enrollments));
-				if (course.getLimit() >= 0 && av > course.getLimit() - enrollments.countEnrollmentsForCourse(info.getCourseId()))
-					av = course.getLimit() - enrollments.countEnrollmentsForCourse(info.getCourseId());
-				if (av == Integer.MAX_VALUE) av = -1;
 				e.setAvailable(av);
-				if (av >= 0) {
-					int other = 0;
-					for (XCourse c: offering.getCourses())
-						if (!c.equals(course))
-							other += enrollments.countEnrollmentsForCourse(c.getCourseId());
-					e.setOther(Math.min(course.getLimit() - enrollments.countEnrollmentsForCourse(info.getCourseId()) - av, other));
-					int lim = 0;
-					for (XConfig f: offering.getConfigs()) {
-						if (lim < 0 || f.getLimit() < 0)
-							lim = -1;
-						else
-							lim += f.getLimit();
-					}
-					if (lim >= 0 && lim < course.getLimit())
-						e.setOther(e.getOther() + course.getLimit() - limit);
-				}
+				if (other != null) e.setOther(other);
 				
 				e.setEnrollment(enrl);
 				e.setReservation(res);
@@ -1016,4 +1071,64 @@ public class FindEnrollmentInfoAction implements OnlineSectioningAction<List<Enr
 		}
 		
 	}
+	
+	/**
+	 * Cached course counts of a course (computed when no filter is used), valid as long as the offering version of the
+	 * online sectioning server has not changed (see {@link OnlineSectioningServer#getOfferingVersion(Long)}).
+	 */
+	protected static class CourseAggregate {
+		private long iVersion;
+		private String iKey;
+		private int[] iCounts;
+		private Set<Long> iStudents, iMatchingStudents;
+		private int iAvailable;
+		private Integer iOther;
+		
+		CourseAggregate(long version, String key, int[] counts, Set<Long> students, Set<Long> matchingStudents, int available, Integer other) {
+			iVersion = version; iKey = key; iCounts = counts;
+			iStudents = students; iMatchingStudents = matchingStudents;
+			iAvailable = available; iOther = other;
+		}
+		
+		public long getVersion() { return iVersion; }
+		public String getKey() { return iKey; }
+		public int[] getCounts() { return iCounts; }
+		public Set<Long> getStudents() { return iStudents; }
+		public Set<Long> getMatchingStudents() { return iMatchingStudents; }
+		public int getAvailable() { return iAvailable; }
+		public Integer getOther() { return iOther; }
+	}
+	
+	/**
+	 * Course counts of the courses of an online sectioning server. Only the courses of the offerings that have changed since the
+	 * last call are recomputed.
+	 */
+	protected static class EnrollmentAggregates {
+		private Map<Long, CourseAggregate> iAggregates = new ConcurrentHashMap<Long, CourseAggregate>();
+		
+		public static EnrollmentAggregates getInstance(OnlineSectioningServer server) {
+			synchronized (server) {
+				EnrollmentAggregates aggregates = server.getProperty(EnrollmentAggregates.class.getName(), null);
+				if (aggregates == null) {
+					aggregates = new EnrollmentAggregates();
+					server.setProperty(EnrollmentAggregates.class.getName(), aggregates);
+				}
+				return aggregates;
+			}
+		}
+		
+		public static String getKey(String defaultStatus, Set<String> wlStates, Set<String> noSubStates) {
+			return defaultStatus + "|" + new TreeSet<String>(wlStates) + "|" + new TreeSet<String>(noSubStates);
+		}
+		
+		public CourseAggregate get(Long courseId, long version, String key) {
+			CourseAggregate aggregate = iAggregates.get(courseId);
+			if (aggregate == null || aggregate.getVersion() != version || !aggregate.getKey().equals(key)) return null;
+			return aggregate;
+		}
+		
+		public void put(Long courseId, CourseAggregate aggregate) {
+			iAggregates.put(courseId, aggregate);
+		}
+	}
 }
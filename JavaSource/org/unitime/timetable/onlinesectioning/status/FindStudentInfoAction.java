@@ -41,6 +41,7 @@ import org.unitime.timetable.gwt.client.sectioning.SectioningStatusFilterBox.Sec
 import org.unitime.timetable.gwt.resources.StudentSectioningConstants;
 import org.unitime.timetable.gwt.resources.StudentSectioningMessages;
 import org.unitime.timetable.gwt.server.Query;
+import org.unitime.timetable.gwt.server.Query.TermMatcher;
 import org.unitime.timetable.gwt.shared.ClassAssignmentInterface;
 import org.unitime.timetable.gwt.shared.ClassAssignmentInterface.AdvisedInfoInterface;
 import org.unitime.timetable.gwt.shared.ClassAssignmentInterface.StudentInfo;
@@ -796,6 +797,7 @@ public class FindStudentInfoAction implements OnlineSectioningAction<List<Studen
 		protected Query iQuery;
 		protected String iDefaultSectioningStatus;
 		protected Set<Long> iMyStudents;
+		private transient Query.Predicate<XStudent> iPredicate = null;
 		
 		public FindStudentInfoMatcher(AcademicSessionInfo session, Query query, Set<Long> myStudents) {
 			iQuery = query;
@@ -810,7 +812,115 @@ public class FindStudentInfoAction implements OnlineSectioningAction<List<Studen
 		@Override
 		public boolean match(XStudentId id) {
 			XStudent student = (id instanceof XStudent ? (XStudent)id : getServer().getStudent(id.getStudentId()));
-			return student != null && iQuery.match(new StudentMatcher(student, iDefaultSectioningStatus, getServer(), isMyStudent(student)));
+			return student != null && getPredicate().match(student);
+		}
+		
+		protected Query.Predicate<XStudent> getPredicate() {
+			if (iPredicate == null)
+				iPredicate = iQuery.compile(new StudentTermCompiler(iDefaultSectioningStatus), new Query.TermMatcherProvider<XStudent>() {
+					@Override
+					public TermMatcher getMatcher(XStudent student) {
+						return new StudentMatcher(student, iDefaultSectioningStatus, getServer(), isMyStudent(student));
+					}
+				});
+			return iPredicate;
+		}
+	}
+	
+	/**
+	 * Compiles the most common student attributes (area, classification, major, minor, group, accommodation, advisor, and status)
+	 * of a student filter. The remaining terms are evaluated using the {@link StudentMatcher}.
+	 */
+	public static class StudentTermCompiler implements Query.TermCompiler<XStudent> {
+		private String iDefaultStatus;
+		
+		public StudentTermCompiler(String defaultStatus) {
+			iDefaultStatus = defaultStatus;
+		}
+		
+		@Override
+		public Query.Predicate<XStudent> compile(String attr, final String term) {
+			if ((attr == null && term.isEmpty()) || "limit".equals(attr)) {
+				return new Query.Predicate<XStudent>() {
+					@Override
+					public boolean match(XStudent student) { return true; }
+				};
+			} else if ("area".equals(attr)) {
+				return new Query.Predicate<XStudent>() {
+					@Override
+					public boolean match(XStudent student) {
+						for (XAreaClassificationMajor acm: student.getMajors())
+							if (term.equalsIgnoreCase(acm.getArea())) return true;
+						for (XAreaClassificationMajor acm: student.getMinors())
+							if (term.equalsIgnoreCase(acm.getArea())) return true;
+						return false;
+					}
+				};
+			} else if ("clasf".equals(attr) || "classification".equals(attr)) {
+				return new Query.Predicate<XStudent>() {
+					@Override
+					public boolean match(XStudent student) {
+						for (XAreaClassificationMajor acm: student.getMajors())
+							if (term.equalsIgnoreCase(acm.getClassification())) return true;
+						return false;
+					}
+				};
+			} else if ("major".equals(attr)) {
+				return new Query.Predicate<XStudent>() {
+					@Override
+					public boolean match(XStudent student) {
+						for (XAreaClassificationMajor acm: student.getMajors())
+							if (term.equalsIgnoreCase(acm.getMajor())) return true;
+						return false;
+					}
+				};
+			} else if ("minor".equals(attr)) {
+				return new Query.Predicate<XStudent>() {
+					@Override
+					public boolean match(XStudent student) {
+						for (XAreaClassificationMajor acm: student.getMinors())
+							if (term.equalsIgnoreCase(acm.getMajor())) return true;
+						return false;
+					}
+				};
+			} else if ("group".equals(attr)) {
+				return new Query.Predicate<XStudent>() {
+					@Override
+					public boolean match(XStudent student) {
+						for (XStudent.XGroup group: student.getGroups())
+							if (term.equalsIgnoreCase(group.getAbbreviation())) return true;
+						return false;
+					}
+				};
+			} else if ("accommodation".equals(attr)) {
+				return new Query.Predicate<XStudent>() {
+					@Override
+					public boolean match(XStudent student) {
+						for (XStudent.XGroup acc: student.getAccomodations())
+							if (term.equalsIgnoreCase(acc.getAbbreviation())) return true;
+						return false;
+					}
+				};
+			} else if ("advisor".equals(attr)) {
+				return new Query.Predicate<XStudent>() {
+					@Override
+					public boolean match(XStudent student) {
+						for (XStudent.XAdvisor a: student.getAdvisors())
+							if (term.equalsIgnoreCase(a.getExternalId())) return true;
+						return false;
+					}
+				};
+			} else if ("status".equals(attr)) {
+				final boolean notSet = ("default".equalsIgnoreCase(term) || "Not Set".equalsIgnoreCase(term));
+				return new Query.Predicate<XStudent>() {
+					@Override
+					public boolean match(XStudent student) {
+						if (notSet) return student.getStatus() == null;
+						return term.equalsIgnoreCase(student.getStatus() == null ? iDefaultStatus : student.getStatus());
+					}
+				};
+			}
+			return null;
 		}
 	}
 	
@@ -278,10 +278,13 @@ public class ReplayLogTest extends OnlineSectioningTestFwk {
 	            while ((log = readLog(cin)) != null) {
 	            	List<OnlineSectioningAction<?>> actions = new ArrayList<OnlineSectioningAction<?>>();
 	            	Long studentId = null;
+	            	long startTime = 0;
 	            	boolean hasSectionOrSuggestion = false;
 	            	for (OnlineSectioningLog.Action action: log.getActionList()) {
 	            		if (studentId == null && action.hasStudent() && action.getStudent().hasExternalId())
 	            			studentId = toStudentId(action.getStudent());
+	            		if (action.hasStartTime() && action.getStartTime() > 0 && (startTime == 0 || action.getStartTime() < startTime))
+	            			startTime = action.getStartTime();
 	            		OnlineSectioningAction<?> a = convert(action);
 	            		if (a != null) {
 	            			if (a instanceof FindAssignmentAction || a instanceof ComputeSuggestionsAction)
@@ -290,7 +293,7 @@ public class ReplayLogTest extends OnlineSectioningTestFwk {
 	            		}
 	            	}
 	            	if (studentId != null && !actions.isEmpty() && hasSectionOrSuggestion)
-	            		operations.add(new ReplayOperation(studentId, actions));
+	            		operations.add(new ReplayOperation(studentId, actions, startTime));
 	            	
 	            	if (nrTasks > 0 && operations.size() >= 3 * nrTasks) break;
 	            }
@@ -303,25 +306,38 @@ public class ReplayLogTest extends OnlineSectioningTestFwk {
 		return operations;
 	}
 	
-	private class ReplayOperation implements Operation {
+	private class ReplayOperation implements TimedOperation {
 		private Long iStudentId = null;
 		private List<OnlineSectioningAction<?>> iActions = null;
 		private OnlineSectioningServer iServer;
 		private int iGood = 0;
+		private long iStartTime = 0;
 		
-		public ReplayOperation(Long studentId, List<OnlineSectioningAction<?>> actions) {
+		public ReplayOperation(Long studentId, List<OnlineSectioningAction<?>> actions, long startTime) {
 			iStudentId = studentId;
 			iActions = actions;
+			iStartTime = startTime;
+		}
+		
+		@Override
+		public long getArrivalTime() {
+			return iStartTime;
 		}
 		
 		private <E> E executeAction(OnlineSectioningAction<E> action) {
 			E ret = null;
+			long t0 = System.currentTimeMillis();
 			try {
 				ret = iServer.execute(action, user());
 				iGood ++;
+				latency(action.name(), System.currentTimeMillis() - t0, false);
 			} catch (SectioningException e) {
 				for (String ok: sOkErrors)
-					if (e.getMessage() != null && e.getMessage().matches(ok)) return null;
+					if (e.getMessage() != null && e.getMessage().matches(ok)) {
+						latency(action.name(), System.currentTimeMillis() - t0, false);
+						return null;
+					}
+				latency(action.name(), System.currentTimeMillis() - t0, true);
 				sLog.warn("Failed to run " + action.name() + " for " + iStudentId + ": " + e.getMessage(), e);
 			}
 			return ret;
@@ -372,9 +388,23 @@ public class ReplayLogTest extends OnlineSectioningTestFwk {
 		
 	}
 	
+	/**
+	 * Usage: ReplayLogTest log-file<br>
+	 * Closed-loop (default): -DnrTasks=N -DnrConcurrent=10 (a fixed number of concurrent students, each starting a new task when the previous one is done)<br>
+	 * Open-loop: -DarrivalRate=R (R tasks per second, Poisson arrivals) or -DtimeCompression=C (replaying the logged start times C times faster),
+	 * together with -DmaxConcurrent=100 (size of the thread pool). Latency percentiles are written into latency.csv.
+	 */
 	public static void main(String args[]) {
-		new ReplayLogTest(new File(args[0])).test(
-				Integer.valueOf(System.getProperty("nrTasks", "-1")),
-				Integer.valueOf(System.getProperty("nrConcurrent", "10")));
+		if (System.getProperty("arrivalRate") != null || System.getProperty("timeCompression") != null) {
+			new ReplayLogTest(new File(args[0])).testOpenLoop(
+					Integer.valueOf(System.getProperty("nrTasks", "-1")),
+					Double.valueOf(System.getProperty("arrivalRate", "0")),
+					Double.valueOf(System.getProperty("timeCompression", "1")),
+					Integer.valueOf(System.getProperty("maxConcurrent", "100")));
+		} else {
+			new ReplayLogTest(new File(args[0])).test(
+					Integer.valueOf(System.getProperty("nrTasks", "-1")),
+					Integer.valueOf(System.getProperty("nrConcurrent", "10")));
+		}
 	}
 }
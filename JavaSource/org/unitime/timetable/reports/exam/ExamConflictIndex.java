@@ -0,0 +1,104 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.reports.exam;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.unitime.timetable.solver.exam.ui.ExamAssignmentInfo;
+import org.unitime.timetable.solver.exam.ui.ExamAssignmentInfo.BackToBackConflict;
+import org.unitime.timetable.solver.exam.ui.ExamAssignmentInfo.DirectConflict;
+import org.unitime.timetable.solver.exam.ui.ExamAssignmentInfo.MoreThanTwoADayConflict;
+
+/**
+ * Student and instructor conflicts of the given examinations, indexed by examination and student / instructor id.
+ * It is built once for all the personalized reports, so that a report does not need to go through all the conflicts
+ * of an examination to find the ones of a particular student (or instructor). Conflicts are kept in the order in which
+ * they are returned by the examination.
+ *
+ * @author Tomas Muller
+ */
+public class ExamConflictIndex {
+	private Set<Long> iExamIds = new HashSet<Long>();
+	private Map<Long, Map<Long, List<DirectConflict>>> iDirect = new HashMap<Long, Map<Long, List<DirectConflict>>>();
+	private Map<Long, Map<Long, List<MoreThanTwoADayConflict>>> iM2d = new HashMap<Long, Map<Long, List<MoreThanTwoADayConflict>>>();
+	private Map<Long, Map<Long, List<BackToBackConflict>>> iBtb = new HashMap<Long, Map<Long, List<BackToBackConflict>>>();
+	private Map<Long, Map<Long, List<DirectConflict>>> iInstructorDirect = new HashMap<Long, Map<Long, List<DirectConflict>>>();
+	private Map<Long, Map<Long, List<MoreThanTwoADayConflict>>> iInstructorM2d = new HashMap<Long, Map<Long, List<MoreThanTwoADayConflict>>>();
+	private Map<Long, Map<Long, List<BackToBackConflict>>> iInstructorBtb = new HashMap<Long, Map<Long, List<BackToBackConflict>>>();
+
+	public ExamConflictIndex(Collection<ExamAssignmentInfo> exams) {
+		for (ExamAssignmentInfo exam: exams) {
+			if (exam.getPeriod() == null) continue;
+			iExamIds.add(exam.getExamId());
+			for (DirectConflict conflict: exam.getDirectConflicts())
+				for (Long id: conflict.getStudents()) add(iDirect, exam.getExamId(), id, conflict);
+			for (MoreThanTwoADayConflict conflict: exam.getMoreThanTwoADaysConflicts())
+				for (Long id: conflict.getStudents()) add(iM2d, exam.getExamId(), id, conflict);
+			for (BackToBackConflict conflict: exam.getBackToBackConflicts())
+				for (Long id: conflict.getStudents()) add(iBtb, exam.getExamId(), id, conflict);
+			for (DirectConflict conflict: exam.getInstructorDirectConflicts())
+				for (Long id: conflict.getStudents()) add(iInstructorDirect, exam.getExamId(), id, conflict);
+			for (MoreThanTwoADayConflict conflict: exam.getInstructorMoreThanTwoADaysConflicts())
+				for (Long id: conflict.getStudents()) add(iInstructorM2d, exam.getExamId(), id, conflict);
+			for (BackToBackConflict conflict: exam.getInstructorBackToBackConflicts())
+				for (Long id: conflict.getStudents()) add(iInstructorBtb, exam.getExamId(), id, conflict);
+		}
+	}
+
+	private static <C> void add(Map<Long, Map<Long, List<C>>> index, Long examId, Long id, C conflict) {
+		Map<Long, List<C>> conflicts = index.get(examId);
+		if (conflicts == null) {
+			conflicts = new HashMap<Long, List<C>>();
+			index.put(examId, conflicts);
+		}
+		List<C> list = conflicts.get(id);
+		if (list == null) {
+			list = new ArrayList<C>(2);
+			conflicts.put(id, list);
+		}
+		if (list.isEmpty() || list.get(list.size() - 1) != conflict) list.add(conflict);
+	}
+
+	private static <C> List<C> get(Map<Long, Map<Long, List<C>>> index, ExamAssignmentInfo exam, Long id) {
+		Map<Long, List<C>> conflicts = index.get(exam.getExamId());
+		if (conflicts == null) return Collections.emptyList();
+		List<C> list = conflicts.get(id);
+		return (list == null ? Collections.<C>emptyList() : list);
+	}
+
+	/**
+	 * True if the conflicts of the given examination are indexed
+	 */
+	public boolean hasExam(ExamAssignmentInfo exam) { return iExamIds.contains(exam.getExamId()); }
+
+	public List<DirectConflict> getDirectConflicts(ExamAssignmentInfo exam, Long studentId) { return get(iDirect, exam, studentId); }
+	public List<MoreThanTwoADayConflict> getMoreThanTwoADaysConflicts(ExamAssignmentInfo exam, Long studentId) { return get(iM2d, exam, studentId); }
+	public List<BackToBackConflict> getBackToBackConflicts(ExamAssignmentInfo exam, Long studentId) { return get(iBtb, exam, studentId); }
+	public List<DirectConflict> getInstructorDirectConflicts(ExamAssignmentInfo exam, Long instructorId) { return get(iInstructorDirect, exam, instructorId); }
+	public List<MoreThanTwoADayConflict> getInstructorMoreThanTwoADaysConflicts(ExamAssignmentInfo exam, Long instructorId) { return get(iInstructorM2d, exam, instructorId); }
+	public List<BackToBackConflict> getInstructorBackToBackConflicts(ExamAssignmentInfo exam, Long instructorId) { return get(iInstructorBtb, exam, instructorId); }
+}
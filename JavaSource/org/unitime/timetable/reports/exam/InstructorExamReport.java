@@ -30,7 +30,9 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
 import java.util.Vector;
 
@@ -149,6 +151,7 @@ public class InstructorExamReport extends PdfLegacyExamReport {
     
     public void printReport() throws DocumentException {
         generateCache();
+        createConflictIndex();
         sLog.info(MSG.statusPrintingReport());
         Hashtable<ExamInstructorInfo,TreeSet<ExamAssignmentInfo>> exams = new Hashtable();
         for (ExamAssignmentInfo exam:getExams()) {
@@ -182,10 +185,15 @@ public class InstructorExamReport extends PdfLegacyExamReport {
     }
     
     public Hashtable<ExamInstructorInfo,File> printInstructorReports(String filePrefix, FileGenerator gen) throws DocumentException, IOException {
+        return printInstructorReports(filePrefix, gen, null);
+    }
+    
+    public Hashtable<ExamInstructorInfo,File> printInstructorReports(String filePrefix, FileGenerator gen, ReportCallback<ExamInstructorInfo> callback) throws DocumentException, IOException {
         generateCache();
+        createConflictIndex();
+        createMeetingTimeIndex();
         sLog.info(MSG.statusPrintingIndividualInstructorReports());
-        Hashtable<ExamInstructorInfo,File> files = new Hashtable();
-        Hashtable<ExamInstructorInfo,TreeSet<ExamAssignmentInfo>> exams = new Hashtable();
+        final Hashtable<ExamInstructorInfo,TreeSet<ExamAssignmentInfo>> exams = new Hashtable();
         for (ExamAssignmentInfo exam:getExams()) {
             if (exam.getPeriod()==null) continue;
             for (ExamInstructorInfo instructor:exam.getInstructors()) {
@@ -197,6 +205,7 @@ public class InstructorExamReport extends PdfLegacyExamReport {
                 examsThisInstructor.add(exam);
             }
         }
+        Map<ExamInstructorInfo,File> files = new LinkedHashMap<ExamInstructorInfo,File>();
         for (ExamInstructorInfo instructor : new TreeSet<ExamInstructorInfo>(exams.keySet())) {
             TreeSet<ExamAssignmentInfo> examsThisInstructor = exams.get(instructor);
             if (!isOfSubjectArea(examsThisInstructor)) continue;
@@ -211,14 +220,27 @@ public class InstructorExamReport extends PdfLegacyExamReport {
             File file = gen.generate(filePrefix+"_"+
                     (instructor.getExternalUniqueId()!=null?instructor.getExternalUniqueId():instructor.getInstructor().getLastName()), getExtension()); 
                 //ApplicationProperties.getTempFile(filePrefix+"_"+(instructor.getExternalUniqueId()!=null?instructor.getExternalUniqueId():instructor.getInstructor().getLastName()), (mode==sModeText?"txt":"pdf"));
-            open(file);
-            printHeader();
-            printReport(instructor, examsThisInstructor);
-            lastPage();
-            close();
-            files.put(instructor,file);
+            files.put(instructor, file);
         }
-        return files;
+        printReports(files, new ReportPrinter<ExamInstructorInfo>() {
+            @Override
+            public void printReport(PdfLegacyExamReport report, ExamInstructorInfo instructor, File file) throws DocumentException, IOException {
+                InstructorExamReport r = (InstructorExamReport)report;
+                r.open(file);
+                r.printHeader();
+                r.printReport(instructor, exams.get(instructor));
+                r.lastPage();
+                r.close();
+            }
+        }, callback);
+        return new Hashtable<ExamInstructorInfo,File>(files);
+    }
+    
+    @Override
+    protected PdfLegacyExamReport createCopy() throws Exception {
+        InstructorExamReport copy = (InstructorExamReport)super.createCopy();
+        copy.iStudentNames = iStudentNames;
+        return copy;
     }
     
     public void printReport(ExamInstructorInfo instructor) throws DocumentException {
@@ -471,7 +493,7 @@ public class InstructorExamReport extends PdfLegacyExamReport {
             ExamAssignmentInfo exam = section.getExamAssignmentInfo();
             if (exam==null || exam.getPeriod()==null) continue;
             iCoursePrinted = false;
-                if (iDirect) for (DirectConflict conflict : exam.getInstructorDirectConflicts()) {
+                if (iDirect) for (DirectConflict conflict : getInstructorDirectConflicts(exam, instructor.getId())) {
                     if (!conflict.getStudents().contains(instructor.getId())) continue;
                     iPeriodPrinted = false;
                     if (conflict.getOtherExam()!=null) {
@@ -594,7 +616,7 @@ public class InstructorExamReport extends PdfLegacyExamReport {
                         lastSubject = section.getSubject();
                     }
                 }
-                if (iM2d) for (MoreThanTwoADayConflict conflict : exam.getInstructorMoreThanTwoADaysConflicts()) {
+                if (iM2d) for (MoreThanTwoADayConflict conflict : getInstructorMoreThanTwoADaysConflicts(exam, instructor.getId())) {
                     if (!conflict.getStudents().contains(instructor.getId())) continue;
                     iPeriodPrinted = false;
                     for (ExamAssignment otherExam : conflict.getOtherExams()) {
@@ -653,7 +675,7 @@ public class InstructorExamReport extends PdfLegacyExamReport {
                         }
                     }
                 }
-                if (iBtb) for (BackToBackConflict conflict : exam.getInstructorBackToBackConflicts()) {
+                if (iBtb) for (BackToBackConflict conflict : getInstructorBackToBackConflicts(exam, instructor.getId())) {
                     if (!conflict.getStudents().contains(instructor.getId())) continue;
                     iPeriodPrinted = false;
                     for (ExamSectionInfo other : conflict.getOtherExam().getSectionsIncludeCrosslistedDummies()) {
@@ -730,7 +752,7 @@ public class InstructorExamReport extends PdfLegacyExamReport {
             });
             for (Long studentId : students) {
                 iStudentPrinted = false;
-                if (iDirect) for (DirectConflict conflict : exam.getDirectConflicts()) {
+                if (iDirect) for (DirectConflict conflict : getDirectConflicts(exam, studentId)) {
                     if (!conflict.getStudents().contains(studentId)) continue;
                     iPeriodPrinted = false;
                     if (conflict.getOtherExam()!=null) {
@@ -867,7 +889,7 @@ public class InstructorExamReport extends PdfLegacyExamReport {
                         lastSubject = section.getSubject();
                     }
                 }
-                if (iM2d) for (MoreThanTwoADayConflict conflict : exam.getMoreThanTwoADaysConflicts()) {
+                if (iM2d) for (MoreThanTwoADayConflict conflict : getMoreThanTwoADaysConflicts(exam, studentId)) {
                     if (!conflict.getStudents().contains(studentId)) continue;
                     iPeriodPrinted = false;
                     for (ExamAssignment otherExam : conflict.getOtherExams()) {
@@ -932,7 +954,7 @@ public class InstructorExamReport extends PdfLegacyExamReport {
                         }
                     }
                 }
-                if (iBtb) for (BackToBackConflict conflict : exam.getBackToBackConflicts()) {
+                if (iBtb) for (BackToBackConflict conflict : getBackToBackConflicts(exam, studentId)) {
                     if (!conflict.getStudents().contains(studentId)) continue;
                     iPeriodPrinted = false;
                     for (ExamSectionInfo other : conflict.getOtherExam().getSectionsIncludeCrosslistedDummies()) {
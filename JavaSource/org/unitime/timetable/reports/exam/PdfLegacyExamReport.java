@@ -31,6 +31,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
@@ -39,6 +40,16 @@ import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 import org.apache.commons.logging.Log;
@@ -77,6 +88,9 @@ import org.unitime.timetable.solver.exam.ui.ExamAssignment;
 import org.unitime.timetable.solver.exam.ui.ExamAssignmentInfo;
 import org.unitime.timetable.solver.exam.ui.ExamInfo;
 import org.unitime.timetable.solver.exam.ui.ExamRoomInfo;
+import org.unitime.timetable.solver.exam.ui.ExamAssignmentInfo.BackToBackConflict;
+import org.unitime.timetable.solver.exam.ui.ExamAssignmentInfo.DirectConflict;
+import org.unitime.timetable.solver.exam.ui.ExamAssignmentInfo.MoreThanTwoADayConflict;
 import org.unitime.timetable.solver.exam.ui.ExamAssignmentInfo.Parameters;
 import org.unitime.timetable.solver.exam.ui.ExamInfo.ExamInstructorInfo;
 import org.unitime.timetable.solver.exam.ui.ExamInfo.ExamSectionInfo;
@@ -123,6 +137,9 @@ public abstract class PdfLegacyExamReport extends AbstractReport {
     protected boolean iCompact = false;
     protected boolean iRoomDisplayNames = false;
     
+    protected ExamConflictIndex iConflictIndex = null;
+    protected Map<Long, Cell> iMeetingTimes = null;
+    
     protected static DecimalFormat sDF = new DecimalFormat("0.0");
     
     static {
@@ -184,6 +201,218 @@ public abstract class PdfLegacyExamReport extends AbstractReport {
         setRoomCode(System.getProperty("roomcode", ApplicationProperty.ExaminationRoomCode.value()));
     }
     
+    /**
+     * Index student and instructor conflicts of all the examinations, used when many personalized reports are printed
+     */
+    protected void createConflictIndex() {
+    	if (iConflictIndex == null)
+    		iConflictIndex = new ExamConflictIndex(getExams());
+    }
+    
+    protected Collection<DirectConflict> getDirectConflicts(ExamAssignmentInfo exam, Long studentId) {
+    	return (iConflictIndex == null || !iConflictIndex.hasExam(exam) ? exam.getDirectConflicts() : iConflictIndex.getDirectConflicts(exam, studentId));
+    }
+    
+    protected Collection<MoreThanTwoADayConflict> getMoreThanTwoADaysConflicts(ExamAssignmentInfo exam, Long studentId) {
+    	return (iConflictIndex == null || !iConflictIndex.hasExam(exam) ? exam.getMoreThanTwoADaysConflicts() : iConflictIndex.getMoreThanTwoADaysConflicts(exam, studentId));
+    }
+    
+    protected Collection<BackToBackConflict> getBackToBackConflicts(ExamAssignmentInfo exam, Long studentId) {
+    	return (iConflictIndex == null || !iConflictIndex.hasExam(exam) ? exam.getBackToBackConflicts() : iConflictIndex.getBackToBackConflicts(exam, studentId));
+    }
+    
+    protected Collection<DirectConflict> getInstructorDirectConflicts(ExamAssignmentInfo exam, Long instructorId) {
+    	return (iConflictIndex == null || !iConflictIndex.hasExam(exam) ? exam.getInstructorDirectConflicts() : iConflictIndex.getInstructorDirectConflicts(exam, instructorId));
+    }
+    
+    protected Collection<MoreThanTwoADayConflict> getInstructorMoreThanTwoADaysConflicts(ExamAssignmentInfo exam, Long instructorId) {
+    	return (iConflictIndex == null || !iConflictIndex.hasExam(exam) ? exam.getInstructorMoreThanTwoADaysConflicts() : iConflictIndex.getInstructorMoreThanTwoADaysConflicts(exam, instructorId));
+    }
+    
+    protected Collection<BackToBackConflict> getInstructorBackToBackConflicts(ExamAssignmentInfo exam, Long instructorId) {
+    	return (iConflictIndex == null || !iConflictIndex.hasExam(exam) ? exam.getInstructorBackToBackConflicts() : iConflictIndex.getInstructorBackToBackConflicts(exam, instructorId));
+    }
+
+    /**
+     * Index meeting times of all the examination sections (by section id), so that the class of a section does not need to be looked up again
+     */
+    protected void createMeetingTimeIndex() {
+    	if (iMeetingTimes != null) return;
+    	Map<Long, Cell> meetingTimes = new HashMap<Long, Cell>();
+    	for (ExamAssignmentInfo exam: getExams()) {
+    		if (exam.getPeriod() == null) continue;
+    		for (ExamSectionInfo section: exam.getSectionsIncludeCrosslistedDummies())
+    			if (!meetingTimes.containsKey(section.getId()))
+    				meetingTimes.put(section.getId(), getMeetingTime(section));
+    	}
+    	iMeetingTimes = meetingTimes;
+    }
+
+    /**
+     * Load all the data of the examinations that the personalized reports may need, so that the reports can be printed
+     * by other threads (each with its own hibernate session) without touching the objects of the calling thread's session.
+     */
+    protected void prepareExams() {
+    	createConflictIndex();
+    	createMeetingTimeIndex();
+    	Set<Long> prepared = new HashSet<Long>();
+    	for (ExamAssignmentInfo exam: getExams()) {
+    		if (exam.getPeriod() == null) continue;
+    		prepareExam(exam, prepared);
+    		for (ExamInstructorInfo instructor: exam.getInstructors())
+    			instructor.getInstructor().getEmail();
+    		for (DirectConflict conflict: exam.getDirectConflicts()) prepareConflict(conflict, prepared);
+    		for (DirectConflict conflict: exam.getInstructorDirectConflicts()) prepareConflict(conflict, prepared);
+    		for (BackToBackConflict conflict: exam.getBackToBackConflicts()) prepareExam(conflict.getOtherExam(), prepared);
+    		for (BackToBackConflict conflict: exam.getInstructorBackToBackConflicts()) prepareExam(conflict.getOtherExam(), prepared);
+    		for (MoreThanTwoADayConflict conflict: exam.getMoreThanTwoADaysConflicts())
+    			for (ExamAssignment other: conflict.getOtherExams()) prepareExam(other, prepared);
+    		for (MoreThanTwoADayConflict conflict: exam.getInstructorMoreThanTwoADaysConflicts())
+    			for (ExamAssignment other: conflict.getOtherExams()) prepareExam(other, prepared);
+    	}
+    }
+
+    private void prepareExam(ExamAssignment exam, Set<Long> prepared) {
+    	if (exam == null || !prepared.add(exam.getExamId())) return;
+    	exam.getExam();
+    	if (exam.getPeriod() != null) exam.getPeriod().getStartDate();
+    	if (iRoomDisplayNames && exam.getRooms() != null)
+    		for (ExamRoomInfo room: exam.getRooms()) room.getLocation();
+    	for (ExamSectionInfo section: exam.getSectionsIncludeCrosslistedDummies()) {
+    		section.getStudentIds();
+    		if (!iMeetingTimes.containsKey(section.getId()))
+    			iMeetingTimes.put(section.getId(), getMeetingTime(section));
+    	}
+    }
+
+    private void prepareConflict(DirectConflict conflict, Set<Long> prepared) {
+    	prepareExam(conflict.getOtherExam(), prepared);
+    	Class_ clazz = conflict.getOtherClass();
+    	if (clazz != null) {
+    		clazz.getSchedulingSubpart().getControllingCourseOffering().getCourseNbr();
+    		clazz.getSchedulingSubpart().getItypeDesc();
+    		clazz.getSectionNumberString();
+    	}
+    }
+
+    /**
+     * Create a copy of this report with the same settings, sharing the examinations and the indexes of this report.
+     * The copy is not opened, it is used to print personalized reports in parallel.
+     */
+    protected PdfLegacyExamReport createCopy() throws Exception {
+    	PdfLegacyExamReport copy = getClass().getConstructor(int.class, OutputStream.class, Session.class, ExamType.class, Collection.class, Collection.class)
+    			.newInstance(iMode.ordinal(), null, iSession, iExamType, iSubjectAreas, iExams);
+    	copy.iDispRooms = iDispRooms;
+    	copy.iNoRoom = iNoRoom;
+    	copy.iDirect = iDirect;
+    	copy.iM2d = iM2d;
+    	copy.iBtb = iBtb;
+    	copy.iLimit = iLimit;
+    	copy.iItype = iItype;
+    	copy.iClassSchedule = iClassSchedule;
+    	copy.iRoomCodes = iRoomCodes;
+    	copy.iRC = iRC;
+    	copy.iTotals = iTotals;
+    	copy.iUseClassSuffix = iUseClassSuffix;
+    	copy.iDispLimits = iDispLimits;
+    	copy.iSince = iSince;
+    	copy.iExternal = iExternal;
+    	copy.iDispFullTermDates = iDispFullTermDates;
+    	copy.iFullTermCheckDatePattern = iFullTermCheckDatePattern;
+    	copy.iMeetingTimeUseEvents = iMeetingTimeUseEvents;
+    	copy.iDispNote = iDispNote;
+    	copy.iCompact = iCompact;
+    	copy.iRoomDisplayNames = iRoomDisplayNames;
+    	copy.iConflictIndex = iConflictIndex;
+    	copy.iMeetingTimes = iMeetingTimes;
+    	return copy;
+    }
+
+    /**
+     * Print the given personalized reports (recipient, output file) using tmtbl.exam.pdfReports.threads threads.
+     * When printed in parallel, each thread uses its own copy of this report (see {@link #createCopy()}) and its own hibernate session.
+     * The callback (if provided) is called on the calling thread as soon as a report is printed.
+     */
+    protected <T> void printReports(Map<T, File> reports, final ReportPrinter<T> printer, ReportCallback<T> callback) throws DocumentException, IOException {
+    	long t0 = System.currentTimeMillis();
+    	int nrThreads = Math.min(reports.size(), Math.max(1, ApplicationProperty.ExaminationPdfReportsThreads.intValue()));
+    	if (nrThreads <= 1) {
+    		for (Map.Entry<T, File> report: reports.entrySet()) {
+    			printer.printReport(this, report.getKey(), report.getValue());
+    			if (callback != null) callback.reportPrinted(report.getKey(), report.getValue());
+    		}
+    	} else {
+    		prepareExams();
+    		final BlockingQueue<PdfLegacyExamReport> copies = new ArrayBlockingQueue<PdfLegacyExamReport>(nrThreads);
+    		try {
+    			for (int i = 0; i < nrThreads; i++)
+    				copies.add(createCopy());
+    		} catch (Exception e) {
+    			throw new IOException("Failed to create a copy of the report: " + e.getMessage(), e);
+    		}
+    		final Long sessionId = ApplicationProperties.getSessionId();
+    		final String locale = Localization.getLocale();
+    		ExecutorService executor = Executors.newFixedThreadPool(nrThreads, new ThreadFactory() {
+    			AtomicInteger iIndex = new AtomicInteger(0);
+    			@Override
+    			public Thread newThread(Runnable runnable) {
+    				Thread thread = new Thread(runnable, "ExamReport-" + iIndex.incrementAndGet());
+    				thread.setDaemon(true);
+    				return thread;
+    			}
+    		});
+    		try {
+    			CompletionService<Map.Entry<T, File>> completion = new ExecutorCompletionService<Map.Entry<T, File>>(executor);
+    			for (final Map.Entry<T, File> report: reports.entrySet())
+    				completion.submit(new Callable<Map.Entry<T, File>>() {
+    					@Override
+    					public Map.Entry<T, File> call() throws Exception {
+    						ApplicationProperties.setSessionId(sessionId);
+    						if (locale != null) Localization.setLocale(locale);
+    						PdfLegacyExamReport copy = copies.take();
+    						try {
+    							printer.printReport(copy, report.getKey(), report.getValue());
+    							return report;
+    						} finally {
+    							copies.put(copy);
+    							_RootDAO.closeCurrentThreadSessions();
+    							ApplicationProperties.setSessionId(null);
+    							Localization.removeLocale();
+    						}
+    					}
+    				});
+    			for (int i = 0; i < reports.size(); i++) {
+    				Map.Entry<T, File> report = completion.take().get();
+    				if (callback != null) callback.reportPrinted(report.getKey(), report.getValue());
+    			}
+    		} catch (InterruptedException e) {
+    			throw new IOException("Printing of the reports was interrupted.", e);
+    		} catch (ExecutionException e) {
+    			if (e.getCause() instanceof DocumentException) throw (DocumentException)e.getCause();
+    			if (e.getCause() instanceof IOException) throw (IOException)e.getCause();
+    			throw new IOException(e.getCause().getMessage(), e.getCause());
+    		} finally {
+    			executor.shutdownNow();
+    		}
+    	}
+        long t1 = System.currentTimeMillis();
+        sLog.info(reports.size() + " reports printed in " + sDF.format((t1 - t0) / 1000.0) + " s using " + nrThreads + " thread(s) (" + sDF.format(1000.0 * reports.size() / Math.max(1, t1 - t0)) + " reports/s)");
+    }
+
+    /**
+     * Prints one personalized report, using the given report (this report or its copy)
+     */
+    protected static interface ReportPrinter<T> {
+    	public void printReport(PdfLegacyExamReport report, T recipient, File file) throws DocumentException, IOException;
+    }
+
+    /**
+     * Called (on the thread that is printing the reports) when a personalized report is printed, e.g., to send it by email right away
+     */
+    public static interface ReportCallback<T> {
+    	public void reportPrinted(T recipient, File file);
+    }
+
     public void setDispRooms(boolean dispRooms) { iDispRooms = dispRooms; }
     public void setNoRoom(String noRoom) { iNoRoom = noRoom; }
     public void setDirect(boolean direct) { iDirect = direct; }
@@ -356,6 +585,10 @@ public abstract class PdfLegacyExamReport extends AbstractReport {
     }
     
     protected Cell getMeetingTime(ExamSectionInfo section) {
+        if (iMeetingTimes != null) {
+            Cell meetingTime = iMeetingTimes.get(section.getId());
+            if (meetingTime != null) return meetingTime;
+        }
         if (section.getOwner().getOwnerObject() instanceof Class_) {
             SimpleDateFormat dpf = new SimpleDateFormat(MSG.lrDateFormat());
             Class_ clazz = (Class_)section.getOwner().getOwnerObject();
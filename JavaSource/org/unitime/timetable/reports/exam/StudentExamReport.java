@@ -27,7 +27,9 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
 
 import org.apache.commons.logging.Log;
@@ -136,6 +138,7 @@ public class StudentExamReport extends PdfLegacyExamReport {
 
     public void printReport() throws DocumentException {
         generateCache();
+        createConflictIndex();
         sLog.info(MSG.statusPrintingReport());
         Hashtable<Student,TreeSet<ExamSectionInfo>> sections = new Hashtable();
         for (ExamAssignmentInfo exam:getExams()) {
@@ -412,7 +415,7 @@ public class StudentExamReport extends PdfLegacyExamReport {
             ExamAssignmentInfo exam = section.getExamAssignmentInfo();
             if (exam==null || exam.getPeriod()==null) continue;
             iCoursePrinted = false;
-                if (iDirect) for (DirectConflict conflict : exam.getDirectConflicts()) {
+                if (iDirect) for (DirectConflict conflict : getDirectConflicts(exam, student.getUniqueId())) {
                     if (!conflict.getStudents().contains(student.getUniqueId())) continue;
                     iPeriodPrinted = false;
                     if (conflict.getOtherExam()!=null) {
@@ -535,7 +538,7 @@ public class StudentExamReport extends PdfLegacyExamReport {
                         lastSubject = section.getSubject();
                     }
                 }
-                if (iM2d) for (MoreThanTwoADayConflict conflict : exam.getMoreThanTwoADaysConflicts()) {
+                if (iM2d) for (MoreThanTwoADayConflict conflict : getMoreThanTwoADaysConflicts(exam, student.getUniqueId())) {
                     if (!conflict.getStudents().contains(student.getUniqueId())) continue;
                     iPeriodPrinted = false;
                     for (ExamAssignment otherExam : conflict.getOtherExams()) {
@@ -594,7 +597,7 @@ public class StudentExamReport extends PdfLegacyExamReport {
                         }
                     }
                 }
-                if (iBtb) for (BackToBackConflict conflict : exam.getBackToBackConflicts()) {
+                if (iBtb) for (BackToBackConflict conflict : getBackToBackConflicts(exam, student.getUniqueId())) {
                     if (!conflict.getStudents().contains(student.getUniqueId())) continue;
                     iPeriodPrinted = false;
                     for (ExamSectionInfo other : conflict.getOtherExam().getSectionsIncludeCrosslistedDummies()) {
@@ -669,10 +672,15 @@ public class StudentExamReport extends PdfLegacyExamReport {
     }
     
     public Hashtable<Student,File> printStudentReports(String filePrefix, FileGenerator gen) throws DocumentException, IOException {
+        return printStudentReports(filePrefix, gen, null);
+    }
+    
+    public Hashtable<Student,File> printStudentReports(String filePrefix, FileGenerator gen, ReportCallback<Student> callback) throws DocumentException, IOException {
         generateCache();
+        createConflictIndex();
+        createMeetingTimeIndex();
         sLog.info(MSG.statusPrintingIndividualStudentReports());
-        Hashtable<Student,File> files = new Hashtable();
-        Hashtable<Student,TreeSet<ExamSectionInfo>> sections = new Hashtable();
+        final Hashtable<Student,TreeSet<ExamSectionInfo>> sections = new Hashtable();
         for (ExamAssignmentInfo exam:getExams()) {
             for (ExamSectionInfo section:exam.getSectionsIncludeCrosslistedDummies()) {
                 for (Long studentId : section.getStudentIds()) {
@@ -686,6 +694,7 @@ public class StudentExamReport extends PdfLegacyExamReport {
                 }
             }
         }
+        Map<Student,File> files = new LinkedHashMap<Student,File>();
         for (Student student : new TreeSet<Student>(sections.keySet())) {
             TreeSet<ExamSectionInfo> sectionsThisStudent = sections.get(student);
             if (!isOfSubjectArea(sectionsThisStudent)) continue;
@@ -701,13 +710,20 @@ public class StudentExamReport extends PdfLegacyExamReport {
                     (student.getExternalUniqueId()!=null?student.getExternalUniqueId():student.getLastName()),
                     getExtension()); 
                 //ApplicationProperties.getTempFile(filePrefix+"_"+(instructor.getExternalUniqueId()!=null?instructor.getExternalUniqueId():instructor.getInstructor().getLastName()), (mode==sModeText?"txt":"pdf"));
-            open(file);
-            printHeader();
-            printReport(student, sectionsThisStudent);
-            lastPage();
-            close();
-            files.put(student,file);
+            files.put(student, file);
         }
-        return files;
+        printReports(files, new ReportPrinter<Student>() {
+            @Override
+            public void printReport(PdfLegacyExamReport report, Student student, File file) throws DocumentException, IOException {
+                StudentExamReport r = (StudentExamReport)report;
+                r.open(file);
+                r.printHeader();
+                // a copy prints in its own hibernate session, the student needs to be loaded there
+                r.printReport(r == StudentExamReport.this ? student : StudentDAO.getInstance().get(student.getUniqueId()), sections.get(student));
+                r.lastPage();
+                r.close();
+            }
+        }, callback);
+        return new Hashtable<Student,File>(files);
     }
 }
@@ -20,6 +20,8 @@
 package org.unitime.timetable.security;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
 
 import org.unitime.timetable.defaults.SessionAttribute;
 import org.unitime.timetable.security.authority.OtherAuthority;
@@ -58,6 +60,7 @@ public interface SessionContext {
     public boolean hasPermission(Right right);
     public boolean hasPermission(Serializable targetId, String targetType, Right right);
     public boolean hasPermission(Object targetObject, Right right);
+    public Map<Serializable, Boolean> hasPermissions(Collection<? extends Serializable> targetIds, String targetType, Right right);
     public boolean hasPermissionAnyAuthority(Right right, Qualifiable... filter);
     public boolean hasPermissionAnyAuthority(Serializable targetId, String targetType, Right right, Qualifiable... filter);
     public boolean hasPermissionAnyAuthority(Object targetObject, Right right, Qualifiable... filter);
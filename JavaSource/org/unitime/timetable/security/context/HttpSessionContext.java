@@ -20,6 +20,8 @@
 package org.unitime.timetable.security.context;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
 
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpSession;
@@ -137,6 +139,11 @@ public class HttpSessionContext implements SessionContext {
 		return unitimePermissionCheck.hasPermission(getUser(), targetId, targetType, right);
 	}
 
+	@Override
+	public Map<Serializable, Boolean> hasPermissions(Collection<? extends Serializable> targetIds, String targetType, Right right) {
+		return unitimePermissionCheck.hasPermissions(getUser(), targetIds, targetType, right);
+	}
+
 	@Override
 	public boolean hasPermission(Object targetObject, Right right) {
 		return unitimePermissionCheck.hasPermission(getUser(), targetObject, right);
@@ -0,0 +1,208 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.security.evaluation;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.unitime.timetable.defaults.ApplicationProperty;
+import org.unitime.timetable.security.UserAuthority;
+import org.unitime.timetable.security.UserContext;
+import org.unitime.timetable.security.rights.Right;
+import org.unitime.timetable.util.DataChange;
+import org.unitime.timetable.util.DataChangeNotifier;
+
+/**
+ * Cache of permission decisions, keyed by the user authority, right, target type and target id.
+ * Decisions are cached for the duration of a request (between {@link #beginRequest()} and {@link #endRequest()})
+ * and for a short time between requests (see unitime.permissions.cache.ttl).
+ * All cached decisions are dropped on every node when a change is committed (see {@link DataChangeNotifier}),
+ * e.g., a change of a role, a department, or a status that is recorded in the change log.
+ *
+ * @author Tomas Muller
+ */
+public class PermissionCache {
+	private static final int MAX_SIZE = 100000;
+	private static final AtomicLong sVersion = new AtomicLong(0);
+	private static final ThreadLocal<RequestCache> sRequestCache = new ThreadLocal<RequestCache>();
+	private static final Map<Key, Decision> sCache = new ConcurrentHashMap<Key, Decision>();
+	
+	static {
+		DataChangeNotifier.addListener(new DataChangeNotifier.Listener() {
+			@Override
+			public void dataChanged(DataChange change) {
+				invalidate();
+			}
+		});
+	}
+
+	/**
+	 * Start request scope caching for the current thread
+	 */
+	public static void beginRequest() {
+		sRequestCache.set(new RequestCache());
+	}
+
+	/**
+	 * End request scope caching for the current thread
+	 */
+	public static void endRequest() {
+		sRequestCache.remove();
+	}
+
+	/**
+	 * Drop all cached decisions
+	 */
+	public static void invalidate() {
+		sVersion.incrementAndGet();
+		sCache.clear();
+	}
+
+	/**
+	 * Current version of the cache, to be obtained before a decision is evaluated and passed to {@link #put(UserContext, String, Serializable, Right, boolean, long)}
+	 */
+	public static long getVersion() {
+		return sVersion.get();
+	}
+
+	protected static long getTimeToLive() {
+		Integer ttl = ApplicationProperty.PermissionCacheTimeToLive.intValue();
+		return (ttl == null ? 0l : 1000l * ttl);
+	}
+
+	/**
+	 * Cached decision, null when not cached
+	 */
+	public static Boolean get(UserContext user, String targetType, Serializable targetId, Right right) {
+		if (user == null || user.getCurrentAuthority() == null || targetId == null) return null;
+		Key key = new Key(user, targetType, targetId, right);
+		long version = sVersion.get();
+		RequestCache request = sRequestCache.get();
+		if (request != null) {
+			Boolean decision = request.get(version, key);
+			if (decision != null) return decision;
+		}
+		Decision decision = sCache.get(key);
+		if (decision != null) {
+			if (decision.isValid(version)) {
+				if (request != null) request.put(version, key, decision.getValue());
+				return decision.getValue();
+			}
+			sCache.remove(key);
+		}
+		return null;
+	}
+
+	/**
+	 * Cache a decision
+	 * @param version version of the cache before the decision was evaluated (see {@link #getVersion()})
+	 */
+	public static void put(UserContext user, String targetType, Serializable targetId, Right right, boolean value, long version) {
+		if (user == null || user.getCurrentAuthority() == null || targetId == null) return;
+		if (version != sVersion.get()) return;
+		Key key = new Key(user, targetType, targetId, right);
+		RequestCache request = sRequestCache.get();
+		if (request != null) request.put(version, key, value);
+		long ttl = getTimeToLive();
+		if (ttl > 0) {
+			if (sCache.size() >= MAX_SIZE) purge();
+			sCache.put(key, new Decision(value, version, System.currentTimeMillis() + ttl));
+		}
+	}
+
+	private static void purge() {
+		long version = sVersion.get();
+		for (Iterator<Decision> i = sCache.values().iterator(); i.hasNext(); )
+			if (!i.next().isValid(version)) i.remove();
+		if (sCache.size() >= MAX_SIZE) sCache.clear();
+	}
+
+	private static class RequestCache {
+		private long iVersion = -1;
+		private Map<Key, Boolean> iDecisions = new HashMap<Key, Boolean>();
+
+		Boolean get(long version, Key key) {
+			if (iVersion != version) {
+				iDecisions.clear(); iVersion = version;
+				return null;
+			}
+			return iDecisions.get(key);
+		}
+
+		void put(long version, Key key, boolean value) {
+			if (iVersion != version) {
+				iDecisions.clear(); iVersion = version;
+			}
+			iDecisions.put(key, value);
+		}
+	}
+
+	private static class Decision {
+		private boolean iValue;
+		private long iVersion, iExpiration;
+
+		Decision(boolean value, long version, long expiration) {
+			iValue = value; iVersion = version; iExpiration = expiration;
+		}
+
+		boolean getValue() { return iValue; }
+
+		boolean isValid(long version) {
+			return iVersion == version && System.currentTimeMillis() < iExpiration;
+		}
+	}
+
+	/**
+	 * Authorities are compared by identity, the qualifiers of an authority may differ between two equal authorities
+	 */
+	private static class Key {
+		private UserAuthority iAuthority;
+		private String iUserId;
+		private String iTargetType;
+		private Serializable iTargetId;
+		private Right iRight;
+		private int iHashCode;
+
+		Key(UserContext user, String targetType, Serializable targetId, Right right) {
+			iAuthority = user.getCurrentAuthority();
+			iUserId = user.getExternalUserId();
+			iTargetType = targetType;
+			iTargetId = targetId;
+			iRight = right;
+			iHashCode = 31 * (31 * (31 * System.identityHashCode(iAuthority) + (iTargetType == null ? 0 : iTargetType.hashCode())) + iTargetId.hashCode()) + iRight.hashCode();
+		}
+
+		@Override
+		public int hashCode() { return iHashCode; }
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == null || !(o instanceof Key)) return false;
+			Key k = (Key)o;
+			return iAuthority == k.iAuthority && iRight == k.iRight && iTargetId.equals(k.iTargetId) &&
+					(iTargetType == null ? k.iTargetType == null : iTargetType.equals(k.iTargetType)) &&
+					(iUserId == null ? k.iUserId == null : iUserId.equals(k.iUserId));
+		}
+	}
+}
@@ -20,6 +20,8 @@
 package org.unitime.timetable.security.evaluation;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
 
 import org.springframework.security.access.AccessDeniedException;
 import org.unitime.timetable.security.Qualifiable;
@@ -52,6 +54,8 @@ public interface PermissionCheck {
     
     public boolean hasPermission(UserContext user, Object targetObject, Right right);
     
+    public Map<Serializable, Boolean> hasPermissions(UserContext user, Collection<? extends Serializable> targetIds, String targetType, Right right);
+    
     public boolean hasPermission(UserContext user, Serializable targetId, String targetType, Right right, OtherAuthority other);
 
     public boolean hasPermission(UserContext user, Object targetObject, Right right, OtherAuthority other);
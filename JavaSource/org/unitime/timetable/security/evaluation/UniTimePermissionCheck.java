@@ -20,9 +20,13 @@
 package org.unitime.timetable.security.evaluation;
 
 import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -60,6 +64,7 @@ import org.unitime.timetable.security.rights.Right;
 public class UniTimePermissionCheck implements PermissionCheck, InitializingBean {
 	protected static SecurityMessages MSG = Localization.create(SecurityMessages.class); 
 	private static Log sLog = LogFactory.getLog(UniTimePermissionCheck.class);
+	private static Map<Class<?>, Method> sUniqueIdMethods = new ConcurrentHashMap<Class<?>, Method>();
 	
 	@Autowired
 	ApplicationContext applicationContext;
@@ -210,6 +215,8 @@ public class UniTimePermissionCheck implements PermissionCheck, InitializingBean
 				} catch (Exception e) {}
 			}
 			
+			if (Boolean.TRUE.equals(PermissionCache.get(user, className, targetId, right))) return;
+			
 			Object domainObject = new _RootDAO().getSession().get(Class.forName(className), targetId);
 			if (domainObject == null)
 				throw new AccessDeniedException(MSG.domainObjectNotExists(right.toString(), targetType));
@@ -474,11 +481,14 @@ public class UniTimePermissionCheck implements PermissionCheck, InitializingBean
 				} catch (Exception e) {}
 			}
 			
+			Boolean cached = PermissionCache.get(user, className, targetId, right);
+			if (cached != null) return cached;
+			long version = PermissionCache.getVersion();
+			
 			Object domainObject = new _RootDAO().getSession().get(Class.forName(className), targetId);
-			if (domainObject == null)
-				return false;
-
-			return hasPermission(user, domainObject, right);
+			boolean ret = (domainObject != null && hasPermission(user, domainObject, right));
+			PermissionCache.put(user, className, targetId, right, ret, version);
+			return ret;
 		} catch (Exception e) {
 			return false;
 		}
@@ -530,6 +540,96 @@ public class UniTimePermissionCheck implements PermissionCheck, InitializingBean
 		return true;
 	}
 	
+	/**
+	 * Unique id of a domain object (null when the object has no unique id, e.g., it has not been saved yet)
+	 */
+	private static Serializable getUniqueId(Object domainObject) {
+		if (domainObject == null) return null;
+		try {
+			Method method = sUniqueIdMethods.get(domainObject.getClass());
+			if (method == null) {
+				method = domainObject.getClass().getMethod("getUniqueId");
+				sUniqueIdMethods.put(domainObject.getClass(), method);
+			}
+			return (Serializable)method.invoke(domainObject);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+	
+	@Override
+	public Map<Serializable, Boolean> hasPermissions(UserContext user, Collection<? extends Serializable> targetIds, String targetType, Right right) {
+		Map<Serializable, Boolean> ret = new HashMap<Serializable, Boolean>();
+		if (targetIds == null || targetIds.isEmpty()) return ret;
+		
+		if (user == null || user.getCurrentAuthority() == null || right == null || !user.getCurrentAuthority().hasRight(right)) {
+			for (Serializable id: targetIds) ret.put(id, false);
+			return ret;
+		}
+		
+		if (targetType == null && right.hasType())
+			targetType = right.type().getSimpleName();
+		
+		if (targetType == null) {
+			for (Serializable id: targetIds) ret.put(id, true);
+			return ret;
+		}
+		
+		String className = targetType;
+		if (className.indexOf('.') < 0) className = "org.unitime.timetable.model." + className;
+		
+		// use cached decisions, load the remaining domain objects at once
+		Map<Long, List<Serializable>> load = new HashMap<Long, List<Serializable>>();
+		for (Serializable targetId: targetIds) {
+			Long id = null;
+			if (targetId instanceof Long) {
+				id = (Long)targetId;
+			} else if (targetId instanceof String && !Department.class.getName().equals(className)) {
+				try {
+					id = Long.valueOf((String)targetId);
+				} catch (NumberFormatException e) {}
+			}
+			Boolean cached = (id == null ? null : PermissionCache.get(user, className, id, right));
+			if (cached != null) {
+				ret.put(targetId, cached);
+			} else if (id == null) {
+				ret.put(targetId, hasPermission(user, targetId, targetType, right));
+			} else {
+				List<Serializable> ids = load.get(id);
+				if (ids == null) { ids = new ArrayList<Serializable>(1); load.put(id, ids); }
+				ids.add(targetId);
+			}
+		}
+		if (load.isEmpty()) return ret;
+		
+		long version = PermissionCache.getVersion();
+		try {
+			Map<Long, Object> domainObjects = new HashMap<Long, Object>();
+			List<Long> ids = new ArrayList<Long>(load.keySet());
+			org.hibernate.Session hibSession = new _RootDAO().getSession();
+			for (int i = 0; i < ids.size(); i += 1000) {
+				for (Object domainObject: hibSession.createQuery(
+						"from " + Class.forName(className).getName() + " x where x.uniqueId in :ids"
+						).setParameterList("ids", ids.subList(i, Math.min(i + 1000, ids.size()))).list()) {
+					domainObjects.put((Long)getUniqueId(domainObject), domainObject);
+				}
+			}
+			for (Map.Entry<Long, List<Serializable>> e: load.entrySet()) {
+				Object domainObject = domainObjects.get(e.getKey());
+				boolean decision = (domainObject != null && hasPermission(user, domainObject, right));
+				PermissionCache.put(user, className, e.getKey(), right, decision, version);
+				for (Serializable targetId: e.getValue())
+					ret.put(targetId, decision);
+			}
+		} catch (Exception e) {
+			sLog.warn("Failed to check " + right + " for " + targetType + ": " + e.getMessage(), e);
+			for (List<Serializable> list: load.values())
+				for (Serializable targetId: list)
+					if (!ret.containsKey(targetId)) ret.put(targetId, false);
+		}
+		return ret;
+	}
+	
 	@Override
 	public boolean hasPermission(UserContext user, Serializable targetId, String targetType, Right right, OtherAuthority other) {
 		if (user == null) return false;
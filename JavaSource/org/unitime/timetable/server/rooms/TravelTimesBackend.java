@@ -159,5 +159,6 @@ public class TravelTimesBackend implements GwtRpcImplementation<TravelTimesReque
 			}
 		}
 		hibSession.flush();
+		TravelTime.invalidateTravelTimes(sessionId);
 	}
 }
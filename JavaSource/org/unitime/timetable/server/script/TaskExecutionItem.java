@@ -24,6 +24,7 @@ import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.lang.reflect.Type;
 import java.text.SimpleDateFormat;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -256,6 +257,11 @@ public class TaskExecutionItem extends ScriptExecution {
 			return iCheck.hasPermission(getUser(), targetId, targetType, right);
 		}
 
+		@Override
+		public Map<Serializable, Boolean> hasPermissions(Collection<? extends Serializable> targetIds, String targetType, Right right) {
+			return iCheck.hasPermissions(getUser(), targetIds, targetType, right);
+		}
+
 		@Override
 		public boolean hasPermission(Object targetObject, Right right) {
 			return iCheck.hasPermission(getUser(), targetObject, right);
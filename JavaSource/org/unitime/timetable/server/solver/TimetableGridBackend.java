@@ -27,6 +27,8 @@ import java.util.List;
 import java.util.Set;
 import java.util.StringTokenizer;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.hibernate.Query;
 import org.hibernate.Transaction;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -83,6 +85,8 @@ public class TimetableGridBackend implements GwtRpcImplementation<TimetableGridR
 	protected static GwtMessages MESSAGES = Localization.create(GwtMessages.class);
 	protected static GwtConstants CONSTANTS = Localization.create(GwtConstants.class);
 	
+	private static Log sLog = LogFactory.getLog(TimetableGridBackend.class);
+	
 	@Autowired SolverService<SolverProxy> courseTimetablingSolverService;
 	
 	@Override
@@ -135,6 +139,11 @@ public class TimetableGridBackend implements GwtRpcImplementation<TimetableGridR
     				TimetableGridHelper.computeIndexes(model, cx);
     				response.addModel(model);
     			}
+    		if (response.getDefaultDatePatternName() != null)
+    			for (TimetableGridModel model: response.getModels())
+    				for (TimetableGridCell cell: model.getCells())
+    					if (cell.hasDate() && response.getDefaultDatePatternName().equals(cell.getDate()))
+    						cell.setDate(null);
     		String ts = null;
         	try {
         		ts = solver.getProperties().getProperty("RoomAvailability.TimeStamp");
@@ -176,151 +185,156 @@ public class TimetableGridBackend implements GwtRpcImplementation<TimetableGridR
     		if (solutionIdsStr == null || solutionIdsStr.isEmpty()) 
     			throw new GwtRpcException(MESSAGES.errorTimetableGridNoSolution());
     		
-    		Transaction tx = null;
-    		try {
-    			SolutionDAO dao = new SolutionDAO();
-    			org.hibernate.Session hibSession = dao.getSession();
-    			if (hibSession.getTransaction()==null || !hibSession.getTransaction().isActive())
-    				tx = hibSession.beginTransaction();
-    			
-    			if (cx.getResourceType() == ResourceType.ROOM.ordinal()) {
-    				if (RoomAvailability.getInstance() != null) {
-    			        RoomAvailability.getInstance().activate(acadSession.getUniqueId(), cx.getSessionStartDate(), cx.getSessionEndDate(), RoomAvailabilityInterface.sClassType, false);
-    		            String ts = RoomAvailability.getInstance().getTimeStamp(cx.getSessionStartDate(), cx.getSessionEndDate(), RoomAvailabilityInterface.sClassType);
-    		            if (ts == null)
-    		            	response.addPageMessage(new PageMessage(PageMessageType.WARNING, MESSAGES.warnCourseSolverNoRoomAvailability()));
-    		            else
-    		            	response.addPageMessage(new PageMessage(PageMessageType.INFO, MESSAGES.infoCourseSolverRoomAvailabilityLastUpdated(ts)));
-    				}
-    				
-    				Query q = hibSession.createQuery(
-    						"select distinct r from "+
-    						"Location as r inner join r.assignments as a where "+
-    						"a.solution.uniqueId in ("+solutionIdsStr+")");
-    				q.setCacheable(true);
-    				for (Iterator i=q.list().iterator();i.hasNext();) {
-    					Location room = (Location)i.next();
-    					if (!match(filter, room)) continue;
-    					response.addModel(TimetableGridSolutionHelper.createModel(solutionIdsStr, room, hibSession, cx));
-    				}
-    			} else if (cx.getResourceType() == ResourceType.INSTRUCTOR.ordinal()) {
-    				if (RoomAvailability.getInstance() != null && cx.isShowEvents()) {
-    			        RoomAvailability.getInstance().activate(acadSession.getUniqueId(), cx.getSessionStartDate(), cx.getSessionEndDate(), RoomAvailabilityInterface.sClassType, false);
-    		            String ts = RoomAvailability.getInstance().getTimeStamp(cx.getSessionStartDate(), cx.getSessionEndDate(), RoomAvailabilityInterface.sClassType);
-    		            if (ts == null)
-    		            	response.addPageMessage(new PageMessage(PageMessageType.WARNING, MESSAGES.warnCourseSolverNoRoomAvailability()));
-    		            else
-    		            	response.addPageMessage(new PageMessage(PageMessageType.INFO, MESSAGES.infoCourseSolverRoomAvailabilityLastUpdated(ts)));
-    				}
-                    String instructorNameFormat = UserProperty.NameFormat.get(context.getUser());
-    				Query q = null;
-    				if (ApplicationProperty.TimetableGridUseClassInstructors.isTrue()) {
-    					q = hibSession.createQuery(
-    							"select distinct i.instructor from "+
-    							"ClassInstructor as i inner join i.classInstructing.assignments as a where "+
-    							"a.solution.uniqueId in ("+solutionIdsStr+")");
-    				} else {
-    					q = hibSession.createQuery(
-    							"select distinct i from "+
-    							"DepartmentalInstructor as i inner join i.assignments as a where "+
-    							"a.solution.uniqueId in ("+solutionIdsStr+")");
-    				}
-    				q.setCacheable(true);
-    				HashSet puids = new HashSet();
-    				for (Iterator i=q.list().iterator();i.hasNext();) {
-    					DepartmentalInstructor instructor = (DepartmentalInstructor)i.next();
-    					String name = (instructor.getLastName()+", "+instructor.getFirstName()+" "+instructor.getMiddleName()).trim();
-    					if (!match(filter, name)) continue;
-    					if (instructor.getExternalUniqueId() == null || instructor.getExternalUniqueId().isEmpty() || puids.add(instructor.getExternalUniqueId())) {
-    						TimetableGridModel m = TimetableGridSolutionHelper.createModel(solutionIdsStr, instructor, hibSession, cx);
-                            m.setName(instructor.getName(instructorNameFormat));
-    						response.addModel(m);
-                        }
-    				}
-    			} else if (cx.getResourceType() == ResourceType.DEPARTMENT.ordinal()) {
-    				Query q = hibSession.createQuery(
-    						"select distinct d from "+
-    						"Assignment a inner join a.clazz.schedulingSubpart.instrOfferingConfig.instructionalOffering.courseOfferings as o inner join o.subjectArea.department as d where "+
-    						"a.solution.uniqueId in ("+solutionIdsStr+") and o.isControl=true");
-    				q.setCacheable(true);
-    				for (Iterator i=q.list().iterator();i.hasNext();) {
-    					Department dept = (Department)i.next();
-    					String name = dept.getAbbreviation();
-    					if (!match(filter, name)) continue;
-    					response.addModel(TimetableGridSolutionHelper.createModel(solutionIdsStr, dept, hibSession, cx));
-    				}
-    			} else if (cx.getResourceType() == ResourceType.SUBJECT_AREA.ordinal()) {
-    				Query q = hibSession.createQuery(
-    						"select distinct sa from "+
-    						"Assignment a inner join a.clazz.schedulingSubpart.instrOfferingConfig.instructionalOffering.courseOfferings as o inner join o.subjectArea as sa where "+
-    						"a.solution.uniqueId in ("+solutionIdsStr+") and o.isControl=true");
-    				q.setCacheable(true);
-    				for (Iterator i=q.list().iterator();i.hasNext();) {
-    					SubjectArea sa = (SubjectArea)i.next();
-    					String name = sa.getSubjectAreaAbbreviation();
-    					if (!match(filter, name)) continue;
-    					response.addModel(TimetableGridSolutionHelper.createModel(solutionIdsStr, sa, hibSession, cx));
-    				}
-    			} else if (cx.getResourceType() == ResourceType.CURRICULUM.ordinal()) {
-    				Query q = hibSession.createQuery(
-    						"select cc.classification from "+
-    						"CurriculumCourse cc, Assignment a inner join a.clazz.schedulingSubpart.instrOfferingConfig.instructionalOffering.courseOfferings as co where "+
-    						"a.solution.uniqueId in ("+solutionIdsStr+") and co = cc.course");
-    				q.setCacheable(true);
-    				Set<Long> infos = new HashSet<Long>();
-    				for (Iterator i=q.list().iterator();i.hasNext();) {
-    					CurriculumClassification cc = (CurriculumClassification)i.next();
-    					if (!infos.add(cc.getUniqueId())) continue;
-    					String name = cc.getCurriculum().getAbbv() + " " + cc.getName();
-    					if (!match(filter, name)) continue;
-    					response.addModel(TimetableGridSolutionHelper.createModel(solutionIdsStr, cc, hibSession, cx));
-    				}
-    			} else if (cx.getResourceType() == ResourceType.STUDENT_GROUP.ordinal()) {
-    				Query q = hibSession.createQuery(
-    						"select c from ConstraintInfo c inner join c.assignments a where a.solution.uniqueId in ("+solutionIdsStr+") and c.definition.name = 'GroupInfo'");
-    				q.setCacheable(true);
-    				Set<Long> infos = new HashSet<Long>();
-    				for (Iterator i=q.list().iterator();i.hasNext();) {
-    					ConstraintInfo g = (ConstraintInfo)i.next();
-    					if (!infos.add(g.getUniqueId())) continue;
-    					if (!match(filter, g.getOpt())) continue;
-    					TimetableInfo info = g.getInfo();
-    					if (info != null && info instanceof StudentGroupInfo)
-    						response.addModel(TimetableGridSolutionHelper.createModel(solutionIdsStr, (StudentGroupInfo)info, hibSession, cx));
-    				}
-    				if (response.getModels().isEmpty()) {
-    					q = hibSession.createQuery(
-    							"select distinct r.group from StudentGroupReservation r, Assignment a inner join a.clazz.schedulingSubpart.instrOfferingConfig.instructionalOffering as io where "+
-    							"a.solution.uniqueId in ("+solutionIdsStr+") and io = r.instructionalOffering");
-    					q.setCacheable(true);
-    					for (Iterator i=q.list().iterator();i.hasNext();) {
-    						StudentGroup g = (StudentGroup)i.next();
-    						if (match(filter, g.getGroupName()) || match(filter, g.getGroupAbbreviation()))
-    							response.addModel(TimetableGridSolutionHelper.createModel(solutionIdsStr, g, hibSession, cx));
-    					}					
-    				}
-    			}
-    			if (tx!=null) tx.commit();
-    		} catch (GwtRpcException e) {
-    			if (tx!=null) tx.rollback();
-    			Debug.error(e);
-    			throw e;
-    		} catch (Exception e) {
-    			if (tx!=null) tx.rollback();
-    			Debug.error(e);
-    			throw new GwtRpcException(e.getMessage(), e);
+    		if (RoomAvailability.getInstance() != null && (cx.getResourceType() == ResourceType.ROOM.ordinal() || (cx.getResourceType() == ResourceType.INSTRUCTOR.ordinal() && cx.isShowEvents()))) {
+    			RoomAvailability.getInstance().activate(acadSession.getUniqueId(), cx.getSessionStartDate(), cx.getSessionEndDate(), RoomAvailabilityInterface.sClassType, false);
+    			String ts = RoomAvailability.getInstance().getTimeStamp(cx.getSessionStartDate(), cx.getSessionEndDate(), RoomAvailabilityInterface.sClassType);
+    			if (ts == null)
+    				response.addPageMessage(new PageMessage(PageMessageType.WARNING, MESSAGES.warnCourseSolverNoRoomAvailability()));
+    			else
+    				response.addPageMessage(new PageMessage(PageMessageType.INFO, MESSAGES.infoCourseSolverRoomAvailabilityLastUpdated(ts)));
     		}
     		
-    		for (TimetableGridModel model: response.getModels())
-    			TimetableGridHelper.computeIndexes(model, cx);
+    		String cacheKey = solutionIdsStr + "|" + cx.getCacheKey();
+    		List<TimetableGridModel> cached = TimetableGridCache.getModels(cacheKey);
+    		if (cached != null) {
+    			for (TimetableGridModel model: cached)
+    				response.addModel(model);
+    			sLog.debug("Timetable grid of " + cached.size() + " " + ResourceType.values()[cx.getResourceType()].name().toLowerCase() + "(s) of solution(s) " + solutionIdsStr + " returned from cache.");
+    		} else {
+	    		long version = TimetableGridCache.getVersion(acadSession.getUniqueId());
+	    		long t0 = System.currentTimeMillis();
+	    		Transaction tx = null;
+	    		try {
+	    			SolutionDAO dao = new SolutionDAO();
+	    			org.hibernate.Session hibSession = dao.getSession();
+	    			if (hibSession.getTransaction()==null || !hibSession.getTransaction().isActive())
+	    				tx = hibSession.beginTransaction();
+    			
+	    			if (cx.getResourceType() == ResourceType.ROOM.ordinal()) {
+	    				Query q = hibSession.createQuery(
+	    						"select distinct r from "+
+	    						"Location as r inner join r.assignments as a where "+
+	    						"a.solution.uniqueId in ("+solutionIdsStr+")");
+	    				q.setCacheable(true);
+	    				for (Iterator i=q.list().iterator();i.hasNext();) {
+	    					Location room = (Location)i.next();
+	    					if (!match(filter, room)) continue;
+	    					response.addModel(TimetableGridSolutionHelper.createModel(solutionIdsStr, room, hibSession, cx));
+	    				}
+	    			} else if (cx.getResourceType() == ResourceType.INSTRUCTOR.ordinal()) {
+	                    String instructorNameFormat = UserProperty.NameFormat.get(context.getUser());
+	    				Query q = null;
+	    				if (ApplicationProperty.TimetableGridUseClassInstructors.isTrue()) {
+	    					q = hibSession.createQuery(
+	    							"select distinct i.instructor from "+
+	    							"ClassInstructor as i inner join i.classInstructing.assignments as a where "+
+	    							"a.solution.uniqueId in ("+solutionIdsStr+")");
+	    				} else {
+	    					q = hibSession.createQuery(
+	    							"select distinct i from "+
+	    							"DepartmentalInstructor as i inner join i.assignments as a where "+
+	    							"a.solution.uniqueId in ("+solutionIdsStr+")");
+	    				}
+	    				q.setCacheable(true);
+	    				HashSet puids = new HashSet();
+	    				for (Iterator i=q.list().iterator();i.hasNext();) {
+	    					DepartmentalInstructor instructor = (DepartmentalInstructor)i.next();
+	    					String name = (instructor.getLastName()+", "+instructor.getFirstName()+" "+instructor.getMiddleName()).trim();
+	    					if (!match(filter, name)) continue;
+	    					if (instructor.getExternalUniqueId() == null || instructor.getExternalUniqueId().isEmpty() || puids.add(instructor.getExternalUniqueId())) {
+	    						TimetableGridModel m = TimetableGridSolutionHelper.createModel(solutionIdsStr, instructor, hibSession, cx);
+	                            m.setName(instructor.getName(instructorNameFormat));
+	    						response.addModel(m);
+	                        }
+	    				}
+	    			} else if (cx.getResourceType() == ResourceType.DEPARTMENT.ordinal()) {
+	    				Query q = hibSession.createQuery(
+	    						"select distinct d from "+
+	    						"Assignment a inner join a.clazz.schedulingSubpart.instrOfferingConfig.instructionalOffering.courseOfferings as o inner join o.subjectArea.department as d where "+
+	    						"a.solution.uniqueId in ("+solutionIdsStr+") and o.isControl=true");
+	    				q.setCacheable(true);
+	    				for (Iterator i=q.list().iterator();i.hasNext();) {
+	    					Department dept = (Department)i.next();
+	    					String name = dept.getAbbreviation();
+	    					if (!match(filter, name)) continue;
+	    					response.addModel(TimetableGridSolutionHelper.createModel(solutionIdsStr, dept, hibSession, cx));
+	    				}
+	    			} else if (cx.getResourceType() == ResourceType.SUBJECT_AREA.ordinal()) {
+	    				Query q = hibSession.createQuery(
+	    						"select distinct sa from "+
+	    						"Assignment a inner join a.clazz.schedulingSubpart.instrOfferingConfig.instructionalOffering.courseOfferings as o inner join o.subjectArea as sa where "+
+	    						"a.solution.uniqueId in ("+solutionIdsStr+") and o.isControl=true");
+	    				q.setCacheable(true);
+	    				for (Iterator i=q.list().iterator();i.hasNext();) {
+	    					SubjectArea sa = (SubjectArea)i.next();
+	    					String name = sa.getSubjectAreaAbbreviation();
+	    					if (!match(filter, name)) continue;
+	    					response.addModel(TimetableGridSolutionHelper.createModel(solutionIdsStr, sa, hibSession, cx));
+	    				}
+	    			} else if (cx.getResourceType() == ResourceType.CURRICULUM.ordinal()) {
+	    				Query q = hibSession.createQuery(
+	    						"select cc.classification from "+
+	    						"CurriculumCourse cc, Assignment a inner join a.clazz.schedulingSubpart.instrOfferingConfig.instructionalOffering.courseOfferings as co where "+
+	    						"a.solution.uniqueId in ("+solutionIdsStr+") and co = cc.course");
+	    				q.setCacheable(true);
+	    				Set<Long> infos = new HashSet<Long>();
+	    				for (Iterator i=q.list().iterator();i.hasNext();) {
+	    					CurriculumClassification cc = (CurriculumClassification)i.next();
+	    					if (!infos.add(cc.getUniqueId())) continue;
+	    					String name = cc.getCurriculum().getAbbv() + " " + cc.getName();
+	    					if (!match(filter, name)) continue;
+	    					response.addModel(TimetableGridSolutionHelper.createModel(solutionIdsStr, cc, hibSession, cx));
+	    				}
+	    			} else if (cx.getResourceType() == ResourceType.STUDENT_GROUP.ordinal()) {
+	    				Query q = hibSession.createQuery(
+	    						"select c from ConstraintInfo c inner join c.assignments a where a.solution.uniqueId in ("+solutionIdsStr+") and c.definition.name = 'GroupInfo'");
+	    				q.setCacheable(true);
+	    				Set<Long> infos = new HashSet<Long>();
+	    				for (Iterator i=q.list().iterator();i.hasNext();) {
+	    					ConstraintInfo g = (ConstraintInfo)i.next();
+	    					if (!infos.add(g.getUniqueId())) continue;
+	    					if (!match(filter, g.getOpt())) continue;
+	    					TimetableInfo info = g.getInfo();
+	    					if (info != null && info instanceof StudentGroupInfo)
+	    						response.addModel(TimetableGridSolutionHelper.createModel(solutionIdsStr, (StudentGroupInfo)info, hibSession, cx));
+	    				}
+	    				if (response.getModels().isEmpty()) {
+	    					q = hibSession.createQuery(
+	    							"select distinct r.group from StudentGroupReservation r, Assignment a inner join a.clazz.schedulingSubpart.instrOfferingConfig.instructionalOffering as io where "+
+	    							"a.solution.uniqueId in ("+solutionIdsStr+") and io = r.instructionalOffering");
+	    					q.setCacheable(true);
+	    					for (Iterator i=q.list().iterator();i.hasNext();) {
+	    						StudentGroup g = (StudentGroup)i.next();
+	    						if (match(filter, g.getGroupName()) || match(filter, g.getGroupAbbreviation()))
+	    							response.addModel(TimetableGridSolutionHelper.createModel(solutionIdsStr, g, hibSession, cx));
+	    					}					
+	    				}
+	    			}
+	    			if (tx!=null) tx.commit();
+	    		} catch (GwtRpcException e) {
+	    			if (tx!=null) tx.rollback();
+	    			Debug.error(e);
+	    			throw e;
+	    		} catch (Exception e) {
+	    			if (tx!=null) tx.rollback();
+	    			Debug.error(e);
+	    			throw new GwtRpcException(e.getMessage(), e);
+	    		}
+    		
+	    		for (TimetableGridModel model: response.getModels())
+	    			TimetableGridHelper.computeIndexes(model, cx);
+    		
+	    		if (response.getDefaultDatePatternName() != null)
+	    			for (TimetableGridModel model: response.getModels())
+	    				for (TimetableGridCell cell: model.getCells())
+	    					if (cell.hasDate() && response.getDefaultDatePatternName().equals(cell.getDate()))
+	    						cell.setDate(null);
+    		
+	    		TimetableGridCache.putModels(acadSession.getUniqueId(), cacheKey, response.getModels(), version);
+	    		sLog.debug("Timetable grid of " + response.getModels().size() + " " + ResourceType.values()[cx.getResourceType()].name().toLowerCase() + "(s) of solution(s) " + solutionIdsStr + " computed in " + (System.currentTimeMillis() - t0) + " ms.");
+    		}
     	}
     	
-    	if (response.getDefaultDatePatternName() != null)
-    		for (TimetableGridModel model: response.getModels())
-    			for (TimetableGridCell cell: model.getCells())
-    				if (cell.hasDate() && response.getDefaultDatePatternName().equals(cell.getDate()))
-    					cell.setDate(null);
-    	
 		final OrderBy order = OrderBy.values()[Integer.parseInt(request.getFilter().getParameterValue("orderBy", "0"))];
 		Collections.sort(response.getModels(), new Comparator<TimetableGridModel>() {
 			@Override
@@ -0,0 +1,163 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.server.solver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.unitime.timetable.defaults.ApplicationProperty;
+import org.unitime.timetable.gwt.shared.TimetableGridInterface.TimetableGridModel;
+import org.unitime.timetable.util.DataChange;
+import org.unitime.timetable.util.DataChangeNotifier;
+
+/**
+ * Cache of the timetable grid models computed from the saved solutions (see {@link TimetableGridBackend}).
+ * The models are cached by the selected solutions and the grid context (see {@link TimetableGridContext#getCacheKey()}),
+ * after all the post-processing is done, and must not be modified afterwards.
+ * Cached models expire after tmtbl.timeGrid.cache_ttl seconds. The models of an academic session are dropped on every node of a cluster
+ * when a change of the session is published through the {@link DataChangeNotifier} (e.g., a change recorded in the change log,
+ * a solution being saved, committed, or uncommitted, or an event being saved).
+ *
+ * @author Tomas Muller
+ */
+public class TimetableGridCache {
+	private static final int MAX_GRIDS = 500;
+	private static final Map<String, Grid> sGrids = new ConcurrentHashMap<String, Grid>();
+
+	private static final AtomicLong sVersion = new AtomicLong(0);
+	private static volatile long sAllSessionsVersion = 0;
+	private static final Map<Long, Long> sSessionVersions = new ConcurrentHashMap<Long, Long>();
+
+	static {
+		DataChangeNotifier.addListener(new DataChangeNotifier.Listener() {
+			@Override
+			public void dataChanged(DataChange change) {
+				invalidate(change);
+			}
+		});
+	}
+
+	/**
+	 * Drop the cached grids of the academic session of the given change (all grids when the session is not known)
+	 */
+	public static void invalidate(DataChange change) {
+		long version = sVersion.incrementAndGet();
+		if (change.getSessionId() == null)
+			sAllSessionsVersion = version;
+		else
+			sSessionVersions.put(change.getSessionId(), version);
+		for (Iterator<Grid> i = sGrids.values().iterator(); i.hasNext(); )
+			if (change.isSession(i.next().getSessionId())) i.remove();
+	}
+
+	/**
+	 * Current version of the cached grids of an academic session, to be obtained before the grid models are computed
+	 */
+	public static long getVersion(Long sessionId) {
+		Long version = (sessionId == null ? null : sSessionVersions.get(sessionId));
+		return Math.max(sAllSessionsVersion, version == null ? 0l : version);
+	}
+
+	protected static long getTimeToLive() {
+		Integer ttl = ApplicationProperty.TimetableGridCacheTimeToLive.intValue();
+		return (ttl == null ? 0l : 1000l * ttl);
+	}
+
+	/**
+	 * Cached grid models, null when not cached or expired
+	 */
+	public static List<TimetableGridModel> getModels(String key) {
+		Grid grid = sGrids.get(key);
+		if (grid == null) return null;
+		if (!grid.isValid()) {
+			sGrids.remove(key);
+			return null;
+		}
+		return grid.getModels();
+	}
+
+	/**
+	 * Cache grid models of an academic session
+	 * @param version version of the session before the models were computed (see {@link #getVersion(Long)})
+	 */
+	public static void putModels(Long sessionId, String key, Collection<TimetableGridModel> models, long version) {
+		long ttl = getTimeToLive();
+		if (ttl > 0 && version == getVersion(sessionId)) {
+			if (sGrids.size() >= MAX_GRIDS) {
+				for (Iterator<Grid> i = sGrids.values().iterator(); i.hasNext(); )
+					if (!i.next().isValid()) i.remove();
+				if (sGrids.size() >= MAX_GRIDS) sGrids.clear();
+			}
+			sGrids.put(key, new Grid(sessionId, models, System.currentTimeMillis() + ttl));
+		}
+	}
+
+	/**
+	 * Deep copy of the given grid models, so that cached models can be returned to a caller that modifies them
+	 */
+	public static List<TimetableGridModel> copy(List<TimetableGridModel> models) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(new ArrayList<TimetableGridModel>(models));
+			out.flush(); out.close();
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+			try {
+				return (List<TimetableGridModel>)in.readObject();
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to copy timetable grid: " + e.getMessage(), e);
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException("Failed to copy timetable grid: " + e.getMessage(), e);
+		}
+	}
+
+	private static class Grid {
+		private Long iSessionId;
+		private long iExpiration;
+		private List<TimetableGridModel> iModels;
+
+		Grid(Long sessionId, Collection<TimetableGridModel> models, long expiration) {
+			iSessionId = sessionId; iExpiration = expiration;
+			iModels = Collections.unmodifiableList(new ArrayList<TimetableGridModel>(models));
+		}
+
+		boolean isValid() {
+			return System.currentTimeMillis() < iExpiration;
+		}
+
+		Long getSessionId() { return iSessionId; }
+
+		List<TimetableGridModel> getModels() { return iModels; }
+	}
+}
@@ -26,11 +26,13 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.TreeMap;
 
 import org.unitime.localization.impl.Localization;
 import org.unitime.timetable.defaults.ApplicationProperty;
 import org.unitime.timetable.gwt.server.Query;
 import org.unitime.timetable.gwt.shared.FilterInterface;
+import org.unitime.timetable.gwt.shared.FilterInterface.FilterParameterInterface;
 import org.unitime.timetable.model.DatePattern;
 import org.unitime.timetable.model.ItypeDesc;
 import org.unitime.timetable.model.Session;
@@ -65,6 +67,7 @@ public class TimetableGridContext implements Serializable {
 	private int iWeekOffset = 0;
 	private Long iSessionId = null;
 	private Query iClassFilter = null;
+	private String iCacheKey = null;
 	
 	public TimetableGridContext() {}
 	
@@ -150,6 +153,13 @@ public class TimetableGridContext implements Serializable {
         iShowClassNameTwoLines = ApplicationProperty.TimeGridShowNameInTwoLines.isTrue();
         iShowCourseTitle = "1".equals(filter.getParameterValue("showTitles"));
         iSessionId = session.getUniqueId();
+        
+        TreeMap<String, String> parameters = new TreeMap<String, String>();
+        if (filter.hasParameters())
+        	for (FilterParameterInterface parameter: filter.getParameters())
+        		if (!"orderBy".equals(parameter.getName()))
+        			parameters.put(parameter.getName(), filter.getParameterValue(parameter.getName()));
+        iCacheKey = iSessionId + "|" + iLocale + "|" + parameters;
 	}
 	
 	public String getFilter() { return iFilter; }
@@ -208,6 +218,11 @@ public class TimetableGridContext implements Serializable {
 	
 	public int getWeekOffset() { return iWeekOffset; }
 	
+	/**
+	 * Key of the grid models computed for this context: academic session, locale, instructor name format, and the filter parameters (except of the ordering)
+	 */
+	public String getCacheKey() { return iCacheKey + "|" + iInstructorNameFormat; }
+	
 	private HashMap<Integer, String> iInstructionalTypeColors = null;
     public static String[] sBgColors = new String[] {
             "rgb(102,140,217)",
@@ -52,6 +52,7 @@ import org.cpsolver.coursett.model.TimeLocation;
 import org.cpsolver.coursett.model.TimetableModel;
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.model.Constraint;
+import org.cpsolver.ifs.solver.Solver;
 import org.hibernate.type.LongType;
 import org.unitime.localization.impl.Localization;
 import org.unitime.timetable.defaults.ApplicationProperty;
@@ -71,7 +72,6 @@ import org.unitime.timetable.model.TeachingResponsibility;
 import org.unitime.timetable.model.dao.Class_DAO;
 import org.unitime.timetable.model.dao.CurriculumDAO;
 import org.unitime.timetable.model.dao.TeachingResponsibilityDAO;
-import org.unitime.timetable.solver.TimetableSolver;
 import org.unitime.timetable.solver.ui.StudentGroupInfo;
 import org.unitime.timetable.util.Constants;
 
@@ -81,7 +81,7 @@ import org.unitime.timetable.util.Constants;
 public class TimetableGridSolverHelper extends TimetableGridHelper {
 	protected static final GwtConstants CONSTANTS = Localization.create(GwtConstants.class);
 	
-	public static TimetableGridModel createModel(TimetableSolver solver, RoomConstraint room, TimetableGridContext context) {
+	public static TimetableGridModel createModel(Solver<Lecture, Placement> solver, RoomConstraint room, TimetableGridContext context) {
     	TimetableGridModel model = new TimetableGridModel(ResourceType.ROOM.ordinal(), room.getResourceId());
     	model.setName(room.getRoomName());
     	model.setSize(room.getCapacity());
@@ -238,7 +238,7 @@ public class TimetableGridSolverHelper extends TimetableGridHelper {
 		return model;
 	}
 	
-	public static TimetableGridModel createModel(TimetableSolver solver, InstructorConstraint instructor, TimetableGridContext context) {
+	public static TimetableGridModel createModel(Solver<Lecture, Placement> solver, InstructorConstraint instructor, TimetableGridContext context) {
     	TimetableGridModel model = new TimetableGridModel(ResourceType.INSTRUCTOR.ordinal(), instructor.getId());
     	model.setName(instructor.getName());
     	model.setExternalId(instructor.getPuid());
@@ -288,7 +288,7 @@ public class TimetableGridSolverHelper extends TimetableGridHelper {
 		return model;
 	}
 	
-	public static TimetableGridModel createModel(TimetableSolver solver, DepartmentSpreadConstraint department, TimetableGridContext context) {
+	public static TimetableGridModel createModel(Solver<Lecture, Placement> solver, DepartmentSpreadConstraint department, TimetableGridContext context) {
 		TimetableGridModel model = new TimetableGridModel(ResourceType.DEPARTMENT.ordinal(), department.getDepartmentId());
     	model.setName(department.getName());
     	model.setSize(department.variables().size());
@@ -308,7 +308,7 @@ public class TimetableGridSolverHelper extends TimetableGridHelper {
 		return model;
 	}
 	
-	public static TimetableGridModel createModel(TimetableSolver solver, int resourceType, long resourceId, String name, int size, Collection<Placement> placements, TimetableGridContext context) {
+	public static TimetableGridModel createModel(Solver<Lecture, Placement> solver, int resourceType, long resourceId, String name, int size, Collection<Placement> placements, TimetableGridContext context) {
     	TimetableGridModel model = new TimetableGridModel(resourceType, resourceId);
     	model.setName(name);
     	model.setSize(size);
@@ -319,7 +319,7 @@ public class TimetableGridSolverHelper extends TimetableGridHelper {
     	return model;
 	}
 	
-	public static TimetableGridModel createModel(TimetableSolver solver, String name, List<Student> students, TimetableGridContext context) {
+	public static TimetableGridModel createModel(Solver<Lecture, Placement> solver, String name, List<Student> students, TimetableGridContext context) {
 		TimetableGridModel model = new TimetableGridModel(ResourceType.CURRICULUM.ordinal(), -1l);
     	model.setName(name);
     	model.setFirstDay(context.getFirstDay());
@@ -373,7 +373,7 @@ public class TimetableGridSolverHelper extends TimetableGridHelper {
 		return model;
 	}
 	
-	public static TimetableGridModel createModel(TimetableSolver solver, StudentGroup group, TimetableGridContext context) {
+	public static TimetableGridModel createModel(Solver<Lecture, Placement> solver, StudentGroup group, TimetableGridContext context) {
 		TimetableGridModel model = new TimetableGridModel(ResourceType.STUDENT_GROUP.ordinal(), group.getId());
     	model.setName(group.getName());
     	model.setFirstDay(context.getFirstDay());
@@ -414,7 +414,7 @@ public class TimetableGridSolverHelper extends TimetableGridHelper {
 		return model;
 	}
 	
-	protected static void createCells(TimetableGridModel model, TimetableSolver solver, Collection<Placement> placements, TimetableGridContext context, boolean notAvailable) {
+	protected static void createCells(TimetableGridModel model, Solver<Lecture, Placement> solver, Collection<Placement> placements, TimetableGridContext context, boolean notAvailable) {
 		model.setUtilization(countUtilization(context, placements));
 		for (Placement placement: placements) {
 			if (placement.variable().isCommitted()) continue;
@@ -422,7 +422,7 @@ public class TimetableGridSolverHelper extends TimetableGridHelper {
 		}
 	}
 	
-	protected static void createCells(TimetableGridModel model, TimetableSolver solver, Placement[] resource, TimetableGridContext context, int firstDay, int lastDay) {
+	protected static void createCells(TimetableGridModel model, Solver<Lecture, Placement> solver, Placement[] resource, TimetableGridContext context, int firstDay, int lastDay) {
 		Map<Lecture, TimetableGridCell> processed = new HashMap<Lecture, TimetableGridCell>();
 		List<Placement> placements = new ArrayList<Placement>();
 		for (int i = firstDay; i < lastDay; i++) {
@@ -446,7 +446,7 @@ public class TimetableGridSolverHelper extends TimetableGridHelper {
 		model.setUtilization(countUtilization(context, placements));
 	}
 	
-	protected static List<TimetableGridCell> createCells(TimetableGridModel model, TimetableSolver solver, Placement placement, TimetableGridContext context, boolean notAvailable) {
+	protected static List<TimetableGridCell> createCells(TimetableGridModel model, Solver<Lecture, Placement> solver, Placement placement, TimetableGridContext context, boolean notAvailable) {
 		List<TimetableGridCell> cells = new ArrayList<TimetableGridCell>();
 		
 		if (!match(context.getClassFilter(), placement, model)) return cells;
@@ -471,7 +471,7 @@ public class TimetableGridSolverHelper extends TimetableGridHelper {
 		return cells;
 	}
 	
-	protected static TimetableGridCell createCell(TimetableGridModel model, TimetableSolver solver, int day, int slot, Lecture lecture, Placement placement, TimetableGridContext context, boolean notAvailable) {
+	protected static TimetableGridCell createCell(TimetableGridModel model, Solver<Lecture, Placement> solver, int day, int slot, Lecture lecture, Placement placement, TimetableGridContext context, boolean notAvailable) {
 		TimetableGridCell cell = new TimetableGridCell();
 		if (lecture.getClassId() < 0) {
 			cell.setType(TimetableGridCell.Type.Event);
@@ -89,6 +89,8 @@ import org.unitime.timetable.solver.ui.PropertiesInfo;
 import org.unitime.timetable.solver.ui.StudentGroupInfo;
 import org.unitime.timetable.solver.ui.TimetableInfoFileProxy;
 import org.unitime.timetable.solver.ui.TimetableInfoUtil;
+import org.unitime.timetable.util.DataChange;
+import org.unitime.timetable.util.DataChangeNotifier;
 
 
 /**
@@ -159,6 +161,12 @@ public class TimetableDatabaseSaver extends TimetableSaver {
     		
     		Long[] solutionIds = save(hibSession);
     		
+    		// saved solutions may be displayed in timetable grids
+    		List<Long> classIds = new ArrayList<Long>();
+    		for (Lecture lecture: getModel().variables())
+    			classIds.add(lecture.getClassId());
+    		DataChangeNotifier.changed(hibSession, new DataChange(DataChange.Type.CLASS, iSessionId, classIds));
+    		
     		tx.commit();
     		
             HashSet refreshIds = new HashSet();
@@ -173,7 +181,7 @@ public class TimetableDatabaseSaver extends TimetableSaver {
     				Solution solution = (new SolutionDAO()).get(solutionIds[i]);
     				Solution committedSolution = solution.getOwner().getCommittedSolution();
     				if (committedSolution!=null) {
-    					committedSolution.uncommitSolution(hibSession, getModel().getProperties().getProperty("General.OwnerPuid"));
+    					committedSolution.uncommitSolution(hibSession, getModel().getProperties().getProperty("General.OwnerPuid"), solution.getClassIdsWithUpToDateEvents(hibSession));
                         refreshIds.add(committedSolution.getUniqueId());
                         touchedSolutions.add(committedSolution);
                     }
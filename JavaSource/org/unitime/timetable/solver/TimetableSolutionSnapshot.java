@@ -0,0 +1,95 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.solver;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.cpsolver.coursett.model.Lecture;
+import org.cpsolver.coursett.model.Placement;
+import org.cpsolver.ifs.assignment.AssignmentMap;
+import org.cpsolver.ifs.solution.Solution;
+import org.cpsolver.ifs.solver.Solver;
+import org.unitime.timetable.gwt.shared.TimetableGridInterface.TimetableGridModel;
+
+/**
+ * Read-only copy of the current and the best assignment of a running {@link TimetableSolver}.<br>
+ * The snapshot shares the problem model with the solver (which does not change while the solver is running), but it has
+ * its own assignment, so the UI pages can be computed from it without taking the solver lock.
+ * The assignment contexts of the snapshot (e.g., of the room constraints or the criteria) are created lazily from its assignment,
+ * so the snapshot is to be used by one thread at a time, holding the write lock of its solution.
+ *
+ * @author Tomas Muller
+ */
+public class TimetableSolutionSnapshot extends Solver<Lecture, Placement> {
+	private long iTimeStamp;
+	private Map<Lecture, Placement> iBestAssignments = new HashMap<Lecture, Placement>();
+	private Map<Long, Lecture> iLectures = new HashMap<Long, Lecture>();
+	private Map<String, List<TimetableGridModel>> iGrids = new ConcurrentHashMap<String, List<TimetableGridModel>>();
+
+	/**
+	 * Create a snapshot, the solver must be read-locked by the caller
+	 */
+	TimetableSolutionSnapshot(Solver<Lecture, Placement> solver) {
+		super(solver.getProperties());
+		Solution<Lecture, Placement> solution = solver.currentSolution();
+		setPerturbationsCounter(solver.getPerturbationsCounter());
+		setInitalSolution(new Solution<Lecture, Placement>(solution.getModel(), new AssignmentMap<Lecture, Placement>(solution.getAssignment()), solution.getIteration(), solution.getTime()));
+		for (Lecture lecture: solution.getModel().variables()) {
+			iLectures.put(lecture.getClassId(), lecture);
+			if (lecture.getBestAssignment() != null)
+				iBestAssignments.put(lecture, lecture.getBestAssignment());
+		}
+		iBestAssignments = Collections.unmodifiableMap(iBestAssignments);
+		iLectures = Collections.unmodifiableMap(iLectures);
+		iTimeStamp = System.currentTimeMillis();
+	}
+
+	/**
+	 * Time when the snapshot was taken
+	 */
+	public long getTimeStamp() { return iTimeStamp; }
+
+	/**
+	 * Best assignment of a class at the time the snapshot was taken
+	 */
+	public Placement getBestAssignment(Lecture lecture) { return iBestAssignments.get(lecture); }
+
+	/**
+	 * Class of the given id, null if not in the model
+	 */
+	public Lecture getLecture(Long classId) { return iLectures.get(classId); }
+
+	/**
+	 * Timetable grid models computed from this snapshot, null if not computed yet
+	 * @param key grid context (see {@link org.unitime.timetable.server.solver.TimetableGridContext#getCacheKey()})
+	 */
+	public List<TimetableGridModel> getTimetableGrid(String key) { return iGrids.get(key); }
+
+	/**
+	 * Remember timetable grid models computed from this snapshot, the models must not be modified afterwards
+	 */
+	public void setTimetableGrid(String key, List<TimetableGridModel> models) {
+		if (iGrids.size() < 100) iGrids.put(key, models);
+	}
+}
@@ -73,6 +73,7 @@ import org.dom4j.Element;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.hibernate.type.LongType;
+import org.unitime.timetable.defaults.ApplicationProperty;
 import org.unitime.timetable.gwt.server.Query;
 import org.unitime.timetable.gwt.server.Query.TermMatcher;
 import org.unitime.timetable.gwt.shared.EventInterface.FilterRpcResponse.Entity;
@@ -105,6 +106,7 @@ import org.unitime.timetable.server.solver.ComputeSuggestionsBackend;
 import org.unitime.timetable.server.solver.SelectedAssignmentBackend;
 import org.unitime.timetable.server.solver.SuggestionsContext;
 import org.unitime.timetable.server.solver.SuggestionsFilterBackend;
+import org.unitime.timetable.server.solver.TimetableGridCache;
 import org.unitime.timetable.server.solver.TimetableGridHelper.ResourceType;
 import org.unitime.timetable.server.solver.TimetableGridSolverHelper;
 import org.unitime.timetable.solver.interactive.ClassAssignmentDetails;
@@ -128,6 +130,7 @@ import org.unitime.timetable.solver.ui.ViolatedDistrPreferencesReport;
 public class TimetableSolver extends AbstractSolver<Lecture, Placement, TimetableModel> implements SolverProxy {
 	private Vector<AssignmentRecord> iAssignmentRecords = new Vector<AssignmentRecord>();
 	private Vector<AssignmentRecord> iBestAssignmentRecords = new Vector<AssignmentRecord>();
+	private volatile TimetableSolutionSnapshot iSnapshot = null;
 	private ConflictStatisticsInfo iCbsInfo = null;
 	private CommitedClassAssignmentProxy iCommitedClassAssignmentProxy;
 
@@ -232,11 +235,70 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
 	public void restoreBest() {
 		iAssignmentRecords = new Vector(iBestAssignmentRecords);
 		currentSolution().restoreBest();
+		iSnapshot = null;
 	}
 	
 	public void saveBest() {
 		iBestAssignmentRecords = new Vector(iAssignmentRecords);
 		currentSolution().saveBest();
+		iSnapshot = null;
+	}
+	
+	/**
+	 * Take a new snapshot of the current solution (see {@link TimetableSolutionSnapshot})
+	 */
+	public TimetableSolutionSnapshot refreshSnapshot() {
+		Lock lock = currentSolution().getLock().readLock();
+		lock.lock();
+		try {
+			TimetableSolutionSnapshot snapshot = new TimetableSolutionSnapshot(this);
+			iSnapshot = snapshot;
+			return snapshot;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Solver to be used by the read-only requests: a snapshot of the solution while the solver is running
+	 * (taken again when older than unitime.solver.snapshot.interval seconds), this solver otherwise
+	 */
+	protected Solver<Lecture, Placement> getReadOnlySolver() {
+		Integer interval = ApplicationProperty.SolverSnapshotInterval.intValue();
+		if (interval == null || interval <= 0 || !super.isRunning()) {
+			iSnapshot = null;
+			return this;
+		}
+		TimetableSolutionSnapshot snapshot = iSnapshot;
+		if (snapshot == null || System.currentTimeMillis() - snapshot.getTimeStamp() > 1000l * interval)
+			snapshot = refreshSnapshot();
+		return snapshot;
+	}
+	
+	/**
+	 * Lock to be held while reading from the given read-only solver: the read lock of this solver,
+	 * or the write lock of a snapshot (its assignment contexts are created lazily)
+	 */
+	protected Lock getReadOnlyLock(Solver<Lecture, Placement> solver) {
+		return (solver == this ? currentSolution().getLock().readLock() : solver.currentSolution().getLock().writeLock());
+	}
+	
+	/**
+	 * Best assignment of a class, taken from the snapshot when the given read-only solver is a snapshot
+	 */
+	protected Placement getBestAssignment(Solver<Lecture, Placement> solver, Lecture lecture) {
+		return (solver instanceof TimetableSolutionSnapshot ? ((TimetableSolutionSnapshot)solver).getBestAssignment(lecture) : lecture.getBestAssignment());
+	}
+	
+	/**
+	 * Class of the given id, null if not in the model
+	 */
+	protected Lecture getLecture(Solver<Lecture, Placement> solver, Long classId) {
+		if (solver instanceof TimetableSolutionSnapshot)
+			return ((TimetableSolutionSnapshot)solver).getLecture(classId);
+		for (Lecture lecture: solver.currentSolution().getModel().variables())
+			if (lecture.getClassId().equals(classId)) return lecture;
+		return null;
 	}
 
 	@Override
@@ -519,10 +581,11 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
     
     @Override
     public SolverUnassignedClassesModel getUnassignedClassesModel(String... prefix) {
-    	Lock lock = currentSolution().getLock().readLock();
+    	Solver<Lecture, Placement> solver = getReadOnlySolver();
+    	Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-    		return new SolverUnassignedClassesModel(this, prefix);
+    		return new SolverUnassignedClassesModel(solver, prefix);
     	} finally {
     		lock.unlock();
     	}
@@ -609,14 +672,13 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
     
     @Override
     public ClassAssignmentDetails getClassAssignmentDetails(Long classId, boolean includeConstraints) {
-    	Lock lock = currentSolution().getLock().readLock();
+    	Solver<Lecture, Placement> solver = getReadOnlySolver();
+    	Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-    		TimetableModel model = (TimetableModel)currentSolution().getModel();
-    		for (Lecture lecture: model.variables()) {
-    			if (lecture.getClassId().equals(classId))
-    				return new ClassAssignmentDetails(this,lecture,includeConstraints);
-    		}
+    		Lecture lecture = getLecture(solver, classId);
+    		if (lecture != null)
+    			return new ClassAssignmentDetails(solver,lecture,includeConstraints);
    			return null;
     	} finally {
     		lock.unlock();
@@ -689,6 +751,7 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
 			iAssignmentRecords.addElement(record);
 		} finally {
 			lock.unlock();
+			iSnapshot = null;
 		}
     }
     
@@ -757,17 +820,13 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
     
     @Override
     public Assignment getAssignment(Long classId) {
-    	Lock lock = currentSolution().getLock().readLock();
+    	Solver<Lecture, Placement> solver = getReadOnlySolver();
+    	Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-    		Lecture lecture = null;
-    		for (Lecture l: currentSolution().getModel().variables()) {
-    			if (l.getClassId().equals(classId)) {
-    				lecture = l; break;
-    			}
-    		}
+    		Lecture lecture = getLecture(solver, classId);
     		if (lecture==null) return null;
-    		Placement placement = (Placement)currentSolution().getAssignment().getValue(lecture);
+    		Placement placement = (Placement)solver.currentSolution().getAssignment().getValue(lecture);
     		if (placement==null) return null;
         	Assignment assignment = new Assignment();
         	assignment.setClassName(lecture.getName());
@@ -817,19 +876,15 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
     
     @Override
     public AssignmentPreferenceInfo getAssignmentInfo(Long classId) {
-    	Lock lock = currentSolution().getLock().readLock();
+    	Solver<Lecture, Placement> solver = getReadOnlySolver();
+    	Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-    		Lecture lecture = null;
-    		for (Lecture l: currentSolution().getModel().variables()) {
-    			if (l.getClassId().equals(classId)) {
-    				lecture = l; break;
-    			}
-    		}
+    		Lecture lecture = getLecture(solver, classId);
     		if (lecture==null) return null;
-    		Placement placement = (Placement)currentSolution().getAssignment().getValue(lecture);
+    		Placement placement = (Placement)solver.currentSolution().getAssignment().getValue(lecture);
     		if (placement==null) return null;
-    		return new AssignmentPreferenceInfo(this,placement);
+    		return new AssignmentPreferenceInfo(solver,placement);
     	} finally {
     		lock.unlock();
     	}
@@ -879,17 +934,18 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
     @Override
 	public List<RecordedAssignment> getChangesToInitial() {
     	List<RecordedAssignment> ret = new ArrayList<RecordedAssignment>();
-		Lock lock = currentSolution().getLock().readLock();
+    	Solver<Lecture, Placement> solver = getReadOnlySolver();
+    	Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-			for (Lecture lecture: currentSolution().getModel().variables()) {
-				if (!ToolBox.equals(lecture.getInitialAssignment(),currentSolution().getAssignment().getValue(lecture))) {
-					RecordedAssignment a = new RecordedAssignment(this,(Placement)lecture.getInitialAssignment(),currentSolution().getAssignment().getValue(lecture)); 
+			for (Lecture lecture: solver.currentSolution().getModel().variables()) {
+				if (!ToolBox.equals(lecture.getInitialAssignment(),solver.currentSolution().getAssignment().getValue(lecture))) {
+					RecordedAssignment a = new RecordedAssignment(solver,(Placement)lecture.getInitialAssignment(),solver.currentSolution().getAssignment().getValue(lecture)); 
 					if (lecture.getInitialAssignment()!=null) {
-						a.getBefore().setDetails(new ClassAssignmentDetails(this,lecture,(Placement)lecture.getInitialAssignment(),false));
+						a.getBefore().setDetails(new ClassAssignmentDetails(solver,lecture,(Placement)lecture.getInitialAssignment(),false));
 					}
-					if (currentSolution().getAssignment().getValue(lecture)!=null) {
-						a.getAfter().setDetails(new ClassAssignmentDetails(this,lecture,false));
+					if (solver.currentSolution().getAssignment().getValue(lecture)!=null) {
+						a.getAfter().setDetails(new ClassAssignmentDetails(solver,lecture,false));
 					}
 					ret.add(a);
 				}
@@ -903,17 +959,18 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
     @Override
 	public List<ClassAssignmentDetails> getAssignedClasses(String... prefix) {
     	List<ClassAssignmentDetails> ret = new ArrayList<ClassAssignmentDetails>();
-		Lock lock = currentSolution().getLock().readLock();
+    	Solver<Lecture, Placement> solver = getReadOnlySolver();
+    	Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-			for (Lecture lecture: currentSolution().getAssignment().assignedVariables()) {
+			for (Lecture lecture: solver.currentSolution().getAssignment().assignedVariables()) {
 				if (prefix != null && prefix.length > 0) {
 					boolean hasPrefix = false;
 					for (String p: prefix)
 						if (p == null || lecture.getName().startsWith(p)) { hasPrefix = true; break; }
 					if (!hasPrefix) continue;
 				}
-				ret.add(new ClassAssignmentDetails(this,lecture,false));
+				ret.add(new ClassAssignmentDetails(solver,lecture,false));
 			}
 		} finally {
 			lock.unlock();
@@ -924,18 +981,20 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
     @Override
 	public List<RecordedAssignment> getChangesToBest() {
     	List<RecordedAssignment> ret = new ArrayList<RecordedAssignment>();
-		Lock lock = currentSolution().getLock().readLock();
+    	Solver<Lecture, Placement> solver = getReadOnlySolver();
+    	Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-			for (Lecture lecture: currentSolution().getModel().variables()) {
-				Placement placement = currentSolution().getAssignment().getValue(lecture);
-				if (!ToolBox.equals(lecture.getBestAssignment(), placement)) {
-					RecordedAssignment a = new RecordedAssignment(this,(Placement)lecture.getBestAssignment(),placement);
-					if (lecture.getBestAssignment()!=null) {
-						a.getBefore().setDetails(new ClassAssignmentDetails(this,lecture,(Placement)lecture.getBestAssignment(),false));
+			for (Lecture lecture: solver.currentSolution().getModel().variables()) {
+				Placement placement = solver.currentSolution().getAssignment().getValue(lecture);
+				Placement best = getBestAssignment(solver, lecture);
+				if (!ToolBox.equals(best, placement)) {
+					RecordedAssignment a = new RecordedAssignment(solver,best,placement);
+					if (best!=null) {
+						a.getBefore().setDetails(new ClassAssignmentDetails(solver,lecture,best,false));
 					}
 					if (placement!=null) {
-						a.getAfter().setDetails(new ClassAssignmentDetails(this,lecture,false));
+						a.getAfter().setDetails(new ClassAssignmentDetails(solver,lecture,false));
 					}
 					ret.add(a);
 				}
@@ -1104,10 +1163,11 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
 	
 	@Override
 	public RoomReport getRoomReport(BitSet sessionDays, int startDayDayOfWeek, Long roomType, Float nrWeeks) {
-		Lock lock = currentSolution().getLock().readLock();
+		Solver<Lecture, Placement> solver = getReadOnlySolver();
+		Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-			return new RoomReport(this, sessionDays, startDayDayOfWeek, roomType, nrWeeks);
+			return new RoomReport(solver, sessionDays, startDayDayOfWeek, roomType, nrWeeks);
 		} finally {
 			lock.unlock();
 		}
@@ -1115,10 +1175,11 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
 	
 	@Override
 	public DeptBalancingReport getDeptBalancingReport() {
-		Lock lock = currentSolution().getLock().readLock();
+		Solver<Lecture, Placement> solver = getReadOnlySolver();
+		Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-			return new DeptBalancingReport(this);
+			return new DeptBalancingReport(solver);
 		} finally {
 			lock.unlock();
 		}
@@ -1126,10 +1187,11 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
 	
 	@Override
 	public ViolatedDistrPreferencesReport getViolatedDistrPreferencesReport() {
-		Lock lock = currentSolution().getLock().readLock();
+		Solver<Lecture, Placement> solver = getReadOnlySolver();
+		Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-			return new ViolatedDistrPreferencesReport(this);
+			return new ViolatedDistrPreferencesReport(solver);
 		} finally {
 			lock.unlock();
 		}
@@ -1137,10 +1199,11 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
 	
 	@Override
 	public DiscouragedInstructorBtbReport getDiscouragedInstructorBtbReport() {
-		Lock lock = currentSolution().getLock().readLock();
+		Solver<Lecture, Placement> solver = getReadOnlySolver();
+		Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-			return new DiscouragedInstructorBtbReport(this);
+			return new DiscouragedInstructorBtbReport(solver);
 		} finally {
 			lock.unlock();
 		}
@@ -1148,10 +1211,11 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
 	
 	@Override
 	public StudentConflictsReport getStudentConflictsReport() {
-		Lock lock = currentSolution().getLock().readLock();
+		Solver<Lecture, Placement> solver = getReadOnlySolver();
+		Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-			return new StudentConflictsReport(this);
+			return new StudentConflictsReport(solver);
 		} finally {
 			lock.unlock();
 		}
@@ -1159,10 +1223,11 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
 	
 	@Override
 	public SameSubpartBalancingReport getSameSubpartBalancingReport() {
-		Lock lock = currentSolution().getLock().readLock();
+		Solver<Lecture, Placement> solver = getReadOnlySolver();
+		Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-			return new SameSubpartBalancingReport(this);
+			return new SameSubpartBalancingReport(solver);
 		} finally {
 			lock.unlock();
 		}
@@ -1170,10 +1235,11 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
 	
 	@Override
 	public PerturbationReport getPerturbationReport() {
-		Lock lock = currentSolution().getLock().readLock();
+		Solver<Lecture, Placement> solver = getReadOnlySolver();
+		Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-			return new PerturbationReport(this);
+			return new PerturbationReport(solver);
 		} finally {
 			lock.unlock();
 		}
@@ -1298,30 +1364,40 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
 		context.ensureLocalizationIsSet();
 		List<org.unitime.timetable.gwt.shared.TimetableGridInterface.TimetableGridModel> models = new ArrayList<org.unitime.timetable.gwt.shared.TimetableGridInterface.TimetableGridModel>();
     	Query q = (context.getFilter() == null ? null : new Query(context.getFilter()));
-    	Lock lock = currentSolution().getLock().readLock();
+    	Solver<Lecture, Placement> solver = getReadOnlySolver();
+    	TimetableSolutionSnapshot snapshot = (solver instanceof TimetableSolutionSnapshot ? (TimetableSolutionSnapshot)solver : null);
+    	if (snapshot != null) {
+    		List<org.unitime.timetable.gwt.shared.TimetableGridInterface.TimetableGridModel> cached = snapshot.getTimetableGrid(context.getCacheKey());
+    		if (cached != null) {
+    			sLog.debug("Timetable grid of " + cached.size() + " " + ResourceType.values()[context.getResourceType()].name().toLowerCase() + "(s) returned from the snapshot.");
+    			return TimetableGridCache.copy(cached);
+    		}
+    	}
+    	long t0 = System.currentTimeMillis();
+    	Lock lock = getReadOnlyLock(solver);
 		lock.lock();
 		try {
-    		TimetableModel model = (TimetableModel)currentSolution().getModel();
+    		TimetableModel model = (TimetableModel)solver.currentSolution().getModel();
     		switch (ResourceType.values()[context.getResourceType()]) {
     		case ROOM:
     			for (RoomConstraint rc: model.getRoomConstraints()) {
     				if (!match(q, rc)) continue;
-    				models.add(TimetableGridSolverHelper.createModel(this, rc, context));
+    				models.add(TimetableGridSolverHelper.createModel(solver, rc, context));
     			}
     			break;
     		case INSTRUCTOR:
     			for (InstructorConstraint ic: model.getInstructorConstraints()) {
     				if (!match(q, ic.getName())) continue;
-    				models.add(TimetableGridSolverHelper.createModel(this, ic, context));
+    				models.add(TimetableGridSolverHelper.createModel(solver, ic, context));
     			}
     			break;
     		case DEPARTMENT:
     			for (DepartmentSpreadConstraint dc: model.getDepartmentSpreadConstraints()) {
     				if (!match(q, dc.getName())) continue;
-    				models.add(TimetableGridSolverHelper.createModel(this, dc, context));
+    				models.add(TimetableGridSolverHelper.createModel(solver, dc, context));
     			}
     			if (model.getDepartmentSpreadConstraints().isEmpty()) {
-    				org.cpsolver.ifs.assignment.Assignment<Lecture, Placement> assignment = currentSolution().getAssignment();
+    				org.cpsolver.ifs.assignment.Assignment<Lecture, Placement> assignment = solver.currentSolution().getAssignment();
     				Map<Department, Set<Long>> dept2class = new HashMap<Department, Set<Long>>();
     				for (Object[] pair: (List<Object[]>)DepartmentDAO.getInstance().getSession().createQuery(
     						"select c.controllingDept, c.uniqueId from Class_ c where c.managingDept.solverGroup.uniqueId in :solverGroupIds"
@@ -1345,7 +1421,7 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
     						}
     					}
     					if (size > 0)
-    						models.add(TimetableGridSolverHelper.createModel(this, ResourceType.DEPARTMENT.ordinal(),
+    						models.add(TimetableGridSolverHelper.createModel(solver, ResourceType.DEPARTMENT.ordinal(),
     								d.getUniqueId(), d.getShortLabel(), size, placements, context));
     				}
     			}
@@ -1382,11 +1458,11 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
     				}
     			}
 				for (Map.Entry<String, List<Student>> curriculum: curricula.entrySet()) {
-					models.add(TimetableGridSolverHelper.createModel(this, curriculum.getKey(), curriculum.getValue(), context));
+					models.add(TimetableGridSolverHelper.createModel(solver, curriculum.getKey(), curriculum.getValue(), context));
 				}
     			break;
     		case SUBJECT_AREA:
-    			org.cpsolver.ifs.assignment.Assignment<Lecture, Placement> assignment = currentSolution().getAssignment();
+    			org.cpsolver.ifs.assignment.Assignment<Lecture, Placement> assignment = solver.currentSolution().getAssignment();
 				Map<SubjectArea, Set<Long>> sa2class = new HashMap<SubjectArea, Set<Long>>();
 				for (Object[] pair: (List<Object[]>)DepartmentDAO.getInstance().getSession().createQuery(
 						"select co.subjectArea, c.uniqueId from Class_ c inner join c.schedulingSubpart.instrOfferingConfig.instructionalOffering.courseOfferings co where co.isControl = true and c.managingDept.solverGroup.uniqueId in :solverGroupIds"
@@ -1410,20 +1486,23 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
 						}
 					}
 					if (size > 0)
-						models.add(TimetableGridSolverHelper.createModel(this, ResourceType.SUBJECT_AREA.ordinal(),
+						models.add(TimetableGridSolverHelper.createModel(solver, ResourceType.SUBJECT_AREA.ordinal(),
 								sa.getUniqueId(), sa.getSubjectAreaAbbreviation(), size, placements, context));
 				}
 				break;
     		case STUDENT_GROUP:
     			for (StudentGroup group: model.getStudentGroups()) {
 					if (match(q, group.getName())) 
-						models.add(TimetableGridSolverHelper.createModel(this, group, context));
+						models.add(TimetableGridSolverHelper.createModel(solver, group, context));
     			}
     			break;
     		}
     	} finally {
     		lock.unlock();
     	}
+    	sLog.debug("Timetable grid of " + models.size() + " " + ResourceType.values()[context.getResourceType()].name().toLowerCase() + "(s) computed in " + (System.currentTimeMillis() - t0) + " ms.");
+    	if (snapshot != null)
+    		snapshot.setTimetableGrid(context.getCacheKey(), TimetableGridCache.copy(models));
 		return models;
 	}
 	
@@ -1503,6 +1582,7 @@ public class TimetableSolver extends AbstractSolver<Lecture, Placement, Timetabl
 			iAssignmentRecords.addElement(record);
 		} finally {
 			lock.unlock();
+			iSnapshot = null;
 		}
     }
 
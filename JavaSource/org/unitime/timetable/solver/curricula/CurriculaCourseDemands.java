@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -74,6 +75,7 @@ public class CurriculaCourseDemands implements StudentCourseDemands, NeedsStuden
 	private boolean iCreateStudentGroups = true;
 	private CurriculumEnrollmentPriorityProvider iEnrollmentPriorityProvider = null;
 	private DataProperties iProperties = null;
+	private AtomicInteger iCacheHits = new AtomicInteger(0), iCacheMisses = new AtomicInteger(0);
 
 	public CurriculaCourseDemands(DataProperties properties) {
 		iProperties = properties;
@@ -170,6 +172,11 @@ public class CurriculaCourseDemands implements StudentCourseDemands, NeedsStuden
 				iProperties.getPropertyInt("CurriculaCourseDemands.NrThreads", 1),
 				inits).execute(hibSession, progress);
 		
+		if (!inits.isEmpty()) {
+			sLog.info("Curriculum demands cache: " + iCacheHits.get() + " hits, " + iCacheMisses.get() + " misses.");
+			progress.info("Curriculum demands: " + iCacheHits.get() + " of " + inits.size() + " classifications loaded from cache, " + iCacheMisses.get() + " recomputed.");
+		}
+		
 		if (iDemands.isEmpty()) {
 			progress.warn("There are no curricula, using projected course demands instead.");
 		}
@@ -179,6 +186,10 @@ public class CurriculaCourseDemands implements StudentCourseDemands, NeedsStuden
 		return "curriculum-demands";
 	}
 	
+	protected String getCacheHashAttribute() {
+		return "hash";
+	}
+	
 	protected void computeTargetShare(int nrStudents, Collection<CurriculumCourse> courses, CurriculumCourseGroupsProvider course2groups, CurModel model) {
 		for (CurriculumCourse c1: courses) {
 			float x1 = c1.getPercShare() * nrStudents;
@@ -249,7 +260,8 @@ public class CurriculaCourseDemands implements StudentCourseDemands, NeedsStuden
 	public class Initialization implements ParallelInitialization.Task {
 		private CurriculumClassification iClassification;
 		private List<CurriculumClassification> iTemplates;
-		private boolean iUpdateClassification = false;
+		private boolean iUpdateClassification = false, iUpdateCache = false;
+		private String iInputHash = null;
 		private CurModel iModel;
 		private Hashtable<Long, CourseOffering> iCourses;
 		private Assignment<CurVariable, CurValue> iAssignment;
@@ -321,25 +333,32 @@ public class CurriculaCourseDemands implements StudentCourseDemands, NeedsStuden
 			if (iSetStudentCourseLimits)
 				iModel.setStudentLimits();
 			
+			iInputHash = iModel.getInputHash();
+			
 			// Load model from cache (if exists)
 			Solution<CurVariable, CurValue> cachedSolution = null;
 			iAssignment = new DefaultSingleAssignment<CurVariable, CurValue>();
 			Document cachedXml = iClassification.getStudentsDocument();
 			Element cache = (cachedXml == null ? null : cachedXml.getRootElement());
-			if (cache != null && cache.getName().equals(getCacheName())) {
+			String cachedHash = (cache == null ? null : cache.attributeValue(getCacheHashAttribute()));
+			if (cache != null && cache.getName().equals(getCacheName()) && (cachedHash == null || cachedHash.equals(iInputHash))) {
 				cachedSolution = CurModel.loadFromXml(cache);
 				if (iSetStudentCourseLimits)
 					((CurModel)cachedSolution.getModel()).setStudentLimits();
 			}
 
-			// Check the cached model
-			if (cachedSolution != null && ((CurModel)cachedSolution.getModel()).isSameModel(iModel)) {
+			// Check the cached model (the input hash matches, or the cache was created before the hash was introduced)
+			if (cachedSolution != null && (cachedHash != null || ((CurModel)cachedSolution.getModel()).isSameModel(iModel))) {
 				// Reuse
 				sLog.debug("  using cached model...");
 				iModel = ((CurModel)cachedSolution.getModel());
 				iAssignment = cachedSolution.getAssignment();
+				iUpdateCache = (cachedHash == null);
+				iCacheHits.incrementAndGet();
 			} else {
 				iUpdateClassification = true;
+				iUpdateCache = true;
+				iCacheMisses.incrementAndGet();
 			}			
 		}
 		
@@ -353,10 +372,12 @@ public class CurriculaCourseDemands implements StudentCourseDemands, NeedsStuden
 		
 		@Override
 		public void teardown(org.hibernate.Session hibSession) {
-			if (iUpdateClassification) {
+			if (iUpdateCache) {
 				// Save into the cache
 				Document doc = DocumentHelper.createDocument();
-				iModel.saveAsXml(doc.addElement(getCacheName()), iAssignment);
+				Element root = doc.addElement(getCacheName());
+				root.addAttribute(getCacheHashAttribute(), iInputHash);
+				iModel.saveAsXml(root, iAssignment);
 				// sLog.debug("Model:\n" + doc.asXML());
 				iClassification.setStudentsDocument(doc);
 
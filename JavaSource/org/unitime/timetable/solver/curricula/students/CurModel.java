@@ -20,6 +20,10 @@
 package org.unitime.timetable.solver.curricula.students;
 
 import java.io.FileOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
@@ -30,6 +34,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.apache.commons.logging.Log;
@@ -563,6 +568,43 @@ public class CurModel extends ModelWithContext<CurVariable, CurValue, CurModel.C
     	return true;
     }
     
+    /**
+     * Hash of the model inputs (students and their weights, student limits, course sizes, priorities, and target shares).
+     * Two models with the same hash are considered the same (see {@link CurModel#isSameModel(Object)}), which allows for
+     * a cached solution to be validated without the need to load it first.
+     */
+    public String getInputHash() {
+    	DecimalFormat df = new DecimalFormat("0.000", new DecimalFormatSymbols(Locale.US));
+    	StringBuilder sb = new StringBuilder();
+    	sb.append(getStudents().size());
+    	sb.append("|").append(getStudentLimit().getMinLimit()).append(",").append(getStudentLimit().getMaxLimit());
+    	sb.append("|").append(df.format(getMinStudentWidth()));
+    	TreeMap<Long, Double> realStudents = new TreeMap<Long, Double>();
+    	sb.append("|");
+    	for (CurStudent s: getStudents()) {
+    		if (s.getStudentId() != null && s.getStudentId() >= 0)
+    			realStudents.put(s.getStudentId(), s.getWeight());
+    		else
+    			sb.append(df.format(s.getWeight())).append(",");
+    	}
+    	sb.append("|");
+    	for (Map.Entry<Long, Double> e: realStudents.entrySet())
+    		sb.append(e.getKey()).append(":").append(df.format(e.getValue())).append(",");
+    	TreeMap<Long, CurCourse> courses = new TreeMap<Long, CurCourse>(iCourses);
+    	for (CurCourse c1: courses.values()) {
+    		sb.append("|").append(c1.getCourseId()).append(":").append(c1.getNrStudents()).append(":").append(c1.getPriority() == null ? "" : c1.getPriority().toString());
+    		for (CurCourse c2: courses.values())
+    			if (c1.getCourseId() < c2.getCourseId())
+    				sb.append(",").append(df.format(c1.getTargetShare(c2.getCourseId())));
+    	}
+    	try {
+    		MessageDigest md5 = MessageDigest.getInstance("MD5");
+    		return new BigInteger(1, md5.digest(sb.toString().getBytes(StandardCharsets.UTF_8))).toString(36);
+    	} catch (NoSuchAlgorithmException e) {
+    		return String.valueOf(sb.toString().hashCode());
+    	}
+    }
+    
     public static boolean equals(Object o1, Object o2) {
         return (o1 == null ? o2 == null : o1.equals(o2));
     }
@@ -55,6 +55,8 @@ import org.unitime.timetable.model.dao.StudentDAO;
 import org.unitime.timetable.solver.exam.ui.ExamAssignment;
 import org.unitime.timetable.solver.exam.ui.ExamAssignmentInfo;
 import org.unitime.timetable.solver.jgroups.SolverServerImplementation;
+import org.unitime.timetable.util.DataChange;
+import org.unitime.timetable.util.DataChangeNotifier;
 
 
 /**
@@ -82,6 +84,8 @@ public class ExamDatabaseSaver extends ProblemSaver<Exam, ExamPlacement, ExamMod
         try {
             tx = hibSession.beginTransaction();
             saveSolution(hibSession);
+            // examination assignments have changed (e.g., calendar feeds, room occupancy), published once committed
+            DataChangeNotifier.changed(hibSession, new DataChange(DataChange.Type.EXAM, iSessionId));
             tx.commit();
             
             iProgress.setPhase("Refreshing solution ...", 1);
@@ -40,7 +40,10 @@ import org.unitime.timetable.model.InstructionalOffering;
 import org.unitime.timetable.model.Solution;
 import org.unitime.timetable.model.TeachingRequest;
 import org.unitime.timetable.model.dao._RootDAO;
+import org.unitime.timetable.onlinesectioning.OnlineSectioningServer;
 import org.unitime.timetable.util.Constants;
+import org.unitime.timetable.util.DataChange;
+import org.unitime.timetable.util.DataChangeNotifier;
 import org.unitime.timetable.util.RoomAvailability;
 import org.unitime.timetable.util.queue.LocalQueueProcessor;
 import org.unitime.timetable.util.queue.QueueProcessor;
@@ -163,6 +166,18 @@ public abstract class AbstractSolverServer implements SolverServer {
 		}
 	}
 	
+	@Override
+	public void studentSectioningQueueChanged(Long sessionId) {
+		SolverContainer<OnlineSectioningServer> container = getOnlineStudentSchedulingContainer();
+		if (container instanceof OnlineStudentSchedulingContainer)
+			((OnlineStudentSchedulingContainer)container).wakeUpUpdater(sessionId);
+	}
+	
+	@Override
+	public void dataChanged(Collection<DataChange> changes) {
+		DataChangeNotifier.fire(changes);
+	}
+	
 	@Override
 	public void refreshExamSolution(Long sessionId, Long examTypeId) {
 		try {
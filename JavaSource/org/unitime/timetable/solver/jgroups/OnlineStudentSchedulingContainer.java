@@ -199,6 +199,15 @@ public class OnlineStudentSchedulingContainer implements SolverContainer<OnlineS
 		unload(Long.valueOf(sessionId), true);
 	}
 	
+	/**
+	 * Wake up the updater of the given academic session, called when a new change is committed into the student sectioning queue
+	 */
+	public void wakeUpUpdater(Long academicSessionId) {
+		OnlineStudentSchedulingUpdater u = iUpdaters.get(academicSessionId);
+		if (u != null)
+			u.wakeUp();
+	}
+	
 	public void unload(Long academicSessionId, boolean interrupt) {
 		iGlobalLock.writeLock().lock();
 		try {
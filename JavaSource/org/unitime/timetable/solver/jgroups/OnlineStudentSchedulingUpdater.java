@@ -19,9 +19,12 @@
 */
 package org.unitime.timetable.solver.jgroups;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -48,12 +51,21 @@ import org.unitime.timetable.onlinesectioning.updates.ReloadOfferingAction;
 import org.unitime.timetable.onlinesectioning.updates.ReloadStudent;
 
 /**
+ * Updater of an online student scheduling server, processing the changes in the student sectioning queue.<br>
+ * The queue is checked every unitime.sectioning.queue.updateInterval seconds, or as soon as the updater
+ * is woken up by {@link #wakeUp()} (when a new change is committed into the queue).
+ * Consecutive changes of the same type and made by the same user are coalesced into a single update.
+ * The time between a change being queued and processed is available in the Updater.QueueLag property of the server (in milliseconds).
+ *
  * @author Tomas Muller
  */
 public class OnlineStudentSchedulingUpdater extends Thread {
 	private Log iLog;
 	private long iSleepTimeInSeconds = 5;
 	private boolean iRun = true;
+	private Object iWakeUpLock = new Object();
+	private boolean iWakeUp = false;
+	private long iQueueLag = 0;
 	
 	private OnlineStudentSchedulingContainer iContainer = null;
 	private AcademicSessionInfo iSession = null; 
@@ -77,7 +89,10 @@ public class OnlineStudentSchedulingUpdater extends Thread {
 				ApplicationProperties.setSessionId(getAcademicSession().getUniqueId());
 			while (iRun) {
 				try {
-					sleep(iSleepTimeInSeconds * 1000);
+					synchronized (iWakeUpLock) {
+						if (!iWakeUp) iWakeUpLock.wait(iSleepTimeInSeconds * 1000);
+						iWakeUp = false;
+					}
 				} catch (InterruptedException e) {}
 				if (!iRun) break;
 				try {
@@ -118,20 +133,50 @@ public class OnlineStudentSchedulingUpdater extends Thread {
 		return iContainer.getInstance(getAcademicSession().getUniqueId());
 	}
 	
+	/**
+	 * Wake up the updater, so that the queue is checked without waiting for the rest of the update interval
+	 */
+	public void wakeUp() {
+		synchronized (iWakeUpLock) {
+			iWakeUp = true;
+			iWakeUpLock.notify();
+		}
+	}
+	
+	/**
+	 * Time in milliseconds between the last processed change being queued and processed
+	 */
+	public long getQueueLag() {
+		return iQueueLag;
+	}
+	
 	public void checkForUpdates(OnlineSectioningServer server) {
 		try {
 			org.hibernate.Session hibSession = StudentSectioningQueueDAO.getInstance().createNewSession();
 			try {
 				iLastTimeStamp = server.getProperty("Updater.LastTimeStamp", iLastTimeStamp);
-				for (StudentSectioningQueue q: StudentSectioningQueue.getItems(hibSession, getAcademicSession().getUniqueId(), iLastTimeStamp)) {
+				List<StudentSectioningQueue> queue = new ArrayList<StudentSectioningQueue>(StudentSectioningQueue.getItems(hibSession, getAcademicSession().getUniqueId(), iLastTimeStamp));
+				int index = 0;
+				while (index < queue.size()) {
+					StudentSectioningQueue q = queue.get(index);
+					int next = index + 1;
+					while (next < queue.size() && canCoalesce(q, queue.get(next))) next++;
 					try {
-						processChange(server, q);
+						if (next == index + 1)
+							processChange(server, q);
+						else
+							processChange(server, q, coalesceIds(queue.subList(index, next)));
 					} catch (Exception e) {
 						iLog.error("Update failed: " + e.getMessage(), e);
 					}
 					if (!iRun) break;
-					iLastTimeStamp = q.getTimeStamp();
+					iQueueLag = System.currentTimeMillis() - q.getTimeStamp().getTime();
+					if (next > index + 1)
+						iLog.debug("Coalesced " + (next - index) + " " + StudentSectioningQueue.Type.values()[q.getType()] + " changes (lag: " + iQueueLag + " ms)");
+					iLastTimeStamp = queue.get(next - 1).getTimeStamp();
 					server.setProperty("Updater.LastTimeStamp", iLastTimeStamp);
+					server.setProperty("Updater.QueueLag", iQueueLag);
+					index = next;
 				}
 			} finally {
 				hibSession.close();
@@ -141,6 +186,32 @@ public class OnlineStudentSchedulingUpdater extends Thread {
 		}
 	}
 	
+	/**
+	 * Two changes can be processed together when they are of the same type and made by the same user
+	 */
+	protected boolean canCoalesce(StudentSectioningQueue q1, StudentSectioningQueue q2) {
+		if (!q1.getType().equals(q2.getType())) return false;
+		OnlineSectioningLog.Entity u1 = q1.getUser(), u2 = q2.getUser();
+		return (u1 == null ? u2 == null : u1.equals(u2));
+	}
+	
+	/**
+	 * Union of the ids of the given changes, an empty list when any of the student enrollment changes has no ids (all students changed)
+	 */
+	protected List<Long> coalesceIds(List<StudentSectioningQueue> changes) {
+		Set<Long> ids = new LinkedHashSet<Long>();
+		for (StudentSectioningQueue q: changes) {
+			List<Long> qIds = q.getIds();
+			if (qIds == null || qIds.isEmpty()) {
+				if (StudentSectioningQueue.Type.values()[q.getType()] == StudentSectioningQueue.Type.STUDENT_ENROLLMENT_CHANGE)
+					return new ArrayList<Long>();
+			} else {
+				ids.addAll(qIds);
+			}
+		}
+		return new ArrayList<Long>(ids);
+	}
+	
 	public void checkForExpiredReservations(OnlineSectioningServer server) {
 		long ts = System.currentTimeMillis(); // current time stamp
 		// the check was done within the last hour -> no need to repeat
@@ -184,6 +255,10 @@ public class OnlineStudentSchedulingUpdater extends Thread {
 	}
 	
 	protected void processChange(OnlineSectioningServer server, StudentSectioningQueue q) {
+		processChange(server, q, q.getIds());
+	}
+	
+	protected void processChange(OnlineSectioningServer server, StudentSectioningQueue q, List<Long> ids) {
 		switch (StudentSectioningQueue.Type.values()[q.getType()]) {
 		case SESSION_RELOAD:
 			iLog.info("Reloading " + server.getAcademicSession());
@@ -213,7 +288,7 @@ public class OnlineStudentSchedulingUpdater extends Thread {
 			}
 			break;
 		case STUDENT_ENROLLMENT_CHANGE:
-			List<Long> studentIds = q.getIds();
+			List<Long> studentIds = ids;
 			if (studentIds == null || studentIds.isEmpty()) {
 				iLog.info("All students changed for " + server.getAcademicSession());
 				server.execute(server.createAction(ReloadAllStudents.class), q.getUser());
@@ -222,10 +297,10 @@ public class OnlineStudentSchedulingUpdater extends Thread {
 			}
 			break;
 		case CLASS_ASSIGNMENT_CHANGE:
-			server.execute(server.createAction(ClassAssignmentChanged.class).forClasses(q.getIds()), q.getUser());
+			server.execute(server.createAction(ClassAssignmentChanged.class).forClasses(ids), q.getUser());
 			break;
 		case OFFERING_CHANGE:
-			server.execute(server.createAction(ReloadOfferingAction.class).forOfferings(q.getIds()), q.getUser());
+			server.execute(server.createAction(ReloadOfferingAction.class).forOfferings(ids), q.getUser());
 			break;
 		default:
 			iLog.error("Student sectioning queue type " + StudentSectioningQueue.Type.values()[q.getType()] + " not known.");
@@ -31,6 +31,7 @@ import org.unitime.timetable.solver.SolverProxy;
 import org.unitime.timetable.solver.exam.ExamSolverProxy;
 import org.unitime.timetable.solver.instructor.InstructorSchedulingProxy;
 import org.unitime.timetable.solver.studentsct.StudentSolverProxy;
+import org.unitime.timetable.util.DataChange;
 import org.unitime.timetable.util.queue.QueueProcessor;
 
 /**
@@ -95,6 +96,10 @@ public interface SolverServer {
 	
 	public void setApplicationProperty(Long sessionId, String key, String value);
 	
+	public void studentSectioningQueueChanged(Long sessionId);
+	
+	public void dataChanged(Collection<DataChange> changes);
+	
 	public void setLoggingLevel(String name, String level);
 	
 	public void unloadSolver(SolverType type, String id);
@@ -80,6 +80,7 @@ import org.unitime.timetable.solver.instructor.InstructorSchedulingProxy;
 import org.unitime.timetable.solver.service.SolverServerService;
 import org.unitime.timetable.solver.studentsct.StudentSolverProxy;
 import org.unitime.timetable.spring.SpringApplicationContextHolder;
+import org.unitime.timetable.util.DataChange;
 import org.unitime.timetable.util.MessageLogAppender;
 import org.unitime.timetable.util.queue.QueueProcessor;
 import org.unitime.timetable.util.queue.RemoteQueueProcessor;
@@ -92,6 +93,7 @@ public class SolverServerImplementation extends AbstractSolverServer implements
 	private static SolverServerImplementation sInstance = null;
 	public static final RequestOptions sFirstResponse = new RequestOptions(ResponseMode.GET_FIRST, ApplicationProperty.SolverClusterTimeout.intValue()).setFlags(Flag.DONT_BUNDLE, Flag.OOB);
 	public static final RequestOptions sAllResponses = new RequestOptions(ResponseMode.GET_ALL, ApplicationProperty.SolverClusterTimeout.intValue()).setFlags(Flag.DONT_BUNDLE, Flag.OOB);
+	public static final RequestOptions sNoResponse = new RequestOptions(ResponseMode.GET_NONE, ApplicationProperty.SolverClusterTimeout.intValue()).setFlags(Flag.DONT_BUNDLE, Flag.OOB);
 	
 	private JChannel iChannel;
 	private RpcDispatcher iDispatcher;
@@ -341,6 +343,35 @@ public class SolverServerImplementation extends AbstractSolverServer implements
 		}
 	}
 	
+	public void studentSectioningQueueChangedLocal(Long sessionId) {
+		super.studentSectioningQueueChanged(sessionId);
+	}
+	
+	@Override
+	public void studentSectioningQueueChanged(Long sessionId) {
+		try {
+			iDispatcher.callRemoteMethods(null, "studentSectioningQueueChangedLocal", new Object[] { sessionId }, new Class[] { Long.class }, sNoResponse);
+		} catch (Exception e) {
+			sLog.error("Failed to notify student sectioning queue updaters: " + e.getMessage(), e);
+		}
+	}
+	
+	public void dataChangedLocal(Collection<DataChange> changes) {
+		super.dataChanged(changes);
+	}
+	
+	@Override
+	public void dataChanged(Collection<DataChange> changes) {
+		// local listeners are notified right away, the other nodes asynchronously
+		super.dataChanged(changes);
+		try {
+			iDispatcher.callRemoteMethods(null, "dataChangedLocal", new Object[] { new ArrayList<DataChange>(changes) }, new Class[] { Collection.class },
+					new RequestOptions(sNoResponse).setExclusionList(iChannel.getAddress()));
+		} catch (Exception e) {
+			sLog.error("Failed to publish data changes: " + e.getMessage(), e);
+		}
+	}
+	
 	public void refreshExamSolutionLocal(Long sessionId, Long examTypeId) {
 		if (isLocal())
 			super.refreshExamSolution(sessionId, examTypeId);
@@ -19,13 +19,24 @@
 */
 package org.unitime.timetable.solver.studentsct;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -44,6 +55,7 @@ import org.cpsolver.studentsct.model.Student;
 import org.cpsolver.studentsct.model.Subpart;
 import org.hibernate.CacheMode;
 import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
 import org.hibernate.Transaction;
 import org.unitime.timetable.ApplicationProperties;
 import org.unitime.timetable.gwt.shared.OnlineSectioningInterface.WaitListMode;
@@ -58,7 +70,10 @@ import org.unitime.timetable.model.StudentSectioningQueue;
 import org.unitime.timetable.model.StudentSectioningStatus;
 import org.unitime.timetable.model.WaitList;
 import org.unitime.timetable.model.StudentSectioningStatus.Option;
+import org.unitime.timetable.model.dao.Class_DAO;
+import org.unitime.timetable.model.dao.CourseOfferingDAO;
 import org.unitime.timetable.model.dao.SessionDAO;
+import org.unitime.timetable.model.dao.StudentSectioningStatusDAO;
 
 
 /**
@@ -70,10 +85,9 @@ public class StudentSectioningDatabaseSaver extends StudentSectioningSaver {
     private String iInitiative = null;
     private String iTerm = null;
     private String iYear = null;
-    private Hashtable<Long,org.unitime.timetable.model.Student> iStudents = null;
     private Hashtable<Long,CourseOffering> iCourses = null;
     private Hashtable<Long,Class_> iClasses = null;
-    private Hashtable<String,org.unitime.timetable.model.CourseRequest> iRequests = null;
+    private Map<Long,Long> iCourse2Offering = null;
     private Date iTimeStamp = null;
     private StudentSectioningStatus iStatusToSet = null;
     private boolean iResetStatus = false;
@@ -81,6 +95,8 @@ public class StudentSectioningDatabaseSaver extends StudentSectioningSaver {
     private String iOwnerId = null;
     
     private int iInsert = 0;
+    private int iNrThreads = 1;
+    private int iStudentsPerTransaction = 0;
     
     private Progress iProgress = null;
 	private boolean iProjections = false;
@@ -95,6 +111,8 @@ public class StudentSectioningDatabaseSaver extends StudentSectioningSaver {
         iProjections = "Projection".equals(solver.getProperties().getProperty("StudentSctBasic.Mode", "Initial"));
         iUpdateCourseRequests = solver.getProperties().getPropertyBoolean("Interactive.UpdateCourseRequests", true);
         iOwnerId = solver.getProperties().getProperty("General.OwnerPuid");
+        iNrThreads = solver.getProperties().getPropertyInt("Save.NrThreads", iNrThreads);
+        iStudentsPerTransaction = solver.getProperties().getPropertyInt("Save.StudentsPerTransaction", iStudentsPerTransaction);
     }
     
     public void save() {
@@ -145,23 +163,22 @@ public class StudentSectioningDatabaseSaver extends StudentSectioningSaver {
     }
 
     
-    public void saveStudent(org.hibernate.Session hibSession, Student student) {
-        org.unitime.timetable.model.Student s = iStudents.get(student.getId());
+    /**
+     * Save the given student. Only the class enrollments that have changed are deleted, inserted, or updated.
+     */
+    public void saveStudent(StudentPartition partition, Student student) {
+        org.hibernate.Session hibSession = partition.getHibSession();
+        org.unitime.timetable.model.Student s = partition.getStudent(student.getId());
         if (s==null) {
-            iProgress.warn("Student "+student.getId()+" not found.");
+            warn("Student "+student.getId()+" not found.");
             return;
         }
         
-        if (iStatusToSet != null)
-        	s.setSectioningStatus(iStatusToSet);
+        if (partition.getStatusToSet() != null)
+        	s.setSectioningStatus(partition.getStatusToSet());
         else if (iResetStatus)
         	s.setSectioningStatus(null);
         
-        for (Iterator<StudentClassEnrollment> i = s.getClassEnrollments().iterator(); i.hasNext(); ) {
-            StudentClassEnrollment sce = i.next();
-            sce.getClazz().getStudentEnrollments().remove(sce);
-            hibSession.delete(sce); i.remove();
-        }
         
         if (iUpdateCourseRequests && BatchEnrollStudent.sRequestsChangedStatus.equals(student.getStatus())) {
         	StudentSectioningStatus status = s.getEffectiveStatus();
@@ -237,7 +254,7 @@ public class StudentSectioningDatabaseSaver extends StudentSectioningSaver {
         				cd.setTimestamp(new Date(cr.getTimeStamp()));
         				int order = 0;
         				for (Course course: cr.getCourses()) {
-        					CourseOffering co = iCourses.get(course.getId());
+        					CourseOffering co = partition.getCourse(course.getId());
         					if (co == null) continue;
         					org.unitime.timetable.model.CourseRequest crq = new org.unitime.timetable.model.CourseRequest();
         					cd.getCourseRequests().add(crq);
@@ -251,7 +268,7 @@ public class StudentSectioningDatabaseSaver extends StudentSectioningSaver {
         			}
 					Long demandId = (Long)hibSession.save(cd);
 					for (org.unitime.timetable.model.CourseRequest cr: cd.getCourseRequests()) {
-	                    iRequests.put(demandId+":"+cr.getCourseOffering().getInstructionalOffering().getUniqueId(), cr);
+						partition.getRequests().put(demandId+":"+iCourse2Offering.get(cr.getCourseOffering().getUniqueId()), cr);
 	                }
         		}
         	}
@@ -260,7 +277,14 @@ public class StudentSectioningDatabaseSaver extends StudentSectioningSaver {
 				if (cd.getFreeTime() != null)
 					hibSession.delete(cd.getFreeTime());
 				for (org.unitime.timetable.model.CourseRequest cr: cd.getCourseRequests()) {
-					iRequests.remove(cd.getUniqueId() + ":" + cr.getCourseOffering().getInstructionalOffering().getUniqueId());
+					// enrollments of the removed course requests need to be deleted first
+					for (Iterator<StudentClassEnrollment> i = s.getClassEnrollments().iterator(); i.hasNext(); ) {
+						StudentClassEnrollment sce = i.next();
+						if (cr.equals(sce.getCourseRequest())) {
+							deleteEnrollment(hibSession, sce); i.remove();
+						}
+					}
+					partition.getRequests().remove(cd.getUniqueId() + ":" + iCourse2Offering.get(cr.getCourseOffering().getUniqueId()));
 					hibSession.delete(cr);
 				}
 				s.getCourseDemands().remove(cd);
@@ -268,39 +292,57 @@ public class StudentSectioningDatabaseSaver extends StudentSectioningSaver {
 			}
         }
         
+        Map<Long, StudentClassEnrollment> enrollments = new HashMap<Long, StudentClassEnrollment>();
+        List<StudentClassEnrollment> unused = new ArrayList<StudentClassEnrollment>();
+        for (StudentClassEnrollment sce: s.getClassEnrollments()) {
+        	StudentClassEnrollment duplicate = enrollments.put(sce.getClazz().getUniqueId(), sce);
+        	if (duplicate != null) unused.add(duplicate);
+        }
         for (Iterator e=student.getRequests().iterator();e.hasNext();) {
             Request request = (Request)e.next();
             Enrollment enrollment = (Enrollment)getAssignment().getValue(request);
             if (enrollment != null && request instanceof CourseRequest) {
-                org.unitime.timetable.model.CourseRequest cr = iRequests.get(request.getId()+":"+enrollment.getOffering().getId());
+                org.unitime.timetable.model.CourseRequest cr = partition.getRequests().get(request.getId()+":"+enrollment.getOffering().getId());
                 for (Iterator j=enrollment.getAssignments().iterator();j.hasNext();) {
                     Section section = (Section)j.next();
-                    Class_ clazz = iClasses.get(section.getId());
+                    Class_ clazz = partition.getClazz(section.getId());
                     if (clazz == null) {
-                    	iProgress.warn("Class " + section.getId() + " not found.");
+                    	warn("Class " + section.getId() + " not found.");
                     	continue;
                     }
-                    StudentClassEnrollment sce = new StudentClassEnrollment();
-                    sce.setChangedBy(StudentClassEnrollment.SystemChange.BATCH.toString());
-                    sce.setStudent(s);
-                    sce.setClazz(clazz);
+                    CourseOffering co = null;
                     if (cr == null) {
-                    	CourseOffering co = iCourses.get(enrollment.getCourse().getId());
+                    	co = partition.getCourse(enrollment.getCourse().getId());
                     	if (co == null)
                     		co = clazz.getSchedulingSubpart().getControllingCourseOffering();
-                    	sce.setCourseOffering(co);
                     } else {
-                        sce.setCourseRequest(cr);
-                        sce.setCourseOffering(cr.getCourseOffering());
+                    	co = cr.getCourseOffering();
                     }
+                    StudentClassEnrollment sce = enrollments.remove(section.getId());
+                    if (sce != null) {
+                    	// keep the enrollment when nothing has changed
+                    	if (sameRequest(sce.getCourseRequest(), cr) && co.getUniqueId().equals(sce.getCourseOffering().getUniqueId())) continue;
+                    } else {
+                    	sce = new StudentClassEnrollment();
+                    	sce.setStudent(s);
+                    	sce.setClazz(clazz);
+                    	s.getClassEnrollments().add(sce);
+                    }
+                    sce.setChangedBy(StudentClassEnrollment.SystemChange.BATCH.toString());
+                    sce.setCourseRequest(cr);
+                    sce.setCourseOffering(co);
                     sce.setTimestamp(iTimeStamp);
-                    s.getClassEnrollments().add(sce);
-                    hibSession.save(sce);
+                    hibSession.saveOrUpdate(sce);
                 }
                 if (cr != null)
                 	hibSession.saveOrUpdate(cr);
             }
         }
+        unused.addAll(enrollments.values());
+        for (StudentClassEnrollment sce: unused) {
+        	deleteEnrollment(hibSession, sce);
+        	s.getClassEnrollments().remove(sce);
+        }
         hibSession.saveOrUpdate(s);
         
         if (s.getWaitListMode() == WaitListMode.WaitList)
@@ -309,9 +351,24 @@ public class StudentSectioningDatabaseSaver extends StudentSectioningSaver {
         			iOwnerId,
         			iTimeStamp,
         			hibSession);
-    }    
+    }
     
-    public void save(Session session, org.hibernate.Session hibSession) {
+    protected void deleteEnrollment(org.hibernate.Session hibSession, StudentClassEnrollment sce) {
+    	// only update the class enrollments when loaded, a partition does not load the classes
+    	if (Hibernate.isInitialized(sce.getClazz()) && Hibernate.isInitialized(sce.getClazz().getStudentEnrollments()))
+    		sce.getClazz().getStudentEnrollments().remove(sce);
+    	hibSession.delete(sce);
+    }
+
+    /**
+     * Compare course requests by unique id, an enrollment may reference a proxy of the course request
+     */
+    private static boolean sameRequest(org.unitime.timetable.model.CourseRequest r1, org.unitime.timetable.model.CourseRequest r2) {
+    	if (r1 == null || r2 == null) return r1 == r2;
+    	return r1.getUniqueId() != null && r1.getUniqueId().equals(r2.getUniqueId());
+    }
+
+    public void save(Session session, org.hibernate.Session hibSession) throws Exception {
         iClasses = new Hashtable<Long, Class_>();
         setPhase("Loading classes...", 1);
         for (Class_ clazz: (List<Class_>)hibSession.createQuery(
@@ -332,35 +389,12 @@ public class StudentSectioningDatabaseSaver extends StudentSectioningSaver {
             }
             incProgress();
 
-            iStudents = new Hashtable<Long, org.unitime.timetable.model.Student>();
-            setPhase("Loading students...", 1);
-            for (org.unitime.timetable.model.Student student: (List<org.unitime.timetable.model.Student>)hibSession.createQuery(
-            		"select distinct s from Student s " +
-                    "left join fetch s.courseDemands as cd "+
-                    "left join fetch cd.courseRequests as cr "+
-                    "left join fetch s.classEnrollments as e " +
-                    "left join fetch s.waitlists as w " +
-            		"where s.session.uniqueId = :sessionId")
+            iCourse2Offering = new HashMap<Long, Long>();
+            for (Object[] o: (List<Object[]>)hibSession.createQuery(
+            		"select c.uniqueId, c.instructionalOffering.uniqueId from CourseOffering c where c.subjectArea.session.uniqueId = :sessionId")
             		.setLong("sessionId", session.getUniqueId()).list()) {
-            	iStudents.put(student.getUniqueId(), student);
+            	iCourse2Offering.put((Long)o[0], (Long)o[1]);
             }
-            incProgress();
-            
-            
-            iRequests = new Hashtable<String, org.unitime.timetable.model.CourseRequest>();
-            setPhase("Loading course demands...", 1);
-            for (CourseDemand demand: (List<CourseDemand>)hibSession.createQuery(
-            		"select distinct c from CourseDemand c " +
-            		"left join fetch c.courseRequests r " +
-            		"left join fetch r.courseOffering as co " +
-            		"left join fetch co.instructionalOffering as io " +
-            		"where c.student.session.uniqueId=:sessionId")
-            		.setLong("sessionId", session.getUniqueId()).list()) {
-                for (org.unitime.timetable.model.CourseRequest request: demand.getCourseRequests()) {
-                    iRequests.put(demand.getUniqueId()+":"+request.getCourseOffering().getInstructionalOffering().getUniqueId(), request);
-                }
-            }
-            incProgress();
             
             setPhase("Saving student enrollments...", getModel().getStudents().size());
             String statusToSet = getSolver().getProperties().getProperty("Save.StudentSectioningStatusToSet");
@@ -376,12 +410,23 @@ public class StudentSectioningDatabaseSaver extends StudentSectioningSaver {
             }
             if (iStatusToSet == null && !iResetStatus)
             	iProgress.info("Keeping student sectioning status unchanged.");
+            List<Student> students = new ArrayList<Student>();
             for (Iterator e=getModel().getStudents().iterator();e.hasNext();) {
-                Student student = (Student)e.next(); incProgress();
-                if (student.isDummy()) continue;
-                saveStudent(hibSession, student);
+                Student student = (Student)e.next();
+                if (student.isDummy()) { incProgress(); continue; }
+                students.add(student);
+            }
+            if (iNrThreads <= 1 && iStudentsPerTransaction <= 0) {
+            	StudentPartition partition = new StudentPartition(hibSession, true);
+            	partition.load(session.getUniqueId(), null);
+            	for (Student student: students) {
+            		incProgress();
+            		saveStudent(partition, student);
+            	}
+            	flush(hibSession);
+            } else {
+            	savePartitioned(session.getUniqueId(), students);
             }
-            flush(hibSession);
         }
         
         if (getModel().getNrLastLikeRequests(false) > 0 || iProjections) {
@@ -412,6 +457,9 @@ public class StudentSectioningDatabaseSaver extends StudentSectioningSaver {
                             if (info==null) {
                                 info = new SectioningInfo();
                                 info.setClazz(clazz);
+                            } else if (info.getNbrExpectedStudents() != null && info.getNbrExpectedStudents() == section.getSpaceExpected() &&
+                            		info.getNbrHoldingStudents() != null && info.getNbrHoldingStudents() == section.getSpaceHeld()) {
+                            	continue;
                             }
                             info.setNbrExpectedStudents(section.getSpaceExpected());
                             info.setNbrHoldingStudents(section.getSpaceHeld());
@@ -462,6 +510,189 @@ public class StudentSectioningDatabaseSaver extends StudentSectioningSaver {
         setPhase("Done",1);incProgress();
     }
     
+    /**
+     * Save students in partitions of Save.StudentsPerTransaction students, each partition in its own Hibernate session and transaction.
+     * When Save.NrThreads is above one, partitions are saved in parallel.
+     */
+    protected void savePartitioned(final Long sessionId, List<Student> students) throws Exception {
+    	int partitionSize = (iStudentsPerTransaction > 0 ? iStudentsPerTransaction : 1000);
+    	List<List<Student>> partitions = new ArrayList<List<Student>>();
+    	for (int i = 0; i < students.size(); i += partitionSize)
+    		partitions.add(students.subList(i, Math.min(students.size(), i + partitionSize)));
+    	iProgress.info("Saving " + students.size() + " students in " + partitions.size() + " transactions" + (iNrThreads > 1 ? " using " + iNrThreads + " threads." : "."));
+    	if (iNrThreads <= 1) {
+    		for (List<Student> partition: partitions)
+    			savePartition(sessionId, partition);
+    		return;
+    	}
+    	ExecutorService executor = Executors.newFixedThreadPool(iNrThreads, new ThreadFactory() {
+			AtomicInteger iIndex = new AtomicInteger(0);
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "StudentSectioningSaver-" + iIndex.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+    	try {
+    		CompletionService<Boolean> service = new ExecutorCompletionService<Boolean>(executor);
+    		for (final List<Student> partition: partitions) {
+    			service.submit(new Runnable() {
+					@Override
+					public void run() {
+						ApplicationProperties.setSessionId(sessionId);
+						try {
+							savePartition(sessionId, partition);
+						} catch (RuntimeException e) {
+							throw e;
+						} catch (Exception e) {
+							throw new RuntimeException(e.getMessage(), e);
+						} finally {
+							ApplicationProperties.setSessionId(null);
+						}
+					}
+				}, Boolean.TRUE);
+    		}
+    		Exception exception = null;
+    		for (int i = 0; i < partitions.size(); i++) {
+    			try {
+    				service.take().get();
+    			} catch (ExecutionException e) {
+    				if (exception == null) {
+    					exception = (e.getCause() instanceof Exception ? (Exception)e.getCause() : e);
+    					// do not start any more partitions
+    					executor.shutdown();
+    				}
+    			} catch (InterruptedException e) {
+    				if (exception == null) exception = e;
+    				break;
+    			}
+    		}
+    		if (exception != null) throw exception;
+    	} finally {
+    		executor.shutdownNow();
+    	}
+    }
+    
+    protected void savePartition(Long sessionId, List<Student> students) throws Exception {
+    	org.hibernate.Session hibSession = SessionDAO.getInstance().createNewSession();
+    	Transaction tx = null;
+    	try {
+    		hibSession.setCacheMode(CacheMode.IGNORE);
+    		hibSession.setFlushMode(FlushMode.MANUAL);
+    		tx = hibSession.beginTransaction();
+    		
+    		List<Long> studentIds = new ArrayList<Long>(students.size());
+    		for (Student student: students) studentIds.add(student.getId());
+    		StudentPartition partition = new StudentPartition(hibSession, false);
+    		partition.load(sessionId, studentIds);
+    		for (Student student: students) {
+    			incProgress();
+    			saveStudent(partition, student);
+    		}
+    		hibSession.flush();
+    		
+    		tx.commit(); tx = null;
+    	} catch (Exception e) {
+    		if (tx != null) tx.rollback();
+    		throw e;
+    	} finally {
+    		hibSession.close();
+    	}
+    }
+    
+    /**
+     * Students (and their course requests) of a partition, loaded in the partition's Hibernate session.
+     * Classes and courses are only loaded when the partition uses the main session, otherwise proxies are used.
+     */
+    protected class StudentPartition {
+    	private org.hibernate.Session iHibSession;
+    	private boolean iMainSession;
+    	private Map<Long,org.unitime.timetable.model.Student> iStudents = new HashMap<Long, org.unitime.timetable.model.Student>();
+    	private Map<String,org.unitime.timetable.model.CourseRequest> iRequests = new HashMap<String, org.unitime.timetable.model.CourseRequest>();
+    	private StudentSectioningStatus iStatus = null;
+    	
+    	public StudentPartition(org.hibernate.Session hibSession, boolean mainSession) {
+    		iHibSession = hibSession;
+    		iMainSession = mainSession;
+    		if (iStatusToSet != null)
+    			iStatus = (mainSession ? iStatusToSet : StudentSectioningStatusDAO.getInstance().get(iStatusToSet.getUniqueId(), hibSession));
+    	}
+    	
+    	public org.hibernate.Session getHibSession() { return iHibSession; }
+    	public StudentSectioningStatus getStatusToSet() { return iStatus; }
+    	public org.unitime.timetable.model.Student getStudent(Long studentId) { return iStudents.get(studentId); }
+    	public Map<String,org.unitime.timetable.model.CourseRequest> getRequests() { return iRequests; }
+    	
+    	public Class_ getClazz(Long classId) {
+    		if (iMainSession) return iClasses.get(classId);
+    		return (iClasses.containsKey(classId) ? Class_DAO.getInstance().load(classId, iHibSession) : null);
+    	}
+    	
+    	public CourseOffering getCourse(Long courseId) {
+    		if (iMainSession) return iCourses.get(courseId);
+    		return (iCourses.containsKey(courseId) ? CourseOfferingDAO.getInstance().load(courseId, iHibSession) : null);
+    	}
+    	
+    	/**
+    	 * Load students and course demands, all of the session when studentIds is null
+    	 */
+    	public void load(Long sessionId, List<Long> studentIds) {
+    		if (studentIds == null) {
+    			setPhase("Loading students...", 1);
+    			for (org.unitime.timetable.model.Student student: (List<org.unitime.timetable.model.Student>)iHibSession.createQuery(
+    					"select distinct s from Student s " +
+    					"left join fetch s.courseDemands as cd "+
+    					"left join fetch cd.courseRequests as cr "+
+    					"left join fetch s.classEnrollments as e " +
+    					"left join fetch s.waitlists as w " +
+    					"where s.session.uniqueId = :sessionId")
+    					.setLong("sessionId", sessionId).list()) {
+    				iStudents.put(student.getUniqueId(), student);
+    			}
+    			incProgress();
+    			
+    			setPhase("Loading course demands...", 1);
+    			for (CourseDemand demand: (List<CourseDemand>)iHibSession.createQuery(
+    					"select distinct c from CourseDemand c " +
+    					"left join fetch c.courseRequests r " +
+    					"left join fetch r.courseOffering as co " +
+    					"left join fetch co.instructionalOffering as io " +
+    					"where c.student.session.uniqueId=:sessionId")
+    					.setLong("sessionId", sessionId).list()) {
+    				addDemand(demand);
+    			}
+    			incProgress();
+    		} else {
+    			for (int i = 0; i < studentIds.size(); i += 1000) {
+    				Collection<Long> ids = studentIds.subList(i, Math.min(studentIds.size(), i + 1000));
+    				for (org.unitime.timetable.model.Student student: (List<org.unitime.timetable.model.Student>)iHibSession.createQuery(
+    						"select distinct s from Student s " +
+    						"left join fetch s.courseDemands as cd "+
+    						"left join fetch cd.courseRequests as cr "+
+    						"left join fetch s.classEnrollments as e " +
+    						"left join fetch s.waitlists as w " +
+    						"where s.uniqueId in :studentIds")
+    						.setParameterList("studentIds", ids).list()) {
+    					iStudents.put(student.getUniqueId(), student);
+    				}
+    				for (CourseDemand demand: (List<CourseDemand>)iHibSession.createQuery(
+    						"select distinct c from CourseDemand c " +
+    						"left join fetch c.courseRequests r " +
+    						"where c.student.uniqueId in :studentIds")
+    						.setParameterList("studentIds", ids).list()) {
+    					addDemand(demand);
+    				}
+    			}
+    		}
+    	}
+    	
+    	private void addDemand(CourseDemand demand) {
+    		for (org.unitime.timetable.model.CourseRequest request: demand.getCourseRequests())
+    			iRequests.put(demand.getUniqueId()+":"+iCourse2Offering.get(request.getCourseOffering().getUniqueId()), request);
+    	}
+    }
+    
     protected void checkTermination() {
     	if (getTerminationCondition() != null && !getTerminationCondition().canContinue(getSolution()))
     		throw new RuntimeException("The save was interrupted.");
@@ -474,7 +705,15 @@ public class StudentSectioningDatabaseSaver extends StudentSectioningSaver {
     
     protected void incProgress() {
     	checkTermination();
-    	iProgress.incProgress();
+    	synchronized (iProgress) {
+    		iProgress.incProgress();
+    	}
+    }
+    
+    protected void warn(String message) {
+    	synchronized (iProgress) {
+    		iProgress.warn(message);
+    	}
     }
 
 }
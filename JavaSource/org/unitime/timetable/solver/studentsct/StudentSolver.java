@@ -133,6 +133,7 @@ import org.unitime.timetable.onlinesectioning.model.XOffering;
 import org.unitime.timetable.onlinesectioning.model.XStudent;
 import org.unitime.timetable.onlinesectioning.model.XStudentId;
 import org.unitime.timetable.onlinesectioning.model.XTime;
+import org.unitime.timetable.onlinesectioning.solver.OfferingTemplate;
 import org.unitime.timetable.server.sectioning.SectioningReportTypesBackend.ReportType;
 import org.unitime.timetable.solver.AbstractSolver;
 import org.unitime.timetable.solver.SolverDisposeListener;
@@ -964,6 +965,16 @@ public class StudentSolver extends AbstractSolver<Request, Enrollment, StudentSe
 		return getInstructedOfferingsCache().get(instructorExternalId);
 	}
 	
+	@Override
+	public Long getOfferingVersion(Long offeringId) {
+		return null;
+	}
+	
+	@Override
+	public OfferingTemplate getOfferingTemplate(XOffering offering) {
+		return new OfferingTemplate(offering, null);
+	}
+	
 	@Override
 	public Set<Long> getRequestedCourseIds(Long studentId) {
 		for (Student student: getModel().getStudents())
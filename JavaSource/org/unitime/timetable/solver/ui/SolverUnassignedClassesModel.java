@@ -24,7 +24,8 @@ import java.util.List;
 
 import org.cpsolver.coursett.constraint.InstructorConstraint;
 import org.cpsolver.coursett.model.Lecture;
-import org.unitime.timetable.solver.TimetableSolver;
+import org.cpsolver.coursett.model.Placement;
+import org.cpsolver.ifs.solver.Solver;
 
 
 
@@ -35,7 +36,7 @@ public class SolverUnassignedClassesModel extends UnassignedClassesModel {
 	
 	private static final long serialVersionUID = -6094708695678612559L;
 
-	public SolverUnassignedClassesModel(TimetableSolver solver, String... prefix) {
+	public SolverUnassignedClassesModel(Solver<Lecture, Placement> solver, String... prefix) {
 		super();
 		for (Lecture lecture: solver.currentSolution().getModel().unassignedVariables(solver.currentSolution().getAssignment())) {
 			String name = lecture.getName();
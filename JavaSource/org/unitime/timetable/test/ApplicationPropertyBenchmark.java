@@ -0,0 +1,110 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.test;
+
+import java.text.DecimalFormat;
+
+import org.unitime.timetable.ApplicationProperties;
+import org.unitime.timetable.defaults.ApplicationProperty;
+
+/**
+ * Compares the cost of an application property lookup that goes through the property layers and reads the field annotations
+ * (the way the lookup was done before the configuration snapshot was introduced) with the cost
+ * of a lookup using the configuration snapshot of {@link ApplicationProperty}.<br>
+ * Usage: ApplicationPropertyBenchmark [iterations]
+ *
+ * @author Tomas Muller
+ */
+public class ApplicationPropertyBenchmark {
+	private static DecimalFormat sDF = new DecimalFormat("0.0");
+	private static ApplicationProperty[] sProperties = new ApplicationProperty[] {
+		ApplicationProperty.EventNearByDistance,
+		ApplicationProperty.DistanceEllipsoid,
+		ApplicationProperty.OnlineSchedulingDashboardCreditFilterUseDatabase,
+		ApplicationProperty.RollForwardNrThreads,
+		ApplicationProperty.DatabaseUniqueIdGenerator,
+	};
+
+	private static String lookupUncached(ApplicationProperty property) throws Exception {
+		// annotations used to be read by reflection on every lookup
+		ApplicationProperty.class.getField(property.name()).getAnnotations();
+		String value = ApplicationProperties.getProperty(property.key());
+		return (value != null ? value : property.defaultValue());
+	}
+
+	private static long runUncached(int iterations) throws Exception {
+		long hash = 0;
+		for (int i = 0; i < iterations; i++)
+			for (ApplicationProperty p: sProperties) {
+				String value = lookupUncached(p);
+				if (value != null) hash += value.length();
+			}
+		return hash;
+	}
+
+	private static long runSnapshot(int iterations) {
+		long hash = 0;
+		for (int i = 0; i < iterations; i++)
+			for (ApplicationProperty p: sProperties) {
+				String value = p.value();
+				if (value != null) hash += value.length();
+			}
+		return hash;
+	}
+
+	private static long runTyped(int iterations) {
+		long hash = 0;
+		for (int i = 0; i < iterations; i++) {
+			hash += ApplicationProperty.RollForwardNrThreads.intValue();
+			hash += ApplicationProperty.EventNearByDistance.doubleValue().longValue();
+			if (ApplicationProperty.OnlineSchedulingDashboardCreditFilterUseDatabase.isTrue()) hash++;
+		}
+		return hash;
+	}
+
+	private static void report(String name, long time, int lookups) {
+		System.out.println(name + ": " + sDF.format(((double)time) / lookups) + " ns per lookup");
+	}
+
+	public static void main(String[] args) {
+		try {
+			int iterations = (args.length > 0 ? Integer.parseInt(args[0]) : 1000000);
+
+			// warm up
+			runUncached(iterations / 10); runSnapshot(iterations / 10); runTyped(iterations / 10);
+
+			long t0 = System.nanoTime();
+			long h1 = runUncached(iterations);
+			long t1 = System.nanoTime();
+			long h2 = runSnapshot(iterations);
+			long t2 = System.nanoTime();
+			long h3 = runTyped(iterations);
+			long t3 = System.nanoTime();
+
+			report("Layered lookup with annotations", t1 - t0, iterations * sProperties.length);
+			report("Configuration snapshot (value)", t2 - t1, iterations * sProperties.length);
+			report("Configuration snapshot (typed)", t3 - t2, iterations * 3);
+			if (h1 != h2) System.err.println("Lookups returned different values.");
+			System.out.println("(" + h3 + ")");
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
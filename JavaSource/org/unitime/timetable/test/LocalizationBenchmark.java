@@ -0,0 +1,97 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.test;
+
+import java.text.DecimalFormat;
+
+import org.unitime.localization.impl.Localization;
+import org.unitime.timetable.gwt.resources.GwtConstants;
+import org.unitime.timetable.gwt.resources.GwtMessages;
+
+/**
+ * Measures the cost of a call on a localized message bundle (a proxy created by {@link Localization#create(Class)}),
+ * for a message with arguments, a boolean constant and a string array constant. The first call of each method
+ * compiles the message for the current locale, the remaining calls only evaluate the compiled message.<br>
+ * Usage: LocalizationBenchmark [iterations] [locale]
+ *
+ * @author Tomas Muller
+ */
+public class LocalizationBenchmark {
+	private static DecimalFormat sDF = new DecimalFormat("0.0");
+	private static GwtMessages MESSAGES = Localization.create(GwtMessages.class);
+	private static GwtConstants CONSTANTS = Localization.create(GwtConstants.class);
+
+	private static long runMessage(int iterations) {
+		long hash = 0;
+		for (int i = 0; i < iterations; i++)
+			hash += MESSAGES.pageVersion("4.5", "2020-01-01").length();
+		return hash;
+	}
+
+	private static long runBoolean(int iterations) {
+		long hash = 0;
+		for (int i = 0; i < iterations; i++)
+			if (CONSTANTS.useAmPm()) hash++;
+		return hash;
+	}
+
+	private static long runArray(int iterations) {
+		long hash = 0;
+		for (int i = 0; i < iterations; i++)
+			hash += CONSTANTS.days().length;
+		return hash;
+	}
+
+	private static void report(String name, long time, int calls) {
+		System.out.println(name + ": " + sDF.format(((double)time) / calls) + " ns per call");
+	}
+
+	public static void main(String[] args) {
+		try {
+			int iterations = (args.length > 0 ? Integer.parseInt(args[0]) : 1000000);
+			Localization.setLocale(args.length > 1 ? args[1] : "en");
+
+			long t0 = System.nanoTime();
+			MESSAGES.pageVersion("4.5", "2020-01-01"); CONSTANTS.useAmPm(); CONSTANTS.days();
+			long t1 = System.nanoTime();
+			System.out.println("First calls (compilation): " + sDF.format((t1 - t0) / 1000.0) + " us");
+
+			// warm up
+			runMessage(iterations / 10); runBoolean(iterations / 10); runArray(iterations / 10);
+
+			long t2 = System.nanoTime();
+			long h1 = runMessage(iterations);
+			long t3 = System.nanoTime();
+			long h2 = runBoolean(iterations);
+			long t4 = System.nanoTime();
+			long h3 = runArray(iterations);
+			long t5 = System.nanoTime();
+
+			report("Message with arguments", t3 - t2, iterations);
+			report("Boolean constant", t4 - t3, iterations);
+			report("String array constant", t5 - t4, iterations);
+			System.out.println("(" + (h1 + h2 + h3) + ")");
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			Localization.removeLocale();
+		}
+	}
+}
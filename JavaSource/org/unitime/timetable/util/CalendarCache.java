@@ -0,0 +1,303 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.util;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.unitime.timetable.defaults.ApplicationProperty;
+
+import biweekly.component.VEvent;
+
+/**
+ * Cache of the iCalendar feeds (see {@link org.unitime.timetable.gwt.server.CalendarServlet}) and of the calendar entries of
+ * classes and examinations, which are shared by all the feeds that include them. Everything is kept by academic session.
+ * Cached items expire after unitime.events.ics_cache_ttl seconds. Cached items are also dropped on every node of a cluster when
+ * a change is committed (see {@link DataChangeNotifier}): the calendar entries of the changed classes or examinations (all entries
+ * of the academic session when any other data have changed) and all the feeds of the academic session.
+ * A feed is also tied to a fingerprint (e.g., the number and the last time stamp of the student's enrollments), so that it is regenerated
+ * when the fingerprint changes.
+ *
+ * @author Tomas Muller
+ */
+public class CalendarCache {
+	private static final int MAX_SESSIONS = 20;
+	private static final int MAX_FEEDS = 5000;
+	private static final int MAX_EVENTS = 50000;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final AtomicLong sVersion = new AtomicLong(0);
+	private static final Map<Long, SessionCache> sSessions = new ConcurrentHashMap<Long, SessionCache>();
+	
+	static {
+		DataChangeNotifier.addListener(new DataChangeNotifier.Listener() {
+			@Override
+			public void dataChanged(DataChange change) {
+				invalidate(change);
+			}
+		});
+	}
+
+	/**
+	 * Drop the cached items affected by the given change
+	 */
+	public static void invalidate(DataChange change) {
+		for (Map.Entry<Long, SessionCache> e: sSessions.entrySet())
+			if (change.isSession(e.getKey()))
+				e.getValue().invalidate(change);
+	}
+
+	private static SessionCache getSessionCache(Long sessionId) {
+		SessionCache cache = sSessions.get(sessionId);
+		if (cache == null) {
+			synchronized (sSessions) {
+				cache = sSessions.get(sessionId);
+				if (cache == null) {
+					if (sSessions.size() >= MAX_SESSIONS) sSessions.clear();
+					cache = new SessionCache();
+					sSessions.put(sessionId, cache);
+				}
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Current version of the cache of an academic session, to be obtained before a feed or a calendar entry is generated
+	 */
+	public static long getVersion(Long sessionId) {
+		return getSessionCache(sessionId).getVersion();
+	}
+
+	protected static long getTimeToLive() {
+		Integer ttl = ApplicationProperty.EventCalendarCacheTimeToLive.intValue();
+		return (ttl == null ? 0l : 1000l * ttl);
+	}
+
+	/**
+	 * Cached feed, null when not cached, expired, or the fingerprint does not match
+	 */
+	public static Feed getFeed(Long sessionId, String key, String fingerprint) {
+		SessionCache cache = sSessions.get(sessionId);
+		if (cache == null) return null;
+		Feed feed = cache.iFeeds.get(key);
+		if (feed == null || !feed.isValid() || !feed.getFingerprint().equals(fingerprint)) return null;
+		return feed;
+	}
+
+	/**
+	 * Cache a newly generated feed. When the content of the feed has not changed since it was last generated
+	 * (the previous feed is kept until replaced, even when expired), the previous Last-Modified is kept.
+	 * @param version version of the cache before the feed was generated (see {@link #getVersion(Long)})
+	 */
+	public static Feed putFeed(Long sessionId, String key, String fingerprint, String content, long version) {
+		SessionCache cache = getSessionCache(sessionId);
+		Feed previous = cache.iFeeds.get(key);
+		Feed feed = new Feed(fingerprint, content, System.currentTimeMillis() + getTimeToLive());
+		if (previous != null && previous.getETag().equals(feed.getETag()))
+			feed.iLastModified = previous.getLastModified();
+		if (getTimeToLive() > 0 && version == cache.getVersion()) {
+			if (cache.iFeeds.size() >= MAX_FEEDS) purge(cache.iFeeds, MAX_FEEDS);
+			cache.iFeeds.put(key, feed);
+		}
+		return feed;
+	}
+
+	/**
+	 * Cached calendar entries of a class or an examination, null when not cached
+	 * @param type {@link DataChange.Type#CLASS} or {@link DataChange.Type#EXAM}
+	 * @param ownerId class or examination unique id
+	 * @param courseId course offering of a class (the course name is included in the entries), null for an examination
+	 */
+	public static List<VEvent> getEvents(Long sessionId, DataChange.Type type, Long ownerId, Long courseId) {
+		SessionCache cache = sSessions.get(sessionId);
+		if (cache == null) return null;
+		Owner owner = new Owner(type, ownerId, courseId);
+		Events events = cache.iEvents.get(owner);
+		if (events == null) return null;
+		if (!events.isValid()) {
+			cache.iEvents.remove(owner);
+			return null;
+		}
+		return events.getEvents();
+	}
+
+	/**
+	 * Cache calendar entries of a class or an examination. The events must not be modified afterwards as they are shared between feeds.
+	 * @param version version of the cache before the entries were generated (see {@link #getVersion(Long)})
+	 */
+	public static List<VEvent> putEvents(Long sessionId, DataChange.Type type, Long ownerId, Long courseId, Collection<VEvent> vevents, long version) {
+		SessionCache cache = getSessionCache(sessionId);
+		Events events = new Events(vevents, System.currentTimeMillis() + getTimeToLive());
+		if (getTimeToLive() > 0 && version == cache.getVersion()) {
+			if (cache.iEvents.size() >= MAX_EVENTS) purge(cache.iEvents, MAX_EVENTS);
+			cache.iEvents.put(new Owner(type, ownerId, courseId), events);
+		}
+		return events.getEvents();
+	}
+
+	private static void purge(Map<?, ? extends Entry> map, int maxSize) {
+		for (Iterator<? extends Entry> i = map.values().iterator(); i.hasNext(); )
+			if (!i.next().isValid()) i.remove();
+		if (map.size() >= maxSize) map.clear();
+	}
+
+	/**
+	 * ETag of the calendar, the DTSTAMP properties (time when the calendar entry was created) are ignored so that
+	 * the tag does not change when the calendar is regenerated with the same content
+	 */
+	public static String computeETag(String content) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("MD5");
+			int start = 0;
+			while (start < content.length()) {
+				int end = content.indexOf('\n', start);
+				if (end < 0) end = content.length() - 1;
+				if (!content.startsWith("DTSTAMP", start))
+					md.update(content.substring(start, end + 1).getBytes(UTF8));
+				start = end + 1;
+			}
+			StringBuffer etag = new StringBuffer("\"");
+			for (byte b: md.digest())
+				etag.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+			return etag.append("\"").toString();
+		} catch (NoSuchAlgorithmException e) {
+			return "\"" + Integer.toHexString(content.hashCode()) + "\"";
+		}
+	}
+
+	/**
+	 * Cached items of an academic session. The version changes with every change of the academic session, so that an item that
+	 * was generated from the old data while the change was being committed is not cached.
+	 */
+	private static class SessionCache {
+		private volatile long iVersion = sVersion.incrementAndGet();
+		private Map<String, Feed> iFeeds = new ConcurrentHashMap<String, Feed>();
+		private Map<Owner, Events> iEvents = new ConcurrentHashMap<Owner, Events>();
+
+		long getVersion() { return iVersion; }
+
+		void invalidate(DataChange change) {
+			iVersion = sVersion.incrementAndGet();
+			// a feed may contain any of the changed objects
+			iFeeds.clear();
+			if (change.getType() == DataChange.Type.ANY) {
+				iEvents.clear();
+			} else {
+				for (Iterator<Owner> i = iEvents.keySet().iterator(); i.hasNext(); )
+					if (i.next().isChanged(change)) i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Class or examination of the cached calendar entries
+	 */
+	private static class Owner {
+		private DataChange.Type iType;
+		private Long iOwnerId, iCourseId;
+
+		Owner(DataChange.Type type, Long ownerId, Long courseId) {
+			iType = type; iOwnerId = ownerId; iCourseId = courseId;
+		}
+
+		boolean isChanged(DataChange change) {
+			return change.isChanged(iType, null, iOwnerId);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == null || !(o instanceof Owner)) return false;
+			Owner other = (Owner)o;
+			return iType == other.iType && iOwnerId.equals(other.iOwnerId) && (iCourseId == null ? other.iCourseId == null : iCourseId.equals(other.iCourseId));
+		}
+
+		@Override
+		public int hashCode() {
+			return iOwnerId.hashCode() ^ (iCourseId == null ? 0 : iCourseId.hashCode()) ^ iType.hashCode();
+		}
+	}
+
+	private static abstract class Entry {
+		private long iExpiration;
+
+		Entry(long expiration) {
+			iExpiration = expiration;
+		}
+
+		boolean isValid() {
+			return System.currentTimeMillis() < iExpiration;
+		}
+	}
+
+	/**
+	 * Generated iCalendar feed, kept as UTF-8 bytes
+	 */
+	public static class Feed extends Entry {
+		private String iFingerprint;
+		private byte[] iContent;
+		private String iETag;
+		private long iLastModified;
+
+		Feed(String fingerprint, String content, long expiration) {
+			super(expiration);
+			iFingerprint = fingerprint;
+			iContent = content.getBytes(UTF8);
+			iETag = computeETag(content);
+			iLastModified = 1000l * (System.currentTimeMillis() / 1000l);
+		}
+
+		public String getFingerprint() { return iFingerprint; }
+		public byte[] getContent() { return iContent; }
+		public String getETag() { return iETag; }
+		public long getLastModified() { return iLastModified; }
+
+		/**
+		 * Check the If-None-Match and If-Modified-Since request headers
+		 */
+		public boolean isNotModified(String ifNoneMatch, long ifModifiedSince) {
+			if (ifNoneMatch != null) {
+				for (String tag: ifNoneMatch.split(","))
+					if ("*".equals(tag.trim()) || iETag.equals(tag.trim()) || ("W/" + iETag).equals(tag.trim())) return true;
+				return false;
+			}
+			return ifModifiedSince >= 0 && iLastModified <= ifModifiedSince;
+		}
+	}
+
+	private static class Events extends Entry {
+		private List<VEvent> iEvents;
+
+		Events(Collection<VEvent> events, long expiration) {
+			super(expiration);
+			iEvents = Collections.unmodifiableList(new ArrayList<VEvent>(events));
+		}
+
+		List<VEvent> getEvents() { return iEvents; }
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.util;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A committed data change, as published by the {@link DataChangeNotifier}.
+ * A change is scoped to an academic session (null for all academic sessions) and to the given
+ * unique ids of the changed objects of the given type (null for any object).
+ *
+ * @author Tomas Muller
+ */
+public class DataChange implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static enum Type {
+		/** Any data of the academic session may have changed */
+		ANY,
+		/** Classes (and their assignments) with the given ids have changed */
+		CLASS,
+		/** Examinations (and their assignments) with the given ids have changed */
+		EXAM,
+		/** Events (and their meetings) with the given ids have changed */
+		EVENT,
+	}
+
+	private Type iType;
+	private Long iSessionId;
+	private Set<Long> iIds;
+
+	public DataChange(Type type, Long sessionId, Collection<Long> ids) {
+		iType = (type == null ? Type.ANY : type);
+		iSessionId = sessionId;
+		iIds = (ids == null || iType == Type.ANY ? null : new HashSet<Long>(ids));
+	}
+
+	public DataChange(Type type, Long sessionId, Long id) {
+		iType = (type == null ? Type.ANY : type);
+		iSessionId = sessionId;
+		if (id != null && iType != Type.ANY) {
+			iIds = new HashSet<Long>();
+			iIds.add(id);
+		}
+	}
+
+	/** Any object of the given type may have changed */
+	public DataChange(Type type, Long sessionId) {
+		this(type, sessionId, (Collection<Long>)null);
+	}
+
+	public DataChange(Long sessionId) {
+		this(Type.ANY, sessionId, (Collection<Long>)null);
+	}
+
+	public Type getType() { return iType; }
+
+	/** Academic session, null when the change is not limited to one academic session */
+	public Long getSessionId() { return iSessionId; }
+
+	/** Unique ids of the changed objects, null when any object of the type may have changed */
+	public Set<Long> getIds() { return iIds; }
+
+	/** True if the change applies to the given academic session */
+	public boolean isSession(Long sessionId) {
+		return iSessionId == null || sessionId == null || iSessionId.equals(sessionId);
+	}
+
+	/** True if the change applies to the given object of the given type */
+	public boolean isChanged(Type type, Long sessionId, Long id) {
+		if (!isSession(sessionId)) return false;
+		if (iType == Type.ANY) return true;
+		if (iType != type) return false;
+		return iIds == null || id == null || iIds.contains(id);
+	}
+
+	/**
+	 * Merge the given change into this one, returns false when the two changes cannot be merged
+	 * (different type or academic session)
+	 */
+	public boolean merge(DataChange change) {
+		if (iType != change.iType) return false;
+		if (iSessionId == null ? change.iSessionId != null : !iSessionId.equals(change.iSessionId)) return false;
+		if (iIds != null) {
+			if (change.iIds == null)
+				iIds = null;
+			else
+				iIds.addAll(change.iIds);
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return iType.name() + (iSessionId == null ? "" : "@" + iSessionId) + (iIds == null ? "" : iIds.toString());
+	}
+}
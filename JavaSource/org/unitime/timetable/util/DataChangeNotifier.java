@@ -0,0 +1,135 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Transaction;
+import org.unitime.timetable.solver.jgroups.SolverServer;
+import org.unitime.timetable.solver.jgroups.SolverServerImplementation;
+
+/**
+ * Publishes committed data changes to the registered listeners (e.g., caches) on all the nodes of the cluster.
+ * Changes made within a transaction are collected and published once the transaction is committed
+ * (they are dropped on rollback), changes made outside of a transaction are published right away.
+ *
+ * @author Tomas Muller
+ */
+public class DataChangeNotifier {
+	private static Log sLog = LogFactory.getLog(DataChangeNotifier.class);
+	private static final List<Listener> sListeners = new CopyOnWriteArrayList<Listener>();
+	private static final Map<Transaction, List<DataChange>> sPendingChanges = new WeakHashMap<Transaction, List<DataChange>>();
+
+	public static void addListener(Listener listener) {
+		sListeners.add(listener);
+	}
+
+	public static void removeListener(Listener listener) {
+		sListeners.remove(listener);
+	}
+
+	/**
+	 * Record a data change made using the given hibernate session.
+	 * Only one synchronization is registered for a transaction, all its changes are published together.
+	 */
+	public static void changed(org.hibernate.Session hibSession, DataChange change) {
+		final Transaction tx = (hibSession == null ? null : hibSession.getTransaction());
+		if (tx == null || !tx.isActive()) {
+			publish(Collections.singletonList(change));
+			return;
+		}
+		synchronized (sPendingChanges) {
+			List<DataChange> changes = sPendingChanges.get(tx);
+			if (changes != null) {
+				add(changes, change);
+				return;
+			}
+			changes = new ArrayList<DataChange>();
+			changes.add(change);
+			sPendingChanges.put(tx, changes);
+		}
+		tx.registerSynchronization(new Synchronization() {
+			@Override
+			public void beforeCompletion() {}
+
+			@Override
+			public void afterCompletion(int status) {
+				List<DataChange> changes = null;
+				synchronized (sPendingChanges) {
+					changes = sPendingChanges.remove(tx);
+				}
+				if (status == Status.STATUS_COMMITTED && changes != null)
+					publish(changes);
+			}
+		});
+	}
+
+	private static void add(List<DataChange> changes, DataChange change) {
+		for (DataChange other: changes)
+			if (other.merge(change)) return;
+		changes.add(change);
+	}
+
+	/**
+	 * Publish the given changes on all the nodes of the cluster (only locally when there is no solver server)
+	 */
+	protected static void publish(Collection<DataChange> changes) {
+		try {
+			SolverServer server = SolverServerImplementation.getInstance();
+			if (server != null) {
+				server.dataChanged(changes);
+				return;
+			}
+		} catch (Exception e) {
+			sLog.warn("Failed to publish data changes: " + e.getMessage(), e);
+		}
+		fire(changes);
+	}
+
+	/**
+	 * Notify the local listeners about the given changes
+	 */
+	public static void fire(Collection<DataChange> changes) {
+		if (changes == null) return;
+		for (DataChange change: changes)
+			for (Listener listener: sListeners) {
+				try {
+					listener.dataChanged(change);
+				} catch (Exception e) {
+					sLog.warn("Failed to process data change " + change + ": " + e.getMessage(), e);
+				}
+			}
+	}
+
+	public static interface Listener {
+		public void dataChanged(DataChange change);
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.util;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.unitime.localization.impl.Localization;
+import org.unitime.timetable.ApplicationProperties;
+import org.unitime.timetable.model.dao._RootDAO;
+
+/**
+ * Executes the steps of a session roll forward in the order given by their dependencies.
+ * With one thread, the steps are executed one by one in the order in which they were added.
+ * With more threads, a step is started as soon as all the steps it depends on are finished,
+ * so independent steps (e.g., rooms and date patterns) can run in parallel. Each step that
+ * runs in a worker thread uses its own hibernate session, which is committed and closed
+ * when the step is finished (or rolled back when the step fails).
+ *
+ * @author Tomas Muller
+ */
+public class RollForwardStepExecutor {
+	private Log iLog;
+	private int iNrThreads;
+	private Long iSessionId;
+	private String iLocale;
+	private List<Step> iSteps = new ArrayList<Step>();
+	private AtomicInteger iFinished = new AtomicInteger(0);
+
+	public RollForwardStepExecutor(Log log, int nrThreads, Long sessionId, String locale) {
+		iLog = log;
+		iNrThreads = nrThreads;
+		iSessionId = sessionId;
+		iLocale = locale;
+	}
+
+	/**
+	 * Add a step, all the steps it depends on must be added first.
+	 */
+	public Step addStep(Step step) {
+		for (Step dependency: step.getDependencies())
+			if (!iSteps.contains(dependency))
+				throw new IllegalArgumentException("Step " + step.getName() + " depends on " + dependency.getName() + " that has not been added.");
+		iSteps.add(step);
+		return step;
+	}
+
+	public List<Step> getSteps() { return iSteps; }
+
+	/**
+	 * Number of finished steps (including the disabled ones, but not the ones skipped after the execution was stopped)
+	 */
+	public int getNrFinished() { return iFinished.get(); }
+
+	/**
+	 * Override to stop the execution (e.g., when a roll forward error was reported). No new step is started once this method returns true.
+	 */
+	protected boolean isStopped() {
+		return false;
+	}
+
+	public void execute() throws Exception {
+		if (iNrThreads <= 1) {
+			for (Step step: iSteps) {
+				if (isStopped() || Thread.currentThread().isInterrupted()) break;
+				run(step);
+			}
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(iNrThreads, new ThreadFactory() {
+				AtomicInteger iIndex = new AtomicInteger(0);
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "RollForward-" + iIndex.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			try {
+				CompletionService<Step> service = new ExecutorCompletionService<Step>(executor);
+				Set<Step> started = new HashSet<Step>(), finished = new HashSet<Step>();
+				int running = 0;
+				Exception exception = null;
+				while (true) {
+					if (exception == null && !isStopped()) {
+						for (final Step step: iSteps) {
+							if (running >= iNrThreads) break;
+							if (started.contains(step) || !finished.containsAll(step.getDependencies())) continue;
+							started.add(step); running++;
+							service.submit(new Runnable() {
+								@Override
+								public void run() {
+									ApplicationProperties.setSessionId(iSessionId);
+									if (iLocale != null) Localization.setLocale(iLocale);
+									try {
+										RollForwardStepExecutor.this.run(step);
+										_RootDAO.closeCurrentThreadSessions();
+									} catch (RuntimeException e) {
+										_RootDAO.rollbackCurrentThreadSessions();
+										throw e;
+									} catch (Exception e) {
+										_RootDAO.rollbackCurrentThreadSessions();
+										throw new RuntimeException(e.getMessage(), e);
+									} finally {
+										ApplicationProperties.setSessionId(null);
+										Localization.removeLocale();
+									}
+								}
+							}, step);
+						}
+					}
+					if (running == 0) break;
+					try {
+						finished.add(service.take().get());
+					} catch (ExecutionException e) {
+						if (exception == null)
+							exception = (e.getCause() instanceof Exception ? (Exception)e.getCause() : e);
+					}
+					running--;
+				}
+				if (exception != null) {
+					if (exception instanceof RuntimeException && exception.getCause() instanceof Exception)
+						throw (Exception)exception.getCause();
+					throw exception;
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	protected void run(Step step) throws Exception {
+		if (isStopped()) return;
+		try {
+			step.validate();
+			if (step.isEnabled()) {
+				long t0 = System.currentTimeMillis();
+				step.execute();
+				step.iTime = System.currentTimeMillis() - t0;
+				iLog.info(step.getName() + " done in " + new DecimalFormat("0.00").format(step.iTime / 1000.0) + " s.");
+			}
+		} finally {
+			iFinished.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Roll forward step
+	 */
+	public static abstract class Step {
+		private String iName;
+		private List<Step> iDependencies;
+		private long iTime = -1;
+
+		public Step(String name, Step... dependencies) {
+			iName = name;
+			iDependencies = Arrays.asList(dependencies);
+		}
+
+		public String getName() { return iName; }
+
+		public List<Step> getDependencies() { return iDependencies; }
+
+		/**
+		 * Execution time in milliseconds, -1 if the step was not executed
+		 */
+		public long getTime() { return iTime; }
+
+		/**
+		 * Validation of the step, called before the step is executed (also when the step is not enabled)
+		 */
+		public void validate() {}
+
+		/**
+		 * True if the step is to be executed
+		 */
+		public abstract boolean isEnabled();
+
+		/**
+		 * Execute the step
+		 */
+		public abstract void execute() throws Exception;
+
+		@Override
+		public String toString() { return iName; }
+	}
+}
@@ -0,0 +1,335 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.unitime.timetable.defaults.ApplicationProperty;
+import org.unitime.timetable.model.Meeting;
+import org.unitime.timetable.model.Session;
+
+/**
+ * Room occupancy of an academic session, used by the event room availability checks.<br>
+ * For each location (permanent id) and day, the store keeps a bitmap of the occupied time slots (288 five minute slots)
+ * and the meetings that occupy them, so that an availability check is a bitwise operation and only the conflicting
+ * meetings need to be loaded from the database. The locations that share the space (a room and its partitions) are
+ * kept as well. The occupancy of a location is loaded on demand, all the days of the session at once.<br>
+ * Loaded data expire after unitime.events.occupancy_ttl seconds. The store of an academic session is dropped on every node of a cluster
+ * when a change of the academic session is committed (see {@link DataChangeNotifier}), e.g., when an event is saved, approved or expired,
+ * when a course timetabling or an examination solution is committed or uncommitted, after an academic session is saved, after a course
+ * offering import, and after every change that is recorded in the change log.
+ * The store is also tied to the highest meeting id in the database, so that new meetings created by any other writer are normally seen right away.
+ * Meetings returned by {@link #getConflictingMeetings} are to be checked against the database (see {@link #isConflicting}),
+ * so that a meeting that has been changed or deleted in the meantime is not reported as a conflict.
+ *
+ * @author Tomas Muller
+ */
+public class RoomOccupancy {
+	private static final int MAX_LOCATIONS = 20000;
+	private static final int MAX_SESSIONS = 20;
+	private static final int CHUNK_SIZE = 1000;
+	private static final Map<Long, RoomOccupancy> sSessions = new ConcurrentHashMap<Long, RoomOccupancy>();
+	
+	static {
+		DataChangeNotifier.addListener(new DataChangeNotifier.Listener() {
+			@Override
+			public void dataChanged(DataChange change) {
+				invalidate(change);
+			}
+		});
+	}
+
+	private Long iSessionId;
+	private int iYear, iFirstDay, iLastDay;
+	private long iExpiration;
+	private Long iLastMeetingId;
+	private Map<Long, LocationOccupancy> iLocations = new ConcurrentHashMap<Long, LocationOccupancy>();
+	private Map<Long, Set<Long>> iRelated = new ConcurrentHashMap<Long, Set<Long>>();
+
+	private RoomOccupancy(Session session, Long lastMeetingId, long expiration) {
+		iSessionId = session.getUniqueId();
+		iYear = session.getSessionStartYear();
+		iFirstDay = session.getDayOfYear(1, session.getStartMonth());
+		iLastDay = session.getDayOfYear(1, session.getEndMonth() + 1) - 1;
+		iLastMeetingId = lastMeetingId;
+		iExpiration = expiration;
+	}
+
+	/**
+	 * Drop the occupancy of the academic session of the given change (meetings of classes, examinations, or events may have changed)
+	 */
+	public static void invalidate(DataChange change) {
+		for (Iterator<Long> i = sSessions.keySet().iterator(); i.hasNext(); )
+			if (change.isSession(i.next())) i.remove();
+	}
+
+	protected static long getTimeToLive() {
+		Integer ttl = ApplicationProperty.EventRoomOccupancyTimeToLive.intValue();
+		return (ttl == null ? 0l : 1000l * ttl);
+	}
+
+	/**
+	 * Occupancy store of the given academic session, null if disabled (unitime.events.occupancy_ttl is zero)
+	 */
+	public static RoomOccupancy getInstance(org.hibernate.Session hibSession, Session session) {
+		long ttl = getTimeToLive();
+		if (ttl <= 0) return null;
+		Long lastMeetingId = (Long)hibSession.createQuery("select max(m.uniqueId) from Meeting m").setCacheable(false).uniqueResult();
+		RoomOccupancy occupancy = sSessions.get(session.getUniqueId());
+		if (occupancy != null && System.currentTimeMillis() < occupancy.iExpiration &&
+				(lastMeetingId == null ? occupancy.iLastMeetingId == null : lastMeetingId.equals(occupancy.iLastMeetingId)))
+			return occupancy;
+		occupancy = new RoomOccupancy(session, lastMeetingId, System.currentTimeMillis() + ttl);
+		if (sSessions.size() >= MAX_SESSIONS) sSessions.clear();
+		sSessions.put(session.getUniqueId(), occupancy);
+		return occupancy;
+	}
+
+	/**
+	 * Is the given day (of the session's year) covered by the store
+	 */
+	public boolean isCovered(int dayOfYear) {
+		return iFirstDay <= dayOfYear && dayOfYear <= iLastDay;
+	}
+
+	/**
+	 * Are all the given days covered by the store
+	 */
+	public boolean isCovered(Collection<Integer> dates) {
+		for (Integer date: dates)
+			if (!isCovered(date)) return false;
+		return true;
+	}
+
+	/**
+	 * Locations whose meetings conflict with a meeting in the given location (the location itself, its parent and its partitions).
+	 * Empty for a location that ignores room checks.
+	 */
+	public Map<Long, Set<Long>> getRelatedLocations(org.hibernate.Session hibSession, Collection<Long> permanentIds) {
+		Map<Long, Set<Long>> ret = new HashMap<Long, Set<Long>>();
+		List<Long> missing = new ArrayList<Long>();
+		for (Long permanentId: permanentIds) {
+			Set<Long> related = iRelated.get(permanentId);
+			if (related == null)
+				missing.add(permanentId);
+			else
+				ret.put(permanentId, related);
+		}
+		for (int idx = 0; idx < missing.size(); idx += CHUNK_SIZE) {
+			List<Long> chunk = missing.subList(idx, Math.min(idx + CHUNK_SIZE, missing.size()));
+			Map<Long, Set<Long>> loaded = new HashMap<Long, Set<Long>>();
+			for (Long permanentId: chunk)
+				loaded.put(permanentId, new HashSet<Long>());
+			for (Object[] o: (List<Object[]>)hibSession.createQuery(
+					"select l.permanentId, x.permanentId from Location x, Location l where " +
+					"l.session.uniqueId = :sessionId and l.permanentId in :permanentIds and l.ignoreRoomCheck = false and " +
+					"(x.uniqueId = l.uniqueId or x.parentRoom.uniqueId = l.uniqueId or x.uniqueId = l.parentRoom.uniqueId)")
+					.setLong("sessionId", iSessionId).setParameterList("permanentIds", chunk).list()) {
+				loaded.get((Long)o[0]).add((Long)o[1]);
+			}
+			for (Map.Entry<Long, Set<Long>> e: loaded.entrySet()) {
+				Set<Long> related = Collections.unmodifiableSet(e.getValue());
+				if (iRelated.size() < MAX_LOCATIONS) iRelated.put(e.getKey(), related);
+				ret.put(e.getKey(), related);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Occupancy of the given locations (permanent ids), loaded from the database when needed
+	 */
+	public Map<Long, LocationOccupancy> getOccupancy(org.hibernate.Session hibSession, Collection<Long> permanentIds) {
+		Map<Long, LocationOccupancy> ret = new HashMap<Long, LocationOccupancy>();
+		List<Long> missing = new ArrayList<Long>();
+		for (Long permanentId: permanentIds) {
+			LocationOccupancy occupancy = iLocations.get(permanentId);
+			if (occupancy == null)
+				missing.add(permanentId);
+			else
+				ret.put(permanentId, occupancy);
+		}
+		if (missing.isEmpty()) return ret;
+		Date first = CalendarUtils.dateOfYear2date(iYear, iFirstDay);
+		Date last = CalendarUtils.dateOfYear2date(iYear, iLastDay);
+		for (int idx = 0; idx < missing.size(); idx += CHUNK_SIZE) {
+			List<Long> chunk = missing.subList(idx, Math.min(idx + CHUNK_SIZE, missing.size()));
+			Map<Long, LocationOccupancy> loaded = new HashMap<Long, LocationOccupancy>();
+			for (Long permanentId: chunk)
+				loaded.put(permanentId, new LocationOccupancy());
+			for (Object[] o: (List<Object[]>)hibSession.createQuery(
+					"select m.locationPermanentId, m.meetingDate, m.startPeriod, m.stopPeriod, m.uniqueId, m.event.uniqueId from Meeting m where " +
+					"m.approvalStatus <= 1 and m.locationPermanentId in :permanentIds and m.meetingDate >= :first and m.meetingDate <= :last")
+					.setParameterList("permanentIds", chunk).setDate("first", first).setDate("last", last).list()) {
+				loaded.get((Long)o[0]).add(CalendarUtils.date2dayOfYear(iYear, (Date)o[1]), (Integer)o[2], (Integer)o[3], (Long)o[4], (Long)o[5]);
+			}
+			for (Map.Entry<Long, LocationOccupancy> e: loaded.entrySet()) {
+				if (iLocations.size() < MAX_LOCATIONS) iLocations.put(e.getKey(), e.getValue());
+				ret.put(e.getKey(), e.getValue());
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Meetings that overlap with the given time in any of the given locations (or the locations sharing their space) on any of the given days.
+	 * @param permanentIds location permanent ids
+	 * @param dates days of the session's year
+	 * @param startSlot first time slot
+	 * @param endSlot first time slot after the end
+	 * @param ignoreEventId meetings of this event are ignored (can be null)
+	 * @param ignoreMeetingId this meeting is ignored (can be null)
+	 * @return meeting id &rarr; permanent ids of the given locations the meeting conflicts with
+	 */
+	public Map<Long, Set<Long>> getConflictingMeetings(org.hibernate.Session hibSession, Collection<Long> permanentIds, Collection<Integer> dates, int startSlot, int endSlot, Long ignoreEventId, Long ignoreMeetingId) {
+		Map<Long, Set<Long>> related = getRelatedLocations(hibSession, permanentIds);
+		Set<Long> all = new HashSet<Long>();
+		for (Set<Long> r: related.values()) all.addAll(r);
+		Map<Long, LocationOccupancy> occupancy = getOccupancy(hibSession, all);
+		long[] mask = mask(startSlot, endSlot);
+		Map<Long, Set<Long>> ret = new HashMap<Long, Set<Long>>();
+		for (Map.Entry<Long, Set<Long>> e: related.entrySet()) {
+			for (Long permanentId: e.getValue()) {
+				LocationOccupancy o = occupancy.get(permanentId);
+				if (o == null) continue;
+				for (Integer date: dates) {
+					DayOccupancy day = o.getDay(date);
+					if (day == null || !day.intersects(mask)) continue;
+					for (OccupiedSlots slots: day.getMeetings()) {
+						if (slots.getStartSlot() >= endSlot || slots.getEndSlot() <= startSlot) continue;
+						if (ignoreEventId != null && ignoreEventId.equals(slots.getEventId())) continue;
+						if (ignoreMeetingId != null && ignoreMeetingId.equals(slots.getMeetingId())) continue;
+						Set<Long> locations = ret.get(slots.getMeetingId());
+						if (locations == null) {
+							locations = new HashSet<Long>();
+							ret.put(slots.getMeetingId(), locations);
+						}
+						locations.add(e.getKey());
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Check a meeting returned by {@link #getConflictingMeetings} against its current state in the database, as the store may be outdated
+	 * (e.g., the meeting has been moved, rejected, or cancelled since the store was loaded).
+	 * @param meeting the meeting, as loaded from the database
+	 * @param permanentId location permanent id that the meeting was returned for
+	 * @param dates days of the session's year
+	 * @param startSlot first time slot
+	 * @param endSlot first time slot after the end
+	 */
+	public boolean isConflicting(org.hibernate.Session hibSession, Meeting meeting, Long permanentId, Collection<Integer> dates, int startSlot, int endSlot) {
+		if (meeting.getApprovalStatus() == null || meeting.getApprovalStatus() > 1) return false;
+		if (meeting.getStartPeriod() >= endSlot || meeting.getStopPeriod() <= startSlot) return false;
+		if (!dates.contains(CalendarUtils.date2dayOfYear(iYear, meeting.getMeetingDate()))) return false;
+		Set<Long> related = getRelatedLocations(hibSession, Collections.singleton(permanentId)).get(permanentId);
+		return related != null && related.contains(meeting.getLocationPermanentId());
+	}
+
+	/**
+	 * Bitmap of the given time slots
+	 */
+	public static long[] mask(int startSlot, int endSlot) {
+		long[] mask = new long[DayOccupancy.WORDS];
+		for (int slot = Math.max(0, startSlot); slot < Math.min(endSlot, Constants.SLOTS_PER_DAY); slot++)
+			mask[slot >> 6] |= (1l << (slot & 63));
+		return mask;
+	}
+
+	/**
+	 * Occupancy of a location, by day of the year
+	 */
+	public static class LocationOccupancy {
+		private Map<Integer, DayOccupancy> iDays = new HashMap<Integer, DayOccupancy>();
+
+		void add(int dayOfYear, int startSlot, int endSlot, Long meetingId, Long eventId) {
+			DayOccupancy day = iDays.get(dayOfYear);
+			if (day == null) {
+				day = new DayOccupancy();
+				iDays.put(dayOfYear, day);
+			}
+			day.add(startSlot, endSlot, meetingId, eventId);
+		}
+
+		/**
+		 * Occupancy of the given day, null if the location is not used
+		 */
+		public DayOccupancy getDay(int dayOfYear) { return iDays.get(dayOfYear); }
+	}
+
+	/**
+	 * Occupied time slots of a location on a day
+	 */
+	public static class DayOccupancy {
+		static final int WORDS = (Constants.SLOTS_PER_DAY + 63) / 64;
+		private long[] iSlots = new long[WORDS];
+		private List<OccupiedSlots> iMeetings = new ArrayList<OccupiedSlots>(2);
+
+		void add(int startSlot, int endSlot, Long meetingId, Long eventId) {
+			long[] mask = mask(startSlot, endSlot);
+			for (int i = 0; i < WORDS; i++) iSlots[i] |= mask[i];
+			iMeetings.add(new OccupiedSlots(startSlot, endSlot, meetingId, eventId));
+		}
+
+		/**
+		 * Is any of the given time slots occupied
+		 */
+		public boolean intersects(long[] mask) {
+			for (int i = 0; i < WORDS; i++)
+				if ((iSlots[i] & mask[i]) != 0) return true;
+			return false;
+		}
+
+		/**
+		 * Meetings of the day
+		 */
+		public List<OccupiedSlots> getMeetings() { return iMeetings; }
+	}
+
+	/**
+	 * Time slots occupied by a meeting
+	 */
+	public static class OccupiedSlots {
+		private int iStartSlot, iEndSlot;
+		private Long iMeetingId, iEventId;
+
+		OccupiedSlots(int startSlot, int endSlot, Long meetingId, Long eventId) {
+			iStartSlot = startSlot; iEndSlot = endSlot; iMeetingId = meetingId; iEventId = eventId;
+		}
+
+		public int getStartSlot() { return iStartSlot; }
+		public int getEndSlot() { return iEndSlot; }
+		public Long getMeetingId() { return iMeetingId; }
+		public Long getEventId() { return iEventId; }
+	}
+}
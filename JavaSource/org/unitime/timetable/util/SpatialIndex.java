@@ -0,0 +1,197 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cpsolver.ifs.util.DistanceMetric;
+
+/**
+ * Simple grid index over room / building coordinates. It is used to quickly find all
+ * the items within a given distance of a point, instead of computing the distance to every item. Distances are computed using the provided
+ * {@link DistanceMetric} (including the travel times that are set on the metric), the grid
+ * only limits the number of items for which the distance needs to be computed.
+ * Items without coordinates are not indexed.
+ *
+ * @author Tomas Muller
+ */
+public class SpatialIndex<T> {
+	private static final double MARGIN = 1.25;
+	private DistanceMetric iMetric;
+	private double iCellSizeInMeters;
+	private Double iCellX = null, iCellY = null;
+	private Map<Long, List<Item<T>>> iCells = new HashMap<Long, List<Item<T>>>();
+	private Map<Long, Item<T>> iItems = new HashMap<Long, Item<T>>();
+	private Map<Long, Set<Long>> iTravelTimes = null;
+
+	/**
+	 * @param metric distance metric
+	 * @param cellSizeInMeters approximate size of a grid cell in meters (e.g., the distance that is typically queried)
+	 */
+	public SpatialIndex(DistanceMetric metric, double cellSizeInMeters) {
+		iMetric = metric;
+		iCellSizeInMeters = Math.max(1.0, cellSizeInMeters);
+	}
+
+	public DistanceMetric getDistanceMetric() { return iMetric; }
+
+	/**
+	 * Number of coordinate units that correspond to the given number of meters in the direction of the x and y coordinates around the given point.
+	 */
+	protected double[] meters2units(double x, double y, double meters) {
+		double h = 0.01;
+		double mx = iMetric.getDistanceInMeters(x, y, x + h, y) / h;
+		double my = iMetric.getDistanceInMeters(x, y, x, y + h) / h;
+		return new double[] {
+				mx <= 0.0 ? Double.POSITIVE_INFINITY : MARGIN * meters / mx,
+				my <= 0.0 ? Double.POSITIVE_INFINITY : MARGIN * meters / my };
+	}
+
+	protected long cell(long i, long j) {
+		return (i << 32) ^ (j & 0xffffffffl);
+	}
+
+	/**
+	 * Add an item into the index
+	 * @param id unique id of the item (used to look up travel times in the distance metric)
+	 * @return true if the item has coordinates and was added
+	 */
+	public boolean add(Long id, Double x, Double y, T item) {
+		if (x == null || y == null) return false;
+		if (iCellX == null) {
+			double[] cell = meters2units(x, y, iCellSizeInMeters);
+			iCellX = (Double.isInfinite(cell[0]) ? 1.0 : cell[0]);
+			iCellY = (Double.isInfinite(cell[1]) ? 1.0 : cell[1]);
+		}
+		Item<T> i = new Item<T>(id, x, y, item);
+		long cell = cell((long)Math.floor(x / iCellX), (long)Math.floor(y / iCellY));
+		List<Item<T>> items = iCells.get(cell);
+		if (items == null) {
+			items = new ArrayList<Item<T>>();
+			iCells.put(cell, items);
+		}
+		items.add(i);
+		if (id != null) iItems.put(id, i);
+		iTravelTimes = null;
+		return true;
+	}
+
+	/**
+	 * Indexed items that have a travel time set with the given id (the distance metric only keeps travel times under the smaller of the two ids)
+	 */
+	protected synchronized Set<Long> getTravelTimes(Long id) {
+		if (iTravelTimes == null) {
+			iTravelTimes = new HashMap<Long, Set<Long>>();
+			Map<Long, Map<Long, Integer>> travelTimes = iMetric.getTravelTimes();
+			if (travelTimes != null)
+				for (Map.Entry<Long, Map<Long, Integer>> e: travelTimes.entrySet())
+					for (Long other: e.getValue().keySet()) {
+						if (iItems.containsKey(other)) {
+							Set<Long> ids = iTravelTimes.get(e.getKey());
+							if (ids == null) { ids = new HashSet<Long>(); iTravelTimes.put(e.getKey(), ids); }
+							ids.add(other);
+						}
+						if (iItems.containsKey(e.getKey())) {
+							Set<Long> ids = iTravelTimes.get(other);
+							if (ids == null) { ids = new HashSet<Long>(); iTravelTimes.put(other, ids); }
+							ids.add(e.getKey());
+						}
+					}
+		}
+		return (id == null ? null : iTravelTimes.get(id));
+	}
+
+	public int size() { return iItems.size(); }
+
+	public boolean isEmpty() { return iCells.isEmpty(); }
+
+	/**
+	 * Items that are inside of the bounding box of the given distance around the given point
+	 */
+	protected List<Item<T>> candidates(double x, double y, double meters) {
+		List<Item<T>> ret = new ArrayList<Item<T>>();
+		if (iCellX == null) return ret;
+		double[] d = meters2units(x, y, meters);
+		if (Double.isInfinite(d[0]) || Double.isInfinite(d[1]) || ((2.0 + 2.0 * d[0] / iCellX) * (2.0 + 2.0 * d[1] / iCellY)) > iCells.size()) {
+			// box covers more cells than there are non-empty ones -> check all cells
+			for (List<Item<T>> items: iCells.values())
+				for (Item<T> item: items)
+					if (Math.abs(item.x() - x) <= d[0] && Math.abs(item.y() - y) <= d[1]) ret.add(item);
+			return ret;
+		}
+		long i0 = (long)Math.floor((x - d[0]) / iCellX), i1 = (long)Math.floor((x + d[0]) / iCellX);
+		long j0 = (long)Math.floor((y - d[1]) / iCellY), j1 = (long)Math.floor((y + d[1]) / iCellY);
+		for (long i = i0; i <= i1; i++)
+			for (long j = j0; j <= j1; j++) {
+				List<Item<T>> items = iCells.get(cell(i, j));
+				if (items != null)
+					for (Item<T> item: items)
+						if (Math.abs(item.x() - x) <= d[0] && Math.abs(item.y() - y) <= d[1]) ret.add(item);
+			}
+		return ret;
+	}
+
+	/**
+	 * Find all items that are within the given distance
+	 * @param id unique id of the point (or null), travel times of the distance metric are considered when set
+	 * @param x x coordinate of the point
+	 * @param y y coordinate of the point
+	 * @param meters distance in meters
+	 * @return items within the distance, with their distances in meters
+	 */
+	public Map<T, Double> within(Long id, Double x, Double y, double meters) {
+		Map<T, Double> ret = new HashMap<T, Double>();
+		if (x == null || y == null) return ret;
+		for (Item<T> item: candidates(x, y, meters)) {
+			double distance = iMetric.getDistanceInMeters(id, x, y, item.id(), item.x(), item.y());
+			if (distance <= meters) ret.put(item.item(), distance);
+		}
+		// items with a travel time set (these can be further away)
+		Set<Long> travelTimes = getTravelTimes(id);
+		if (travelTimes != null)
+			for (Long other: travelTimes) {
+				Item<T> item = iItems.get(other);
+				if (item == null || ret.containsKey(item.item())) continue;
+				double distance = iMetric.getDistanceInMeters(id, x, y, item.id(), item.x(), item.y());
+				if (distance <= meters) ret.put(item.item(), distance);
+			}
+		return ret;
+	}
+
+	protected static class Item<T> {
+		private Long iId;
+		private double iX, iY;
+		private T iItem;
+
+		Item(Long id, double x, double y, T item) {
+			iId = id; iX = x; iY = y; iItem = item;
+		}
+
+		public Long id() { return iId; }
+		public double x() { return iX; }
+		public double y() { return iY; }
+		public T item() { return iItem; }
+	}
+}
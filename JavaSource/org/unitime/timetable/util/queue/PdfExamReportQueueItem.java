@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -33,11 +34,19 @@ import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.unitime.commons.Email;
 import org.unitime.localization.impl.Localization;
 import org.unitime.localization.messages.ExaminationMessages;
@@ -76,6 +85,7 @@ import org.unitime.timetable.util.Formats;
 public class PdfExamReportQueueItem extends QueueItem {
 	private static final long serialVersionUID = 1L;
 	protected static final ExaminationMessages MSG = Localization.create(ExaminationMessages.class);
+	private static Log sLog = LogFactory.getLog(PdfExamReportQueueItem.class);
 
 	public static String TYPE = "PDF Exam Report";
 
@@ -117,6 +127,7 @@ public class PdfExamReportQueueItem extends QueueItem {
 	}
 	
 	private void createReports(org.hibernate.Session hibSession) {
+		ReportOutbox instructorOutbox = null, studentOutbox = null;
         try {
         	iProgress = 0;
             setStatus(MSG.statusLoadingExams());
@@ -283,9 +294,10 @@ public class PdfExamReportQueueItem extends QueueItem {
             */
             Hashtable<String,File> output = new Hashtable();
             Hashtable<SubjectArea,Hashtable<String,File>> outputPerSubject = new Hashtable();
-            Hashtable<ExamInstructorInfo,File> ireports = null;
-            Hashtable<Student,File> sreports = null;
             Session session = getSession();
+            String attachmentName = session.getAcademicTerm()+session.getSessionStartYear()+ExamTypeDAO.getInstance().get(iForm.getExamType()).getReference()+PdfLegacyExamReport.getExtension(iForm.getReportMode());
+            if (iForm.getEmail() && iForm.getEmailInstructors()) instructorOutbox = new ReportOutbox(attachmentName);
+            if (iForm.getEmail() && iForm.getEmailStudents()) studentOutbox = new ReportOutbox(attachmentName);
             for (int i=0;i<iForm.getReports().length;i++) {
             	iProgress = 0.1 + (0.8 / iForm.getReports().length) * i;
             	RegisteredReport regReport = ExamPdfReportForm.RegisteredReport.valueOf(iForm.getReports()[i]);
@@ -321,9 +333,9 @@ public class PdfExamReportQueueItem extends QueueItem {
                     report.close();
                     output.put(reportName+PdfLegacyExamReport.getExtension(iForm.getReportMode()),file);
                     if (report instanceof InstructorExamReport && iForm.getEmailInstructors()) {
-                        ireports = ((InstructorExamReport)report).printInstructorReports(name, new FileGenerator(name));
+                        ((InstructorExamReport)report).printInstructorReports(name, new FileGenerator(name), instructorOutbox == null ? null : new InstructorReportCallback(instructorOutbox));
                     } else if (report instanceof StudentExamReport && iForm.getEmailStudents()) {
-                        sreports = ((StudentExamReport)report).printStudentReports(name, new FileGenerator(name));
+                        ((StudentExamReport)report).printStudentReports(name, new FileGenerator(name), studentOutbox == null ? null : new StudentReportCallback(studentOutbox));
                     }
                 } else {
                     for (int j=0;j<iForm.getSubjects().length;j++) {
@@ -361,9 +373,9 @@ public class PdfExamReportQueueItem extends QueueItem {
                         }
                         files.put(subject.getSubjectAreaAbbreviation()+"_"+reportName+PdfLegacyExamReport.getExtension(iForm.getReportMode()),file);
                         if (report instanceof InstructorExamReport && iForm.getEmailInstructors()) {
-                            ireports = ((InstructorExamReport)report).printInstructorReports( name, new FileGenerator(name));
+                            ((InstructorExamReport)report).printInstructorReports(name, new FileGenerator(name), instructorOutbox == null ? null : new InstructorReportCallback(instructorOutbox));
                         } else if (report instanceof StudentExamReport && iForm.getEmailStudents()) {
-                            sreports = ((StudentExamReport)report).printStudentReports(name, new FileGenerator(name));
+                            ((StudentExamReport)report).printStudentReports(name, new FileGenerator(name), studentOutbox == null ? null : new StudentReportCallback(studentOutbox));
                         }
                     }
                 }
@@ -464,64 +476,10 @@ public class PdfExamReportQueueItem extends QueueItem {
                         setError(e);
                     }
                 }
-                if (iForm.getEmailInstructors() && ireports!=null && !ireports.isEmpty()) {
-                    setStatus(MSG.statusEmailingInstructors());
-                    for (ExamInstructorInfo instructor : new TreeSet<ExamInstructorInfo>(ireports.keySet())) {
-                        File report = ireports.get(instructor);
-                        String email = instructor.getInstructor().getEmail();
-                        if (email==null || email.length()==0) {
-                            log("&nbsp;&nbsp;<font color='orange'>" + MSG.errorUnableToSentInstructorNoEmail("<a href='temp/"+report.getName()+"'>"+instructor.getName()+"</a>") + "</font>");
-                            continue;
-                        }
-                        try {
-                        	Email mail = Email.createEmail();
-                            mail.setSubject(iForm.getSubject()==null?MSG.emailSubjectExaminationReport():iForm.getSubject());
-                            mail.setText((iForm.getMessage()==null?"":iForm.getMessage()+"\r\n\r\n")+
-                            		MSG.emailForUpToDateReportVisit(iUrl)+"\r\n\r\n"+
-                            		MSG.emailFooter(Constants.getVersion()));
-                            mail.addRecipient(email, null);
-                            if (iForm.getCc()!=null) for (StringTokenizer s=new StringTokenizer(iForm.getCc(),";,\n\r ");s.hasMoreTokens();) 
-                                mail.addRecipientCC(s.nextToken(), null);
-                            if (iForm.getBcc()!=null) for (StringTokenizer s=new StringTokenizer(iForm.getBcc(),";,\n\r ");s.hasMoreTokens();) 
-                                mail.addRecipientBCC(s.nextToken(), null);
-                            mail.addAttachment(report, session.getAcademicTerm()+session.getSessionStartYear()+ExamTypeDAO.getInstance().get(iForm.getExamType()).getReference()+PdfLegacyExamReport.getExtension(iForm.getReportMode()));
-                            mail.send();
-                            log("&nbsp;&nbsp;" + MSG.infoEmailSentTo("<a href='temp/"+report.getName()+"'>"+instructor.getName()+"</a>"));
-                        } catch (Exception e) {
-                            log("&nbsp;&nbsp;<font color='orange'>" + MSG.errorUnableToSendEmailTo("<a href='temp/"+report.getName()+"'>"+instructor.getName()+"</a>", e.getMessage())+"</font>");
-                            setError(e);
-                        }
-                    }
+                if (instructorOutbox != null && instructorOutbox.finish() > 0) {
                     log(MSG.infoEmailsSent());
                 }
-                if (iForm.getEmailStudents() && sreports!=null && !sreports.isEmpty()) {
-                    setStatus(MSG.statusEmailingStudents());
-                    for (Student student : new TreeSet<Student>(sreports.keySet())) {
-                        File report = sreports.get(student);
-                        String email = student.getEmail();
-                        if (email==null || email.length()==0) {
-                            log("&nbsp;&nbsp;<font color='orange'>" + MSG.errorUnableToSentStudentNoEmail("<a href='temp/"+report.getName()+"'>"+student.getName(DepartmentalInstructor.sNameFormatLastFist)+"</a>") + "</font>");
-                            continue;
-                        }
-                        try {
-                            Email mail = Email.createEmail();
-                            mail.setSubject(iForm.getSubject()==null?MSG.emailSubjectExaminationReport():iForm.getSubject());
-                            mail.setText((iForm.getMessage()==null?"":iForm.getMessage()+"\r\n\r\n")+
-                            		MSG.emailForUpToDateReportVisit(iUrl)+"\r\n\r\n"+
-                            		MSG.emailFooter(Constants.getVersion()));
-                            mail.addRecipient(email, null);
-                            if (iForm.getCc()!=null) for (StringTokenizer s=new StringTokenizer(iForm.getCc(),";,\n\r ");s.hasMoreTokens();) 
-                                mail.addRecipientCC(s.nextToken(), null);
-                            if (iForm.getBcc()!=null) for (StringTokenizer s=new StringTokenizer(iForm.getBcc(),";,\n\r ");s.hasMoreTokens();) 
-                                mail.addRecipientBCC(s.nextToken(), null);
-                            mail.addAttachment(report, session.getAcademicTerm()+session.getSessionStartYear()+ExamTypeDAO.getInstance().get(iForm.getExamType()).getReference()+PdfLegacyExamReport.getExtension(iForm.getReportMode()));
-                            mail.send();
-                            log("&nbsp;&nbsp;" + MSG.infoEmailSentTo("<a href='temp/"+report.getName()+"'>"+student.getName(DepartmentalInstructor.sNameFormatLastFist)+"</a>"));
-                        } catch (Exception e) {
-                        	log("&nbsp;&nbsp;<font color='orange'>" + MSG.errorUnableToSendEmailTo("<a href='temp/"+report.getName()+"'>"+student.getName(DepartmentalInstructor.sNameFormatLastFist)+"</a>", e.getMessage())+"</font>");
-                            setError(e);
-                        }
-                    }
+                if (studentOutbox != null && studentOutbox.finish() > 0) {
                     log(MSG.infoEmailsSent());
                 }
             }
@@ -555,6 +513,9 @@ public class PdfExamReportQueueItem extends QueueItem {
             setStatus(MSG.statusAllDone());
         } catch (Exception e) {
             fatal(MSG.errorTaskFailed(), e);
+        } finally {
+        	if (instructorOutbox != null) instructorOutbox.finish();
+        	if (studentOutbox != null) studentOutbox.finish();
         }
 	}
 
@@ -573,6 +534,150 @@ public class PdfExamReportQueueItem extends QueueItem {
 		return TYPE;
 	}
 	
+	protected void sendReportEmail(ReportEmail email, String attachmentName) {
+		try {
+			Email mail = Email.createEmail();
+			mail.setSubject(iForm.getSubject()==null?MSG.emailSubjectExaminationReport():iForm.getSubject());
+			mail.setText((iForm.getMessage()==null?"":iForm.getMessage()+"\r\n\r\n")+
+					MSG.emailForUpToDateReportVisit(iUrl)+"\r\n\r\n"+
+					MSG.emailFooter(Constants.getVersion()));
+			mail.addRecipient(email.getEmail(), null);
+			if (iForm.getCc()!=null) for (StringTokenizer s=new StringTokenizer(iForm.getCc(),";,\n\r ");s.hasMoreTokens();) 
+				mail.addRecipientCC(s.nextToken(), null);
+			if (iForm.getBcc()!=null) for (StringTokenizer s=new StringTokenizer(iForm.getBcc(),";,\n\r ");s.hasMoreTokens();) 
+				mail.addRecipientBCC(s.nextToken(), null);
+			mail.addAttachment(email.getReport(), attachmentName);
+			mail.send();
+			log("&nbsp;&nbsp;" + MSG.infoEmailSentTo("<a href='temp/"+email.getReport().getName()+"'>"+email.getName()+"</a>"));
+		} catch (Exception e) {
+			log("&nbsp;&nbsp;<font color='orange'>" + MSG.errorUnableToSendEmailTo("<a href='temp/"+email.getReport().getName()+"'>"+email.getName()+"</a>", e.getMessage())+"</font>");
+			setError(e);
+		}
+	}
+	
+	/**
+	 * Sends the individual reports by email as they are printed. When tmtbl.exam.pdfReports.emailThreads is above one,
+	 * the emails are sent in parallel (the reports are already generated, so no database access is needed).
+	 */
+	protected class ReportOutbox {
+		private String iAttachmentName;
+		private ExecutorService iExecutor = null;
+		private List<Future<?>> iFutures = new ArrayList<Future<?>>();
+		private int iNrThreads, iCount = 0;
+		private long iFirstEmail = 0;
+		private boolean iFinished = false;
+		
+		public ReportOutbox(String attachmentName) {
+			iAttachmentName = attachmentName;
+			iNrThreads = Math.max(1, ApplicationProperty.ExaminationPdfReportsEmailThreads.intValue());
+			if (iNrThreads > 1)
+				iExecutor = Executors.newFixedThreadPool(iNrThreads, new ThreadFactory() {
+					AtomicInteger iIndex = new AtomicInteger(0);
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "ExamReportEmail-" + iIndex.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		}
+		
+		public void send(final ReportEmail email) {
+			if (iCount++ == 0) iFirstEmail = System.currentTimeMillis();
+			if (iExecutor == null) {
+				sendReportEmail(email, iAttachmentName);
+			} else {
+				iFutures.add(iExecutor.submit(new Runnable() {
+					@Override
+					public void run() {
+						ApplicationProperties.setSessionId(getSessionId());
+						Localization.setLocale(getLocale());
+						try {
+							sendReportEmail(email, iAttachmentName);
+						} finally {
+							ApplicationProperties.setSessionId(null);
+							Localization.removeLocale();
+						}
+					}
+				}));
+			}
+		}
+		
+		/**
+		 * Wait for all the emails to be sent, returns the number of emails
+		 */
+		public int finish() {
+			if (iFinished) return iCount;
+			iFinished = true;
+			if (iExecutor != null) {
+				try {
+					for (Future<?> future: iFutures) {
+						try {
+							future.get();
+						} catch (ExecutionException e) {
+							setError(e.getCause());
+						}
+					}
+				} catch (InterruptedException e) {
+					setError(e);
+				} finally {
+					iExecutor.shutdownNow();
+				}
+			}
+			if (iCount > 0) {
+				long t = System.currentTimeMillis() - iFirstEmail;
+				sLog.info(iCount + " emails sent in " + new DecimalFormat("0.0").format(t / 1000.0) + " s using " + iNrThreads + " thread(s) (" +
+						new DecimalFormat("0.0").format(1000.0 * iCount / Math.max(1, t)) + " emails/s)");
+			}
+			return iCount;
+		}
+	}
+	
+	protected class InstructorReportCallback implements PdfLegacyExamReport.ReportCallback<ExamInstructorInfo> {
+		private ReportOutbox iOutbox;
+		
+		public InstructorReportCallback(ReportOutbox outbox) { iOutbox = outbox; }
+		
+		@Override
+		public void reportPrinted(ExamInstructorInfo instructor, File report) {
+			String email = instructor.getInstructor().getEmail();
+			if (email==null || email.length()==0) {
+				log("&nbsp;&nbsp;<font color='orange'>" + MSG.errorUnableToSentInstructorNoEmail("<a href='temp/"+report.getName()+"'>"+instructor.getName()+"</a>") + "</font>");
+				return;
+			}
+			iOutbox.send(new ReportEmail(email, instructor.getName(), report));
+		}
+	}
+	
+	protected class StudentReportCallback implements PdfLegacyExamReport.ReportCallback<Student> {
+		private ReportOutbox iOutbox;
+		
+		public StudentReportCallback(ReportOutbox outbox) { iOutbox = outbox; }
+		
+		@Override
+		public void reportPrinted(Student student, File report) {
+			String email = student.getEmail();
+			if (email==null || email.length()==0) {
+				log("&nbsp;&nbsp;<font color='orange'>" + MSG.errorUnableToSentStudentNoEmail("<a href='temp/"+report.getName()+"'>"+student.getName(DepartmentalInstructor.sNameFormatLastFist)+"</a>") + "</font>");
+				return;
+			}
+			iOutbox.send(new ReportEmail(email, student.getName(DepartmentalInstructor.sNameFormatLastFist), report));
+		}
+	}
+	
+	protected static class ReportEmail {
+		private String iEmail, iName;
+		private File iReport;
+		
+		public ReportEmail(String email, String name, File report) {
+			iEmail = email; iName = name; iReport = report;
+		}
+		
+		public String getEmail() { return iEmail; }
+		public String getName() { return iName; }
+		public File getReport() { return iReport; }
+	}
+	
 	public static class FileGenerator implements InstructorExamReport.FileGenerator {
         String iName;
         public FileGenerator(String name) {
@@ -121,6 +121,7 @@ public class WebClassAssignmentReportListTableBuilder extends WebClassListTableB
         	setDisplayTimetable(hasTimetable);
         }
         setUserSettings(context.getUser());
+        loadClassPermissions(context, classes);
         
         if (examAssignment!=null || Exam.hasTimetable(context.getUser().getCurrentAcademicSessionId())) {
             setShowExam(true);
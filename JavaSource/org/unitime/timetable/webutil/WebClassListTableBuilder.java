@@ -120,6 +120,7 @@ public class WebClassListTableBuilder extends
     		setDisplayTimetable(hasTimetable);
     	}
         setUserSettings(context.getUser());
+        loadClassPermissions(context, classes);
         
         if (isShowExam())
             setShowExamTimetable(examAssignment!=null || Exam.hasTimetable(context.getUser().getCurrentAcademicSessionId()));
@@ -239,6 +240,7 @@ public class WebClassListTableBuilder extends
         	setShowDivSec(hasTimetable);
         }
         setUserSettings(context.getUser());
+        loadClassPermissions(context, classes);
         
 		TableStream table = this.initTable(outputStream, context.getUser().getCurrentAcademicSessionId());
         Iterator it = classes.iterator();
@@ -20,14 +20,18 @@
 package org.unitime.timetable.webutil;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.io.Writer;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Vector;
@@ -233,6 +237,7 @@ public class WebInstructionalOfferingTableBuilder {
     public boolean getGridAsText() {
     	return iGridAsText;
     }
+    private Map<Right, Map<Serializable, Boolean>> iPermissions = new HashMap<Right, Map<Serializable, Boolean>>();
     public String iInstructorNameFormat = "last-first";
     public void setInstructorNameFormat(String instructorNameFormat) {
     	iInstructorNameFormat = instructorNameFormat;
@@ -387,6 +392,59 @@ public class WebInstructionalOfferingTableBuilder {
                 + "';");   	
     }
     
+    /**
+     * Check the given right on all the given targets at once, see {@link #hasPermission(SessionContext, Object, Long, Right)}
+     */
+    protected void loadPermissions(SessionContext context, Collection<Long> targetIds, Right right) {
+    	if (targetIds.isEmpty()) return;
+    	Map<Serializable, Boolean> permissions = iPermissions.get(right);
+    	if (permissions == null) {
+    		permissions = new HashMap<Serializable, Boolean>();
+    		iPermissions.put(right, permissions);
+    	}
+    	permissions.putAll(context.hasPermissions(targetIds, null, right));
+    }
+    
+    /**
+     * Check the detail rights of the given instructional offerings, their scheduling subparts, and classes at once
+     */
+    protected void loadPermissions(SessionContext context, Collection<InstructionalOffering> offerings) {
+    	List<Long> offeringIds = new ArrayList<Long>(), subpartIds = new ArrayList<Long>(), classIds = new ArrayList<Long>();
+    	for (InstructionalOffering io: offerings) {
+    		offeringIds.add(io.getUniqueId());
+    		for (InstrOfferingConfig ioc: io.getInstrOfferingConfigs())
+    			for (SchedulingSubpart ss: ioc.getSchedulingSubparts()) {
+    				subpartIds.add(ss.getUniqueId());
+    				for (Class_ c: ss.getClasses())
+    					classIds.add(c.getUniqueId());
+    			}
+    	}
+    	loadPermissions(context, offeringIds, Right.InstructionalOfferingDetail);
+    	loadPermissions(context, subpartIds, Right.SchedulingSubpartDetail);
+    	loadPermissions(context, classIds, Right.ClassDetail);
+    }
+    
+    /**
+     * Check the detail rights of the given classes at once, the classes may also be given as the first item of an array (class, course)
+     */
+    protected void loadClassPermissions(SessionContext context, Collection<?> classes) {
+    	List<Long> classIds = new ArrayList<Long>();
+    	for (Object o: classes) {
+    		Object c = (o instanceof Object[] ? ((Object[])o)[0] : o);
+    		if (c instanceof Class_) classIds.add(((Class_)c).getUniqueId());
+    	}
+    	loadPermissions(context, classIds, Right.ClassDetail);
+    }
+    
+    /**
+     * Permission check that uses the decisions of {@link #loadPermissions(SessionContext, Collection, Right)} when available
+     */
+    protected boolean hasPermission(SessionContext context, Object target, Long targetId, Right right) {
+    	Map<Serializable, Boolean> permissions = iPermissions.get(right);
+    	Boolean decision = (permissions == null || targetId == null ? null : permissions.get(targetId));
+    	return (decision != null ? decision.booleanValue() : context.hasPermission(target, right));
+    }
+    
     protected TableRow initRow(boolean isHeaderRow){
         TableRow row = new TableRow();
         if (isHeaderRow){
@@ -1563,7 +1621,7 @@ public class WebInstructionalOfferingTableBuilder {
     private void buildSchedulingSubpartRow(ClassAssignmentProxy classAssignment, ExamAssignmentProxy examAssignment, TableStream table, CourseOffering co, SchedulingSubpart ss, int indentSpaces, SessionContext context){
     	boolean isHeaderRow = true;
     	TableRow row = this.initRow(isHeaderRow);
-    	boolean isEditable = context.hasPermission(ss, Right.SchedulingSubpartDetail);
+    	boolean isEditable = hasPermission(context, ss, ss.getUniqueId(), Right.SchedulingSubpartDetail);
         boolean isOffered = !ss.getInstrOfferingConfig().getInstructionalOffering().isNotOffered().booleanValue();        
 
         if(isOffered)
@@ -1602,7 +1660,7 @@ public class WebInstructionalOfferingTableBuilder {
  
     protected void buildClassRow(ClassAssignmentProxy classAssignment, ExamAssignmentProxy examAssignment, int ct, TableStream table, CourseOffering co, Class_ aClass, int indentSpaces, SessionContext context, String prevLabel){
     	boolean isHeaderRow = false;
-    	boolean isEditable = context.hasPermission(aClass, Right.ClassDetail);
+    	boolean isEditable = hasPermission(context, aClass, aClass.getUniqueId(), Right.ClassDetail);
     	TableRow row = this.initRow(isHeaderRow);
         row.setOnMouseOver(this.getRowMouseOver(isHeaderRow, isEditable));
         row.setOnMouseOut(this.getRowMouseOut(isHeaderRow));
@@ -1712,7 +1770,7 @@ public class WebInstructionalOfferingTableBuilder {
     //		buildTableHeader, addInstrOffrRowsToTable, buildClassOrSubpartRow, and buildConfigRow
 	protected void buildConfigRow(Vector subpartIds, ClassAssignmentProxy classAssignment, ExamAssignmentProxy examAssignment, TableStream table, CourseOffering co, InstrOfferingConfig ioc, SessionContext context, boolean printConfigLine, boolean printConfigReservation) {
 	    boolean isHeaderRow = true;
-	    boolean isEditable = context.hasPermission(ioc.getInstructionalOffering(), Right.InstructionalOfferingDetail);
+	    boolean isEditable = hasPermission(context, ioc.getInstructionalOffering(), ioc.getInstructionalOffering().getUniqueId(), Right.InstructionalOfferingDetail);
 	    String configName = ioc.getName();
 	    boolean unlimited = ioc.isUnlimitedEnrollment().booleanValue();
 	    boolean hasConfig = false;
@@ -1882,7 +1940,7 @@ public class WebInstructionalOfferingTableBuilder {
     //		buildTableHeader, addInstrOffrRowsToTable, buildClassOrSubpartRow, and buildConfigRow
     private void addInstrOffrRowsToTable(ClassAssignmentProxy classAssignment, ExamAssignmentProxy examAssignment, TableStream table, InstructionalOffering io, Long subjectAreaId, SessionContext context){
         CourseOffering co = io.findSortCourseOfferingForSubjectArea(subjectAreaId);
-        boolean isEditable = context.hasPermission(io, Right.InstructionalOfferingDetail);
+        boolean isEditable = hasPermission(context, io, io.getUniqueId(), Right.InstructionalOfferingDetail);
         TableRow row = (this.initRow(true));
         row.setOnMouseOver(this.getRowMouseOver(true, isEditable));
         row.setOnMouseOut(this.getRowMouseOut(true));
@@ -2273,6 +2331,7 @@ public class WebInstructionalOfferingTableBuilder {
         boolean hasOfferedCourses = false;
         boolean hasNotOfferedCourses = false;
 		setUserSettings(context.getUser());
+		loadPermissions(context, insructionalOfferings);
         
          while (it.hasNext()){
             io = (InstructionalOffering) it.next();
@@ -90,6 +90,7 @@ public class CsvClassListTableBuilder extends CsvInstructionalOfferingTableBuild
 			setDisplayTimetable(hasTimetable);
 		}
 		setUserSettings(context.getUser());
+		loadClassPermissions(context, classes);
 		
         if (isShowExam())
             setShowExamTimetable(examAssignment != null || Exam.hasTimetable(context.getUser().getCurrentAcademicSessionId()));
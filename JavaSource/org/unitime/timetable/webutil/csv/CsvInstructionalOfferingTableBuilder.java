@@ -1023,7 +1023,7 @@ public class CsvInstructionalOfferingTableBuilder extends WebInstructionalOfferi
     }
     
     private void csvBuildSchedulingSubpartRow(ClassAssignmentProxy classAssignment, ExamAssignmentProxy examAssignment, CourseOffering co, SchedulingSubpart ss, String indentSpaces, SessionContext context){
-        boolean isEditable = context.hasPermission(ss, Right.SchedulingSubpartDetail);
+        boolean isEditable = hasPermission(context, ss, ss.getUniqueId(), Right.SchedulingSubpartDetail);
         csvBuildClassOrSubpartRow(classAssignment, examAssignment, co, ss, indentSpaces, isEditable, null, context);
     }
     
@@ -1047,7 +1047,7 @@ public class CsvInstructionalOfferingTableBuilder extends WebInstructionalOfferi
     }
  
     protected void csvBuildClassRow(ClassAssignmentProxy classAssignment, ExamAssignmentProxy examAssignment, int ct, CourseOffering co, Class_ aClass, String indentSpaces, SessionContext context, String prevLabel){
-        boolean isEditable = context.hasPermission(aClass, Right.ClassDetail);
+        boolean isEditable = hasPermission(context, aClass, aClass.getUniqueId(), Right.ClassDetail);
         csvBuildClassOrSubpartRow(classAssignment, examAssignment, co, aClass, indentSpaces, isEditable && !aClass.isCancelled(), prevLabel, context);
     }
     
@@ -1072,7 +1072,7 @@ public class CsvInstructionalOfferingTableBuilder extends WebInstructionalOfferi
 
 
 	protected void csvBuildConfigRow(Vector subpartIds, ClassAssignmentProxy classAssignment, ExamAssignmentProxy examAssignment, CourseOffering co, InstrOfferingConfig ioc, SessionContext context, boolean printConfigLine) {
-	    boolean isEditable = context.hasPermission(ioc.getInstructionalOffering(), Right.InstructionalOfferingDetail);
+	    boolean isEditable = hasPermission(context, ioc.getInstructionalOffering(), ioc.getInstructionalOffering().getUniqueId(), Right.InstructionalOfferingDetail);
 	    List<CSVField> line = new ArrayList<CSVField>();	    
 	    String configName = ioc.getName();
 	    boolean unlimited = ioc.isUnlimitedEnrollment().booleanValue();
@@ -1223,7 +1223,7 @@ public class CsvInstructionalOfferingTableBuilder extends WebInstructionalOfferi
 
     private void csvAddInstrOffrRowsToTable(ClassAssignmentProxy classAssignment, ExamAssignmentProxy examAssignment, InstructionalOffering io, Long subjectAreaId, SessionContext context){
         CourseOffering co = io.findSortCourseOfferingForSubjectArea(subjectAreaId);
-        boolean isEditable = context.hasPermission(co.getInstructionalOffering(), Right.InstructionalOfferingDetail); 
+        boolean isEditable = hasPermission(context, co.getInstructionalOffering(), co.getInstructionalOffering().getUniqueId(), Right.InstructionalOfferingDetail); 
         List<CSVField> line = new ArrayList<CSVField>();        
     	if (isShowLabel()){
     		line.add(csvSubjectAndCourseInfo(io, co));
@@ -1524,6 +1524,7 @@ public class CsvInstructionalOfferingTableBuilder extends WebInstructionalOfferi
         boolean hasOfferedCourses = false;
         boolean hasNotOfferedCourses = false;
 		setUserSettings(context.getUser());
+		loadPermissions(context, insructionalOfferings);
         
          while (it.hasNext()){
             io = (InstructionalOffering) it.next();
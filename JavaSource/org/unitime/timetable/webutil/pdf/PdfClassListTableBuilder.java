@@ -98,6 +98,7 @@ public class PdfClassListTableBuilder extends PdfInstructionalOfferingTableBuild
 			setDisplayTimetable(hasTimetable);
 		}
 		setUserSettings(context.getUser());
+		loadClassPermissions(context, classes);
 		
         if (isShowExam())
             setShowExamTimetable(examAssignment != null || Exam.hasTimetable(context.getUser().getCurrentAcademicSessionId()));
@@ -1374,7 +1374,7 @@ public class PdfInstructionalOfferingTableBuilder extends WebInstructionalOfferi
     }
     
     private void pdfBuildSchedulingSubpartRow(ClassAssignmentProxy classAssignment, ExamAssignmentProxy examAssignment, CourseOffering co, SchedulingSubpart ss, String indentSpaces, SessionContext context){
-        boolean isEditable = context.hasPermission(ss, Right.SchedulingSubpartDetail);
+        boolean isEditable = hasPermission(context, ss, ss.getUniqueId(), Right.SchedulingSubpartDetail);
         iBgColor = sBgColorSubpart;
         pdfBuildClassOrSubpartRow(classAssignment, examAssignment, co, ss, indentSpaces, isEditable, null, context);
     }
@@ -1399,7 +1399,7 @@ public class PdfInstructionalOfferingTableBuilder extends WebInstructionalOfferi
     }
  
     protected void pdfBuildClassRow(ClassAssignmentProxy classAssignment, ExamAssignmentProxy examAssignment, int ct, CourseOffering co, Class_ aClass, String indentSpaces, SessionContext context, String prevLabel){
-        boolean isEditable = context.hasPermission(aClass, Right.ClassDetail);
+        boolean isEditable = hasPermission(context, aClass, aClass.getUniqueId(), Right.ClassDetail);
         iBgColor = sBgColorClass;
         pdfBuildClassOrSubpartRow(classAssignment, examAssignment, co, aClass, indentSpaces, isEditable && !aClass.isCancelled(), prevLabel, context);
     }
@@ -1427,7 +1427,7 @@ public class PdfInstructionalOfferingTableBuilder extends WebInstructionalOfferi
 
 	protected void pdfBuildConfigRow(Vector subpartIds, ClassAssignmentProxy classAssignment, ExamAssignmentProxy examAssignment, CourseOffering co, InstrOfferingConfig ioc, SessionContext context, boolean printConfigLine) {
 		iBgColor = sBgColorConfig;
-	    boolean isEditable = context.hasPermission(ioc.getInstructionalOffering(), Right.InstructionalOfferingDetail);
+	    boolean isEditable = hasPermission(context, ioc.getInstructionalOffering(), ioc.getInstructionalOffering().getUniqueId(), Right.InstructionalOfferingDetail);
 	    Color color = (isEditable?sEnableColor:sDisableColor);
 	    String configName = ioc.getName();
 	    boolean unlimited = ioc.isUnlimitedEnrollment().booleanValue();
@@ -1579,7 +1579,7 @@ public class PdfInstructionalOfferingTableBuilder extends WebInstructionalOfferi
     private void pdfAddInstrOffrRowsToTable(ClassAssignmentProxy classAssignment, ExamAssignmentProxy examAssignment, InstructionalOffering io, Long subjectAreaId, SessionContext context){
     	iBgColor = sBgColorOffering;
         CourseOffering co = io.findSortCourseOfferingForSubjectArea(subjectAreaId);
-        boolean isEditable = context.hasPermission(co.getInstructionalOffering(), Right.InstructionalOfferingDetail); 
+        boolean isEditable = hasPermission(context, co.getInstructionalOffering(), co.getInstructionalOffering().getUniqueId(), Right.InstructionalOfferingDetail); 
         boolean isManagedAs = !co.isIsControl().booleanValue();
         Color color = (isEditable ? sEnableColor : sDisableColor);
         
@@ -1903,6 +1903,7 @@ public class PdfInstructionalOfferingTableBuilder extends WebInstructionalOfferi
         boolean hasOfferedCourses = false;
         boolean hasNotOfferedCourses = false;
 		setUserSettings(context.getUser());
+		loadPermissions(context, insructionalOfferings);
         
          while (it.hasNext()){
             io = (InstructionalOffering) it.next();
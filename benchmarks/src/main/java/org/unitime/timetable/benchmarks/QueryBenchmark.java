@@ -0,0 +1,94 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.unitime.timetable.gwt.server.Query;
+import org.unitime.timetable.gwt.server.Query.TermMatcher;
+import org.unitime.timetable.onlinesectioning.model.XOffering;
+
+/**
+ * Micro-benchmarks of the filter query parsing and matching (as used by the student scheduling dashboard filters).
+ *
+ * @author Tomas Muller
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+	private static final String[] sFilters = new String[] {
+		"subject:S1 or subject:S2", "(dept:1124 or dept:1125) and area:bio", "mode:online and not status:\"no change\"",
+		"S1 1 and !(level:1xx or level:2xx) limit:30", "student:\"Student 1\" course:S3"
+	};
+
+	@State(Scope.Benchmark)
+	public static class Data {
+		SyntheticData iData;
+		Query[] iQueries;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			iData = new SyntheticData(1000, 0, 0, 3, 0.0, 0);
+			iQueries = new Query[sFilters.length];
+			for (int i = 0; i < sFilters.length; i++)
+				iQueries[i] = new Query(sFilters[i]);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Rnd {
+		Random iRandom = new Random(1);
+	}
+
+	@Benchmark
+	public Query parse(Rnd rnd) {
+		return new Query(sFilters[rnd.iRandom.nextInt(sFilters.length)]);
+	}
+
+	@Benchmark
+	public boolean match(Data data, Rnd rnd) {
+		final XOffering offering = data.iData.getOfferings().get(rnd.iRandom.nextInt(data.iData.getOfferings().size()));
+		return data.iQueries[rnd.iRandom.nextInt(data.iQueries.length)].match(new TermMatcher() {
+			@Override
+			public boolean match(String attr, String term) {
+				if ("subject".equals(attr) || attr == null || attr.isEmpty())
+					return offering.getName().toLowerCase().startsWith(term.toLowerCase());
+				if ("limit".equals(attr))
+					return term.equals(String.valueOf(offering.getConfigs().get(0).getLimit()));
+				return false;
+			}
+		});
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.benchmarks;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.cpsolver.coursett.model.Lecture;
+import org.cpsolver.coursett.model.Placement;
+import org.cpsolver.coursett.model.RoomLocation;
+import org.cpsolver.coursett.model.TimeLocation;
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.AssignmentMap;
+import org.cpsolver.studentsct.constraint.LinkedSections;
+import org.cpsolver.studentsct.model.Config;
+import org.cpsolver.studentsct.model.Course;
+import org.cpsolver.studentsct.model.CourseRequest;
+import org.cpsolver.studentsct.model.Enrollment;
+import org.cpsolver.studentsct.model.Offering;
+import org.cpsolver.studentsct.model.Request;
+import org.cpsolver.studentsct.model.SctAssignment;
+import org.cpsolver.studentsct.model.Section;
+import org.cpsolver.studentsct.model.Student;
+import org.cpsolver.studentsct.model.Subpart;
+import org.unitime.timetable.onlinesectioning.model.XCourseRequest;
+import org.unitime.timetable.onlinesectioning.model.XOffering;
+import org.unitime.timetable.onlinesectioning.model.XRequest;
+import org.unitime.timetable.onlinesectioning.model.XStudent;
+
+/**
+ * Synthetic online sectioning data set, nothing is loaded from the database. Each offering has one course and one configuration
+ * with a lecture subpart and a recitation subpart (two recitations for each lecture), students request random courses and are
+ * enrolled in a random lecture and recitation with the given probability. The data are created as solver objects and converted
+ * into the X model the same way as the batch student sectioning solver does.
+ *
+ * @author Tomas Muller
+ */
+public class SyntheticData {
+	private List<XOffering> iOfferings = new ArrayList<XOffering>();
+	private List<XStudent> iStudents = new ArrayList<XStudent>();
+	private Map<Long, List<XCourseRequest>> iRequests = new HashMap<Long, List<XCourseRequest>>();
+
+	public SyntheticData(int nrOfferings, int nrStudents, int nrRequests, int nrSections, double enrolled, long seed) {
+		Random random = new Random(seed);
+		BitSet weeks = new BitSet();
+		weeks.set(0, 7 * 15);
+		int[] dayCodes = new int[] { 64 + 16 + 4, 32 + 8, 64 + 16, 16 + 4, 64, 32, 16, 8, 4 };
+		int nrSubjects = Math.max(1, nrOfferings / 20);
+		long id = 1;
+
+		List<Course> courses = new ArrayList<Course>();
+		for (int o = 0; o < nrOfferings; o++) {
+			String subject = "S" + (o % nrSubjects);
+			String number = String.valueOf(100 + o / nrSubjects);
+			Offering offering = new Offering(id++, subject + " " + number);
+			Course course = new Course(id++, subject, number, offering, -1, 0);
+			Config config = new Config(id++, -1, "1", offering);
+			Subpart lec = new Subpart(id++, "Lec", "Lec", config, null);
+			Subpart rec = new Subpart(id++, "Rec", "Rec", config, lec);
+			for (int s = 0; s < nrSections; s++) {
+				Section lecture = new Section(id, 60, String.valueOf(1 + s), lec, placement(id, lec.getId(), 60, random, dayCodes, weeks), null);
+				id++;
+				for (int r = 0; r < 2; r++) {
+					new Section(id, 30, String.valueOf(1 + 2 * s + r), rec, placement(id, rec.getId(), 30, random, dayCodes, weeks), lecture);
+					id++;
+				}
+			}
+			courses.add(course);
+			XOffering xo = new XOffering(offering, new ArrayList<LinkedSections>());
+			iOfferings.add(xo);
+			iRequests.put(xo.getOfferingId(), new ArrayList<XCourseRequest>());
+		}
+
+		Assignment<Request, Enrollment> assignment = new AssignmentMap<Request, Enrollment>();
+		for (int s = 0; s < nrStudents; s++) {
+			Student student = new Student(id++);
+			student.setExternalId("S" + student.getId());
+			student.setName("Student " + s);
+			Set<Course> requested = new HashSet<Course>();
+			for (int r = 0; r < Math.min(nrRequests, courses.size()); r++) {
+				Course course = null;
+				do { course = courses.get(random.nextInt(courses.size())); } while (!requested.add(course));
+				CourseRequest request = new CourseRequest(id++, r, false, student, Collections.singletonList(course), false, null);
+				if (random.nextDouble() < enrolled) {
+					Config config = course.getOffering().getConfigs().get(0);
+					List<Section> lectures = config.getSubparts().get(0).getSections();
+					Section lecture = lectures.get(random.nextInt(lectures.size()));
+					List<Section> recitations = new ArrayList<Section>();
+					for (Section section: config.getSubparts().get(1).getSections())
+						if (lecture.equals(section.getParent())) recitations.add(section);
+					Set<SctAssignment> sections = new HashSet<SctAssignment>();
+					sections.add(lecture);
+					sections.add(recitations.get(random.nextInt(recitations.size())));
+					assignment.assign(0, new Enrollment(request, 0, course, config, sections, null));
+				}
+			}
+			XStudent xs = new XStudent(student, assignment);
+			iStudents.add(xs);
+			for (XRequest request: xs.getRequests())
+				if (request instanceof XCourseRequest) {
+					XCourseRequest cr = (XCourseRequest)request;
+					iRequests.get(cr.getCourseIds().get(0).getOfferingId()).add(cr);
+				}
+		}
+	}
+
+	private static Placement placement(long sectionId, long subpartId, int limit, Random random, int[] dayCodes, BitSet weeks) {
+		TimeLocation time = new TimeLocation(dayCodes[random.nextInt(dayCodes.length)], 90 + 12 * random.nextInt(10), 12, 0, 0.0, null, "Full Term", weeks, 10);
+		List<RoomLocation> rooms = new ArrayList<RoomLocation>();
+		long roomId = 1 + random.nextInt(200);
+		rooms.add(new RoomLocation(roomId, "R" + roomId, null, 0, limit, 10.0 * (roomId % 20), 10.0 * (roomId / 20), false, null));
+		return new Placement(new Lecture(sectionId, null, subpartId, String.valueOf(sectionId), new ArrayList<TimeLocation>(), new ArrayList<RoomLocation>(), 1, null, limit, limit, 1.0), time, rooms);
+	}
+
+	public List<XOffering> getOfferings() { return iOfferings; }
+
+	public List<XStudent> getStudents() { return iStudents; }
+
+	/**
+	 * Course requests of the given offering
+	 */
+	public List<XCourseRequest> getRequests(Long offeringId) { return iRequests.get(offeringId); }
+}
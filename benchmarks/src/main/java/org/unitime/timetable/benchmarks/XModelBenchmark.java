@@ -0,0 +1,140 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+*/
+package org.unitime.timetable.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.unitime.timetable.onlinesectioning.MultiLock;
+import org.unitime.timetable.onlinesectioning.OnlineSectioningServer.Lock;
+import org.unitime.timetable.onlinesectioning.model.XEnrollments;
+import org.unitime.timetable.onlinesectioning.model.XOffering;
+import org.unitime.timetable.onlinesectioning.model.XStudent;
+import org.unitime.timetable.onlinesectioning.solver.OfferingTemplate;
+
+/**
+ * Micro-benchmarks of the online sectioning model: enrollment indexing of an offering, offering templates,
+ * serialization of students and offerings (as done by the replicated servers), and offering locking.
+ *
+ * @author Tomas Muller
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XModelBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Data {
+		@Param({"1000"})
+		public int offerings;
+		@Param({"10000"})
+		public int students;
+		@Param({"5"})
+		public int requests;
+		@Param({"3"})
+		public int sections;
+		@Param({"0.8"})
+		public double enrolled;
+
+		SyntheticData iData;
+		MultiLock iMultiLock;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			iData = new SyntheticData(offerings, students, requests, sections, enrolled, 0);
+			iMultiLock = new MultiLock();
+		}
+
+		XOffering offering(Random random) {
+			return iData.getOfferings().get(random.nextInt(iData.getOfferings().size()));
+		}
+
+		XStudent student(Random random) {
+			return iData.getStudents().get(random.nextInt(iData.getStudents().size()));
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Rnd {
+		Random iRandom = new Random(1);
+	}
+
+	@Benchmark
+	public int enrollments(Data data, Rnd rnd) {
+		XOffering offering = data.offering(rnd.iRandom);
+		return new XEnrollments(offering.getOfferingId(), data.iData.getRequests(offering.getOfferingId())).countEnrollments();
+	}
+
+	@Benchmark
+	public OfferingTemplate offeringTemplate(Data data, Rnd rnd) {
+		return new OfferingTemplate(data.offering(rnd.iRandom), null);
+	}
+
+	@Benchmark
+	public XStudent studentExternalize(Data data, Rnd rnd) throws IOException, ClassNotFoundException {
+		XStudent student = data.student(rnd.iRandom);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		student.writeExternal(out);
+		out.flush();
+		return new XStudent(new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+	}
+
+	@Benchmark
+	public XOffering offeringExternalize(Data data, Rnd rnd) throws IOException, ClassNotFoundException {
+		XOffering offering = data.offering(rnd.iRandom);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		offering.writeExternal(out);
+		out.flush();
+		return new XOffering(new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+	}
+
+	@Benchmark
+	public int multiLock(Data data, Rnd rnd) {
+		List<Long> ids = new ArrayList<Long>(3);
+		for (int i = 0; i < 3; i++)
+			ids.add(data.offering(rnd.iRandom).getOfferingId());
+		Lock lock = data.iMultiLock.lock(ids);
+		lock.release();
+		return ids.size();
+	}
+}